@@ -0,0 +1,6 @@
+/*
+ * Generated by src/saveVersion.sh
+ */
+@VersionAnnotation(version="0.1.4-dev", revision="", 
+                         user="root", date="Sun Oct 18 12:59:43 UTC 2026", url="")
+package org.apache.hadoop.hbase;
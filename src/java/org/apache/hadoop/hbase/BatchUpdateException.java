@@ -0,0 +1,69 @@
+/**
+ * Copyright 2008 The Apache Software Foundation
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.hadoop.hbase;
+
+import java.io.IOException;
+import java.util.Collections;
+import java.util.List;
+
+import org.apache.hadoop.hbase.io.BatchUpdate;
+
+/**
+ * Thrown when some updates of a multi-row commit could not be applied.  All
+ * the other updates have been.
+ */
+public class BatchUpdateException extends IOException {
+  private static final long serialVersionUID = 5287331542893371093L;
+
+  private final List<BatchUpdate> failedUpdates;
+  private final List<IOException> failureCauses;
+
+  /**
+   * @param failedUpdates Updates that were not applied
+   * @param failureCauses Why each update was not applied
+   * @param total Count of updates committed
+   */
+  public BatchUpdateException(final List<BatchUpdate> failedUpdates,
+      final List<IOException> failureCauses, final int total) {
+    super(getMessage(failedUpdates, failureCauses, total));
+    this.failedUpdates = Collections.unmodifiableList(failedUpdates);
+    this.failureCauses = Collections.unmodifiableList(failureCauses);
+  }
+
+  /** @return Updates that were not applied */
+  public List<BatchUpdate> getFailedUpdates() {
+    return this.failedUpdates;
+  }
+
+  /** @return Why each of {@link #getFailedUpdates()} was not applied */
+  public List<IOException> getFailureCauses() {
+    return this.failureCauses;
+  }
+
+  private static String getMessage(final List<BatchUpdate> updates,
+      final List<IOException> causes, final int total) {
+    StringBuilder sb = new StringBuilder();
+    sb.append(updates.size() + " of " + total + " updates failed:");
+    for (int i = 0; i < updates.size(); i++) {
+      sb.append("\nrow '" + updates.get(i).getRow() + "': " + causes.get(i));
+    }
+    return sb.toString();
+  }
+}
@@ -23,6 +23,7 @@ import java.io.IOException;
 import java.util.Iterator;
 import java.util.SortedMap;
 import java.util.TreeMap;
+import java.util.TreeSet;
 import java.util.Vector;
 import java.util.Map.Entry;
 import java.util.regex.Pattern;
@@ -113,6 +114,8 @@ public abstract class HAbstractScanner implements HInternalScannerInterface {
   protected long timestamp;                                     // The timestamp to match entries against
   private boolean wildcardMatch;
   private boolean multipleMatchers;
+  // Columns asked for by name, sorted
+  private final TreeSet<Text> namedColumns = new TreeSet<Text>();
 
   /** Constructor for abstract base class */
   HAbstractScanner(long timestamp, Text[] targetCols) throws IOException {
@@ -129,6 +132,8 @@ public abstract class HAbstractScanner implements HInternalScannerInterface {
       ColumnMatcher matcher = new ColumnMatcher(targetCols[i]);
       if (matcher.isWildCardMatch()) {
         this.wildcardMatch = true;
+      } else {
+        this.namedColumns.add(targetCols[i]);
       }
       matchers.add(matcher);
       if (matchers.size() > 1) {
@@ -162,6 +167,23 @@ public abstract class HAbstractScanner implements HInternalScannerInterface {
     return false;
   }
   
+  /**
+   * If the scanner is not a wildcard scanner, every column it matches is
+   * asked for by name so scanners can seek from one to the next.
+   * 
+   * @param column Column to start from
+   * @return The least column asked for by name that sorts after
+   * <code>column</code>, or null if there is none.
+   */
+  protected Text getNextColumn(final Text column) {
+    for (Text c: this.namedColumns.tailSet(column)) {
+      if (c.compareTo(column) > 0) {
+        return c;
+      }
+    }
+    return null;
+  }
+  
   /** {@inheritDoc} */
   public boolean isWildcardScanner() {
     return this.wildcardMatch;
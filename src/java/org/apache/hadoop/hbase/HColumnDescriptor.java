@@ -42,7 +42,8 @@ import org.apache.hadoop.hbase.io.TextSequence;
 public class HColumnDescriptor implements WritableComparable {
   
   // For future backward compatibility
-  private static final byte COLUMN_DESCRIPTOR_VERSION = (byte)1;
+  // Version 2 adds the compression codec, level and block size.
+  private static final byte COLUMN_DESCRIPTOR_VERSION = (byte)2;
   
   /** Legal family names can only contain 'word characters' and end in a colon. */
   public static final Pattern LEGAL_FAMILY_NAME = Pattern.compile("\\w+:");
@@ -60,11 +61,37 @@ public class HColumnDescriptor implements WritableComparable {
     BLOCK
   }
   
+  /**
+   * The codec records or blocks are compressed with.  Ignored if the
+   * compression type is NONE.
+   */
+  public static enum Codec {
+    /** zlib at the family's compression level.  Slow, compresses well. */
+    ZLIB,
+    /** LZO.  Fast; needs the native hadoop library. */
+    LZO
+  }
+
   /**
    * Default compression type.
    */
   public static final CompressionType DEFAULT_COMPRESSION_TYPE =
     CompressionType.NONE;
+
+  /**
+   * Default compression codec.
+   */
+  public static final Codec DEFAULT_CODEC = Codec.ZLIB;
+
+  /**
+   * Default compression level: zlib's own default.
+   */
+  public static final int DEFAULT_COMPRESSION_LEVEL = -1;
+
+  /**
+   * Default compression block size: <code>io.seqfile.compress.blocksize</code>.
+   */
+  public static final int DEFAULT_COMPRESSION_BLOCK_SIZE = 0;
   
   /**
    * Default number of versions of a record to keep.
@@ -93,6 +120,10 @@ public class HColumnDescriptor implements WritableComparable {
   private int maxVersions;
   // Compression setting if any
   private CompressionType compressionType;
+  // Codec, zlib level and uncompressed bytes per block if compressing
+  private Codec codec;
+  private int compressionLevel;
+  private int compressionBlockSize;
   // Serve reads from in-memory cache
   private boolean inMemory;
   // Maximum value size
@@ -145,6 +176,39 @@ public class HColumnDescriptor implements WritableComparable {
   public HColumnDescriptor(final Text name, final int maxVersions,
       final CompressionType compression, final boolean inMemory,
       final int maxValueLength, final BloomFilterDescriptor bloomFilter) {
+    this(name, maxVersions, compression, DEFAULT_CODEC,
+      DEFAULT_COMPRESSION_LEVEL, DEFAULT_COMPRESSION_BLOCK_SIZE, inMemory,
+      maxValueLength, bloomFilter);
+  }
+
+  /**
+   * Constructor
+   * Specify all parameters, including how to compress.
+   * @param name Column family name
+   * @param maxVersions Maximum number of versions to keep
+   * @param compression Compression type
+   * @param codec Codec to compress with
+   * @param compressionLevel zlib level, 1 (fastest) to 9 (smallest), or -1
+   * for zlib's default.  Used by the ZLIB codec only.
+   * @param compressionBlockSize Bytes of records compressed together when
+   * the compression type is BLOCK, or 0 for
+   * <code>io.seqfile.compress.blocksize</code>
+   * @param inMemory If true, column data should be kept in an HRegionServer's
+   * cache
+   * @param maxValueLength Restrict values to &lt;= this value
+   * @param bloomFilter Enable the specified bloom filter for this column
+   * 
+   * @throws IllegalArgumentException if passed a family name that is made of 
+   * other than 'word' characters: i.e. <code>[a-zA-Z_0-9]</code> and does not
+   * end in a <code>:</code>
+   * @throws IllegalArgumentException if the number of versions is &lt;= 0,
+   * or the compression level or block size are out of range
+   */
+  public HColumnDescriptor(final Text name, final int maxVersions,
+      final CompressionType compression, final Codec codec,
+      final int compressionLevel, final int compressionBlockSize,
+      final boolean inMemory, final int maxValueLength,
+      final BloomFilterDescriptor bloomFilter) {
     String familyStr = name.toString();
     // Test name if not null (It can be null when deserializing after
     // construction but before we've read in the fields);
@@ -170,6 +234,17 @@ public class HColumnDescriptor implements WritableComparable {
     this.bloomFilterSpecified = this.bloomFilter == null ? false : true;
     this.versionNumber = COLUMN_DESCRIPTOR_VERSION;
     this.compressionType = compression;
+    if (compressionLevel < -1 || compressionLevel > 9) {
+      throw new IllegalArgumentException("Compression level must be -1 or " +
+        "between 0 and 9");
+    }
+    if (compressionBlockSize < 0) {
+      throw new IllegalArgumentException("Compression block size must not " +
+        "be negative");
+    }
+    this.codec = codec;
+    this.compressionLevel = compressionLevel;
+    this.compressionBlockSize = compressionBlockSize;
   }
   
   /** @return name of column family */
@@ -205,6 +280,28 @@ public class HColumnDescriptor implements WritableComparable {
     return this.compressionType;
   }
 
+  /**
+   * @return Codec to compress with if the compression type is not NONE.
+   */
+  public Codec getCodec() {
+    return this.codec;
+  }
+
+  /**
+   * @return zlib compression level, or -1 for zlib's default.
+   */
+  public int getCompressionLevel() {
+    return this.compressionLevel;
+  }
+
+  /**
+   * @return Bytes of records to compress together when the compression type
+   * is BLOCK, or 0 for <code>io.seqfile.compress.blocksize</code>.
+   */
+  public int getCompressionBlockSize() {
+    return this.compressionBlockSize;
+  }
+
   /**
    * @return True if we are to keep all in use HRegionServer cache.
    */
@@ -233,7 +330,12 @@ public class HColumnDescriptor implements WritableComparable {
     String tmp = name.toString();
     return "{name: " + tmp.substring(0, tmp.length() - 1) +
       ", max versions: " + maxVersions +
-      ", compression: " + this.compressionType + ", in memory: " + inMemory +
+      ", compression: " + this.compressionType +
+      (this.compressionType == CompressionType.NONE? "":
+        ", codec: " + this.codec + ", compression level: " +
+        this.compressionLevel + ", compression block size: " +
+        this.compressionBlockSize) +
+      ", in memory: " + inMemory +
       ", max length: " + maxValueLength + ", bloom filter: " +
       (bloomFilterSpecified ? bloomFilter.toString() : "none") + "}";
   }
@@ -250,6 +352,9 @@ public class HColumnDescriptor implements WritableComparable {
     int result = this.name.hashCode();
     result ^= Integer.valueOf(this.maxVersions).hashCode();
     result ^= this.compressionType.hashCode();
+    result ^= this.codec.hashCode();
+    result ^= Integer.valueOf(this.compressionLevel).hashCode();
+    result ^= Integer.valueOf(this.compressionBlockSize).hashCode();
     result ^= Boolean.valueOf(this.inMemory).hashCode();
     result ^= Integer.valueOf(this.maxValueLength).hashCode();
     result ^= Boolean.valueOf(this.bloomFilterSpecified).hashCode();
@@ -269,6 +374,17 @@ public class HColumnDescriptor implements WritableComparable {
     this.maxVersions = in.readInt();
     int ordinal = in.readInt();
     this.compressionType = CompressionType.values()[ordinal];
+    if (this.versionNumber >= 2) {
+      this.codec = Codec.values()[in.readInt()];
+      this.compressionLevel = in.readInt();
+      this.compressionBlockSize = in.readInt();
+    } else {
+      this.codec = DEFAULT_CODEC;
+      this.compressionLevel = DEFAULT_COMPRESSION_LEVEL;
+      this.compressionBlockSize = DEFAULT_COMPRESSION_BLOCK_SIZE;
+    }
+    // Written back out in the current format.
+    this.versionNumber = COLUMN_DESCRIPTOR_VERSION;
     this.inMemory = in.readBoolean();
     this.maxValueLength = in.readInt();
     this.bloomFilterSpecified = in.readBoolean();
@@ -285,6 +401,9 @@ public class HColumnDescriptor implements WritableComparable {
     this.name.write(out);
     out.writeInt(this.maxVersions);
     out.writeInt(this.compressionType.ordinal());
+    out.writeInt(this.codec.ordinal());
+    out.writeInt(this.compressionLevel);
+    out.writeInt(this.compressionBlockSize);
     out.writeBoolean(this.inMemory);
     out.writeInt(this.maxValueLength);
     out.writeBoolean(this.bloomFilterSpecified);
@@ -314,6 +433,20 @@ public class HColumnDescriptor implements WritableComparable {
     if(result == 0) {
       result = this.compressionType.compareTo(other.compressionType);
     }
+
+    if(result == 0) {
+      result = this.codec.compareTo(other.codec);
+    }
+
+    if(result == 0) {
+      result = Integer.valueOf(this.compressionLevel).compareTo(
+          Integer.valueOf(other.compressionLevel));
+    }
+
+    if(result == 0) {
+      result = Integer.valueOf(this.compressionBlockSize).compareTo(
+          Integer.valueOf(other.compressionBlockSize));
+    }
     
     if(result == 0) {
       if(this.inMemory == other.inMemory) {
@@ -19,6 +19,10 @@
  */
 package org.apache.hadoop.hbase;
 
+import java.io.IOException;
+
+import org.apache.hadoop.io.Text;
+
 /**
  * Internally, we need to be able to determine if the scanner is doing wildcard
  * column matches (when only a column family is specified or if a column regex
@@ -32,4 +36,13 @@ public interface HInternalScannerInterface extends HScannerInterface {
   
   /** @return true if the scanner is matching multiple column family members */
   public boolean isMultipleMatchScanner();
+
+  /**
+   * Skip ahead so no row before <code>row</code> is returned by later calls
+   * to next.  Does nothing if the scanner is already at or past
+   * <code>row</code>.
+   * @param row Row to seek to
+   * @throws IOException
+   */
+  public void seekRow(Text row) throws IOException;
 }
\ No newline at end of file
@@ -22,13 +22,20 @@ package org.apache.hadoop.hbase;
 import java.io.FileNotFoundException;
 import java.io.EOFException;
 import java.io.IOException;
+import java.util.ArrayList;
 import java.util.Collections;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.SortedMap;
 import java.util.TreeMap;
 import java.util.TreeSet;
+import java.util.concurrent.Callable;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import java.util.concurrent.locks.Lock;
 import java.util.concurrent.locks.ReentrantLock;
 
@@ -79,6 +86,15 @@ import org.apache.hadoop.hbase.util.FSUtils;
  * separate reentrant lock is used.
  *
  * <p>
+ * Appends are group-committed. Callers queue their edits on the current
+ * {@link LogBatch} and wait; a single {@link LogWriter} thread swaps out the
+ * batch, writes every queued edit and marks a SequenceFile sync point once
+ * for the whole batch before waking the callers that contributed to it.
+ * A sync point only lets readers resynchronize in the file; it does not
+ * force anything to disk, so a returned append is in the writer's buffers,
+ * not necessarily in HDFS (see below).
+ *
+ * <p>
  * TODO: Vuk Ercegovac also pointed out that keeping HBase HRegion edit logs in
  * HDFS is currently flawed. HBase writes edits to logs and to a memcache. The
  * 'atomic' write to the log is meant to serve as insurance against abnormal
@@ -132,6 +148,13 @@ public class HLog implements HConstants {
   // during an update
   private final Integer updateLock = new Integer(0);
 
+  // Guards currentBatch, the handing out of sequence numbers to appenders and
+  // the lastSeqWritten bookkeeping.  Never take updateLock while holding it.
+  private final Integer batchLock = new Integer(0);
+  private LogBatch currentBatch = new LogBatch();
+  private volatile boolean closing = false;
+  private final LogWriter logWriter;
+
   /**
    * Create an edit log at the given <code>dir</code> location.
    *
@@ -159,6 +182,10 @@ public class HLog implements HConstants {
     }
     fs.mkdirs(dir);
     rollWriter();
+    this.logWriter = new LogWriter();
+    this.logWriter.setName(Thread.currentThread().getName() + ".logWriter");
+    this.logWriter.setDaemon(true);
+    this.logWriter.start();
   }
 
   /*
@@ -323,6 +350,18 @@ public class HLog implements HConstants {
    * @throws IOException
    */
   void close() throws IOException {
+    // Let the log writer drain whatever has been queued before we close.
+    synchronized (batchLock) {
+      this.closing = true;
+      batchLock.notifyAll();
+    }
+    while (this.logWriter.isAlive()) {
+      try {
+        this.logWriter.join();
+      } catch (InterruptedException e) {
+        // continue
+      }
+    }
     cacheFlushLock.lock();
     try {
       synchronized (updateLock) {
@@ -351,23 +390,27 @@ public class HLog implements HConstants {
    * systems should process the log appropriately upon each startup (and prior
    * to initializing HLog).
    *
-   * synchronized prevents appends during the completion of a cache flush or for
-   * the duration of a log roll.
+   * The edits are queued on the current batch and this method blocks until
+   * the log writer thread has handed that batch to the SequenceFile writer.
+   * That does not make the edits durable; see the class comment.
    *
    * @param regionName
    * @param tableName
-   * @param row
-   * @param columns
-   * @param timestamp
+   * @param edits
    * @throws IOException
    */
   void append(Text regionName, Text tableName,
       TreeMap<HStoreKey, byte[]> edits)
   throws IOException {
-    if (closed) {
-      throw new IOException("Cannot append; log is closed");
-    }
-    synchronized (updateLock) {
+    LogBatch batch;
+    // Sequence numbers are handed out under batchLock so edits sit in their
+    // batch, and so in the log, in sequence id order.  Checking closing
+    // under batchLock too means a queued batch is always one the log writer
+    // will take before it exits.
+    synchronized (batchLock) {
+      if (closed || closing) {
+        throw new IOException("Cannot append; log is closed");
+      }
       long seqNum[] = obtainSeqNum(edits.size());
       // The 'lastSeqWritten' map holds the sequence number of the oldest
       // write for each region. When the cache is flushed, the entry for the
@@ -376,28 +419,130 @@ public class HLog implements HConstants {
       if (!this.lastSeqWritten.containsKey(regionName)) {
         this.lastSeqWritten.put(regionName, Long.valueOf(seqNum[0]));
       }
+      batch = this.currentBatch;
       int counter = 0;
       for (Map.Entry<HStoreKey, byte[]> es : edits.entrySet()) {
         HStoreKey key = es.getKey();
-        HLogKey logKey =
-          new HLogKey(regionName, tableName, key.getRow(), seqNum[counter++]);
-        HLogEdit logEdit =
-          new HLogEdit(key.getColumn(), es.getValue(), key.getTimestamp());
-        try {
-          this.writer.append(logKey, logEdit);
-        } catch (IOException e) { 
-          LOG.fatal("Could not append. Requesting close of log", e);
-          requestLogRoll();
-          throw e;
-        }
-        this.numEntries++;
+        batch.keys.add(
+          new HLogKey(regionName, tableName, key.getRow(), seqNum[counter++]));
+        batch.edits.add(
+          new HLogEdit(key.getColumn(), es.getValue(), key.getTimestamp()));
       }
+      batchLock.notifyAll();
     }
+    batch.waitUntilWritten();
     if (this.numEntries > this.maxlogentries) {
       requestLogRoll();
     }
   }
 
+  /*
+   * Write out a batch of queued edits and mark one sync point for all of them.
+   * Called by the log writer thread only.
+   * @param batch
+   */
+  private void writeBatch(final LogBatch batch) {
+    IOException error = null;
+    try {
+      synchronized (updateLock) {
+        if (this.closed) {
+          throw new IOException("Cannot append; log is closed");
+        }
+        for (int i = 0; i < batch.keys.size(); i++) {
+          this.writer.append(batch.keys.get(i), batch.edits.get(i));
+          this.numEntries++;
+        }
+        this.writer.sync();
+      }
+    } catch (IOException e) {
+      LOG.fatal("Could not append. Requesting close of log", e);
+      requestLogRoll();
+      error = e;
+    } finally {
+      batch.written(error);
+    }
+  }
+
+  /*
+   * Edits queued by appenders that are written together.
+   */
+  private static class LogBatch {
+    final List<HLogKey> keys = new ArrayList<HLogKey>();
+    final List<HLogEdit> edits = new ArrayList<HLogEdit>();
+    private boolean done = false;
+    private IOException error = null;
+
+    boolean isEmpty() {
+      return this.keys.isEmpty();
+    }
+
+    synchronized void written(final IOException e) {
+      this.error = e;
+      this.done = true;
+      notifyAll();
+    }
+
+    synchronized void waitUntilWritten() throws IOException {
+      while (!this.done) {
+        try {
+          wait();
+        } catch (InterruptedException e) {
+          // continue
+        }
+      }
+      if (this.error != null) {
+        throw this.error;
+      }
+    }
+  }
+
+  /*
+   * Takes the current batch whenever it has edits, installs a fresh one for
+   * appenders to fill meanwhile, and writes it out.  Exits once the log is
+   * closing and the last batch has been drained.  However it exits, it
+   * closes the log to appends and fails any batch still queued so no
+   * appender waits forever.
+   */
+  private class LogWriter extends Thread {
+    @Override
+    public void run() {
+      try {
+        while (true) {
+          LogBatch batch;
+          synchronized (batchLock) {
+            while (currentBatch.isEmpty() && !closing) {
+              try {
+                batchLock.wait(threadWakeFrequency);
+              } catch (InterruptedException e) {
+                // continue
+              }
+            }
+            if (currentBatch.isEmpty()) {
+              break;
+            }
+            batch = currentBatch;
+            currentBatch = new LogBatch();
+          }
+          writeBatch(batch);
+        }
+      } finally {
+        LogBatch pending;
+        synchronized (batchLock) {
+          closing = true;
+          pending = currentBatch;
+          currentBatch = new LogBatch();
+        }
+        if (!pending.isEmpty()) {
+          pending.written(new IOException("Log writer exited; edits not " +
+            "written"));
+        }
+        if (LOG.isDebugEnabled()) {
+          LOG.debug(getName() + " exiting");
+        }
+      }
+    }
+  }
+
   private void requestLogRoll() {
     if (this.listener != null) {
       this.listener.logRollRequested();
@@ -480,9 +625,11 @@ public class HLog implements HConstants {
             new HLogEdit(HLog.METACOLUMN, HLogEdit.completeCacheFlush.get(),
                 System.currentTimeMillis()));
         this.numEntries++;
-        Long seq = this.lastSeqWritten.get(regionName);
-        if (seq != null && logSeqId >= seq.longValue()) {
-          this.lastSeqWritten.remove(regionName);
+        synchronized (batchLock) {
+          Long seq = this.lastSeqWritten.get(regionName);
+          if (seq != null && logSeqId >= seq.longValue()) {
+            this.lastSeqWritten.remove(regionName);
+          }
         }
       }
     } finally {
@@ -504,6 +651,14 @@ public class HLog implements HConstants {
    * Split up a bunch of log files, that are no longer being written to, into
    * new files, one per region. Delete the old log files when finished.
    *
+   * <p>Log files are read in parallel by a pool of
+   * <code>hbase.regionserver.hlog.splitlog.reader.threads</code> readers, at
+   * most that many files ahead of the one being written out so memory use is
+   * bounded by a handful of log files.  Edits are handed to
+   * <code>hbase.regionserver.hlog.splitlog.writer.threads</code> writers in log
+   * file order.  A region is always served by the same writer so each region's
+   * old log file comes out in the order the edits were originally logged.
+   *
    * @param rootDir qualified root directory of the HBase instance
    * @param srcDir Directory of log files to split: e.g.
    *                <code>${ROOTDIR}/log_HOST_PORT</code>
@@ -524,101 +679,61 @@ public class HLog implements HConstants {
     }
     LOG.info("splitting " + logfiles.length + " log(s) in " +
       srcDir.toString());
-    Map<Text, SequenceFile.Writer> logWriters =
-      new HashMap<Text, SequenceFile.Writer>();
+    int readerCount =
+      Math.max(1, conf.getInt("hbase.regionserver.hlog.splitlog.reader.threads", 3));
+    int writerCount =
+      Math.max(1, conf.getInt("hbase.regionserver.hlog.splitlog.writer.threads", 3));
+    ExecutorService readers = Executors.newFixedThreadPool(readerCount);
+    SplitWriter [] writers = new SplitWriter[writerCount];
+    for (int i = 0; i < writers.length; i++) {
+      writers[i] = new SplitWriter(rootDir, fs, conf);
+    }
     try {
+      List<Future<Map<Text, SplitEdits>>> reads =
+        new ArrayList<Future<Map<Text, SplitEdits>>>(logfiles.length);
       for (int i = 0; i < logfiles.length; i++) {
-        if (LOG.isDebugEnabled()) {
-          LOG.debug("Splitting " + i + " of " + logfiles.length + ": " +
-            logfiles[i].getPath());
+        // Keep the read-ahead window full.
+        while (reads.size() < logfiles.length &&
+            reads.size() <= i + readerCount) {
+          reads.add(readers.submit(new SplitReader(fs, conf,
+            logfiles[reads.size()], reads.size(), logfiles.length)));
         }
-        // Check for empty file.
-        if (logfiles[i].getLen() <= 0) {
-          LOG.info("Skipping " + logfiles[i].toString() +
-              " because zero length");
-          continue;
+        Map<Text, SplitEdits> edits = waitOn(reads.get(i));
+        reads.set(i, null);
+        List<Future<Integer>> writes =
+          new ArrayList<Future<Integer>>(edits.size());
+        for (SplitEdits e : edits.values()) {
+          int index = (e.regionName.hashCode() & Integer.MAX_VALUE) %
+            writers.length;
+          writes.add(writers[index].append(e));
         }
-        HLogKey key = new HLogKey();
-        HLogEdit val = new HLogEdit();
-        SequenceFile.Reader in =
-          new SequenceFile.Reader(fs, logfiles[i].getPath(), conf);
+        int count = 0;
+        for (Future<Integer> w : writes) {
+          count += waitOn(w).intValue();
+        }
+        if (LOG.isDebugEnabled()) {
+          LOG.debug("Applied " + count + " total edits from " +
+            logfiles[i].getPath().toString());
+        }
+        // Delete the input file now so we do not replay edits.  We could
+        // have had problems reading it.  If so, probably nothing we can do
+        // about it. Replaying it, it could work but we could be stuck
+        // replaying for ever. Just continue though we could have lost some
+        // edits.
+        fs.delete(logfiles[i].getPath());
+      }
+    } finally {
+      readers.shutdownNow();
+      IOException closeException = null;
+      for (int i = 0; i < writers.length; i++) {
         try {
-          int count = 0;
-          for (; in.next(key, val); count++) {
-            Text tableName = key.getTablename();
-            Text regionName = key.getRegionName();
-            SequenceFile.Writer w = logWriters.get(regionName);
-            if (w == null) {
-              Path logfile = new Path(
-                  HRegion.getRegionDir(
-                      HTableDescriptor.getTableDir(rootDir, tableName),
-                      HRegionInfo.encodeRegionName(regionName)
-                  ),
-                  HREGION_OLDLOGFILE_NAME
-              );
-              
-              Path oldlogfile = null;
-              SequenceFile.Reader old = null;
-              if (fs.exists(logfile)) {
-                LOG.warn("Old log file " + logfile +
-                    " already exists. Copying existing file to new file");
-                oldlogfile = new Path(logfile.toString() + ".old");
-                fs.rename(logfile, oldlogfile);
-                old = new SequenceFile.Reader(fs, oldlogfile, conf);
-              }
-              w = SequenceFile.createWriter(fs, conf, logfile, HLogKey.class,
-                HLogEdit.class, getCompressionType(conf));
-              // Use copy of regionName; regionName object is reused inside in
-              // HStoreKey.getRegionName so its content changes as we iterate.
-              logWriters.put(new Text(regionName), w);
-              if (LOG.isDebugEnabled()) {
-                LOG.debug("Creating new log file writer for path " + logfile +
-                  " and region " + regionName);
-              }
-              
-              if (old != null) {
-                // Copy from existing log file
-                HLogKey oldkey = new HLogKey();
-                HLogEdit oldval = new HLogEdit();
-                for (; old.next(oldkey, oldval); count++) {
-                  if (LOG.isDebugEnabled() && count > 0 && count % 10000 == 0) {
-                    LOG.debug("Copied " + count + " edits");
-                  }
-                  w.append(oldkey, oldval);
-                }
-                old.close();
-                fs.delete(oldlogfile);
-              }
-            }
-            w.append(key, val);
-          }
-          if (LOG.isDebugEnabled()) {
-            LOG.debug("Applied " + count + " total edits from " +
-              logfiles[i].getPath().toString());
-          }
+          writers[i].close();
         } catch (IOException e) {
-          e = RemoteExceptionHandler.checkIOException(e);
-          if (!(e instanceof EOFException)) {
-            LOG.warn("Exception processing " + logfiles[i].getPath() +
-                " -- continuing. Possible DATA LOSS!", e);
-          }
-        } finally {
-          try {
-            in.close();
-          } catch (IOException e) {
-            LOG.warn("Close in finally threw exception -- continuing", e);
-          }
-          // Delete the input file now so we do not replay edits.  We could
-          // have gotten here because of an exception.  If so, probably
-          // nothing we can do about it. Replaying it, it could work but we
-          // could be stuck replaying for ever. Just continue though we
-          // could have lost some edits.
-          fs.delete(logfiles[i].getPath());
+          closeException = e;
         }
       }
-    } finally {
-      for (SequenceFile.Writer w : logWriters.values()) {
-        w.close();
+      if (closeException != null) {
+        throw closeException;
       }
     }
 
@@ -633,6 +748,215 @@ public class HLog implements HConstants {
     LOG.info("log file splitting completed for " + srcDir.toString());
   }
 
+  /*
+   * Wait on a split task, rethrowing any IOException it failed with.
+   * @param f
+   * @return Result of the task
+   * @throws IOException
+   */
+  private static <T> T waitOn(final Future<T> f) throws IOException {
+    while (true) {
+      try {
+        return f.get();
+      } catch (InterruptedException e) {
+        // continue
+      } catch (ExecutionException e) {
+        Throwable cause = e.getCause();
+        if (cause instanceof IOException) {
+          throw (IOException)cause;
+        }
+        IOException io = new IOException("Log splitting failed");
+        io.initCause(cause);
+        throw io;
+      }
+    }
+  }
+
+  /*
+   * The edits read out of one log file for a single region.
+   */
+  private static class SplitEdits {
+    final Text regionName;
+    final Text tableName;
+    final List<HLogKey> keys = new ArrayList<HLogKey>();
+    final List<HLogEdit> edits = new ArrayList<HLogEdit>();
+
+    SplitEdits(final Text regionName, final Text tableName) {
+      this.regionName = regionName;
+      this.tableName = tableName;
+    }
+  }
+
+  /*
+   * Reads a whole log file, grouping its edits by region.
+   */
+  private static class SplitReader
+  implements Callable<Map<Text, SplitEdits>> {
+    private final FileSystem fs;
+    private final Configuration conf;
+    private final FileStatus logfile;
+    private final int index;
+    private final int total;
+
+    SplitReader(final FileSystem fs, final Configuration conf,
+        final FileStatus logfile, final int index, final int total) {
+      this.fs = fs;
+      this.conf = conf;
+      this.logfile = logfile;
+      this.index = index;
+      this.total = total;
+    }
+
+    /** {@inheritDoc} */
+    public Map<Text, SplitEdits> call() throws IOException {
+      Map<Text, SplitEdits> result = new HashMap<Text, SplitEdits>();
+      if (LOG.isDebugEnabled()) {
+        LOG.debug("Splitting " + index + " of " + total + ": " +
+          logfile.getPath());
+      }
+      // Check for empty file.
+      if (logfile.getLen() <= 0) {
+        LOG.info("Skipping " + logfile.toString() + " because zero length");
+        return result;
+      }
+      SequenceFile.Reader in =
+        new SequenceFile.Reader(fs, logfile.getPath(), conf);
+      try {
+        HLogKey key = new HLogKey();
+        HLogEdit val = new HLogEdit();
+        while (in.next(key, val)) {
+          SplitEdits e = result.get(key.getRegionName());
+          if (e == null) {
+            e = new SplitEdits(key.getRegionName(), key.getTablename());
+            result.put(e.regionName, e);
+          }
+          e.keys.add(key);
+          e.edits.add(val);
+          // The reader fills in the instances it is passed so each edit
+          // needs its own.
+          key = new HLogKey();
+          val = new HLogEdit();
+        }
+      } catch (IOException e) {
+        e = RemoteExceptionHandler.checkIOException(e);
+        if (!(e instanceof EOFException)) {
+          LOG.warn("Exception processing " + logfile.getPath() +
+              " -- continuing. Possible DATA LOSS!", e);
+        }
+      } finally {
+        try {
+          in.close();
+        } catch (IOException e) {
+          LOG.warn("Close in finally threw exception -- continuing", e);
+        }
+      }
+      return result;
+    }
+  }
+
+  /*
+   * Appends split edits to the old log files of the regions assigned to it.
+   * Work runs on a single thread so edits for a region are written in the
+   * order they were handed in.
+   */
+  private static class SplitWriter {
+    private final Path rootDir;
+    private final FileSystem fs;
+    private final Configuration conf;
+    private final ExecutorService executor =
+      Executors.newSingleThreadExecutor();
+    // Only accessed from the executor thread.
+    private final Map<Text, SequenceFile.Writer> logWriters =
+      new HashMap<Text, SequenceFile.Writer>();
+
+    SplitWriter(final Path rootDir, final FileSystem fs,
+        final Configuration conf) {
+      this.rootDir = rootDir;
+      this.fs = fs;
+      this.conf = conf;
+    }
+
+    Future<Integer> append(final SplitEdits e) {
+      return this.executor.submit(new Callable<Integer>() {
+        public Integer call() throws IOException {
+          SequenceFile.Writer w = getWriter(e.regionName, e.tableName);
+          for (int i = 0; i < e.keys.size(); i++) {
+            w.append(e.keys.get(i), e.edits.get(i));
+          }
+          return Integer.valueOf(e.keys.size());
+        }
+      });
+    }
+
+    private SequenceFile.Writer getWriter(final Text regionName,
+        final Text tableName)
+    throws IOException {
+      SequenceFile.Writer w = logWriters.get(regionName);
+      if (w != null) {
+        return w;
+      }
+      Path logfile = new Path(
+          HRegion.getRegionDir(
+              HTableDescriptor.getTableDir(rootDir, tableName),
+              HRegionInfo.encodeRegionName(regionName)
+          ),
+          HREGION_OLDLOGFILE_NAME
+      );
+
+      Path oldlogfile = null;
+      SequenceFile.Reader old = null;
+      if (fs.exists(logfile)) {
+        LOG.warn("Old log file " + logfile +
+            " already exists. Copying existing file to new file");
+        oldlogfile = new Path(logfile.toString() + ".old");
+        fs.rename(logfile, oldlogfile);
+        old = new SequenceFile.Reader(fs, oldlogfile, conf);
+      }
+      w = SequenceFile.createWriter(fs, conf, logfile, HLogKey.class,
+        HLogEdit.class, getCompressionType(conf));
+      logWriters.put(regionName, w);
+      if (LOG.isDebugEnabled()) {
+        LOG.debug("Creating new log file writer for path " + logfile +
+          " and region " + regionName);
+      }
+
+      if (old != null) {
+        // Copy from existing log file
+        HLogKey oldkey = new HLogKey();
+        HLogEdit oldval = new HLogEdit();
+        for (int count = 0; old.next(oldkey, oldval); count++) {
+          if (LOG.isDebugEnabled() && count > 0 && count % 10000 == 0) {
+            LOG.debug("Copied " + count + " edits");
+          }
+          w.append(oldkey, oldval);
+        }
+        old.close();
+        fs.delete(oldlogfile);
+      }
+      return w;
+    }
+
+    /*
+     * Finish outstanding appends and close all old log files.
+     * @throws IOException
+     */
+    void close() throws IOException {
+      Future<Integer> closer = this.executor.submit(new Callable<Integer>() {
+        public Integer call() throws IOException {
+          for (SequenceFile.Writer w : logWriters.values()) {
+            w.close();
+          }
+          return Integer.valueOf(logWriters.size());
+        }
+      });
+      try {
+        waitOn(closer);
+      } finally {
+        this.executor.shutdown();
+      }
+    }
+  }
+
   private static void usage() {
     System.err.println("Usage: java org.apache.hbase.HLog" +
         " {--dump <logfile>... | --split <logdir>...}");
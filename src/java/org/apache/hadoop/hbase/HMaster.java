@@ -798,6 +798,95 @@ public class HMaster extends Thread implements HConstants, HMasterInterface,
   final MetaScanner metaScannerThread;
   final Integer metaScannerLock = new Integer(0);
 
+  /**
+   * Balancer periodically moves regions off servers carrying more than their
+   * share of load, as reported in their {@link HServerLoad}s, onto the most
+   * lightly loaded.  It does nothing while regions are being assigned or
+   * earlier moves are outstanding.  Moves still outstanding after
+   * <code>hbase.master.balancer.moveTimeout</code> are given up on so a move
+   * that can no longer finish does not stop balancing for good.  See
+   * {@link LoadBalancer}.
+   */
+  class Balancer extends Chore {
+    private final LoadBalancer balancer;
+    private final long moveTimeout;
+    // When the outstanding moves were started.
+    private long movesStarted = System.currentTimeMillis();
+
+    Balancer(final int period, final LoadBalancer balancer,
+        final long moveTimeout) {
+      super(period, closed);
+      this.balancer = balancer;
+      this.moveTimeout = moveTimeout;
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    protected void chore() {
+      if (closed.get() || shutdownRequested || !initialMetaScanComplete ||
+          !unassignedRegions.isEmpty() || !pendingRegions.isEmpty()) {
+        return;
+      }
+      if (!regionsToMove.isEmpty() || !regionTargets.isEmpty()) {
+        if (System.currentTimeMillis() - this.movesStarted < this.moveTimeout) {
+          return;
+        }
+        // Regions not yet closed stay where they are.  Regions already closed
+        // are assigned like any other.
+        LOG.warn("Giving up on region moves outstanding after " +
+          this.moveTimeout + "ms: " + regionTargets);
+        regionsToMove.clear();
+        regionTargets.clear();
+        return;
+      }
+      Map<String, HServerLoad> loads =
+        new HashMap<String, HServerLoad>(serversToLoad);
+      Map<String, HashMap<Text, HRegionInfo>> moves =
+        new HashMap<String, HashMap<Text, HRegionInfo>>();
+      for (LoadBalancer.RegionMove move: this.balancer.balance(loads)) {
+        HServerInfo source = serversToServerInfo.get(move.getSource());
+        if (source == null) {
+          continue;
+        }
+        HRegionInfo info = null;
+        try {
+          info = connection.getHRegionConnection(source.getServerAddress()).
+            getRegionInfo(move.getRegionName());
+        } catch (IOException e) {
+          LOG.warn("Failed getting info on " + move.getRegionName() +
+            "; not moving it", RemoteExceptionHandler.checkIOException(e));
+          continue;
+        }
+        LOG.info("Balancer moving " + move);
+        regionTargets.put(move.getRegionName(), move.getDestination());
+        HashMap<Text, HRegionInfo> regions = moves.get(move.getSource());
+        if (regions == null) {
+          regions = new HashMap<Text, HRegionInfo>();
+          moves.put(move.getSource(), regions);
+        }
+        regions.put(move.getRegionName(), info);
+      }
+      // Hand over whole sets; processMsgs takes a server's set in one go.
+      this.movesStarted = System.currentTimeMillis();
+      regionsToMove.putAll(moves);
+    }
+  }
+
+  /*
+   * Forget the balancer's moves off or onto a server that has gone away.
+   * Regions it was serving are reassigned like any other.
+   * @param serverName
+   */
+  private void cancelMoves(final String serverName) {
+    HashMap<Text, HRegionInfo> regions = regionsToMove.remove(serverName);
+    if (regions != null) {
+      for (Text regionName: regions.keySet()) {
+        regionTargets.remove(regionName);
+      }
+    }
+    regionTargets.values().removeAll(Collections.singleton(serverName));
+  }
+
   /** The map of known server names to server info */
   volatile Map<String, HServerInfo> serversToServerInfo =
     new ConcurrentHashMap<String, HServerInfo>();
@@ -846,6 +935,22 @@ public class HMaster extends Thread implements HConstants, HMasterInterface,
   volatile Set<Text> killedRegions =
     Collections.synchronizedSet(new HashSet<Text>());
 
+  /**
+   * Regions the balancer is moving, keyed by the name of the server to close
+   * them on.  Unlike the 'killList', the regions are reopened.
+   */
+  volatile Map<String, HashMap<Text, HRegionInfo>> regionsToMove =
+    new ConcurrentHashMap<String, HashMap<Text, HRegionInfo>>();
+
+  /**
+   * Map of name of a region being moved to the name of the server it should
+   * be opened on.
+   */
+  volatile Map<Text, String> regionTargets =
+    new ConcurrentHashMap<Text, String>();
+
+  private final Balancer balancerThread;
+
   /** Set of tables currently in creation. */
   private volatile Set<Text> tableInCreation = 
     Collections.synchronizedSet(new HashSet<Text>());
@@ -973,6 +1078,12 @@ public class HMaster extends Thread implements HConstants, HMasterInterface,
     
     this.maxAssignInOneGo =
       this.conf.getInt("hbase.master.regions.percheckin", 10);
+
+    this.balancerThread = new Balancer(
+      conf.getInt("hbase.master.balancer.period", 5 * 60 * 1000),
+      new LoadBalancer(conf.getFloat("hbase.master.balancer.slop", 0.2F),
+        conf.getInt("hbase.master.balancer.maxMoves", 2)),
+      conf.getLong("hbase.master.balancer.moveTimeout", 10 * 60 * 1000));
     
     // We're almost open for business
     this.closed.set(false);
@@ -1173,6 +1284,14 @@ public class HMaster extends Thread implements HConstants, HMasterInterface,
     } catch(Exception iex) {
       LOG.warn("meta scanner", iex);
     }
+    try {
+      if (balancerThread.isAlive()) {
+        balancerThread.interrupt();     // Wake balancer from its sleep.
+        balancerThread.join();
+      }
+    } catch(Exception iex) {
+      LOG.warn("balancer", iex);
+    }
     LOG.info("HMaster main thread exiting");
   }
   
@@ -1190,6 +1309,8 @@ public class HMaster extends Thread implements HConstants, HMasterInterface,
         threadName + ".rootScanner");
       Threads.setDaemonThreadRunning(this.metaScannerThread,
         threadName + ".metaScanner");
+      Threads.setDaemonThreadRunning(this.balancerThread,
+        threadName + ".balancer");
       // Leases are not the same as Chore threads. Set name differently.
       this.serverLeases.setName(threadName + ".leaseChecker");
       this.serverLeases.start();
@@ -1534,6 +1655,7 @@ public class HMaster extends Thread implements HConstants, HMasterInterface,
       LOG.info("Cancelling lease for " + serverName);
       serverLeases.cancelLease(serverLabel, serverLabel);
       leaseCancelled = true;
+      cancelMoves(serverName);
 
       // update load information
       HServerLoad load = serversToLoad.remove(serverName);
@@ -1701,6 +1823,12 @@ public class HMaster extends Thread implements HConstants, HMasterInterface,
         addToUnassignedRegions(newRegionB);
         LOG.info("Region " + region.getRegionName() + " split; new regions: " +
           newRegionA.getRegionName() + ", " + newRegionB.getRegionName());
+        // The parent is gone so can no longer be moved.
+        HashMap<Text, HRegionInfo> moving = regionsToMove.get(serverName);
+        if (moving != null) {
+          moving.remove(region.getRegionName());
+        }
+        regionTargets.remove(region.getRegionName());
 
         if (region.isMetaTable()) {
           // A meta region has split.
@@ -1725,6 +1853,19 @@ public class HMaster extends Thread implements HConstants, HMasterInterface,
       }
     }
 
+    // Close regions the balancer is moving off this server.  They are not
+    // added to killedRegions so they get reassigned once closed.
+
+    HashMap<Text, HRegionInfo> regionsToClose =
+      regionsToMove.remove(serverName);
+    if (regionsToClose != null) {
+      for (HRegionInfo i: regionsToClose.values()) {
+        LOG.info("moving region " + i.getRegionName() + " off " + serverName +
+          " to " + regionTargets.get(i.getRegionName()));
+        returnMsgs.add(new HMsg(HMsg.MSG_REGION_CLOSE, i));
+      }
+    }
+
     // Figure out what the RegionServer ought to do, and write back.
     assignRegions(info, serverName, returnMsgs);
     return returnMsgs.toArray(new HMsg[returnMsgs.size()]);
@@ -1772,6 +1913,19 @@ public class HMaster extends Thread implements HConstants, HMasterInterface,
         }
         long diff = now - e.getValue().longValue();
         if (diff > this.maxRegionOpenTime) {
+          String target = this.regionTargets.get(i.getRegionName());
+          if (target != null && this.serversToServerInfo.containsKey(target)) {
+            // Region is being moved by the balancer.  Only its target gets
+            // it, whatever the target's load.
+            if (target.equals(serverName)) {
+              LOG.info("assigning moved region " + i.getRegionName() +
+                " to server " + serverName);
+              e.setValue(Long.valueOf(now));
+              returnMsgs.add(new HMsg(HMsg.MSG_REGION_OPEN, i));
+              this.regionTargets.remove(i.getRegionName());
+            }
+            continue;
+          }
           regionsToAssign.add(e.getKey());
         }
       }
@@ -1857,6 +2011,7 @@ public class HMaster extends Thread implements HConstants, HMasterInterface,
           LOG.info("assigning region " + regionInfo.getRegionName() +
               " to server " + serverName);
           this.unassignedRegions.put(regionInfo, Long.valueOf(now));
+          this.regionTargets.remove(regionInfo.getRegionName());
           returnMsgs.add(new HMsg(HMsg.MSG_REGION_OPEN, regionInfo));
           if (--nregions <= 0) {
             break;
@@ -1913,6 +2068,7 @@ public class HMaster extends Thread implements HConstants, HMasterInterface,
       LOG.info("assigning region " + regionInfo.getRegionName() +
           " to the only server " + serverName);
       this.unassignedRegions.put(regionInfo, Long.valueOf(now));
+      this.regionTargets.remove(regionInfo.getRegionName());
       returnMsgs.add(new HMsg(HMsg.MSG_REGION_OPEN, regionInfo));
       if (count++ >= this.maxAssignInOneGo) {
         break;
@@ -3149,6 +3305,7 @@ public class HMaster extends Thread implements HConstants, HMasterInterface,
             loadToServers.put(load, servers);
           }
         }
+        cancelMoves(serverName);
         deadServers.add(server);
       }
       synchronized (serversToServerInfo) {
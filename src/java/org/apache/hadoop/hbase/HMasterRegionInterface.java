@@ -29,8 +29,11 @@ import org.apache.hadoop.ipc.VersionedProtocol;
  * goings-on and to obtain data-handling instructions from the HMaster.
  */
 public interface HMasterRegionInterface extends VersionedProtocol {
-  /** Interface version number */
-  public static final long versionID = 1L;
+  /**
+   * Interface version number.
+   * 2: HServerLoad carries per-region load.
+   */
+  public static final long versionID = 2L;
   
   /**
    * Called when a region server first starts
@@ -21,10 +21,13 @@ package org.apache.hadoop.hbase;
 
 import java.io.IOException;
 import java.util.ArrayList;
+import java.util.HashSet;
 import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Random;
+import java.util.Set;
 import java.util.SortedMap;
 import java.util.TreeMap;
 import java.util.TreeSet;
@@ -293,13 +296,17 @@ public class HRegion implements HConstants {
   // Members
   //////////////////////////////////////////////////////////////////////////////
 
-  volatile Map<Text, Long> rowsToLocks = new ConcurrentHashMap<Text, Long>();
-  volatile Map<Long, Text> locksToRows = new ConcurrentHashMap<Long, Text>();
+  // Held row locks by row and by lock id.  Each RowLock is its own monitor so
+  // waiters only wake for the row they want.
+  final ConcurrentHashMap<Text, RowLock> rowsToLocks =
+    new ConcurrentHashMap<Text, RowLock>();
+  final ConcurrentHashMap<Long, RowLock> locksToRows =
+    new ConcurrentHashMap<Long, RowLock>();
   volatile Map<Text, HStore> stores = new ConcurrentHashMap<Text, HStore>();
-  volatile Map<Long, TreeMap<HStoreKey, byte []>> targetColumns =
-    new ConcurrentHashMap<Long, TreeMap<HStoreKey, byte []>>();
 
   final AtomicLong memcacheSize = new AtomicLong(0);
+  // Requests since the hosting server last reported load to the master.
+  final AtomicInteger requestCount = new AtomicInteger(0);
 
   final Path basedir;
   final HLog log;
@@ -709,6 +716,111 @@ public class HRegion implements HConstants {
     return biggest;
   }
   
+  /**
+   * @return Bytes in this region's store files.
+   */
+  long getStorefilesSize() {
+    long size = 0;
+    for (HStore store: stores.values()) {
+      size += store.getStorefilesSize();
+    }
+    return size;
+  }
+
+  /**
+   * Find rows that divide this region into pieces of about
+   * <code>splitSize</code> bytes so, say, a map task need not read all of a
+   * large region.  Rows come from the largest file of the largest store.
+   * @param splitSize
+   * @return Sorted rows inside this region, not including its start key.
+   * Empty if the region is no bigger than <code>splitSize</code>.
+   * @throws IOException
+   */
+  List<Text> getSplitRows(final long splitSize) throws IOException {
+    HStore largest = null;
+    long largestSize = 0L;
+    long aggregate = 0L;
+    for (HStore h: stores.values()) {
+      long size = h.size(new Text()).getAggregate();
+      aggregate += size;
+      if (largest == null || size > largestSize) {
+        largest = h;
+        largestSize = size;
+      }
+    }
+    List<Text> rows = new ArrayList<Text>();
+    if (largest == null || splitSize <= 0 || aggregate <= splitSize) {
+      return rows;
+    }
+    int pieces = (int)Math.min(Integer.MAX_VALUE,
+      (aggregate + splitSize - 1) / splitSize);
+    Text startKey = getStartKey();
+    Text endKey = getEndKey();
+    for (Text row: largest.getSplitRows(pieces)) {
+      if (row.compareTo(startKey) > 0 &&
+          (endKey.getLength() == 0 || row.compareTo(endKey) < 0)) {
+        rows.add(row);
+      }
+    }
+    return rows;
+  }
+  
+  /**
+   * Adopt store files written outside of the region, say by
+   * {@link org.apache.hadoop.hbase.mapred.HStoreFileOutputFormat}.  The
+   * files bypass the log and memcache.  Every file is checked before any is
+   * moved into its store.
+   * @param dir Directory laid out like a region directory: a subdirectory per
+   * column family, each with <code>mapfiles</code> and <code>info</code>
+   * subdirectories.  Must be on the same filesystem as the region.
+   * @return Count of store files adopted.
+   * @throws IOException if a file has rows outside of this region or if the
+   * region is closed.
+   */
+  int loadStoreFiles(final Path dir) throws IOException {
+    if (this.closed.get()) {
+      throw new IOException("Region " + this.getRegionName().toString() +
+        " closed");
+    }
+    Path basedir = dir.getParent();
+    String encodedName = dir.getName();
+    FileSystem fs = getFilesystem();
+    // Prevent splits and closes
+    splitsAndClosesLock.readLock().lock();
+    try {
+      Map<HStoreFile, HStore> toLoad =
+        new LinkedHashMap<HStoreFile, HStore>();
+      for (Map.Entry<Text, HStore> s: stores.entrySet()) {
+        Text family = s.getKey();
+        HStore store = s.getValue();
+        Path mapdir = HStoreFile.getMapDir(basedir, encodedName, family);
+        if (!fs.exists(mapdir)) {
+          continue;
+        }
+        for (FileStatus status: fs.listStatus(mapdir)) {
+          long fid;
+          try {
+            fid = Long.parseLong(status.getPath().getName());
+          } catch (NumberFormatException e) {
+            throw new IOException("Unexpected file " + status.getPath());
+          }
+          HStoreFile hsf = new HStoreFile(conf, fs, basedir, encodedName,
+            family, fid, null);
+          store.checkStoreFile(hsf);
+          toLoad.put(hsf, store);
+        }
+      }
+      for (Map.Entry<HStoreFile, HStore> f: toLoad.entrySet()) {
+        f.getValue().loadStoreFile(f.getKey());
+      }
+      LOG.info("Loaded " + toLoad.size() + " store file(s) from " + dir +
+        " into " + getRegionName());
+      return toLoad.size();
+    } finally {
+      splitsAndClosesLock.readLock().unlock();
+    }
+  }
+
   /*
    * Split the HRegion to create two brand-new ones.  This also closes
    * current HRegion.  Split should be fast since we don't rewrite store files
@@ -878,6 +990,32 @@ public class HRegion implements HConstants {
     return compactStores();
   }
   
+  /**
+   * @return Compaction priority of the most urgent store in this region.
+   * Lower values are more urgent.
+   * @see HStore#getCompactionPriority()
+   */
+  int getCompactionPriority() {
+    int priority = Integer.MAX_VALUE;
+    for (HStore store: stores.values()) {
+      priority = Math.min(priority, store.getCompactionPriority());
+    }
+    return priority;
+  }
+
+  /**
+   * @return True if any store of this region is due a major compaction.
+   * @see HStore#isMajorCompactionDue()
+   */
+  boolean isMajorCompactionDue() {
+    for (HStore store: stores.values()) {
+      if (store.isMajorCompactionDue()) {
+        return true;
+      }
+    }
+    return false;
+  }
+  
   /*
    * @param dir
    * @return compaction directory for the passed in <code>dir</code>
@@ -934,12 +1072,12 @@ public class HRegion implements HConstants {
    * conflicts with a region split, and that cannot happen because the region
    * server does them sequentially and not in parallel.
    * 
-   * @param force True to force a compaction regardless of thresholds (Needed
-   * by merge).
+   * @param force True to force a major compaction, one that rewrites all
+   * store files regardless of thresholds (Needed by merge).
    * @return Returns TRUE if a compaction.  FALSE, if no compaction.
    * @throws IOException
    */
-  private boolean compactStores(final boolean force) throws IOException {
+  boolean compactStores(final boolean force) throws IOException {
     if (this.closed.get()) {
       return false;
     }
@@ -1242,13 +1380,56 @@ public class HRegion implements HConstants {
    * @throws IOException
    */
   public Map<Text, byte []> getFull(Text row, long ts) throws IOException {
+    return getFull(row, null, ts);
+  }
+
+  /**
+   * Fetch the given columns of the indicated row at a specified timestamp.
+   * Only the stores of the families asked for are read.
+   *
+   * @param row
+   * @param columns Columns to fetch.  A column family name, e.g.
+   * <code>info:</code>, fetches every column of the family.  If null, fetch
+   * all columns.
+   * @param ts
+   * @return Map<columnName, byte[]> values
+   * @throws IOException
+   */
+  public Map<Text, byte []> getFull(Text row, Set<Text> columns, long ts)
+  throws IOException {
     HStoreKey key = new HStoreKey(row, ts);
     obtainRowLock(row);
     try {
       TreeMap<Text, byte []> result = new TreeMap<Text, byte[]>();
-      for (Text colFamily: stores.keySet()) {
+      if (columns == null) {
+        for (Text colFamily: stores.keySet()) {
+          HStore targetStore = stores.get(colFamily);
+          targetStore.getFull(key, result);
+        }
+        return result;
+      }
+      Set<Text> families = new TreeSet<Text>();
+      Set<Text> wholeFamilies = new TreeSet<Text>();
+      for (Text column: columns) {
+        Text family = HStoreKey.extractFamily(column).toText();
+        families.add(family);
+        if (family.getLength() + 1 == column.getLength()) {
+          wholeFamilies.add(family);
+        }
+      }
+      for (Text colFamily: families) {
         HStore targetStore = stores.get(colFamily);
-        targetStore.getFull(key, result);
+        if (targetStore != null) {
+          targetStore.getFull(key, result);
+        }
+      }
+      // Drop columns of families that were asked for by column only.
+      for (Iterator<Text> i = result.keySet().iterator(); i.hasNext();) {
+        Text column = i.next();
+        if (!columns.contains(column) &&
+            !wholeFamilies.contains(HStoreKey.extractFamily(column).toText())) {
+          i.remove();
+        }
       }
       return result;
     } finally {
@@ -1402,55 +1583,174 @@ public class HRegion implements HConstants {
     // See HRegionServer#RegionListener for how the expire on HRegionServer
     // invokes a HRegion#abort.
     Text row = b.getRow();
-    long lockid = obtainRowLock(row);
+    obtainRowLock(row);
 
     long commitTime =
       (timestamp == LATEST_TIMESTAMP) ? System.currentTimeMillis() : timestamp;
       
     try {
-      List<Text> deletes = null;
-      for (BatchOperation op: b) {
-        HStoreKey key = new HStoreKey(row, op.getColumn(), commitTime);
-        byte[] val = null;
-        if (op.isPut()) {
-          val = op.getValue();
-          if (HLogEdit.isDeleted(val)) {
-            throw new IOException("Cannot insert value: " + val);
+      TreeMap<HStoreKey, byte[]> edits = new TreeMap<HStoreKey, byte[]>();
+      List<Text> deletes = getEdits(b, timestamp, commitTime, edits);
+      update(edits);
+      deleteLatest(row, deletes);
+    } finally {
+      releaseRowLock(row);
+    }
+  }
+
+  /**
+   * Apply updates to many rows of this region at once.  Resources are checked
+   * once and the edits of all rows go to the log in one append.  If a row has
+   * more than one update, the batch is applied in runs that each update a row
+   * at most once, so the updates take effect as if committed one at a time;
+   * e.g. a put after a delete of the same cell is kept.  An update that
+   * cannot be applied, because its row is not in this region or it names a
+   * column family the table does not have, fails without affecting the
+   * others.
+   * @param timestamp
+   * @param bs
+   * @return Per update, null if applied, else the exception it failed with.
+   * @throws IOException If the batch as a whole could not be applied.
+   */
+  public IOException [] batchUpdate(long timestamp, BatchUpdate [] bs)
+    throws IOException {
+    checkResources();
+    IOException [] failures = new IOException[bs.length];
+    // Lock rows in sorted order so concurrent multi-row updates cannot
+    // deadlock on each other.
+    TreeSet<Text> rows = new TreeSet<Text>();
+    for (int i = 0; i < bs.length; i++) {
+      try {
+        checkRow(bs[i].getRow());
+        rows.add(bs[i].getRow());
+      } catch (IOException e) {
+        failures[i] = e;
+      }
+    }
+    long commitTime =
+      (timestamp == LATEST_TIMESTAMP) ? System.currentTimeMillis() : timestamp;
+    List<Text> locked = new ArrayList<Text>(rows.size());
+    try {
+      for (Text row: rows) {
+        obtainRowLock(row);
+        locked.add(row);
+      }
+      TreeMap<HStoreKey, byte[]> edits = new TreeMap<HStoreKey, byte[]>();
+      List<List<Text>> deletes = new ArrayList<List<Text>>(bs.length);
+      // Updates whose edits are in edits, and their rows.
+      List<Integer> run = new ArrayList<Integer>();
+      Set<Text> runRows = new HashSet<Text>();
+      for (int i = 0; i < bs.length; i++) {
+        List<Text> rowDeletes = null;
+        if (failures[i] == null) {
+          if (runRows.contains(bs[i].getRow())) {
+            // Earlier updates to the row, LATEST deletes included, must be
+            // in place before this one is applied.
+            applyRun(bs, edits, deletes, run, failures);
+            edits = new TreeMap<HStoreKey, byte[]>();
+            run.clear();
+            runRows.clear();
           }
-        } else {
-          if (timestamp == LATEST_TIMESTAMP) {
-            // Save off these deletes
-            if (deletes == null) {
-              deletes = new ArrayList<Text>();
-            }
-            deletes.add(op.getColumn());
-          } else {
-            val = HLogEdit.deleteBytes.get();
+          TreeMap<HStoreKey, byte[]> rowEdits =
+            new TreeMap<HStoreKey, byte[]>();
+          try {
+            rowDeletes = getEdits(bs[i], timestamp, commitTime, rowEdits);
+            edits.putAll(rowEdits);
+            run.add(Integer.valueOf(i));
+            runRows.add(bs[i].getRow());
+          } catch (IOException e) {
+            failures[i] = e;
           }
         }
-        if (val != null) {
-          localput(lockid, key, val);
-        }
+        deletes.add(rowDeletes);
       }
-      TreeMap<HStoreKey, byte[]> edits =
-        this.targetColumns.remove(Long.valueOf(lockid));
-      if (edits != null && edits.size() > 0) {
-        update(edits);
+      applyRun(bs, edits, deletes, run, failures);
+    } finally {
+      for (Text row: locked) {
+        releaseRowLock(row);
       }
-      
-      if (deletes != null && deletes.size() > 0) {
-        // We have some LATEST_TIMESTAMP deletes to run.
-        for (Text column: deletes) {
-          deleteMultiple(row, column, LATEST_TIMESTAMP, 1);
+    }
+    return failures;
+  }
+
+  /*
+   * Apply a run of a multi-row batch: its edits, then its LATEST_TIMESTAMP
+   * deletes.  Caller holds the row locks.
+   * @param bs The batch
+   * @param edits Edits of the updates in the run
+   * @param deletes LATEST_TIMESTAMP deletes of each update of the batch
+   * @param run Indices of the updates in the run, no two to the same row
+   * @param failures Where deletes that fail are recorded
+   * @throws IOException If the edits could not be applied.
+   */
+  private void applyRun(final BatchUpdate [] bs,
+      final TreeMap<HStoreKey, byte[]> edits, final List<List<Text>> deletes,
+      final List<Integer> run, final IOException [] failures)
+  throws IOException {
+    update(edits);
+    for (Integer i: run) {
+      try {
+        deleteLatest(bs[i.intValue()].getRow(), deletes.get(i.intValue()));
+      } catch (IOException e) {
+        failures[i.intValue()] = e;
+      }
+    }
+  }
+
+  /*
+   * Add the edits a BatchUpdate makes to <code>edits</code>.
+   * @param b
+   * @param timestamp Timestamp passed by the client.
+   * @param commitTime Timestamp to give the edits.
+   * @param edits
+   * @return Columns to delete at the latest timestamp, or null if none.
+   * @throws IOException If the update is malformed.
+   */
+  private List<Text> getEdits(final BatchUpdate b, final long timestamp,
+      final long commitTime, final TreeMap<HStoreKey, byte[]> edits)
+  throws IOException {
+    List<Text> deletes = null;
+    for (BatchOperation op: b) {
+      HStoreKey key = new HStoreKey(b.getRow(), op.getColumn(), commitTime);
+      byte[] val = null;
+      if (op.isPut()) {
+        val = op.getValue();
+        if (HLogEdit.isDeleted(val)) {
+          throw new IOException("Cannot insert value: " + val);
+        }
+      } else {
+        if (timestamp == LATEST_TIMESTAMP) {
+          // Save off these deletes
+          if (deletes == null) {
+            deletes = new ArrayList<Text>();
+          }
+          deletes.add(op.getColumn());
+        } else {
+          val = HLogEdit.deleteBytes.get();
         }
       }
+      if (val != null) {
+        checkColumn(key.getColumn());
+        edits.put(key, val);
+      }
+    }
+    return deletes;
+  }
 
-    } catch (IOException e) {
-      this.targetColumns.remove(Long.valueOf(lockid));
-      throw e;
-      
-    } finally {
-      releaseRowLock(row);
+  /*
+   * Run LATEST_TIMESTAMP deletes saved off by getEdits.
+   * Caller holds the row lock.
+   * @param row
+   * @param deletes May be null.
+   * @throws IOException
+   */
+  private void deleteLatest(final Text row, final List<Text> deletes)
+  throws IOException {
+    if (deletes != null && deletes.size() > 0) {
+      // We have some LATEST_TIMESTAMP deletes to run.
+      for (Text column: deletes) {
+        deleteMultiple(row, column, LATEST_TIMESTAMP, 1);
+      }
     }
   }
   
@@ -1591,31 +1891,6 @@ public class HRegion implements HConstants {
     }
   }
   
-  /**
-   * Private implementation.
-   * 
-   * localput() is used for both puts and deletes. We just place the values
-   * into a per-row pending area, until a commit() or abort() call is received.
-   * (Or until the user's write-lock expires.)
-   * 
-   * @param lockid
-   * @param key 
-   * @param val Value to enter into cell
-   * @throws IOException
-   */
-  private void localput(final long lockid, final HStoreKey key, 
-      final byte [] val) throws IOException {
-    
-    checkColumn(key.getColumn());
-    Long lid = Long.valueOf(lockid);
-    TreeMap<HStoreKey, byte []> targets = this.targetColumns.get(lid);
-    if (targets == null) {
-      targets = new TreeMap<HStoreKey, byte []>();
-      this.targetColumns.put(lid, targets);
-    }
-    targets.put(key, val);
-  }
-
   /* 
    * Add updates first to the hlog and then add values to memcache.
    * Warning: Assumption is caller has lock on passed in row.
@@ -1641,8 +1916,10 @@ public class HRegion implements HConstants {
         // What if the update fails?  Memcache size will be off by this
         // entry's size.  Have to discern if the delete is one where data
         // failed to get added. St.Ack.
-        size = this.memcacheSize.addAndGet(getEntrySize(key, val));
-        stores.get(HStoreKey.extractFamily(key.getColumn())).add(key, val);
+        // Stores report what they grew by so slab memcaches are counted by
+        // the slab bytes they hold.
+        size = this.memcacheSize.addAndGet(
+          stores.get(HStoreKey.extractFamily(key.getColumn())).add(key, val));
       }
       flush = this.flushListener != null && size > this.memcacheFlushSize;
     } finally {
@@ -1656,9 +1933,9 @@ public class HRegion implements HConstants {
   
   /*
    * Calculate size of passed key/value pair.
-   * Used here when we update region to figure what to add to this.memcacheSize
-   * Also used in Store when flushing calculating size of flush.  Both need to
-   * use same method making size calculation.
+   * Used by the memcache to figure what an update adds to this.memcacheSize,
+   * unless it keeps edits in slabs.  Also used in Store when flushing
+   * calculating size of flush.
    * @param key
    * @param value
    * @return Size of the passed key + value
@@ -1726,31 +2003,24 @@ public class HRegion implements HConstants {
         throw new NotServingRegionException("Region " + getRegionName() +
           " closed");
       }
-      synchronized (rowsToLocks) {
-        while (rowsToLocks.get(row) != null) {
-          try {
-            rowsToLocks.wait();
-          } catch (InterruptedException ie) {
-            // Empty
-          }
-        }
-        Long lid = Long.valueOf(Math.abs(rand.nextLong()));
-        rowsToLocks.put(row, lid);
-        locksToRows.put(lid, row);
-        rowsToLocks.notifyAll();
-        return lid.longValue();
+      RowLock lock = new RowLock(row);
+      for (RowLock held; (held = rowsToLocks.putIfAbsent(row, lock)) != null;) {
+        held.waitForRelease();
       }
+      Long lid;
+      do {
+        lid = Long.valueOf(Math.abs(rand.nextLong()));
+      } while (locksToRows.putIfAbsent(lid, lock) != null);
+      lock.lockid = lid;
+      return lid.longValue();
     } finally {
       splitsAndClosesLock.readLock().unlock();
     }
   }
   
   Text getRowFromLock(long lockid) {
-    // Pattern is that all access to rowsToLocks and/or to
-    // locksToRows is via a lock on rowsToLocks.
-    synchronized (rowsToLocks) {
-      return locksToRows.get(Long.valueOf(lockid));
-    }
+    RowLock lock = locksToRows.get(Long.valueOf(lockid));
+    return lock == null? null: lock.row;
   }
   
   /** 
@@ -1758,19 +2028,43 @@ public class HRegion implements HConstants {
    * @param row Name of row whose lock we are to release
    */
   void releaseRowLock(Text row) {
-    synchronized (rowsToLocks) {
-      long lockid = rowsToLocks.remove(row).longValue();
-      locksToRows.remove(Long.valueOf(lockid));
-      rowsToLocks.notifyAll();
-    }
+    RowLock lock = rowsToLocks.get(row);
+    locksToRows.remove(lock.lockid);
+    rowsToLocks.remove(row);
+    lock.release();
   }
   
   private void waitOnRowLocks() {
-    synchronized (rowsToLocks) {
-      while (this.rowsToLocks.size() > 0) {
-        LOG.debug("waiting for " + this.rowsToLocks.size() + " row locks");
+    while (this.rowsToLocks.size() > 0) {
+      LOG.debug("waiting for " + this.rowsToLocks.size() + " row locks");
+      for (RowLock lock: this.rowsToLocks.values()) {
+        lock.waitForRelease();
+      }
+    }
+  }
+
+  /*
+   * A held row lock.  Threads after the same row wait on it until the holder
+   * releases it.
+   */
+  private static class RowLock {
+    final Text row;
+    volatile Long lockid;
+    private boolean released = false;
+
+    RowLock(final Text row) {
+      this.row = row;
+    }
+
+    synchronized void release() {
+      this.released = true;
+      notifyAll();
+    }
+
+    synchronized void waitForRelease() {
+      while (!this.released) {
         try {
-          this.rowsToLocks.wait();
+          wait();
         } catch (InterruptedException e) {
           // Catch. Let while test determine loop-end.
         }
@@ -1807,6 +2101,10 @@ public class HRegion implements HConstants {
     private HInternalScannerInterface[] scanners;
     private TreeMap<Text, byte []>[] resultSets;
     private HStoreKey[] keys;
+    // Stores with rows left, lowest row first
+    private HStoreKeyHeap heap;
+    // Stores on the row being gathered
+    private int [] chosen;
     private RowFilterInterface filter;
 
     /** Create an HScanner with a handle on many HStores. */
@@ -1841,11 +2139,17 @@ public class HRegion implements HConstants {
       // All results will match the required column-set and scanTime.
       this.resultSets = new TreeMap[scanners.length];
       this.keys = new HStoreKey[scanners.length];
+      this.heap = new HStoreKeyHeap(this.keys);
+      this.chosen = new int[scanners.length];
       for (int i = 0; i < scanners.length; i++) {
         keys[i] = new HStoreKey();
         resultSets[i] = new TreeMap<Text, byte []>();
-        if(scanners[i] != null && !scanners[i].next(keys[i], resultSets[i])) {
-          closeScanner(i);
+        if(scanners[i] != null) {
+          if (scanners[i].next(keys[i], resultSets[i])) {
+            heap.add(i);
+          } else {
+            closeScanner(i);
+          }
         }
       }
 
@@ -1855,65 +2159,47 @@ public class HRegion implements HConstants {
     }
 
     /** {@inheritDoc} */
-    @SuppressWarnings("null")
     public boolean next(HStoreKey key, SortedMap<Text, byte[]> results)
     throws IOException {
       boolean moreToFollow = false;
       boolean filtered = false;
 
       do {
-        // Find the lowest-possible key.
-
-        Text chosenRow = null;
+        // The store on the lowest key chooses the row.
+        int first = this.heap.peek();
         long chosenTimestamp = -1;
-        for (int i = 0; i < this.keys.length; i++) {
-          if (scanners[i] != null &&
-              (chosenRow == null ||
-                  (keys[i].getRow().compareTo(chosenRow) < 0) ||
-                  ((keys[i].getRow().compareTo(chosenRow) == 0) &&
-                      (keys[i].getTimestamp() > chosenTimestamp)))) {
-            chosenRow = new Text(keys[i].getRow());
-            chosenTimestamp = keys[i].getTimestamp();
-          }
-        }
-
-        // Store the key and results for each sub-scanner. Merge them as
-        // appropriate.
-        if (chosenTimestamp >= 0) {
+        if (first >= 0) {
           // Here we are setting the passed in key with current row+timestamp
-          key.setRow(chosenRow);
-          key.setVersion(chosenTimestamp);
+          // and using its row from here on rather than copying the row.
+          key.setRow(keys[first].getRow());
+          key.setVersion(keys[first].getTimestamp());
           key.setColumn(HConstants.EMPTY_TEXT);
+          chosenTimestamp = key.getTimestamp();
+          Text chosenRow = key.getRow();
 
-          for (int i = 0; i < scanners.length; i++) {
-            if (scanners[i] != null &&
-                keys[i].getRow().compareTo(chosenRow) == 0) {
-              // NOTE: We used to do results.putAll(resultSets[i]);
-              // but this had the effect of overwriting newer
-              // values with older ones. So now we only insert
-              // a result if the map does not contain the key.
-              for (Map.Entry<Text, byte[]> e : resultSets[i].entrySet()) {
-                if (!results.containsKey(e.getKey())) {
-                  results.put(e.getKey(), e.getValue());
-                }
-              }
-              resultSets[i].clear();
-              if (!scanners[i].next(keys[i], resultSets[i])) {
-                closeScanner(i);
+          // Take out the stores on the chosen row and merge their results.
+          int count = 0;
+          while (!heap.isEmpty() && heap.peekRow().compareTo(chosenRow) == 0) {
+            chosen[count++] = heap.poll();
+          }
+          for (int j = 0; j < count; j++) {
+            int i = chosen[j];
+            // NOTE: We used to do results.putAll(resultSets[i]);
+            // but this had the effect of overwriting newer
+            // values with older ones. So now we only insert
+            // a result if the map does not contain the key.
+            for (Map.Entry<Text, byte[]> e : resultSets[i].entrySet()) {
+              if (!results.containsKey(e.getKey())) {
+                results.put(e.getKey(), e.getValue());
               }
             }
+            advance(i);
           }
-        }
 
-        for (int i = 0; i < scanners.length; i++) {
-          // If the current scanner is non-null AND has a lower-or-equal
-          // row label, then its timestamp is bad. We need to advance it.
-          while ((scanners[i] != null) &&
-              (keys[i].getRow().compareTo(chosenRow) <= 0)) {
-            resultSets[i].clear();
-            if (!scanners[i].next(keys[i], resultSets[i])) {
-              closeScanner(i);
-            }
+          // If a store is still on a lower-or-equal row label, then its
+          // timestamp is bad.  We need to advance it.
+          while (!heap.isEmpty() && heap.peekRow().compareTo(chosenRow) <= 0) {
+            advance(heap.poll());
           }
         }
 
@@ -1948,6 +2234,19 @@ public class HRegion implements HConstants {
     }
 
     
+    /*
+     * Move a store that is out of the heap on to its next row.  Puts it back
+     * in the heap, or closes it if it has no more rows.
+     */
+    private void advance(final int i) throws IOException {
+      resultSets[i].clear();
+      if (scanners[i].next(keys[i], resultSets[i])) {
+        heap.add(i);
+      } else {
+        closeScanner(i);
+      }
+    }
+
     /** Shut down a single scanner */
     void closeScanner(int i) {
       try {
@@ -1959,6 +2258,9 @@ public class HRegion implements HConstants {
       } finally {
         scanners[i] = null;
         // These data members can be null if exception in constructor
+        if (heap != null) {
+          heap.remove(i);
+        }
         if (resultSets != null) {
           resultSets[i] = null;
         }
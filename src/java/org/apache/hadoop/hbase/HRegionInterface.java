@@ -23,6 +23,7 @@ import java.io.IOException;
 
 import org.apache.hadoop.hbase.filter.RowFilterInterface;
 import org.apache.hadoop.hbase.io.BatchUpdate;
+import org.apache.hadoop.hbase.io.BatchUpdateResult;
 
 import org.apache.hadoop.hbase.io.HbaseMapWritable;
 import org.apache.hadoop.io.Text;
@@ -32,8 +33,16 @@ import org.apache.hadoop.ipc.VersionedProtocol;
  * Clients interact with HRegionServers using a handle to the HRegionInterface.
  */
 public interface HRegionInterface extends VersionedProtocol {
-  /** initial version */
-  public static final long versionID = 1L;
+  /**
+   * Protocol version.
+   * 2: added batchUpdate of many rows.
+   * 3: added next of many rows.
+   * 4: added getRows.
+   * 5: added getSplitRows.
+   * 6: added loadStoreFiles.
+   * 7: batchUpdate of many rows returns typed failures.
+   */
+  public static final long versionID = 7L;
 
   /** 
    * Get metainfo about an HRegion
@@ -45,6 +54,32 @@ public interface HRegionInterface extends VersionedProtocol {
   public HRegionInfo getRegionInfo(final Text regionName)
   throws NotServingRegionException;
 
+  /**
+   * Get rows that divide a region into pieces of about <code>splitSize</code>
+   * bytes.  Rows are taken from the index of the region's largest store file.
+   * 
+   * @param regionName name of the region
+   * @param splitSize size in bytes of each piece
+   * @return sorted rows inside the region, not including its start key;
+   * empty if the region is no bigger than <code>splitSize</code>
+   * @throws IOException
+   */
+  public Text [] getSplitRows(final Text regionName, final long splitSize)
+  throws IOException;
+
+  /**
+   * Adopt store files written outside of the region, say by a MapReduce job,
+   * into the region's stores.  The cells skip the log and memcache.
+   * 
+   * @param regionName name of the region
+   * @param dir directory laid out like a region directory, with a
+   * subdirectory per column family; must be on the same filesystem as the
+   * region
+   * @throws IOException if a file has rows outside of the region
+   */
+  public void loadStoreFiles(final Text regionName, final String dir)
+  throws IOException;
+
   /**
    * Retrieve a single value from the specified region for the specified row
    * and column keys
@@ -110,6 +145,23 @@ public interface HRegionInterface extends VersionedProtocol {
   public HbaseMapWritable getRow(final Text regionName, final Text row, final long ts)
   throws IOException;
 
+  /**
+   * Get many rows, possibly from different regions of this server, in one
+   * call.
+   * 
+   * @param regionNames for each row, the name of the region that holds it
+   * @param rows row keys
+   * @param columns columns to return; a family name returns the whole
+   * family.  If null, return all columns.
+   * @param ts timestamp
+   * @return map of values for each row, in the order asked for; empty if
+   * the row does not exist
+   * @throws IOException
+   */
+  public HbaseMapWritable [] getRows(final Text [] regionNames,
+    final Text [] rows, final Text [] columns, final long ts)
+  throws IOException;
+
   /**
    * Return all the data for the row that matches <i>row</i> exactly, 
    * or the one that immediately preceeds it.
@@ -143,6 +195,19 @@ public interface HRegionInterface extends VersionedProtocol {
   public void batchUpdate(Text regionName, BatchUpdate b)
   throws IOException;
 
+  /**
+   * Applies updates to many rows of one region via one RPC
+   * 
+   * @param regionName name of the region to update
+   * @param timestamp the time to be associated with the changes
+   * @param b BatchUpdates, one per row
+   * @return For each BatchUpdate, whether it was applied, else why not
+   * @throws IOException
+   */
+  public BatchUpdateResult batchUpdate(Text regionName, long timestamp,
+    BatchUpdate [] b)
+  throws IOException;
+
   /**
    * Delete all cells that match the passed row and column and whose
    * timestamp is equal-to or older than the passed timestamp.
@@ -214,6 +279,18 @@ public interface HRegionInterface extends VersionedProtocol {
    * @throws IOException
    */
   public HbaseMapWritable next(long scannerId) throws IOException;
+
+  /**
+   * Get the next rows.  Fewer than <code>numberOfRows</code> may come back
+   * if the scanner runs out or the rows already fetched are large.
+   * 
+   * @param scannerId clientId passed to openScanner
+   * @param numberOfRows most rows to return
+   * @return map of values per row; empty once the scanner is exhausted
+   * @throws IOException
+   */
+  public HbaseMapWritable [] next(long scannerId, int numberOfRows)
+  throws IOException;
   
   /**
    * Close a scanner
@@ -40,9 +40,11 @@ import java.util.TreeMap;
 import java.util.concurrent.BlockingQueue;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.PriorityBlockingQueue;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.concurrent.locks.ReentrantLock;
 import java.util.concurrent.locks.ReentrantReadWriteLock;
 
@@ -53,6 +55,8 @@ import org.apache.hadoop.fs.FileSystem;
 import org.apache.hadoop.fs.Path;
 import org.apache.hadoop.hbase.filter.RowFilterInterface;
 import org.apache.hadoop.hbase.io.BatchUpdate;
+import org.apache.hadoop.hbase.io.BatchUpdateResult;
+import org.apache.hadoop.hbase.io.BlockCache;
 import org.apache.hadoop.hbase.io.ImmutableBytesWritable;
 import org.apache.hadoop.hbase.ipc.HbaseRPC;
 import org.apache.hadoop.hbase.util.FSUtils;
@@ -111,6 +115,13 @@ public class HRegionServer implements HConstants, HRegionInterface, Runnable {
   protected final int threadWakeFrequency;
   private final int msgInterval;
   private final int serverLeaseTimeout;
+  // Bytes of values after which a multi-row next stops adding rows.
+  private final long maxScannerResultSize;
+  // Most scanners open at once.
+  private final int maxOpenScanners;
+  // Bytes of values all next calls may gather at once, and those gathered.
+  private final long maxScannerBufferSize;
+  private final AtomicLong scannerBufferSize = new AtomicLong(0);
 
   // Remote HMaster
   private HMasterRegionInterface hbaseMaster;
@@ -162,7 +173,202 @@ public class HRegionServer implements HConstants, HRegionInterface, Runnable {
   }
 
   // Compactions
-  final CompactSplitThread compactSplitThread;
+  final CompactSplitScheduler compactSplitScheduler;
+  // Requests compactions of regions due a major compaction
+  private final MajorCompactionChecker majorCompactionChecker;
+
+  /**
+   * Runs requested compactions on a pool of {@link CompactSplitThread}s, most
+   * urgent first, then splits the region if appropriate.  A request's
+   * priority comes from {@link HRegion#getCompactionPriority()} so a region
+   * with many store files, or near <code>hbase.hstore.blockingStoreFiles</code>,
+   * goes ahead of one that has just reached the compaction threshold.
+   */
+  private class CompactSplitScheduler {
+    private final PriorityBlockingQueue<CompactionRequest> compactionQueue =
+      new PriorityBlockingQueue<CompactionRequest>();
+    // Queued requests keyed by region.  Guards all of the below.
+    private final Map<HRegion, CompactionRequest> regionsInQueue =
+      new HashMap<HRegion, CompactionRequest>();
+    // Regions being compacted or split right now.
+    private final Set<HRegion> regionsInProgress = new HashSet<HRegion>();
+    // Regions requested again while in progress.  Requeued when done.
+    private final Set<HRegion> regionsToRequeue = new HashSet<HRegion>();
+    // Splits update the catalog and the set of online regions so only do one
+    // at a time.
+    private final ReentrantLock splitLock = new ReentrantLock();
+    private final CompactSplitThread [] threads;
+    private long sequence = 0;
+
+    /** constructor */
+    public CompactSplitScheduler() {
+      long frequency =
+        conf.getLong("hbase.regionserver.thread.splitcompactcheckfrequency",
+        20 * 1000);
+      int count =
+        Math.max(1, conf.getInt("hbase.regionserver.compaction.threads", 2));
+      this.threads = new CompactSplitThread[count];
+      for (int i = 0; i < count; i++) {
+        this.threads[i] = new CompactSplitThread(frequency);
+      }
+    }
+
+    /**
+     * Start the compaction threads.
+     * @param name Prefix for thread names
+     * @param handler
+     */
+    void start(final String name, final UncaughtExceptionHandler handler) {
+      for (int i = 0; i < this.threads.length; i++) {
+        Threads.setDaemonThreadRunning(this.threads[i],
+          name + ".compactor." + i, handler);
+      }
+    }
+
+    /**
+     * Queue a compaction of the passed region.  If already queued, the
+     * request's priority is raised if the region has become more urgent.
+     * @param r HRegion store belongs to
+     */
+    public void compactionRequested(HRegion r) {
+      LOG.debug("Compaction requested for region: " + r.getRegionName());
+      int priority = r.getCompactionPriority();
+      synchronized (regionsInQueue) {
+        if (regionsInProgress.contains(r)) {
+          regionsToRequeue.add(r);
+          return;
+        }
+        CompactionRequest queued = regionsInQueue.get(r);
+        if (queued != null) {
+          if (queued.priority <= priority ||
+              !compactionQueue.remove(queued)) {
+            return;
+          }
+        }
+        CompactionRequest request =
+          new CompactionRequest(r, priority, sequence++);
+        regionsInQueue.put(r, request);
+        compactionQueue.add(request);
+      }
+    }
+
+    /*
+     * @return Next region to compact or null if none before timeout.
+     * @throws InterruptedException
+     */
+    HRegion take(final long timeout) throws InterruptedException {
+      CompactionRequest request =
+        compactionQueue.poll(timeout, TimeUnit.MILLISECONDS);
+      if (request == null) {
+        return null;
+      }
+      synchronized (regionsInQueue) {
+        regionsInQueue.remove(request.region);
+        regionsInProgress.add(request.region);
+      }
+      return request.region;
+    }
+
+    /*
+     * Called when done with a region returned by {@link #take(long)}.
+     * @param r
+     */
+    void done(final HRegion r) {
+      boolean requeue = false;
+      synchronized (regionsInQueue) {
+        regionsInProgress.remove(r);
+        requeue = regionsToRequeue.remove(r);
+      }
+      if (requeue && !r.isClosed()) {
+        compactionRequested(r);
+      }
+    }
+
+    /** @return Count of regions waiting on a compaction */
+    int getQueueSize() {
+      return compactionQueue.size();
+    }
+
+    void clear() {
+      synchronized (regionsInQueue) {
+        regionsInQueue.clear();
+        regionsToRequeue.clear();
+        compactionQueue.clear();
+      }
+    }
+
+    /**
+     * Only interrupt threads once they are done with a run through the work
+     * loop.
+     */
+    void interruptIfNecessary() {
+      for (int i = 0; i < this.threads.length; i++) {
+        this.threads[i].interruptIfNecessary();
+      }
+    }
+
+    /** Wait on all compaction threads to finish. */
+    void join() {
+      for (int i = 0; i < this.threads.length; i++) {
+        HRegionServer.this.join(this.threads[i]);
+      }
+    }
+  }
+
+  /*
+   * A queued compaction.  Orders by priority, then by order of request.
+   */
+  private static class CompactionRequest
+  implements Comparable<CompactionRequest> {
+    final HRegion region;
+    final int priority;
+    final long sequence;
+
+    CompactionRequest(final HRegion region, final int priority,
+        final long sequence) {
+      this.region = region;
+      this.priority = priority;
+      this.sequence = sequence;
+    }
+
+    /** {@inheritDoc} */
+    public int compareTo(CompactionRequest o) {
+      if (this.priority != o.priority) {
+        return this.priority < o.priority? -1: 1;
+      }
+      return this.sequence < o.sequence? -1:
+        this.sequence == o.sequence? 0: 1;
+    }
+  }
+
+  /*
+   * Compactions are otherwise only requested after a flush or when a region
+   * opens, so a region that stops taking updates would never be checked for
+   * a due major compaction.
+   */
+  private class MajorCompactionChecker extends Chore {
+    MajorCompactionChecker(final int period) {
+      super(period, stopRequested);
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    protected void chore() {
+      List<HRegion> regions = new ArrayList<HRegion>();
+      lock.readLock().lock();
+      try {
+        regions.addAll(onlineRegions.values());
+      } finally {
+        lock.readLock().unlock();
+      }
+      for (HRegion r: regions) {
+        if (!r.isClosed() && r.isMajorCompactionDue()) {
+          LOG.info("Major compaction due for region: " + r.getRegionName());
+          compactSplitScheduler.compactionRequested(r);
+        }
+      }
+    }
+  }
 
   /** Compact region on request and then run split if appropriate */
   private class CompactSplitThread extends Thread
@@ -172,18 +378,14 @@ public class HRegionServer implements HConstants, HRegionInterface, Runnable {
     private long startTime;
     private final long frequency;
     private final ReentrantLock workingLock = new ReentrantLock();
-    
-    private final BlockingQueue<HRegion> compactionQueue =
-      new LinkedBlockingQueue<HRegion>();
 
-    private final HashSet<HRegion> regionsInQueue = new HashSet<HRegion>();
-
-    /** constructor */
-    public CompactSplitThread() {
+    /**
+     * constructor
+     * @param frequency How often to check for stop, in milliseconds
+     */
+    public CompactSplitThread(final long frequency) {
       super();
-      this.frequency =
-        conf.getLong("hbase.regionserver.thread.splitcompactcheckfrequency",
-        20 * 1000);
+      this.frequency = frequency;
     }
     
     /** {@inheritDoc} */
@@ -192,19 +394,22 @@ public class HRegionServer implements HConstants, HRegionInterface, Runnable {
       while (!stopRequested.get()) {
         HRegion r = null;
         try {
-          r = compactionQueue.poll(this.frequency, TimeUnit.MILLISECONDS);
+          r = compactSplitScheduler.take(this.frequency);
           if (r != null) {
-            synchronized (regionsInQueue) {
-              regionsInQueue.remove(r);
-            }
             workingLock.lock();
             try {
               // Don't interrupt us while we are working
               if (r.compactStores()) {
-                split(r);
+                compactSplitScheduler.splitLock.lock();
+                try {
+                  split(r);
+                } finally {
+                  compactSplitScheduler.splitLock.unlock();
+                }
               }
             } finally {
               workingLock.unlock();
+              compactSplitScheduler.done(r);
             }
           }
         } catch (InterruptedException ex) {
@@ -225,24 +430,10 @@ public class HRegionServer implements HConstants, HRegionInterface, Runnable {
           }
         }
       }
-      regionsInQueue.clear();
-      compactionQueue.clear();
+      compactSplitScheduler.clear();
       LOG.info(getName() + " exiting");
     }
     
-    /**
-     * @param r HRegion store belongs to
-     */
-    public void compactionRequested(HRegion r) {
-      LOG.debug("Compaction requested for region: " + r.getRegionName());
-      synchronized (regionsInQueue) {
-        if (!regionsInQueue.contains(r)) {
-          compactionQueue.add(r);
-          regionsInQueue.add(r);
-        }
-      }
-    }
-    
     private void split(final HRegion region) throws IOException {
       final HRegionInfo oldRegionInfo = region.getRegionInfo();
       final HRegion[] newRegions = region.splitRegion(this);
@@ -444,7 +635,7 @@ public class HRegionServer implements HConstants, HRegionInterface, Runnable {
         workingLock.lock();
         try {
           if (region.flushcache()) {
-            compactSplitThread.compactionRequested(region);
+            compactSplitScheduler.compactionRequested(region);
           }
         } catch (DroppedSnapshotException ex) {
           // Cache flush can fail in a few places.  If it fails in a critical
@@ -664,12 +855,22 @@ public class HRegionServer implements HConstants, HRegionInterface, Runnable {
     this.msgInterval = conf.getInt("hbase.regionserver.msginterval", 3 * 1000);
     this.serverLeaseTimeout =
       conf.getInt("hbase.master.lease.period", 30 * 1000);
+    this.maxScannerResultSize =
+      conf.getLong("hbase.regionserver.scanner.maxresultsize", 2 * 1024 * 1024);
+    this.maxOpenScanners =
+      conf.getInt("hbase.regionserver.scanner.max", 5000);
+    this.maxScannerBufferSize =
+      conf.getLong("hbase.regionserver.scanner.maxbuffersize",
+        64 * 1024 * 1024);
 
     // Cache flushing thread.
     this.cacheFlusher = new Flusher();
     
-    // Compaction thread
-    this.compactSplitThread = new CompactSplitThread();
+    // Compaction threads
+    this.compactSplitScheduler = new CompactSplitScheduler();
+    this.majorCompactionChecker = new MajorCompactionChecker(
+      conf.getInt("hbase.regionserver.thread.splitcompactcheckfrequency",
+        20 * 1000));
     
     // Log rolling thread
     this.logRoller = new LogRoller();
@@ -729,7 +930,7 @@ public class HRegionServer implements HConstants, HRegionInterface, Runnable {
 
           try {
             this.serverInfo.setLoad(new HServerLoad(requestCount.get(),
-                onlineRegions.size()));
+                onlineRegions.size(), getRegionLoad()));
             this.requestCount.set(0);
             HMsg msgs[] =
               this.hbaseMaster.regionServerReport(serverInfo, outboundArray);
@@ -857,7 +1058,7 @@ public class HRegionServer implements HConstants, HRegionInterface, Runnable {
     // Send interrupts to wake up threads if sleeping so they notice shutdown.
     // TODO: Should we check they are alive?  If OOME could have exited already
     this.cacheFlusher.interruptIfNecessary();
-    this.compactSplitThread.interruptIfNecessary();
+    this.compactSplitScheduler.interruptIfNecessary();
 
     synchronized (logRollerLock) {
       this.logRoller.interrupt();
@@ -985,8 +1186,9 @@ public class HRegionServer implements HConstants, HRegionInterface, Runnable {
         handler);
     Threads.setDaemonThreadRunning(this.cacheFlusher, n + ".cacheFlusher",
       handler);
-    Threads.setDaemonThreadRunning(this.compactSplitThread, n + ".compactor",
-        handler);
+    this.compactSplitScheduler.start(n, handler);
+    Threads.setDaemonThreadRunning(this.majorCompactionChecker,
+      n + ".majorCompactionChecker", handler);
     Threads.setDaemonThreadRunning(this.workerThread, n + ".worker", handler);
     // Leases is not a Thread. Internally it runs a daemon thread.  If it gets
     // an unhandled exception, it will just exit.
@@ -1071,7 +1273,7 @@ public class HRegionServer implements HConstants, HRegionInterface, Runnable {
   void join() {
     join(this.workerThread);
     join(this.cacheFlusher);
-    join(this.compactSplitThread);
+    this.compactSplitScheduler.join();
     join(this.logRoller);
   }
 
@@ -1265,7 +1467,7 @@ public class HRegionServer implements HConstants, HRegionInterface, Runnable {
             }
         );
         // Startup a compaction early if one is needed.
-        this.compactSplitThread.compactionRequested(region);
+        this.compactSplitScheduler.compactionRequested(region);
       } catch (IOException e) {
         LOG.error("error opening region " + regionInfo.getRegionName(), e);
         
@@ -1463,6 +1665,68 @@ public class HRegionServer implements HConstants, HRegionInterface, Runnable {
     }
   }
 
+  /** {@inheritDoc} */
+  public HbaseMapWritable [] getRows(final Text [] regionNames,
+    final Text [] rows, final Text [] columns, final long ts)
+  throws IOException {
+    checkOpen();
+    requestCount.addAndGet(rows.length);
+    try {
+      Set<Text> columnSet = null;
+      if (columns != null) {
+        columnSet = new HashSet<Text>();
+        for (int i = 0; i < columns.length; i++) {
+          columnSet.add(columns[i]);
+        }
+      }
+      HbaseMapWritable [] results = new HbaseMapWritable[rows.length];
+      for (int i = 0; i < rows.length; i++) {
+        HRegion region = getRegion(regionNames[i]);
+        HbaseMapWritable result = new HbaseMapWritable();
+        Map<Text, byte[]> map = region.getFull(rows[i], columnSet, ts);
+        for (Map.Entry<Text, byte []> es: map.entrySet()) {
+          result.put(new HStoreKey(rows[i], es.getKey()),
+              new ImmutableBytesWritable(es.getValue()));
+        }
+        results[i] = result;
+      }
+      return results;
+    } catch (IOException e) {
+      checkFileSystem();
+      throw e;
+    }
+  }
+
+  /** {@inheritDoc} */
+  public Text [] getSplitRows(final Text regionName, final long splitSize)
+  throws IOException {
+    checkOpen();
+    requestCount.incrementAndGet();
+    try {
+      List<Text> rows = getRegion(regionName).getSplitRows(splitSize);
+      return rows.toArray(new Text[rows.size()]);
+    } catch (IOException e) {
+      checkFileSystem();
+      throw e;
+    }
+  }
+
+  /** {@inheritDoc} */
+  public void loadStoreFiles(final Text regionName, final String dir)
+  throws IOException {
+    checkOpen();
+    requestCount.incrementAndGet();
+    try {
+      HRegion region = getRegion(regionName);
+      if (region.loadStoreFiles(new Path(dir)) > 0) {
+        compactSplitScheduler.compactionRequested(region);
+      }
+    } catch (IOException e) {
+      checkFileSystem();
+      throw e;
+    }
+  }
+
   /** {@inheritDoc} */
   public HbaseMapWritable getClosestRowBefore(final Text regionName, 
     final Text row)
@@ -1494,7 +1758,13 @@ public class HRegionServer implements HConstants, HRegionInterface, Runnable {
 
   /** {@inheritDoc} */
   public HbaseMapWritable next(final long scannerId) throws IOException {
+    HbaseMapWritable [] values = next(scannerId, 1);
+    return values.length == 0 ? null : values[0];
+  }
 
+  /** {@inheritDoc} */
+  public HbaseMapWritable [] next(final long scannerId, int numberOfRows)
+  throws IOException {
     checkOpen();
     requestCount.incrementAndGet();
     try {
@@ -1505,26 +1775,41 @@ public class HRegionServer implements HConstants, HRegionInterface, Runnable {
       }
       this.leases.renewLease(scannerId, scannerId);
 
-      // Collect values to be returned here
-      HbaseMapWritable values = new HbaseMapWritable();
+      // Collect rows to be returned here.  Stop early if they are getting
+      // big so we do not build huge responses, or if all the calls running
+      // now have gathered too much between them.  Always return a row if
+      // there is one so the scan moves on.
+      List<HbaseMapWritable> rows = new ArrayList<HbaseMapWritable>();
+      long size = 0;
       HStoreKey key = new HStoreKey();
       TreeMap<Text, byte []> results = new TreeMap<Text, byte []>();
-      while (s.next(key, results)) {
-        for(Map.Entry<Text, byte []> e: results.entrySet()) {
-          values.put(new HStoreKey(key.getRow(), e.getKey(), key.getTimestamp()),
-            new ImmutableBytesWritable(e.getValue()));
-        }
-
-        if(values.size() > 0) {
-          // Row has something in it. Return the value.
-          break;
+      try {
+        while (rows.size() < numberOfRows &&
+            size < this.maxScannerResultSize &&
+            (rows.size() == 0 ||
+              this.scannerBufferSize.get() < this.maxScannerBufferSize) &&
+            s.next(key, results)) {
+          if (results.size() == 0) {
+            // No data for this row, go get another.
+            continue;
+          }
+          HbaseMapWritable values = new HbaseMapWritable();
+          long rowSize = 0;
+          for(Map.Entry<Text, byte []> e: results.entrySet()) {
+            values.put(new HStoreKey(key.getRow(), e.getKey(),
+                key.getTimestamp()),
+              new ImmutableBytesWritable(e.getValue()));
+            rowSize += e.getValue().length;
+          }
+          size += rowSize;
+          this.scannerBufferSize.addAndGet(rowSize);
+          rows.add(values);
+          results.clear();
         }
-
-        // No data for this row, go get another.
-        results.clear();
+      } finally {
+        this.scannerBufferSize.addAndGet(-size);
       }
-      return values.size() == 0 ? null : values;
-      
+      return rows.toArray(new HbaseMapWritable[rows.size()]);
     } catch (IOException e) {
       checkFileSystem();
       throw e;
@@ -1556,6 +1841,24 @@ public class HRegionServer implements HConstants, HRegionInterface, Runnable {
     }
   }
   
+  /** {@inheritDoc} */
+  public BatchUpdateResult batchUpdate(Text regionName, long timestamp,
+    BatchUpdate [] b)
+  throws IOException {
+    checkOpen();
+    this.requestCount.addAndGet(b.length);
+    HRegion region = getRegion(regionName);
+    IOException [] failures;
+    try {
+      cacheFlusher.reclaimMemcacheMemory();
+      failures = region.batchUpdate(timestamp, b);
+    } catch (IOException e) {
+      checkFileSystem();
+      throw e;
+    }
+    return new BatchUpdateResult(failures);
+  }
+  
   //
   // remote scanner interface
   //
@@ -1579,6 +1882,10 @@ public class HRegionServer implements HConstants, HRegionInterface, Runnable {
       throw io;
     }
     requestCount.incrementAndGet();
+    if (this.maxOpenScanners > 0 && scanners.size() >= this.maxOpenScanners) {
+      throw new IOException("Too many open scanners (" + scanners.size() +
+        "); limit is hbase.regionserver.scanner.max=" + this.maxOpenScanners);
+    }
     try {
       HRegion r = getRegion(regionName);
       long scannerId = -1L;
@@ -1586,9 +1893,7 @@ public class HRegionServer implements HConstants, HRegionInterface, Runnable {
         r.getScanner(cols, firstRow, timestamp, filter);
       scannerId = rand.nextLong();
       String scannerName = String.valueOf(scannerId);
-      synchronized(scanners) {
-        scanners.put(scannerName, s);
-      }
+      scanners.put(scannerName, s);
       this.leases.
         createLease(scannerId, scannerId, new ScannerListener(scannerName));
       return scannerId;
@@ -1606,10 +1911,7 @@ public class HRegionServer implements HConstants, HRegionInterface, Runnable {
     requestCount.incrementAndGet();
     try {
       String scannerName = String.valueOf(scannerId);
-      HScannerInterface s = null;
-      synchronized(scanners) {
-        s = scanners.remove(scannerName);
-      }
+      HScannerInterface s = scanners.remove(scannerName);
       if(s == null) {
         throw new UnknownScannerException(scannerName);
       }
@@ -1622,7 +1924,7 @@ public class HRegionServer implements HConstants, HRegionInterface, Runnable {
   }
 
   Map<String, HScannerInterface> scanners =
-    Collections.synchronizedMap(new HashMap<String, HScannerInterface>());
+    new ConcurrentHashMap<String, HScannerInterface>();
 
   /** 
    * Instantiated as a scanner lease.
@@ -1638,10 +1940,7 @@ public class HRegionServer implements HConstants, HRegionInterface, Runnable {
     /** {@inheritDoc} */
     public void leaseExpired() {
       LOG.info("Scanner " + this.scannerName + " lease expired");
-      HScannerInterface s = null;
-      synchronized(scanners) {
-        s = scanners.remove(this.scannerName);
-      }
+      HScannerInterface s = scanners.remove(this.scannerName);
       if (s != null) {
         try {
           s.close();
@@ -1686,6 +1985,37 @@ public class HRegionServer implements HConstants, HRegionInterface, Runnable {
     return this.serverInfo;
   }
 
+  /**
+   * @return The block cache store file readers share, or null if disabled.
+   */
+  public BlockCache getBlockCache() {
+    return HStoreFile.getBlockCache(this.conf);
+  }
+
+  /**
+   * @return Count of regions waiting on a compaction.
+   */
+  public int getCompactionQueueSize() {
+    return this.compactSplitScheduler.getQueueSize();
+  }
+
+  /**
+   * @return Open scanners, bytes of values being gathered for scanner
+   * replies, scanner lease expirations, and count and mean time in
+   * microseconds of scanner lease renewals.
+   */
+  public String getScannerStats() {
+    long renewals = this.leases.getRenewalCount();
+    return "open=" + this.scanners.size() +
+      ", maxOpen=" + this.maxOpenScanners +
+      ", buffered=" + this.scannerBufferSize.get() +
+      ", maxBuffered=" + this.maxScannerBufferSize +
+      ", expired=" + this.leases.getExpiredCount() +
+      ", renewals=" + renewals +
+      ", renewalMicros=" +
+        (renewals == 0? 0: this.leases.getRenewalTime() / renewals / 1000);
+  }
+
   /**
    * @return Immutable list of this servers regions.
    */
@@ -1703,15 +2033,36 @@ public class HRegionServer implements HConstants, HRegionInterface, Runnable {
     return this.cacheFlusher;
   }
   
+  /*
+   * @return Load of each online region.  Resets the regions' request counts.
+   */
+  private List<HServerLoad.RegionLoad> getRegionLoad() {
+    List<HServerLoad.RegionLoad> load = new ArrayList<HServerLoad.RegionLoad>();
+    this.lock.readLock().lock();
+    try {
+      for (HRegion r: this.onlineRegions.values()) {
+        load.add(new HServerLoad.RegionLoad(r.getRegionName(),
+          r.requestCount.getAndSet(0), r.memcacheSize.get(),
+          r.getStorefilesSize()));
+      }
+    } finally {
+      this.lock.readLock().unlock();
+    }
+    return load;
+  }
+
   /** 
-   * Protected utility method for safely obtaining an HRegion handle.
+   * Protected utility method for safely obtaining an HRegion handle.  Counts
+   * a request against the region.
    * @param regionName Name of online {@link HRegion} to return
    * @return {@link HRegion} for <code>regionName</code>
    * @throws NotServingRegionException
    */
   protected HRegion getRegion(final Text regionName)
   throws NotServingRegionException {
-    return getRegion(regionName, false);
+    HRegion region = getRegion(regionName, false);
+    region.requestCount.incrementAndGet();
+    return region;
   }
   
   /** 
@@ -22,7 +22,13 @@ package org.apache.hadoop.hbase;
 import java.io.DataInput;
 import java.io.DataOutput;
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
 
+import org.apache.hadoop.io.Text;
+import org.apache.hadoop.io.Writable;
 import org.apache.hadoop.io.WritableComparable;
 
 /**
@@ -31,19 +37,92 @@ import org.apache.hadoop.io.WritableComparable;
 public class HServerLoad implements WritableComparable {
   private int numberOfRequests;         // number of requests since last report
   private int numberOfRegions;          // number of regions being served
+  // per-region load; not considered by getLoad or compareTo
+  private List<RegionLoad> regionLoad = new ArrayList<RegionLoad>();
   
   /*
    * TODO: Other metrics that might be considered when the master is actually
-   * doing load balancing instead of merely trying to decide where to assign
-   * a region:
+   * doing load balancing:
    * <ul>
    *   <li># of CPUs, heap size (to determine the "class" of machine). For
    *       now, we consider them to be homogeneous.</li>
-   *   <li>#requests per region (Map<{String|HRegionInfo}, Integer>)</li>
    *   <li>#compactions and/or #splits (churn)</li>
    *   <li>server death rate (maybe there is something wrong with this server)</li>
    * </ul>
    */
+
+  /**
+   * Load of one region: requests since the last report, memcache size and
+   * size of its store files.
+   */
+  public static class RegionLoad implements Writable {
+    private Text name;
+    private int requests;
+    private long memcacheSize;
+    private long storefileSize;
+
+    /** default constructor (used by Writable) */
+    public RegionLoad() {
+      this(new Text(), 0, 0, 0);
+    }
+
+    /**
+     * @param name region name
+     * @param requests requests since last report
+     * @param memcacheSize bytes in memcache
+     * @param storefileSize bytes in store files
+     */
+    public RegionLoad(final Text name, final int requests,
+        final long memcacheSize, final long storefileSize) {
+      this.name = name;
+      this.requests = requests;
+      this.memcacheSize = memcacheSize;
+      this.storefileSize = storefileSize;
+    }
+
+    /** @return the region name */
+    public Text getName() {
+      return name;
+    }
+
+    /** @return requests since last report */
+    public int getRequests() {
+      return requests;
+    }
+
+    /** @return bytes in memcache */
+    public long getMemcacheSize() {
+      return memcacheSize;
+    }
+
+    /** @return bytes in store files */
+    public long getStorefileSize() {
+      return storefileSize;
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public String toString() {
+      return name + " requests: " + requests + " memcache: " + memcacheSize +
+        " storefiles: " + storefileSize;
+    }
+
+    /** {@inheritDoc} */
+    public void readFields(DataInput in) throws IOException {
+      name.readFields(in);
+      requests = in.readInt();
+      memcacheSize = in.readLong();
+      storefileSize = in.readLong();
+    }
+
+    /** {@inheritDoc} */
+    public void write(DataOutput out) throws IOException {
+      name.write(out);
+      out.writeInt(requests);
+      out.writeLong(memcacheSize);
+      out.writeLong(storefileSize);
+    }
+  }
   
   /** default constructior (used by Writable) */
   public HServerLoad() {}
@@ -58,6 +137,18 @@ public class HServerLoad implements WritableComparable {
     this.numberOfRegions = numberOfRegions;
   }
   
+  /**
+   * Constructor
+   * @param numberOfRequests
+   * @param numberOfRegions
+   * @param regionLoad load of each region being served
+   */
+  public HServerLoad(int numberOfRequests, int numberOfRegions,
+      final Collection<RegionLoad> regionLoad) {
+    this(numberOfRequests, numberOfRegions);
+    this.regionLoad.addAll(regionLoad);
+  }
+  
   /**
    * @return load factor for this server
    */
@@ -103,6 +194,35 @@ public class HServerLoad implements WritableComparable {
     return numberOfRequests;
   }
 
+  /**
+   * @return load of each region being served; empty if not reported
+   */
+  public List<RegionLoad> getRegionLoad() {
+    return Collections.unmodifiableList(regionLoad);
+  }
+
+  /**
+   * @return bytes in memcache over all regions
+   */
+  public long getMemcacheSize() {
+    long size = 0;
+    for (RegionLoad r: regionLoad) {
+      size += r.getMemcacheSize();
+    }
+    return size;
+  }
+
+  /**
+   * @return bytes in store files over all regions
+   */
+  public long getStorefileSize() {
+    long size = 0;
+    for (RegionLoad r: regionLoad) {
+      size += r.getStorefileSize();
+    }
+    return size;
+  }
+
   // Setters
   
   /**
@@ -118,12 +238,23 @@ public class HServerLoad implements WritableComparable {
   public void readFields(DataInput in) throws IOException {
     numberOfRequests = in.readInt();
     numberOfRegions = in.readInt();
+    int count = in.readInt();
+    regionLoad = new ArrayList<RegionLoad>(count);
+    for (int i = 0; i < count; i++) {
+      RegionLoad r = new RegionLoad();
+      r.readFields(in);
+      regionLoad.add(r);
+    }
   }
 
   /** {@inheritDoc} */
   public void write(DataOutput out) throws IOException {
     out.writeInt(numberOfRequests);
     out.writeInt(numberOfRegions);
+    out.writeInt(regionLoad.size());
+    for (RegionLoad r: regionLoad) {
+      r.write(out);
+    }
   }
   
   // Comparable
@@ -24,6 +24,7 @@ import java.io.IOException;
 import java.io.UnsupportedEncodingException;
 import java.rmi.UnexpectedException;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.HashMap;
@@ -35,6 +36,7 @@ import java.util.Set;
 import java.util.SortedMap;
 import java.util.TreeMap;
 import java.util.Map.Entry;
+import java.util.concurrent.ConcurrentSkipListMap;
 import java.util.concurrent.locks.ReentrantReadWriteLock;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
@@ -42,14 +44,15 @@ import java.util.regex.Pattern;
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
 import org.apache.hadoop.fs.FSDataInputStream;
-import org.apache.hadoop.fs.FSDataOutputStream;
 import org.apache.hadoop.fs.FileStatus;
 import org.apache.hadoop.fs.FileSystem;
 import org.apache.hadoop.fs.Path;
 import org.apache.hadoop.hbase.HStoreFile.HbaseMapFile;
+import org.apache.hadoop.hbase.filter.AbstractRowFilter;
 import org.apache.hadoop.hbase.filter.RowFilterInterface;
 import org.apache.hadoop.hbase.io.ImmutableBytesWritable;
 import org.apache.hadoop.hbase.io.TextSequence;
+import org.apache.hadoop.io.LongWritable;
 import org.apache.hadoop.io.MapFile;
 import org.apache.hadoop.io.SequenceFile;
 import org.apache.hadoop.io.Text;
@@ -58,10 +61,7 @@ import org.apache.hadoop.io.WritableComparable;
 import org.apache.hadoop.util.Progressable;
 import org.apache.hadoop.util.StringUtils;
 import org.apache.hadoop.hbase.util.FSUtils;
-import org.onelab.filter.BloomFilter;
-import org.onelab.filter.CountingBloomFilter;
 import org.onelab.filter.Filter;
-import org.onelab.filter.RetouchedBloomFilter;
 
 /**
  * HStore maintains a bunch of data files.  It is responsible for maintaining 
@@ -80,27 +80,70 @@ public class HStore implements HConstants {
    * to snapshot and is cleared.  We continue to serve edits out of new map
    * and backing snapshot until flusher reports in that the flush succeeded. At
    * this point we let the snapshot go.
+   *
+   * <p>If <code>hbase.hstore.memcache.slab.enabled</code> is set, edits are
+   * copied into large slab chunks rather than kept as individual key and
+   * value objects.  See {@link MemcacheSlabMap}.
    */
   static class Memcache {
-    // Note that since these structures are always accessed with a lock held,
-    // so no additional synchronization is required.
+    // The active map and the snapshot are concurrent sorted maps so readers
+    // and writers do not serialize on a map monitor.  The mc_lock below only
+    // guards the swapping of the active map into the snapshot slot: adds and
+    // reads share the read lock while snapshot and clearSnapshot take the
+    // write lock.
+
+    // Slab chunk size in bytes or zero if edits are kept as heap objects.
+    private final int slabChunkSize;
+    private final boolean slabDirect;
 
     // The currently active sorted map of edits.
-    private volatile SortedMap<HStoreKey, byte[]> mc =
-      createSynchronizedSortedMap();
+    private volatile SortedMap<HStoreKey, byte[]> mc;
  
     // Snapshot of memcache.  Made for flusher.
-    private volatile SortedMap<HStoreKey, byte[]> snapshot =
-      createSynchronizedSortedMap();
+    private volatile SortedMap<HStoreKey, byte[]> snapshot;
 
     private final ReentrantReadWriteLock mc_lock = new ReentrantReadWriteLock();
 
+    /**
+     * Constructor.  Edits are kept as heap objects.
+     */
+    Memcache() {
+      this(0, false);
+    }
+
+    /**
+     * Constructor.
+     * @param conf Configuration; consulted for slab settings.
+     */
+    Memcache(final HBaseConfiguration conf) {
+      this(conf.getBoolean("hbase.hstore.memcache.slab.enabled", false)?
+          conf.getInt("hbase.hstore.memcache.slab.chunksize",
+            MemcacheSlabMap.DEFAULT_CHUNK_SIZE): 0,
+        conf.getBoolean("hbase.hstore.memcache.slab.direct", false));
+    }
+
+    /**
+     * Constructor.
+     * @param chunkSize Size of slab chunks.  Pass zero to keep edits as heap
+     * objects.
+     * @param direct True if slab chunks should be direct ByteBuffers.
+     */
+    Memcache(final int chunkSize, final boolean direct) {
+      this.slabChunkSize = chunkSize;
+      this.slabDirect = direct;
+      this.mc = createSortedMap();
+      this.snapshot = createSortedMap();
+    }
+
     /*
      * Utility method.
-     * @return sycnhronized sorted map of HStoreKey to byte arrays.
+     * @return concurrent sorted map of HStoreKey to byte arrays.
      */
-    private static SortedMap<HStoreKey, byte[]> createSynchronizedSortedMap() {
-      return Collections.synchronizedSortedMap(new TreeMap<HStoreKey, byte []>());
+    private SortedMap<HStoreKey, byte[]> createSortedMap() {
+      if (this.slabChunkSize > 0) {
+        return new MemcacheSlabMap(this.slabChunkSize, this.slabDirect);
+      }
+      return new ConcurrentSkipListMap<HStoreKey, byte []>();
     }
 
     /**
@@ -112,16 +155,16 @@ public class HStore implements HConstants {
       try {
         // If snapshot currently has entries, then flusher failed or didn't call
         // cleanup.  Log a warning.
-        if (this.snapshot.size() > 0) {
+        if (!this.snapshot.isEmpty()) {
           LOG.debug("Snapshot called again without clearing previous. " +
             "Doing nothing. Another ongoing flush or did we fail last attempt?");
         } else {
           // We used to synchronize on the memcache here but we're inside a
           // write lock so removed it. Comment is left in case removal was a
           // mistake. St.Ack
-          if (this.mc.size() != 0) {
+          if (!this.mc.isEmpty()) {
             this.snapshot = this.mc;
-            this.mc = createSynchronizedSortedMap();
+            this.mc = createSortedMap();
           }
         }
       } finally {
@@ -157,8 +200,8 @@ public class HStore implements HConstants {
        }
        // OK. Passed in snapshot is same as current snapshot.  If not-empty,
        // create a new snapshot and let the old one go.
-       if (ss.size() != 0) {
-         this.snapshot = createSynchronizedSortedMap();
+       if (!ss.isEmpty()) {
+         this.snapshot = createSortedMap();
        }
      } finally {
        this.mc_lock.writeLock().unlock();
@@ -169,11 +212,17 @@ public class HStore implements HConstants {
      * Write an update
      * @param key
      * @param value
+     * @return Count of bytes the memcache grew by: the size of the edit, or
+     * with slabs, the slab bytes it takes.
      */
-    void add(final HStoreKey key, final byte[] value) {
+    long add(final HStoreKey key, final byte[] value) {
       this.mc_lock.readLock().lock();
       try {
+        if (this.mc instanceof MemcacheSlabMap) {
+          return ((MemcacheSlabMap)this.mc).add(key, value);
+        }
         mc.put(key, value);
+        return HRegion.getEntrySize(key, value);
       } finally {
         this.mc_lock.readLock().unlock();
       }
@@ -188,15 +237,12 @@ public class HStore implements HConstants {
     List<byte[]> get(final HStoreKey key, final int numVersions) {
       this.mc_lock.readLock().lock();
       try {
-        List<byte []> results;
-        // The synchronizations here are because internalGet iterates
-       synchronized (this.mc) {
-         results = internalGet(this.mc, key, numVersions);
-        }
-        synchronized (snapshot) {
-          results.addAll(results.size(),
-              internalGet(snapshot, key, numVersions - results.size()));
-        }
+        // No need to synchronize on the maps while iterating; skip list
+        // iterators are weakly consistent and never throw
+        // ConcurrentModificationException.
+        List<byte []> results = internalGet(this.mc, key, numVersions);
+        results.addAll(results.size(),
+          internalGet(this.snapshot, key, numVersions - results.size()));
         return results;
       } finally {
         this.mc_lock.readLock().unlock();
@@ -238,30 +284,16 @@ public class HStore implements HConstants {
    /*
     * @param row Find row that follows this one.
     * @param map Map to look in for a row beyond <code>row</code>.
-    * This method synchronizes on passed map while iterating it.
     * @return Next row or null if none found.
     */
    private Text getNextRow(final Text row,
        final SortedMap<HStoreKey, byte []> map) {
-     Text result = null;
-     // Synchronize on the map to make the tailMap making 'safe'.
-     synchronized (map) {
-       // Make an HSK with maximum timestamp so we get past most of the current
-       // rows cell entries.
-       HStoreKey hsk = new HStoreKey(row, HConstants.LATEST_TIMESTAMP);
-       SortedMap<HStoreKey, byte []> tailMap = map.tailMap(hsk);
-       // Iterate until we fall into the next row; i.e. move off current row
-       for (Map.Entry<HStoreKey, byte []> es: tailMap.entrySet()) {
-         HStoreKey itKey = es.getKey();
-         if (itKey.getRow().compareTo(row) <= 0) {
-           continue;
-         }
-         // Note: Not suppressing deletes.
-         result = itKey.getRow();
-         break;
-       }
-     }
-     return result;
+     // A single tailMap lookup skips all cells of the current row.  Maps only
+     // grow so the tailMap cannot empty between the two calls below.
+     // Note: Not suppressing deletes.
+     SortedMap<HStoreKey, byte []> tailMap =
+       map.tailMap(getFirstKeyAfterRow(row));
+     return tailMap.isEmpty()? null: tailMap.firstKey().getRow();
    }
 
     /**
@@ -279,17 +311,13 @@ public class HStore implements HConstants {
       
       this.mc_lock.readLock().lock();
       try {
-        synchronized (mc) {
-          long ts = internalGetFull(mc, key, deletes, results);
-          if (ts != HConstants.LATEST_TIMESTAMP && ts > rowtime) {
-            rowtime = ts;
-          }
+        long ts = internalGetFull(this.mc, key, deletes, results);
+        if (ts != HConstants.LATEST_TIMESTAMP && ts > rowtime) {
+          rowtime = ts;
         }
-        synchronized (snapshot) {
-          long ts = internalGetFull(snapshot, key, deletes, results);
-          if (ts != HConstants.LATEST_TIMESTAMP && ts > rowtime) {
-            rowtime = ts;
-          }
+        ts = internalGetFull(this.snapshot, key, deletes, results);
+        if (ts != HConstants.LATEST_TIMESTAMP && ts > rowtime) {
+          rowtime = ts;
         }
         return rowtime;
       } finally {
@@ -314,7 +342,7 @@ public class HStore implements HConstants {
               itKey.getTimestamp() > rowtime) {
             rowtime = itKey.getTimestamp();
           }
-          byte [] val = tailMap.get(itKey);
+          byte [] val = es.getValue();
 
           if (HLogEdit.isDeleted(val)) {
             if (!deletes.containsKey(itCol) 
@@ -344,12 +372,8 @@ public class HStore implements HConstants {
       this.mc_lock.readLock().lock();
       
       try {
-        synchronized (mc) {
-          internalGetRowKeyAtOrBefore(mc, row, candidateKeys);
-        }
-        synchronized (snapshot) {
-          internalGetRowKeyAtOrBefore(snapshot, row, candidateKeys);
-        }
+        internalGetRowKeyAtOrBefore(this.mc, row, candidateKeys);
+        internalGetRowKeyAtOrBefore(this.snapshot, row, candidateKeys);
       } finally {
         this.mc_lock.readLock().unlock();
       }
@@ -490,7 +514,7 @@ public class HStore implements HConstants {
         HStoreKey itKey = es.getKey();
         if (itKey.matchesRowCol(key)) {
           if (!HLogEdit.isDeleted(es.getValue())) { 
-            result.add(tailMap.get(itKey));
+            result.add(es.getValue());
           }
           if (numVersions > 0 && result.size() >= numVersions) {
             break;
@@ -516,15 +540,10 @@ public class HStore implements HConstants {
     List<HStoreKey> getKeys(final HStoreKey origin, final int versions) {
       this.mc_lock.readLock().lock();
       try {
-        List<HStoreKey> results;
-        synchronized (mc) {
-          results = internalGetKeys(this.mc, origin, versions);
-        }
-        synchronized (snapshot) {
-          results.addAll(results.size(), internalGetKeys(snapshot, origin,
-              versions == HConstants.ALL_VERSIONS ? versions :
-                (versions - results.size())));
-        }
+        List<HStoreKey> results = internalGetKeys(this.mc, origin, versions);
+        results.addAll(results.size(), internalGetKeys(this.snapshot, origin,
+            versions == HConstants.ALL_VERSIONS ? versions :
+              (versions - results.size())));
         return results;
         
       } finally {
@@ -685,6 +704,14 @@ public class HStore implements HConstants {
        }
        return results.size() > 0;
      }
+
+    /** {@inheritDoc} */
+    public void seekRow(final Text row) {
+      if (this.currentRow != null && this.currentRow.compareTo(row) < 0) {
+        // If row has no cells, next moves on to the row that follows it.
+        this.currentRow = row;
+      }
+    }
       
     /** {@inheritDoc} */
     public void close() {
@@ -695,6 +722,19 @@ public class HStore implements HConstants {
     }
   }
   
+  /*
+   * The smallest row that sorts after <code>row</code> is <code>row</code>
+   * with a zero byte appended.  Its key with empty column and maximum
+   * timestamp sorts ahead of all cells of any row following <code>row</code>.
+   * @param row
+   * @return Least key that sorts after all cells of <code>row</code>.
+   */
+  static HStoreKey getFirstKeyAfterRow(final Text row) {
+    Text successor = new Text(row);
+    successor.append(new byte [] {0}, 0, 1);
+    return new HStoreKey(successor, HConstants.LATEST_TIMESTAMP);
+  }
+
   /*
    * Regex that will work for straight filenames and for reference names.
    * If reference, then the regex has more than just one group.  Group 1 is
@@ -703,17 +743,15 @@ public class HStore implements HConstants {
   private static Pattern REF_NAME_PARSER =
     Pattern.compile("^(\\d+)(?:\\.(.+))?$");
   
+  // Name of the bloom filter file older versions kept for the whole store.
   private static final String BLOOMFILTER_FILE_NAME = "filter";
 
-  final Memcache memcache = new Memcache();
+  final Memcache memcache;
   private final Path basedir;
   private final HRegionInfo info;
   private final HColumnDescriptor family;
-  private final SequenceFile.CompressionType compression;
   final FileSystem fs;
   private final HBaseConfiguration conf;
-  private final Path filterDir;
-  final Filter bloomFilter;
   private final Path compactionDir;
 
   private final Integer compactLock = new Integer(0);
@@ -738,7 +776,15 @@ public class HStore implements HConstants {
     new TreeMap<Long, MapFile.Reader>();
 
   private volatile long maxSeqId;
+  // Bytes in store files.  Updated whenever the set of store files changes.
+  private volatile long storefilesSize = 0;
   private final int compactionThreshold;
+  private final int maxFilesToCompact;
+  private final float compactionRatio;
+  private final int blockingStoreFiles;
+  private final long majorCompactionInterval;
+  // When all store files were last rewritten by a major compaction.
+  private volatile long lastMajorCompaction;
   private final Set<ChangedReadersObserver> changedReaderObservers =
     Collections.synchronizedSet(new HashSet<ChangedReadersObserver>());
 
@@ -787,20 +833,12 @@ public class HStore implements HConstants {
     this.family = family;
     this.fs = fs;
     this.conf = conf;
+    this.memcache = new Memcache(conf);
     
     this.compactionDir = HRegion.getCompactionDir(basedir);
     this.storeName =
       this.info.getEncodedName() + "/" + this.family.getFamilyName();
     
-    if (family.getCompression() == HColumnDescriptor.CompressionType.BLOCK) {
-      this.compression = SequenceFile.CompressionType.BLOCK;
-    } else if (family.getCompression() ==
-      HColumnDescriptor.CompressionType.RECORD) {
-      this.compression = SequenceFile.CompressionType.RECORD;
-    } else {
-      this.compression = SequenceFile.CompressionType.NONE;
-    }
-    
     Path mapdir = HStoreFile.getMapDir(basedir, info.getEncodedName(),
         family.getFamilyName());
     if (!fs.exists(mapdir)) {
@@ -812,16 +850,18 @@ public class HStore implements HConstants {
       fs.mkdirs(infodir);
     }
     
-    if(family.getBloomFilter() == null) {
-      this.filterDir = null;
-      this.bloomFilter = null;
-    } else {
-      this.filterDir = HStoreFile.getFilterDir(basedir, info.getEncodedName(),
+    if (family.getBloomFilter() != null) {
+      Path filterDir = HStoreFile.getFilterDir(basedir, info.getEncodedName(),
           family.getFamilyName());
       if (!fs.exists(filterDir)) {
         fs.mkdirs(filterDir);
       }
-      this.bloomFilter = loadOrCreateBloomFilter();
+      // Each store file now carries its own bloom filter.  Remove the one
+      // filter older versions kept for the whole store.
+      Path oldFilter = new Path(filterDir, BLOOMFILTER_FILE_NAME);
+      if (fs.exists(oldFilter)) {
+        fs.delete(oldFilter);
+      }
     }
 
     // Go through the 'mapdir' and 'infodir' together, make sure that all 
@@ -871,6 +911,18 @@ public class HStore implements HConstants {
     // MIN_COMMITS_FOR_COMPACTION map files
     this.compactionThreshold =
       conf.getInt("hbase.hstore.compactionThreshold", 3);
+    this.maxFilesToCompact = conf.getInt("hbase.hstore.compaction.max", 10);
+    this.compactionRatio =
+      conf.getFloat("hbase.hstore.compaction.ratio", 1.2F);
+    this.blockingStoreFiles =
+      conf.getInt("hbase.hstore.blockingStoreFiles", 7);
+    this.majorCompactionInterval =
+      conf.getLong("hbase.hregion.majorcompaction", 24 * 60 * 60 * 1000);
+    // We do not record when the last major compaction ran.  The oldest file
+    // is at least as old as it, so count from when that file was written.
+    this.lastMajorCompaction = this.storefiles.size() == 0?
+      System.currentTimeMillis():
+      this.storefiles.get(this.storefiles.firstKey()).getModificationTime();
     
     // We used to compact in here before bringing the store online.  Instead
     // get it online quick even if it needs compactions so we can start
@@ -881,8 +933,9 @@ public class HStore implements HConstants {
     // since we haven't compacted yet.)
     for(Map.Entry<Long, HStoreFile> e: this.storefiles.entrySet()) {
       this.readers.put(e.getKey(),
-        e.getValue().getReader(this.fs, this.bloomFilter));
+        e.getValue().getReader(this.fs, useBloomFilter()));
     }
+    updateStorefilesSize();
   }
   
   /* 
@@ -1129,95 +1182,35 @@ public class HStore implements HConstants {
   // Bloom filters
   //////////////////////////////////////////////////////////////////////////////
 
-  /**
-   * Called by constructor if a bloom filter is enabled for this column family.
-   * If the HStore already exists, it will read in the bloom filter saved
-   * previously. Otherwise, it will create a new bloom filter.
+  /*
+   * @return True if store file readers should load their bloom filters.
    */
-  private Filter loadOrCreateBloomFilter() throws IOException {
-    Path filterFile = new Path(filterDir, BLOOMFILTER_FILE_NAME);
-    Filter bloomFilter = null;
-    if(fs.exists(filterFile)) {
-      if (LOG.isDebugEnabled()) {
-        LOG.debug("loading bloom filter for " + this.storeName);
-      }
-      
-      BloomFilterDescriptor.BloomFilterType type =
-        family.getBloomFilter().filterType;
-
-      switch(type) {
-      
-      case BLOOMFILTER:
-        bloomFilter = new BloomFilter();
-        break;
-        
-      case COUNTING_BLOOMFILTER:
-        bloomFilter = new CountingBloomFilter();
-        break;
-        
-      case RETOUCHED_BLOOMFILTER:
-        bloomFilter = new RetouchedBloomFilter();
-        break;
-      
-      default:
-        throw new IllegalArgumentException("unknown bloom filter type: " +
-            type);
-      }
-      FSDataInputStream in = fs.open(filterFile);
-      try {
-        bloomFilter.readFields(in);
-      } finally {
-        fs.close();
-      }
-    } else {
-      if (LOG.isDebugEnabled()) {
-        LOG.debug("creating bloom filter for " + this.storeName);
-      }
-
-      BloomFilterDescriptor.BloomFilterType type =
-        family.getBloomFilter().filterType;
+  private boolean useBloomFilter() {
+    return family.getBloomFilter() != null;
+  }
 
-      switch(type) {
-      
-      case BLOOMFILTER:
-        bloomFilter = new BloomFilter(family.getBloomFilter().vectorSize,
-            family.getBloomFilter().nbHash);
-        break;
-        
-      case COUNTING_BLOOMFILTER:
-        bloomFilter =
-          new CountingBloomFilter(family.getBloomFilter().vectorSize,
-            family.getBloomFilter().nbHash);
-        break;
-        
-      case RETOUCHED_BLOOMFILTER:
-        bloomFilter =
-          new RetouchedBloomFilter(family.getBloomFilter().vectorSize,
-            family.getBloomFilter().nbHash);
-      }
-    }
-    return bloomFilter;
+  /*
+   * @return A new, empty bloom filter to fill as a store file is written, or
+   * null if this column family does not have bloom filters.
+   */
+  private Filter createBloomFilter() {
+    return HStoreFile.createBloomFilter(this.family);
   }
 
-  /**
-   * Flushes bloom filter to disk
-   * 
+
+  /*
+   * @param map
+   * @param row
+   * @param column If empty, test for the row only.
+   * @return False if the bloom filter of the store file <code>map</code>
+   * reads shows it has no cells for the passed row and column.
    * @throws IOException
    */
-  private void flushBloomFilter() throws IOException {
-    if (LOG.isDebugEnabled()) {
-      LOG.debug("flushing bloom filter for " + this.storeName);
-    }
-    FSDataOutputStream out =
-      fs.create(new Path(filterDir, BLOOMFILTER_FILE_NAME));
-    try {
-      bloomFilter.write(out);
-    } finally {
-      out.close();
-    }
-    if (LOG.isDebugEnabled()) {
-      LOG.debug("flushed bloom filter for " + this.storeName);
-    }
+  private boolean mightContain(final MapFile.Reader map, final Text row,
+      final Text column)
+  throws IOException {
+    return !(map instanceof HStoreFile.BloomFilterMapFile.Reader) ||
+      ((HStoreFile.BloomFilterMapFile.Reader)map).mightContain(row, column);
   }
   
   //////////////////////////////////////////////////////////////////////////////
@@ -1229,11 +1222,12 @@ public class HStore implements HConstants {
    * 
    * @param key
    * @param value
+   * @return Count of bytes the memcache grew by
    */
-  void add(HStoreKey key, byte[] value) {
+  long add(HStoreKey key, byte[] value) {
     lock.readLock().lock();
     try {
-      this.memcache.add(key, value);
+      return this.memcache.add(key, value);
     } finally {
       lock.readLock().unlock();
     }
@@ -1312,8 +1306,8 @@ public class HStore implements HConstants {
       // A. Write the Maps out to the disk
       HStoreFile flushedFile = new HStoreFile(conf, fs, basedir,
           info.getEncodedName(), family.getFamilyName(), -1L, null);
-      MapFile.Writer out = flushedFile.getWriter(this.fs, this.compression,
-          this.bloomFilter);
+      MapFile.Writer out = flushedFile.getWriter(this.fs, this.family,
+          createBloomFilter());
 
       // Here we tried picking up an existing HStoreFile from disk and
       // interlacing the memcache flush compacting as we go. The notion was
@@ -1345,12 +1339,7 @@ public class HStore implements HConstants {
       // MapFile. The MapFile is current up to and including the log seq num.
       flushedFile.writeInfo(fs, logCacheFlushId);
 
-      // C. Flush the bloom filter if any
-      if (bloomFilter != null) {
-        flushBloomFilter();
-      }
-
-      // D. Finally, make the new MapFile available.
+      // C. Finally, make the new MapFile available.
       updateReaders(logCacheFlushId, flushedFile);
       if(LOG.isDebugEnabled()) {
         LOG.debug("Added " + FSUtils.getPath(flushedFile.getMapFilePath()) +
@@ -1376,8 +1365,9 @@ public class HStore implements HConstants {
       Long flushid = Long.valueOf(logCacheFlushId);
       // Open the map file reader.
       this.readers.put(flushid,
-        flushedFile.getReader(this.fs, this.bloomFilter));
+        flushedFile.getReader(this.fs, useBloomFilter()));
       this.storefiles.put(flushid, flushedFile);
+      updateStorefilesSize();
       // Tell listeners of the change in readers.
       notifyChangedReadersObservers();
     } finally {
@@ -1385,6 +1375,77 @@ public class HStore implements HConstants {
     }
   }
   
+  //////////////////////////////////////////////////////////////////////////////
+  // Bulk load
+  //////////////////////////////////////////////////////////////////////////////
+
+  /**
+   * Check a store file written outside of this store, say by a MapReduce job,
+   * holds only rows that belong to this store's region.
+   * @param hsf
+   * @throws IOException if the file is a reference, is empty or has rows
+   * outside of the region.
+   */
+  void checkStoreFile(final HStoreFile hsf) throws IOException {
+    if (hsf.isReference()) {
+      throw new IOException("Cannot load reference " + hsf);
+    }
+    MapFile.Reader reader = hsf.getReader(this.fs, false);
+    try {
+      HStoreKey firstKey = new HStoreKey();
+      if (!reader.next(firstKey, new ImmutableBytesWritable())) {
+        throw new IOException(hsf + " is empty");
+      }
+      HStoreKey lastKey = new HStoreKey();
+      reader.finalKey(lastKey);
+      if (!HRegion.rowIsInRange(this.info, firstKey.getRow()) ||
+          !HRegion.rowIsInRange(this.info, lastKey.getRow())) {
+        throw new IOException(hsf + " has rows " + firstKey.getRow() +
+          " through " + lastKey.getRow() + " which are not all in region " +
+          this.info.getRegionName());
+      }
+    } finally {
+      reader.close();
+    }
+  }
+
+  /**
+   * Adopt a store file written outside of this store.  The file is moved into
+   * the store and is given a sequence id below that of every other store file
+   * so its cells are treated as the oldest in the store.  This keeps the
+   * maximum sequence id, and so what is replayed from the log on restart,
+   * unchanged.  Caller should have first run {@link #checkStoreFile(HStoreFile)}.
+   * @param src Store file to adopt.  Must be on the same filesystem as the
+   * store.
+   * @throws IOException
+   */
+  void loadStoreFile(final HStoreFile src) throws IOException {
+    this.lock.writeLock().lock();
+    try {
+      synchronized (this.storefiles) {
+        long seqid = this.storefiles.size() == 0?
+          0: this.storefiles.firstKey().longValue() - 1;
+        HStoreFile dst = new HStoreFile(conf, fs, basedir,
+          info.getEncodedName(), family.getFamilyName(), -1, null);
+        if (!src.rename(this.fs, dst)) {
+          throw new IOException("Failed move of " + src + " to " + dst);
+        }
+        dst.writeInfo(this.fs, seqid);
+        Long key = Long.valueOf(seqid);
+        this.readers.put(key, dst.getReader(this.fs, useBloomFilter()));
+        this.storefiles.put(key, dst);
+        updateStorefilesSize();
+        if (LOG.isDebugEnabled()) {
+          LOG.debug("Loaded " + FSUtils.getPath(dst.getMapFilePath()) +
+            " into " + this.storeName + " with sequence id " + seqid);
+        }
+      }
+      notifyChangedReadersObservers();
+    } finally {
+      this.lock.writeLock().unlock();
+    }
+  }
+
   /*
    * Notify all observers that set of Readers has changed.
    * @throws IOException
@@ -1422,7 +1483,29 @@ public class HStore implements HConstants {
    */
   boolean needsCompaction() {
     return this.storefiles != null &&
-      (this.storefiles.size() >= this.compactionThreshold || hasReferences());
+      (this.storefiles.size() >= this.compactionThreshold || hasReferences() ||
+        isMajorCompactionDue());
+  }
+
+  /**
+   * Minor compactions skip old, large files so left alone they would never
+   * drop the deletes, expired cells and extra versions those files hold.
+   * @return True if it has been <code>hbase.hregion.majorcompaction</code>
+   * or longer since all store files were last compacted together.
+   */
+  boolean isMajorCompactionDue() {
+    return this.storefiles.size() > 1 && this.majorCompactionInterval > 0 &&
+      System.currentTimeMillis() - this.lastMajorCompaction >=
+        this.majorCompactionInterval;
+  }
+
+  /**
+   * @return Compaction priority of this store.  Lower values are more urgent.
+   * Zero or less means the store has as many files as
+   * <code>hbase.hstore.blockingStoreFiles</code> or more.
+   */
+  int getCompactionPriority() {
+    return this.blockingStoreFiles - this.storefiles.size();
   }
   
   /*
@@ -1463,6 +1546,9 @@ public class HStore implements HConstants {
    * 
    * We don't want to hold the structureLock for the whole time, as a compact() 
    * can be lengthy and we want to allow cache-flushes during this period.
+   *
+   * <p>The compaction is major, rewriting all store files, if forced, if the
+   * store holds references or if {@link #isMajorCompactionDue()}.
    * @throws IOException
    * @param force True to force a compaction regardless of thresholds (Needed
    * by merge).
@@ -1477,9 +1563,14 @@ public class HStore implements HConstants {
       if (filesToCompact.size() == 0) {
         return false;
       }
-      if (!force && !hasReferences(filesToCompact) &&
-          filesToCompact.size() < compactionThreshold) {
-        return false;
+      boolean majorCompaction = force || hasReferences(filesToCompact) ||
+        isMajorCompactionDue();
+      if (!majorCompaction) {
+        filesToCompact = selectFilesToCompact(filesToCompact);
+        if (filesToCompact == null) {
+          return false;
+        }
+        majorCompaction = filesToCompact.size() == this.storefiles.size();
       }
       Collections.reverse(filesToCompact);
       if (!fs.exists(compactionDir) && !fs.mkdirs(compactionDir)) {
@@ -1492,29 +1583,75 @@ public class HStore implements HConstants {
         this.compactionDir, info.getEncodedName(), family.getFamilyName(),
         -1L, null);
       if (LOG.isDebugEnabled()) {
-        LOG.debug("started compaction of " + filesToCompact.size() +
+        LOG.debug("started " + (majorCompaction? "major": "minor") +
+          " compaction of " + filesToCompact.size() +
           " files " + filesToCompact.toString() + " into " +
           FSUtils.getPath(compactedOutputFile.getMapFilePath()));
       }
       MapFile.Writer compactedOut = compactedOutputFile.getWriter(this.fs,
-        this.compression, this.bloomFilter);
+        this.family, createBloomFilter());
       try {
-        compactHStoreFiles(compactedOut, filesToCompact);
+        compactHStoreFiles(compactedOut, filesToCompact, majorCompaction);
       } finally {
         compactedOut.close();
       }
 
       // Now, write out an HSTORE_LOGINFOFILE for the brand-new TreeMap.
-      // Compute max-sequenceID seen in any of the to-be-compacted TreeMaps.
-      long maxId = getMaxSequenceId(filesToCompact);
+      // Use the largest sequence id of the to-be-compacted TreeMaps.  Bulk
+      // loaded files can have ids of zero or less so take the largest even
+      // if not positive; it stays unique because files in between are
+      // compacted too.
+      long maxId = Long.MIN_VALUE;
+      for (HStoreFile hsf: filesToCompact) {
+        maxId = Math.max(maxId, hsf.loadInfo(fs));
+      }
       compactedOutputFile.writeInfo(fs, maxId);
 
       // Move the compaction into place.
       completeCompaction(filesToCompact, compactedOutputFile);
+      if (majorCompaction) {
+        this.lastMajorCompaction = System.currentTimeMillis();
+      }
       return true;
     }
   }
 
+  /*
+   * Pick the files a minor compaction should rewrite.  Walking from the oldest
+   * file, skip any file that is larger than
+   * <code>hbase.hstore.compaction.ratio</code> times the size of all files
+   * newer than it so big, old files are not rewritten on every compaction.
+   * The selection is always a run of files adjacent in sequence id and holds
+   * at most <code>hbase.hstore.compaction.max</code> files.
+   * @param files Store files, oldest first.
+   * @return Files to compact, oldest first, or null if too few qualify.
+   * @throws IOException
+   */
+  private List<HStoreFile> selectFilesToCompact(final List<HStoreFile> files)
+  throws IOException {
+    int count = files.size();
+    if (count < this.compactionThreshold) {
+      return null;
+    }
+    long [] sizes = new long[count];
+    // sumNewer[i] is the total size of the files newer than file i.
+    long [] sumNewer = new long[count];
+    for (int i = count - 1; i >= 0; i--) {
+      sizes[i] = files.get(i).length();
+      sumNewer[i] = (i == count - 1)? 0: sumNewer[i + 1] + sizes[i + 1];
+    }
+    int start = 0;
+    while (count - start >= this.compactionThreshold &&
+        sizes[start] > this.compactionRatio * sumNewer[start]) {
+      start++;
+    }
+    if (count - start < this.compactionThreshold) {
+      return null;
+    }
+    int end = Math.min(count, start + this.maxFilesToCompact);
+    return new ArrayList<HStoreFile>(files.subList(start, end));
+  }
+
   /*
    * Compact passed <code>toCompactFiles</code> into <code>compactedOut</code>.
    * We create a new set of MapFile.Reader objects so we don't screw up the
@@ -1524,11 +1661,17 @@ public class HStore implements HConstants {
    * We work by opening a single MapFile.Reader for each file, and iterating
    * through them in parallel. We always increment the lowest-ranked one.
    * Updates to a single row/column will appear ranked by timestamp. This allows
-   * us to throw out deleted values or obsolete versions. @param compactedOut
-   * @param toCompactFiles @throws IOException
+   * us to throw out deleted values or obsolete versions.  A minor compaction
+   * keeps delete markers since they may mask cells in files it did not read.
+   * @param compactedOut
+   * @param toCompactFiles
+   * @param majorCompaction True if <code>toCompactFiles</code> are all of the
+   * store files.
+   * @throws IOException
    */
   private void compactHStoreFiles(final MapFile.Writer compactedOut,
-      final List<HStoreFile> toCompactFiles) throws IOException {
+      final List<HStoreFile> toCompactFiles, final boolean majorCompaction)
+  throws IOException {
     
     int size = toCompactFiles.size();
     CompactionReader[] rdrs = new CompactionReader[size];
@@ -1536,7 +1679,7 @@ public class HStore implements HConstants {
     for (HStoreFile hsf: toCompactFiles) {
       try {
         rdrs[index++] =
-          new MapFileCompactionReader(hsf.getReader(fs, bloomFilter));
+          new MapFileCompactionReader(hsf.getReader(fs, false));
       } catch (IOException e) {
         // Add info about which file threw exception. It may not be in the
         // exception message so output a message here where we know the
@@ -1605,8 +1748,10 @@ public class HStore implements HConstants {
 
         byte [] value = (vals[smallestKey] == null)?
           null: vals[smallestKey].get();
-        if (!isDeleted(sk, value, false, deletes) &&
-            timesSeen <= family.getMaxVersions()) {
+        boolean deleted = isDeleted(sk, value, false, deletes);
+        if ((!deleted && timesSeen <= family.getMaxVersions()) ||
+            (deleted && !majorCompaction && value != null &&
+              HLogEdit.isDeleted(value))) {
           // Keep old versions until we have maxVersions worth.
           // Then just skip them.
           if (sk.getRow().getLength() != 0 && sk.getColumn().getLength() != 0) {
@@ -1812,8 +1957,9 @@ public class HStore implements HConstants {
           this.readers.put(orderVal,
           // Use a block cache (if configured) for this reader since
           // it is the only one.
-          finalCompactedFile.getReader(this.fs, this.bloomFilter));
+          finalCompactedFile.getReader(this.fs, useBloomFilter()));
           this.storefiles.put(orderVal, finalCompactedFile);
+          updateStorefilesSize();
           // Tell observers that list of Readers has changed.
           notifyChangedReadersObservers();
           // Finally, delete old store files.
@@ -1858,7 +2004,15 @@ public class HStore implements HConstants {
       MapFile.Reader[] maparray = getReaders();
       for (int i = maparray.length - 1; i >= 0; i--) {
         MapFile.Reader map = maparray[i];
-        getFullFromMapFile(map, key, deletes, results);
+        if (!mightContain(map, key.getRow(), null)) {
+          continue;
+        }
+        MapFile.Reader reader = acquireReader(map);
+        try {
+          getFullFromMapFile(reader, key, deletes, results);
+        } finally {
+          releaseReader(map, reader);
+        }
       }
     } finally {
       this.lock.readLock().unlock();
@@ -1869,49 +2023,47 @@ public class HStore implements HConstants {
     Map<Text, Long> deletes, TreeMap<Text, byte[]> results) 
   throws IOException {
     
-    synchronized(map) {
-      map.reset();
-      ImmutableBytesWritable readval = new ImmutableBytesWritable();
-      HStoreKey readkey = (HStoreKey)map.getClosest(key, readval);
-      if (readkey == null) {
+    map.reset();
+    ImmutableBytesWritable readval = new ImmutableBytesWritable();
+    HStoreKey readkey = (HStoreKey)map.getClosest(key, readval);
+    if (readkey == null) {
+      return;
+    }
+    do {
+      Text readcol = readkey.getColumn();
+      
+      // if there isn't already a value in the results map, and the key we 
+      // just read matches, then we'll consider it
+      if (!results.containsKey(readcol) && key.matchesWithoutColumn(readkey)) {
+        // if the value of the cell we're looking at right now is a delete, 
+        // we need to treat it differently
+        if(HLogEdit.isDeleted(readval.get())) {
+          // if it's not already recorded as a delete or recorded with a more
+          // recent delete timestamp, record it for later
+          if (!deletes.containsKey(readcol) 
+            || deletes.get(readcol).longValue() < readkey.getTimestamp()) {
+            deletes.put(new Text(readcol), readkey.getTimestamp());              
+          }
+        } else if (!(deletes.containsKey(readcol) 
+          && deletes.get(readcol).longValue() >= readkey.getTimestamp()) ) {
+          // So the cell itself isn't a delete, but there may be a delete 
+          // pending from earlier in our search. Only record this result if
+          // there aren't any pending deletes.
+          if (!(deletes.containsKey(readcol) 
+            && deletes.get(readcol).longValue() >= readkey.getTimestamp())) {
+            results.put(new Text(readcol), readval.get());
+            // need to reinstantiate the readval so we can reuse it, 
+            // otherwise next iteration will destroy our result
+            readval = new ImmutableBytesWritable();
+          }
+        } 
+      } else if(key.getRow().compareTo(readkey.getRow()) < 0) {
+        // if we've crossed into the next row, then we can just stop 
+        // iterating
         return;
       }
-      do {
-        Text readcol = readkey.getColumn();
-        
-        // if there isn't already a value in the results map, and the key we 
-        // just read matches, then we'll consider it
-        if (!results.containsKey(readcol) && key.matchesWithoutColumn(readkey)) {
-          // if the value of the cell we're looking at right now is a delete, 
-          // we need to treat it differently
-          if(HLogEdit.isDeleted(readval.get())) {
-            // if it's not already recorded as a delete or recorded with a more
-            // recent delete timestamp, record it for later
-            if (!deletes.containsKey(readcol) 
-              || deletes.get(readcol).longValue() < readkey.getTimestamp()) {
-              deletes.put(new Text(readcol), readkey.getTimestamp());              
-            }
-          } else if (!(deletes.containsKey(readcol) 
-            && deletes.get(readcol).longValue() >= readkey.getTimestamp()) ) {
-            // So the cell itself isn't a delete, but there may be a delete 
-            // pending from earlier in our search. Only record this result if
-            // there aren't any pending deletes.
-            if (!(deletes.containsKey(readcol) 
-              && deletes.get(readcol).longValue() >= readkey.getTimestamp())) {
-              results.put(new Text(readcol), readval.get());
-              // need to reinstantiate the readval so we can reuse it, 
-              // otherwise next iteration will destroy our result
-              readval = new ImmutableBytesWritable();
-            }
-          } 
-        } else if(key.getRow().compareTo(readkey.getRow()) < 0) {
-          // if we've crossed into the next row, then we can just stop 
-          // iterating
-          return;
-        }
-        
-      } while(map.next(readkey, readval));
-    }    
+      
+    } while(map.next(readkey, readval));
   }
   
   MapFile.Reader [] getReaders() {
@@ -1919,6 +2071,24 @@ public class HStore implements HConstants {
       toArray(new MapFile.Reader[this.readers.size()]);
   }
 
+  /*
+   * Random reads each take a reader of their own so concurrent gets on a
+   * store file do not queue on its one reader.
+   * @param map A reader from {@link #getReaders()}
+   * @return A reader on the same store file that no other get is using.
+   * Hand it back with {@link #releaseReader(MapFile.Reader, MapFile.Reader)}.
+   * @throws IOException
+   */
+  private MapFile.Reader acquireReader(final MapFile.Reader map)
+  throws IOException {
+    return ((HStoreFile.HbaseMapFile.HbaseReader)map).acquire();
+  }
+
+  private void releaseReader(final MapFile.Reader map,
+      final MapFile.Reader reader) {
+    ((HStoreFile.HbaseMapFile.HbaseReader)map).release(reader);
+  }
+
   /**
    * Get the value for the indicated HStoreKey.  Grab the target value and the 
    * previous 'numVersions-1' values, as well.
@@ -1956,12 +2126,16 @@ public class HStore implements HConstants {
       MapFile.Reader[] maparray = getReaders();
       for(int i = maparray.length - 1; i >= 0; i--) {
         MapFile.Reader map = maparray[i];
-        synchronized(map) {
-          map.reset();
+        if (!mightContain(map, key.getRow(), key.getColumn())) {
+          continue;
+        }
+        MapFile.Reader reader = acquireReader(map);
+        try {
+          reader.reset();
           ImmutableBytesWritable readval = new ImmutableBytesWritable();
-          HStoreKey readkey = (HStoreKey)map.getClosest(key, readval);
+          HStoreKey readkey = (HStoreKey)reader.getClosest(key, readval);
           if (readkey == null) {
-            // map.getClosest returns null if the passed key is > than the
+            // reader.getClosest returns null if the passed key is > than the
             // last key in the map file.  getClosest is a bit of a misnomer
             // since it returns exact match or the next closest key AFTER not
             // BEFORE.
@@ -1980,7 +2154,7 @@ public class HStore implements HConstants {
             }
           }
           for (readval = new ImmutableBytesWritable();
-              map.next(readkey, readval) &&
+              reader.next(readkey, readval) &&
               readkey.matchesRowCol(key) &&
               !hasEnoughVersions(numVersions, results);
               readval = new ImmutableBytesWritable()) {
@@ -1988,6 +2162,8 @@ public class HStore implements HConstants {
               results.add(readval.get());
             }
           }
+        } finally {
+          releaseReader(map, reader);
         }
         if (hasEnoughVersions(numVersions, results)) {
           break;
@@ -2034,14 +2210,18 @@ public class HStore implements HConstants {
       MapFile.Reader[] maparray = getReaders();
       for(int i = maparray.length - 1; i >= 0; i--) {
         MapFile.Reader map = maparray[i];
-        synchronized(map) {
-          map.reset();
+        if (!mightContain(map, origin.getRow(), origin.getColumn())) {
+          continue;
+        }
+        MapFile.Reader reader = acquireReader(map);
+        try {
+          reader.reset();
           
           // do the priming read
           ImmutableBytesWritable readval = new ImmutableBytesWritable();
-          HStoreKey readkey = (HStoreKey)map.getClosest(origin, readval);
+          HStoreKey readkey = (HStoreKey)reader.getClosest(origin, readval);
           if (readkey == null) {
-            // map.getClosest returns null if the passed key is > than the
+            // reader.getClosest returns null if the passed key is > than the
             // last key in the map file.  getClosest is a bit of a misnomer
             // since it returns exact match or the next closest key AFTER not
             // BEFORE.
@@ -2073,7 +2253,9 @@ public class HStore implements HConstants {
               // the row doesn't match, so we've gone too far.
               break;
             }
-          }while(map.next(readkey, readval)); // advance to the next key
+          }while(reader.next(readkey, readval)); // advance to the next key
+        } finally {
+          releaseReader(map, reader);
         }
       }
       
@@ -2105,7 +2287,12 @@ public class HStore implements HConstants {
       // process each store file
       for(int i = maparray.length - 1; i >= 0; i--) {
         // update the candidate keys from the current map file
-        rowAtOrBeforeFromMapFile(maparray[i], row, candidateKeys);        
+        MapFile.Reader reader = acquireReader(maparray[i]);
+        try {
+          rowAtOrBeforeFromMapFile(reader, row, candidateKeys);
+        } finally {
+          releaseReader(maparray[i], reader);
+        }
       }
       
       // finally, check the memcache
@@ -2132,147 +2319,145 @@ public class HStore implements HConstants {
     ImmutableBytesWritable readval = new ImmutableBytesWritable();
     HStoreKey readkey = new HStoreKey();
     
-    synchronized(map) {
-      // don't bother with the rest of this if the file is empty
-      map.reset();
-      if (!map.next(readkey, readval)) {
+    // don't bother with the rest of this if the file is empty
+    map.reset();
+    if (!map.next(readkey, readval)) {
+      return;
+    }
+    
+    // if there aren't any candidate keys yet, we'll do some things slightly
+    // different 
+    if (candidateKeys.isEmpty()) {
+      searchKey = new HStoreKey(row);
+      
+      // if the row we're looking for is past the end of this mapfile, just
+      // save time and add the last key to the candidates.
+      HStoreKey finalKey = new HStoreKey(); 
+      map.finalKey(finalKey);
+      if (finalKey.getRow().compareTo(row) < 0) {
+        candidateKeys.put(stripTimestamp(finalKey), 
+          new Long(finalKey.getTimestamp()));
         return;
       }
       
-      // if there aren't any candidate keys yet, we'll do some things slightly
-      // different 
-      if (candidateKeys.isEmpty()) {
-        searchKey = new HStoreKey(row);
-        
-        // if the row we're looking for is past the end of this mapfile, just
-        // save time and add the last key to the candidates.
-        HStoreKey finalKey = new HStoreKey(); 
-        map.finalKey(finalKey);
-        if (finalKey.getRow().compareTo(row) < 0) {
-          candidateKeys.put(stripTimestamp(finalKey), 
-            new Long(finalKey.getTimestamp()));
-          return;
-        }
-        
-        // seek to the exact row, or the one that would be immediately before it
-        readkey = (HStoreKey)map.getClosest(searchKey, readval, true);
+      // seek to the exact row, or the one that would be immediately before it
+      readkey = (HStoreKey)map.getClosest(searchKey, readval, true);
+
+      if (readkey == null) {
+        // didn't find anything that would match, so return
+        return;
+      }
 
-        if (readkey == null) {
-          // didn't find anything that would match, so return
+      do {
+        // if we have an exact match on row, and it's not a delete, save this
+        // as a candidate key
+        if (readkey.getRow().equals(row)) {
+          if (!HLogEdit.isDeleted(readval.get())) {
+            candidateKeys.put(stripTimestamp(readkey), 
+              new Long(readkey.getTimestamp()));
+          }
+        } else if (readkey.getRow().compareTo(row) > 0 ) {
+          // if the row key we just read is beyond the key we're searching for,
+          // then we're done. return.
           return;
-        }
+        } else {
+          // so, the row key doesn't match, but we haven't gone past the row
+          // we're seeking yet, so this row is a candidate for closest 
+          // (assuming that it isn't a delete).
+          if (!HLogEdit.isDeleted(readval.get())) {
+            candidateKeys.put(stripTimestamp(readkey), 
+              new Long(readkey.getTimestamp()));
+          }
+        }        
+      } while(map.next(readkey, readval));
 
-        do {
-          // if we have an exact match on row, and it's not a delete, save this
-          // as a candidate key
-          if (readkey.getRow().equals(row)) {
-            if (!HLogEdit.isDeleted(readval.get())) {
-              candidateKeys.put(stripTimestamp(readkey), 
-                new Long(readkey.getTimestamp()));
-            }
-          } else if (readkey.getRow().compareTo(row) > 0 ) {
-            // if the row key we just read is beyond the key we're searching for,
-            // then we're done. return.
-            return;
-          } else {
-            // so, the row key doesn't match, but we haven't gone past the row
-            // we're seeking yet, so this row is a candidate for closest 
-            // (assuming that it isn't a delete).
-            if (!HLogEdit.isDeleted(readval.get())) {
-              candidateKeys.put(stripTimestamp(readkey), 
-                new Long(readkey.getTimestamp()));
-            }
-          }        
-        } while(map.next(readkey, readval));
-  
-        // arriving here just means that we consumed the whole rest of the map
-        // without going "past" the key we're searching for. we can just fall
-        // through here.
-      } else {
-        // if there are already candidate keys, we need to start our search 
-        // at the earliest possible key so that we can discover any possible
-        // deletes for keys between the start and the search key.
-        searchKey = new HStoreKey(candidateKeys.firstKey().getRow());
+      // arriving here just means that we consumed the whole rest of the map
+      // without going "past" the key we're searching for. we can just fall
+      // through here.
+    } else {
+      // if there are already candidate keys, we need to start our search 
+      // at the earliest possible key so that we can discover any possible
+      // deletes for keys between the start and the search key.
+      searchKey = new HStoreKey(candidateKeys.firstKey().getRow());
 
-        HStoreKey strippedKey = null;
+      HStoreKey strippedKey = null;
+      
+      // if the row we're looking for is past the end of this mapfile, just
+      // save time and add the last key to the candidates.
+      HStoreKey finalKey = new HStoreKey(); 
+      map.finalKey(finalKey);
+      if (finalKey.getRow().compareTo(searchKey.getRow()) < 0) {
+        strippedKey = stripTimestamp(finalKey);
         
-        // if the row we're looking for is past the end of this mapfile, just
-        // save time and add the last key to the candidates.
-        HStoreKey finalKey = new HStoreKey(); 
-        map.finalKey(finalKey);
-        if (finalKey.getRow().compareTo(searchKey.getRow()) < 0) {
-          strippedKey = stripTimestamp(finalKey);
-          
-          // if the candidate keys has a cell like this one already,
-          // then we might want to update the timestamp we're using on it
-          if (candidateKeys.containsKey(strippedKey)) {
-            long bestCandidateTs = 
-              candidateKeys.get(strippedKey).longValue();
-            if (bestCandidateTs < finalKey.getTimestamp()) {
-              candidateKeys.put(strippedKey, new Long(finalKey.getTimestamp()));
-            } 
-          } else {
-            // otherwise, this is a new key, so put it up as a candidate
-            candidateKeys.put(strippedKey, new Long(finalKey.getTimestamp()));            
-          }
-          return;
+        // if the candidate keys has a cell like this one already,
+        // then we might want to update the timestamp we're using on it
+        if (candidateKeys.containsKey(strippedKey)) {
+          long bestCandidateTs = 
+            candidateKeys.get(strippedKey).longValue();
+          if (bestCandidateTs < finalKey.getTimestamp()) {
+            candidateKeys.put(strippedKey, new Long(finalKey.getTimestamp()));
+          } 
+        } else {
+          // otherwise, this is a new key, so put it up as a candidate
+          candidateKeys.put(strippedKey, new Long(finalKey.getTimestamp()));            
         }
+        return;
+      }
 
-        // seek to the exact row, or the one that would be immediately before it
-        readkey = (HStoreKey)map.getClosest(searchKey, readval, true);
+      // seek to the exact row, or the one that would be immediately before it
+      readkey = (HStoreKey)map.getClosest(searchKey, readval, true);
 
-        if (readkey == null) {
-          // didn't find anything that would match, so return
-          return;
-        }
+      if (readkey == null) {
+        // didn't find anything that would match, so return
+        return;
+      }
 
-        do {
-          // if we have an exact match on row, and it's not a delete, save this
-          // as a candidate key
-          if (readkey.getRow().equals(row)) {
-            strippedKey = stripTimestamp(readkey);
-            if (!HLogEdit.isDeleted(readval.get())) {
-              candidateKeys.put(strippedKey, new Long(readkey.getTimestamp()));
-            } else {
-              // if the candidate keys contain any that might match by timestamp,
-              // then check for a match and remove it if it's too young to 
-              // survive the delete 
-              if (candidateKeys.containsKey(strippedKey)) {
-                long bestCandidateTs = 
-                  candidateKeys.get(strippedKey).longValue();
-                if (bestCandidateTs <= readkey.getTimestamp()) {
-                  candidateKeys.remove(strippedKey);
-                } 
-              }
+      do {
+        // if we have an exact match on row, and it's not a delete, save this
+        // as a candidate key
+        if (readkey.getRow().equals(row)) {
+          strippedKey = stripTimestamp(readkey);
+          if (!HLogEdit.isDeleted(readval.get())) {
+            candidateKeys.put(strippedKey, new Long(readkey.getTimestamp()));
+          } else {
+            // if the candidate keys contain any that might match by timestamp,
+            // then check for a match and remove it if it's too young to 
+            // survive the delete 
+            if (candidateKeys.containsKey(strippedKey)) {
+              long bestCandidateTs = 
+                candidateKeys.get(strippedKey).longValue();
+              if (bestCandidateTs <= readkey.getTimestamp()) {
+                candidateKeys.remove(strippedKey);
+              } 
             }
-          } else if (readkey.getRow().compareTo(row) > 0 ) {
-            // if the row key we just read is beyond the key we're searching for,
-            // then we're done. return.
-            return;
+          }
+        } else if (readkey.getRow().compareTo(row) > 0 ) {
+          // if the row key we just read is beyond the key we're searching for,
+          // then we're done. return.
+          return;
+        } else {
+          strippedKey = stripTimestamp(readkey);
+          
+          // so, the row key doesn't match, but we haven't gone past the row
+          // we're seeking yet, so this row is a candidate for closest 
+          // (assuming that it isn't a delete).
+          if (!HLogEdit.isDeleted(readval.get())) {
+            candidateKeys.put(strippedKey, readkey.getTimestamp());
           } else {
-            strippedKey = stripTimestamp(readkey);
-            
-            // so, the row key doesn't match, but we haven't gone past the row
-            // we're seeking yet, so this row is a candidate for closest 
-            // (assuming that it isn't a delete).
-            if (!HLogEdit.isDeleted(readval.get())) {
-              candidateKeys.put(strippedKey, readkey.getTimestamp());
-            } else {
-              // if the candidate keys contain any that might match by timestamp,
-              // then check for a match and remove it if it's too young to 
-              // survive the delete 
-              if (candidateKeys.containsKey(strippedKey)) {
-                long bestCandidateTs = 
-                  candidateKeys.get(strippedKey).longValue();
-                if (bestCandidateTs <= readkey.getTimestamp()) {
-                  candidateKeys.remove(strippedKey);
-                } 
-              }
+            // if the candidate keys contain any that might match by timestamp,
+            // then check for a match and remove it if it's too young to 
+            // survive the delete 
+            if (candidateKeys.containsKey(strippedKey)) {
+              long bestCandidateTs = 
+                candidateKeys.get(strippedKey).longValue();
+              if (bestCandidateTs <= readkey.getTimestamp()) {
+                candidateKeys.remove(strippedKey);
+              } 
             }
           }
-        } while(map.next(readkey, readval));
-        
-      }
+        }
+      } while(map.next(readkey, readval));
+      
     }
   }
   
@@ -2319,6 +2504,63 @@ public class HStore implements HConstants {
     return target.matchesRowCol(origin);
   }
   
+  /**
+   * Find rows that divide this store's largest file into
+   * <code>pieces</code> parts of about equal size.  Rows are read from the
+   * file's MapFile index so, for two pieces, the row is that of the file's
+   * midkey.
+   * @param pieces
+   * @return Sorted, distinct rows; fewer than <code>pieces - 1</code> if the
+   * file has too few indexed rows.  Empty if the largest file is a reference.
+   * @throws IOException
+   */
+  List<Text> getSplitRows(final int pieces) throws IOException {
+    List<Text> result = new ArrayList<Text>();
+    this.lock.readLock().lock();
+    try {
+      HStoreFile largest = null;
+      long maxSize = 0L;
+      for (HStoreFile hsf: this.storefiles.values()) {
+        long size = hsf.length();
+        if (largest == null || size > maxSize) {
+          largest = hsf;
+          maxSize = size;
+        }
+      }
+      if (largest == null || largest.isReference() || pieces < 2) {
+        return result;
+      }
+      // Collect the distinct rows in the index.
+      List<Text> rows = new ArrayList<Text>();
+      SequenceFile.Reader index = new SequenceFile.Reader(this.fs,
+        new Path(largest.getMapFilePath(), MapFile.INDEX_FILE_NAME), this.conf);
+      try {
+        HStoreKey key = new HStoreKey();
+        LongWritable position = new LongWritable();
+        while (index.next(key, position)) {
+          if (rows.size() == 0 ||
+              !rows.get(rows.size() - 1).equals(key.getRow())) {
+            rows.add(new Text(key.getRow()));
+          }
+        }
+      } finally {
+        index.close();
+      }
+      // Skip the first row; a split starting there would be empty.
+      for (int i = 1; i < pieces; i++) {
+        int j = (int)(((long)rows.size() * i) / pieces);
+        if (j > 0 && j < rows.size() &&
+            (result.size() == 0 ||
+              !result.get(result.size() - 1).equals(rows.get(j)))) {
+          result.add(rows.get(j));
+        }
+      }
+    } finally {
+      this.lock.readLock().unlock();
+    }
+    return result;
+  }
+
   /*
    * Data structure to hold result of a look at store file sizes.
    */
@@ -2350,6 +2592,29 @@ public class HStore implements HConstants {
     }
   }
   
+  /*
+   * Recompute the bytes in store files.  Call after changing the set of store
+   * files.
+   * @throws IOException
+   */
+  private void updateStorefilesSize() throws IOException {
+    long size = 0;
+    synchronized (this.storefiles) {
+      for (HStoreFile hsf: this.storefiles.values()) {
+        size += hsf.length();
+      }
+    }
+    this.storefilesSize = size;
+  }
+
+  /**
+   * @return Bytes in store files, as of the last change to the set of store
+   * files.  Unlike {@link #size(Text)}, does not go to the filesystem.
+   */
+  long getStorefilesSize() {
+    return this.storefilesSize;
+  }
+
   /**
    * Gets size for the store.
    * 
@@ -2386,26 +2651,31 @@ public class HStore implements HConstants {
         }
       }
       if (splitable) {
-        MapFile.Reader r = this.readers.get(mapIndex);
-        // seek back to the beginning of mapfile
-        r.reset();
-        // get the first and last keys
-        HStoreKey firstKey = new HStoreKey();
-        HStoreKey lastKey = new HStoreKey();
-        Writable value = new ImmutableBytesWritable();
-        r.next(firstKey, value);
-        r.finalKey(lastKey);
-        // get the midkey
-        HStoreKey mk = (HStoreKey)r.midKey();
-        if (mk != null) {
-          // if the midkey is the same as the first and last keys, then we cannot
-          // (ever) split this region. 
-          if (mk.getRow().equals(firstKey.getRow()) && 
-              mk.getRow().equals(lastKey.getRow())) {
-            return new HStoreSize(aggregateSize, maxSize, false);
+        MapFile.Reader map = this.readers.get(mapIndex);
+        MapFile.Reader r = acquireReader(map);
+        try {
+          // seek back to the beginning of mapfile
+          r.reset();
+          // get the first and last keys
+          HStoreKey firstKey = new HStoreKey();
+          HStoreKey lastKey = new HStoreKey();
+          Writable value = new ImmutableBytesWritable();
+          r.next(firstKey, value);
+          r.finalKey(lastKey);
+          // get the midkey
+          HStoreKey mk = (HStoreKey)r.midKey();
+          if (mk != null) {
+            // if the midkey is the same as the first and last keys, then we cannot
+            // (ever) split this region. 
+            if (mk.getRow().equals(firstKey.getRow()) && 
+                mk.getRow().equals(lastKey.getRow())) {
+              return new HStoreSize(aggregateSize, maxSize, false);
+            }
+            // Otherwise, set midKey
+            midKey.set(mk.getRow());
           }
-          // Otherwise, set midKey
-          midKey.set(mk.getRow());
+        } finally {
+          releaseReader(map, r);
         }
       }
     } catch(IOException e) {
@@ -2485,6 +2755,15 @@ public class HStore implements HConstants {
 
     private MapFile.Reader[] sfsReaders;
 
+    // Readers with cells left, lowest row first
+    private HStoreKeyHeap heap;
+
+    // Readers on the row being gathered
+    private int [] chosen;
+
+    // Row being gathered; reused from row to row
+    private final Text viableRow = new Text();
+
     // Used around replacement of Readers if they change while we're scanning.
     @SuppressWarnings("hiding")
     private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
@@ -2524,24 +2803,21 @@ public class HStore implements HConstants {
      // Most recent map file should be first
      int i = sfsReaders.length - 1;
      for(HStoreFile curHSF: getStorefiles().values()) {
-       sfsReaders[i--] = curHSF.getReader(fs, bloomFilter);
+       sfsReaders[i--] = curHSF.getReader(fs, false);
      }
      
      this.keys = new HStoreKey[sfsReaders.length];
      this.vals = new byte[sfsReaders.length][];
+     this.heap = new HStoreKeyHeap(this.keys);
+     this.chosen = new int[sfsReaders.length];
      
      // Advance the readers to the first pos.
      for (i = 0; i < sfsReaders.length; i++) {
        keys[i] = new HStoreKey();
-       if (firstRow != null && firstRow.getLength() != 0) {
-         if (findFirstRow(i, firstRow)) {
-           continue;
-         }
-       }
-       while (getNext(i)) {
-         if (columnMatch(i)) {
-           break;
-         }
+       boolean found = (firstRow != null && firstRow.getLength() != 0)?
+         seekTo(i, new HStoreKey(firstRow)): getNext(i);
+       if (found && skipToMatch(i)) {
+         heap.add(i);
        }
      }
    }
@@ -2574,25 +2850,35 @@ public class HStore implements HConstants {
      }
      this.lock.readLock().lock();
      try {
-       // Find the next viable row label (and timestamp).
-       ViableRow viableRow = getNextViableRow();
-       
-       // Grab all the values that match this row/timestamp
+       // The reader on the lowest key chooses the next viable row label (and
+       // timestamp).  Readers only ever rest on cells no newer than the
+       // scanner timestamp.
        boolean insertedItem = false;
-       if (viableRow.getRow() != null) {
-         key.setRow(viableRow.getRow());
-         key.setVersion(viableRow.getTimestamp());
-         for (int i = 0; i < keys.length; i++) {
+       int first = heap.peek();
+       if (first >= 0) {
+         viableRow.set(keys[first].getRow());
+         long viableTimestamp = keys[first].getTimestamp();
+         key.setRow(viableRow);
+         key.setVersion(viableTimestamp);
+         // Take out the readers on the viable row.  They are gathered in
+         // reader order, most recent map file first.
+         int count = 0;
+         while (!heap.isEmpty() && heap.peekRow().compareTo(viableRow) == 0) {
+           chosen[count++] = heap.poll();
+         }
+         Arrays.sort(chosen, 0, count);
+         for (int j = 0; j < count; j++) {
+           int i = chosen[j];
            // Fetch the data
            while ((keys[i] != null)
-               && (keys[i].getRow().compareTo(viableRow.getRow()) == 0)) {
+               && (keys[i].getRow().compareTo(viableRow) == 0)) {
  
              // If we are doing a wild card match or there are multiple matchers
              // per column, we need to scan all the older versions of this row
              // to pick up the rest of the family members
              if(!isWildcardScanner()
                  && !isMultipleMatchScanner()
-                 && (keys[i].getTimestamp() != viableRow.getTimestamp())) {
+                 && (keys[i].getTimestamp() != viableTimestamp)) {
                break;
              }
              if(columnMatch(i)) {              
@@ -2603,17 +2889,19 @@ public class HStore implements HConstants {
                }
              }
  
-             if (!getNext(i)) {
-               closeSubScanner(i);
+             if (getNext(i)) {
+               skipToMatch(i);
              }
            }
            // Advance the current scanner beyond the chosen row, to
            // a valid timestamp, so we're ready next time.
-           while ((keys[i] != null)
-               && ((keys[i].getRow().compareTo(viableRow.getRow()) <= 0)
-                   || (keys[i].getTimestamp() > this.timestamp)
-                   || (! columnMatch(i)))) {
-             getNext(i);
+           if (keys[i] != null
+               && keys[i].getRow().compareTo(viableRow) <= 0
+               && seekTo(i, getFirstKeyAfterRow(viableRow))) {
+             skipToMatch(i);
+           }
+           if (keys[i] != null) {
+             heap.add(i);
            }
          }
        }
@@ -2623,62 +2911,6 @@ public class HStore implements HConstants {
      }
    }
 
-   /*
-    * @return An instance of <code>ViableRow</code>
-    * @throws IOException
-    */
-   private ViableRow getNextViableRow() throws IOException {
-     // Find the next viable row label (and timestamp).
-     Text viableRow = null;
-     long viableTimestamp = -1;
-     for(int i = 0; i < keys.length; i++) {
-       // The first key that we find that matches may have a timestamp greater
-       // than the one we're looking for. We have to advance to see if there
-       // is an older version present, since timestamps are sorted descending
-       while (keys[i] != null &&
-           keys[i].getTimestamp() > this.timestamp &&
-           columnMatch(i) &&
-           getNext(i)) {
-         if (columnMatch(i)) {
-           break;
-         }
-       }
-       if((keys[i] != null)
-           // If we get here and keys[i] is not null, we already know that the
-           // column matches and the timestamp of the row is less than or equal
-           // to this.timestamp, so we do not need to test that here
-           && ((viableRow == null)
-               || (keys[i].getRow().compareTo(viableRow) < 0)
-               || ((keys[i].getRow().compareTo(viableRow) == 0)
-                   && (keys[i].getTimestamp() > viableTimestamp)))) {
-         viableRow = new Text(keys[i].getRow());
-         viableTimestamp = keys[i].getTimestamp();
-       }
-     }
-     return new ViableRow(viableRow, viableTimestamp);
-   }
-   
-
-   // Data stucture to hold next, viable row (and timestamp).
-   class ViableRow {
-     private final Text row;
-     private final long ts;
-     ViableRow(final Text r, final long t) {
-       this.row = r;
-       this.ts = t;
-     }
-
-     /** @return the row */
-     public Text getRow() {
-       return this.row;
-     }
-
-     /** @return the timestamp */
-     public long getTimestamp() {
-       return this.ts;
-     }
-   }
-   
    // Implementation of ChangedReadersObserver
    
    /** {@inheritDoc} */
@@ -2687,37 +2919,85 @@ public class HStore implements HConstants {
      try {
        // The keys are currently lined up at the next row to fetch.  Pass in
        // the current row as 'first' row and readers will be opened and cue'd
-       // up so future call to next will start here.
-       ViableRow viableRow = getNextViableRow();
-       openReaders(viableRow.getRow());
-       LOG.debug("Replaced Scanner Readers at row " + viableRow.getRow());
+       // up so future call to next will start here.  If no reader has cells
+       // left, the scan is done and there is nothing to replace.
+       int first = heap.peek();
+       if (first >= 0) {
+         Text row = new Text(keys[first].getRow());
+         openReaders(row);
+         LOG.debug("Replaced Scanner Readers at row " + row);
+       }
      } finally {
        this.lock.writeLock().unlock();
      }
    }
 
+    /** {@inheritDoc} */
+    public void seekRow(final Text row) throws IOException {
+      this.lock.readLock().lock();
+      try {
+        while (!heap.isEmpty() && heap.peekRow().compareTo(row) < 0) {
+          int i = heap.poll();
+          if (seekTo(i, new HStoreKey(row)) && skipToMatch(i)) {
+            heap.add(i);
+          }
+        }
+      } finally {
+        this.lock.readLock().unlock();
+      }
+    }
+
     /*
-     * The user didn't want to start scanning at the first row. This method
-     * seeks to the requested row.
+     * Seek the specified reader to the first cell at or after
+     * <code>target</code> that is no newer than the scanner timestamp.  Goes
+     * by the MapFile index so cells skipped over are mostly not read at all.
+     * 
+     * Caller must be holding a read lock.
      *
-     * @param i Which iterator to advance
-     * @param firstRow Seek to this row
-     * @return True if this is the first row or if the row was not found
+     * @param i Which reader to seek
+     * @param target Key to seek to
+     * @return true if there is more data available
      */
-    private boolean findFirstRow(int i, Text firstRow) throws IOException {
+    private boolean seekTo(int i, HStoreKey target) throws IOException {
       ImmutableBytesWritable ibw = new ImmutableBytesWritable();
-      HStoreKey firstKey =
-        (HStoreKey)this.sfsReaders[i].getClosest(new HStoreKey(firstRow), ibw);
-      if (firstKey == null) {
-        // Didn't find it. Close the scanner and return TRUE
+      HStoreKey key = (HStoreKey)this.sfsReaders[i].getClosest(target, ibw);
+      if (key == null) {
         closeSubScanner(i);
-        return true;
+        return false;
+      }
+      // Copy: the reader reuses the key it returns.
+      this.keys[i].setRow(key.getRow());
+      this.keys[i].setColumn(key.getColumn());
+      this.keys[i].setVersion(key.getTimestamp());
+      if (this.keys[i].getTimestamp() > this.timestamp) {
+        return getNext(i);
       }
       this.vals[i] = ibw.get();
-      keys[i].setRow(firstKey.getRow());
-      keys[i].setColumn(firstKey.getColumn());
-      keys[i].setVersion(firstKey.getTimestamp());
-      return columnMatch(i);
+      return true;
+    }
+
+    /*
+     * Move the specified reader on from a cell in a column the scanner does
+     * not want.  If every wanted column is named, seeks straight to the next
+     * of them in the row or, if there are none, to the next row.  Otherwise
+     * walks cell by cell.
+     * 
+     * Caller must be holding a read lock.
+     *
+     * @param i Which reader to move
+     * @return true if the reader is on a wanted cell, false if exhausted
+     */
+    private boolean skipToMatch(int i) throws IOException {
+      while (this.keys[i] != null && !columnMatch(i)) {
+        if (isWildcardScanner()) {
+          getNext(i);
+          continue;
+        }
+        Text column = getNextColumn(this.keys[i].getColumn());
+        seekTo(i, column == null? getFirstKeyAfterRow(this.keys[i].getRow()):
+          new HStoreKey(this.keys[i].getRow(), column, this.timestamp));
+      }
+      return this.keys[i] != null;
     }
     
     /*
@@ -2794,6 +3074,14 @@ public class HStore implements HConstants {
     private HInternalScannerInterface[] scanners;
     private TreeMap<Text, byte []>[] resultSets;
     private HStoreKey[] keys;
+    // Sub-scanners with rows left, lowest row first
+    private HStoreKeyHeap heap;
+    // Sub-scanners on the row being gathered
+    private int [] chosen;
+    // Row being gathered; reused from row to row
+    private final Text chosenRow = new Text();
+    // Columns deleted in the row being gathered
+    private final Set<Text> deletes = new HashSet<Text>();
     private boolean wildcardMatch = false;
     private boolean multipleMatchers = false;
     private RowFilterInterface dataFilter;
@@ -2810,6 +3098,8 @@ public class HStore implements HConstants {
       this.scanners = new HInternalScannerInterface[2];
       this.resultSets = new TreeMap[scanners.length];
       this.keys = new HStoreKey[scanners.length];
+      this.heap = new HStoreKeyHeap(this.keys);
+      this.chosen = new int[scanners.length];
 
       try {
         scanners[0] = memcache.getScanner(timestamp, targetCols, firstRow);
@@ -2839,8 +3129,12 @@ public class HStore implements HConstants {
       for (int i = 0; i < scanners.length; i++) {
         keys[i] = new HStoreKey();
         resultSets[i] = new TreeMap<Text, byte []>();
-        if(scanners[i] != null && !scanners[i].next(keys[i], resultSets[i])) {
-          closeScanner(i);
+        if(scanners[i] != null) {
+          if (scanners[i].next(keys[i], resultSets[i])) {
+            heap.add(i);
+          } else {
+            closeScanner(i);
+          }
         }
       }
     }
@@ -2864,22 +3158,20 @@ public class HStore implements HConstants {
       boolean filtered = true;
       boolean moreToFollow = true;
       while (filtered && moreToFollow) {
-        // Find the lowest-possible key.
-        Text chosenRow = null;
+        // The sub-scanner on the lowest key chooses the row.
+        int first = heap.peek();
+        Text row = null;
         long chosenTimestamp = -1;
-        for (int i = 0; i < this.keys.length; i++) {
-          if (scanners[i] != null &&
-              (chosenRow == null ||
-              (keys[i].getRow().compareTo(chosenRow) < 0) ||
-              ((keys[i].getRow().compareTo(chosenRow) == 0) &&
-              (keys[i].getTimestamp() > chosenTimestamp)))) {
-            chosenRow = new Text(keys[i].getRow());
-            chosenTimestamp = keys[i].getTimestamp();
-          }
+        if (first >= 0) {
+          chosenRow.set(keys[first].getRow());
+          chosenTimestamp = keys[first].getTimestamp();
+          row = chosenRow;
         }
         
         // Filter whole row by row key?
-        filtered = dataFilter != null? dataFilter.filter(chosenRow) : false;
+        filtered = dataFilter != null? dataFilter.filter(row) : false;
+        Text nextRowHint = filtered && row != null?
+          AbstractRowFilter.getNextRowHint(dataFilter, row): null;
 
         // Store the key and results for each sub-scanner. Merge them as
         // appropriate.
@@ -2888,16 +3180,23 @@ public class HStore implements HConstants {
           key.setRow(chosenRow);
           key.setVersion(chosenTimestamp);
           key.setColumn(HConstants.EMPTY_TEXT);
-          // Keep list of deleted cell keys within this row.  We need this
+          // Keep set of deleted columns within this row.  We need this
           // because as we go through scanners, the delete record may be in an
           // early scanner and then the same record with a non-delete, non-null
           // value in a later. Without history of what we've seen, we'll return
-          // deleted values. This List should not ever grow too large since we
-          // are only keeping rows and columns that match those set on the
-          // scanner and which have delete values.  If memory usage becomes a
-          // problem, could redo as bloom filter.
-          List<HStoreKey> deletes = new ArrayList<HStoreKey>();
-          for (int i = 0; i < scanners.length && !filtered; i++) {
+          // deleted values. This set should not ever grow too large since we
+          // are only keeping columns that match those set on the scanner and
+          // which have delete values.
+          deletes.clear();
+          // Take out the sub-scanners on the chosen row.  They are gathered
+          // in the order they were made, memcache first.
+          int count = 0;
+          while (!heap.isEmpty() && heap.peekRow().compareTo(chosenRow) == 0) {
+            chosen[count++] = heap.poll();
+          }
+          Arrays.sort(chosen, 0, count);
+          for (int j = 0; j < count; j++) {
+            int i = chosen[j];
             while ((scanners[i] != null
                 && !filtered
                 && moreToFollow)
@@ -2915,17 +3214,10 @@ public class HStore implements HConstants {
               // but this had the effect of overwriting newer
               // values with older onms. So now we only insert
               // a result if the map does not contain the key.
-              HStoreKey hsk = new HStoreKey(key.getRow(), EMPTY_TEXT,
-                key.getTimestamp());
               for (Map.Entry<Text, byte[]> e : resultSets[i].entrySet()) {
-                hsk.setColumn(e.getKey());
                 if (HLogEdit.isDeleted(e.getValue())) {
-                  if (!deletes.contains(hsk)) {
-                    // Key changes as we cycle the for loop so add a copy to
-                    // the set of deletes.
-                    deletes.add(new HStoreKey(hsk));
-                  }
-                } else if (!deletes.contains(hsk) &&
+                  deletes.add(e.getKey());
+                } else if (!deletes.contains(e.getKey()) &&
                     !filtered &&
                     moreToFollow &&
                     !results.containsKey(e.getKey())) {
@@ -2946,21 +3238,31 @@ public class HStore implements HConstants {
                 closeScanner(i);
               }
             }
+            if (scanners[i] != null) {
+              heap.add(i);
+            }
           }          
         }
         
-        for (int i = 0; i < scanners.length; i++) {
-          // If the current scanner is non-null AND has a lower-or-equal
-          // row label, then its timestamp is bad. We need to advance it.
-          while ((scanners[i] != null) &&
-              (keys[i].getRow().compareTo(chosenRow) <= 0)) {
+        if (row != null) {
+          // If a sub-scanner is still on a lower-or-equal row label, then its
+          // timestamp is bad.  We need to advance it.
+          while (!heap.isEmpty() && heap.peekRow().compareTo(chosenRow) <= 0) {
+            int i = heap.poll();
             resultSets[i].clear();
-            if (!scanners[i].next(keys[i], resultSets[i])) {
+            if (scanners[i].next(keys[i], resultSets[i])) {
+              heap.add(i);
+            } else {
               closeScanner(i);
             }
           }
         }
 
+        if (nextRowHint != null) {
+          // Rows before the hint would be filtered too.  Seek past them.
+          seekRow(nextRowHint);
+        }
+
         moreToFollow = chosenTimestamp >= 0;
         
         if (dataFilter != null) {
@@ -2993,6 +3295,20 @@ public class HStore implements HConstants {
       return moreToFollow;
     }
 
+
+    /** {@inheritDoc} */
+    public void seekRow(final Text row) throws IOException {
+      while (!heap.isEmpty() && heap.peekRow().compareTo(row) < 0) {
+        int i = heap.poll();
+        scanners[i].seekRow(row);
+        resultSets[i].clear();
+        if (scanners[i].next(keys[i], resultSets[i])) {
+          heap.add(i);
+        } else {
+          closeScanner(i);
+        }
+      }
+    }
     
     /** Shut down a single scanner */
     void closeScanner(int i) {
@@ -3003,6 +3319,7 @@ public class HStore implements HConstants {
           LOG.warn(storeName + " failed closing scanner " + i, e);
         }
       } finally {
+        heap.remove(i);
         scanners[i] = null;
         keys[i] = null;
         resultSets[i] = null;
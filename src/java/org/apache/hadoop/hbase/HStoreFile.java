@@ -27,24 +27,40 @@ import java.io.DataOutput;
 import java.io.DataOutputStream;
 import java.io.FileNotFoundException;
 import java.io.IOException;
+import java.io.InterruptedIOException;
 import java.io.UnsupportedEncodingException;
+import java.util.ArrayList;
+import java.util.LinkedList;
+import java.util.List;
 import java.util.Random;
 
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
+import org.apache.hadoop.conf.Configurable;
 import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.fs.FSDataInputStream;
 import org.apache.hadoop.fs.FSDataOutputStream;
 import org.apache.hadoop.fs.FileSystem;
+import org.apache.hadoop.fs.FilterFileSystem;
 import org.apache.hadoop.fs.Path;
+import org.apache.hadoop.hbase.io.BlockCache;
+import org.apache.hadoop.hbase.io.BlockFSInputStream;
 import org.apache.hadoop.hbase.io.ImmutableBytesWritable;
+import org.apache.hadoop.hbase.io.ZlibLevelCodec;
 import org.apache.hadoop.hbase.util.Writables;
 import org.apache.hadoop.io.MapFile;
 import org.apache.hadoop.io.SequenceFile;
 import org.apache.hadoop.io.Text;
 import org.apache.hadoop.io.Writable;
 import org.apache.hadoop.io.WritableComparable;
+import org.apache.hadoop.io.compress.CompressionCodec;
+import org.apache.hadoop.io.compress.DefaultCodec;
+import org.apache.hadoop.io.compress.LzoCodec;
+import org.onelab.filter.BloomFilter;
+import org.onelab.filter.CountingBloomFilter;
 import org.onelab.filter.Filter;
 import org.onelab.filter.Key;
+import org.onelab.filter.RetouchedBloomFilter;
 
 
 /**
@@ -71,7 +87,9 @@ import org.onelab.filter.Key;
  * which is a 'mapfiles' and 'info' subdirectory.  In each will be found a
  * file named something like <code>1278437856009925445</code>, one to hold the
  * data in 'mapfiles' and one under 'info' that holds the sequence id for this
- * store file.
+ * store file.  If the column family has a bloom filter, a file of the same
+ * name in the 'filter' subdirectory holds the bloom filter for this store
+ * file.
  * 
  * <p>References to store files located over in some other region look like
  * this:
@@ -107,6 +125,9 @@ public class HStoreFile implements HConstants {
   
   private final static Random rand = new Random();
 
+  // Block cache shared by all store file readers; see getBlockCache.
+  private static BlockCache blockCache = null;
+
   private final Path basedir;
   private final String encodedRegionName;
   private final Text colFamily;
@@ -125,7 +146,7 @@ public class HStoreFile implements HConstants {
    * @param ref Reference to another HStoreFile.
    * @throws IOException
    */
-  HStoreFile(HBaseConfiguration conf, FileSystem fs, Path basedir,
+  public HStoreFile(HBaseConfiguration conf, FileSystem fs, Path basedir,
       String encodedRegionName, Text colFamily, long fileId,
       final Reference ref) throws IOException {
     this.conf = conf;
@@ -214,6 +235,20 @@ public class HStoreFile implements HConstants {
       createHStoreFilename(fid, ern));
   }
 
+  /** @return path for bloom filter file.  References share the referent's */
+  Path getFilterFilePath() {
+    if (isReference()) {
+      return getFilterFilePath(reference.getEncodedRegionName(),
+        reference.getFileId());
+    }
+    return getFilterFilePath(encodedRegionName, fileId);
+  }
+
+  private Path getFilterFilePath(final String encodedName, final long fid) {
+    return new Path(HStoreFile.getFilterDir(basedir, encodedName, colFamily),
+      createHStoreFilename(fid, null));
+  }
+
   // File handling
 
   /*
@@ -312,7 +347,7 @@ public class HStoreFile implements HConstants {
    * @param infonum file id
    * @throws IOException
    */
-  void writeInfo(FileSystem fs, long infonum) throws IOException {
+  public void writeInfo(FileSystem fs, long infonum) throws IOException {
     Path p = getInfoFilePath();
     FSDataOutputStream out = fs.create(p);
     try {
@@ -330,10 +365,16 @@ public class HStoreFile implements HConstants {
   public void delete() throws IOException {
     fs.delete(getMapFilePath());
     fs.delete(getInfoFilePath());
+    if (!isReference()) {
+      Path filter = getFilterFilePath();
+      if (fs.exists(filter)) {
+        fs.delete(filter);
+      }
+    }
   }
   
   /**
-   * Renames the mapfiles and info directories under the passed
+   * Renames the mapfiles, info and filter files under the passed
    * <code>hsf</code> directory.
    * @param fs
    * @param hsf
@@ -359,6 +400,13 @@ public class HStoreFile implements HConstants {
         LOG.warn("Failed rename of " + src + " to " + hsf.getInfoFilePath());
       }
     }
+    src = getFilterFilePath();
+    if (success && !isReference() && fs.exists(src)) {
+      success = fs.rename(src, hsf.getFilterFilePath());
+      if (!success) {
+        LOG.warn("Failed rename of " + src + " to " + hsf.getFilterFilePath());
+      }
+    }
     return success;
   }
   
@@ -366,13 +414,17 @@ public class HStoreFile implements HConstants {
    * Get reader for the store file map file.
    * Client is responsible for closing file when done.
    * @param fs
-   * @param bloomFilter If null, no filtering is done.
+   * @param useBloomFilter If true, load this store file's bloom filter, if it
+   * has one, so the reader can answer
+   * {@link BloomFilterMapFile.Reader#mightContain(Text, Text)}.  Pass false
+   * for readers that only scan.
    * @return MapFile.Reader
    * @throws IOException
    */
   public synchronized MapFile.Reader getReader(final FileSystem fs,
-      final Filter bloomFilter)
+      final boolean useBloomFilter)
   throws IOException {
+    Filter bloomFilter = useBloomFilter? loadBloomFilter(fs): null;
     if (isReference()) {
       return new HStoreFile.HalfMapFileReader(fs,
           getMapFilePath(reference).toString(), conf, 
@@ -382,26 +434,149 @@ public class HStoreFile implements HConstants {
         conf, bloomFilter);
   }
 
+  /**
+   * Store file readers in this process all share one block cache of at most
+   * <code>hbase.io.blockcache.size</code> bytes.
+   * @param c
+   * @return The shared block cache or null if <code>hbase.io.blockcache.size
+   * </code> is zero, i.e. block caching is disabled.
+   */
+  public static synchronized BlockCache getBlockCache(final Configuration c) {
+    if (blockCache == null) {
+      long size = c.getLong("hbase.io.blockcache.size", 64 * 1024 * 1024);
+      if (size > 0) {
+        blockCache = new BlockCache(size);
+      }
+    }
+    return blockCache;
+  }
+
   /**
    * Get a store file writer.
    * Client is responsible for closing file when done.
    * @param fs
-   * @param compression Pass <code>SequenceFile.CompressionType.NONE</code>
-   * for none.
-   * @param bloomFilter If null, no filtering is done.
+   * @param family Family whose compression settings to write with.
+   * @param bloomFilter Empty filter to fill with the keys written.  Saved to
+   * this store file's filter file on close.  If null, no filter is kept.
    * @return MapFile.Writer
    * @throws IOException
    */
   public MapFile.Writer getWriter(final FileSystem fs,
-      final SequenceFile.CompressionType compression,
-      final Filter bloomFilter)
+      final HColumnDescriptor family, final Filter bloomFilter)
   throws IOException {
     if (isReference()) {
       throw new IOException("Illegal Access: Cannot get a writer on a" +
         "HStoreFile reference");
     }
-    return new BloomFilterMapFile.Writer(conf, fs,
-      getMapFilePath().toString(), compression, bloomFilter);
+    Configuration c = this.conf;
+    if (family.getCompressionBlockSize() > 0) {
+      // The block size is read from the configuration the writer is given.
+      c = new Configuration(this.conf);
+      c.setInt("io.seqfile.compress.blocksize",
+        family.getCompressionBlockSize());
+    }
+    return new BloomFilterMapFile.Writer(c, fs,
+      getMapFilePath().toString(), getCompression(family),
+      getCompressionCodec(family, c), bloomFilter, getFilterFilePath());
+  }
+
+  /**
+   * @param family
+   * @return The compression store files of <code>family</code> are written
+   * with.
+   */
+  public static SequenceFile.CompressionType getCompression(
+      final HColumnDescriptor family) {
+    if (family.getCompression() == HColumnDescriptor.CompressionType.BLOCK) {
+      return SequenceFile.CompressionType.BLOCK;
+    } else if (family.getCompression() ==
+      HColumnDescriptor.CompressionType.RECORD) {
+      return SequenceFile.CompressionType.RECORD;
+    }
+    return SequenceFile.CompressionType.NONE;
+  }
+
+  /**
+   * @param family
+   * @param c Configuration for the codec
+   * @return The codec store files of <code>family</code> are compressed
+   * with.  Readers find the codec named in the file so need not call this.
+   */
+  public static CompressionCodec getCompressionCodec(
+      final HColumnDescriptor family, final Configuration c) {
+    CompressionCodec codec = null;
+    if (family.getCodec() == HColumnDescriptor.Codec.LZO) {
+      if (LzoCodec.isNativeLzoLoaded(c)) {
+        codec = new LzoCodec();
+      } else {
+        LOG.warn("Native LZO library not loaded; compressing " +
+          family.getName() + " with zlib");
+      }
+    } else if (family.getCompressionLevel() !=
+        HColumnDescriptor.DEFAULT_COMPRESSION_LEVEL) {
+      codec = new ZlibLevelCodec(family.getCompressionLevel());
+    }
+    if (codec == null) {
+      codec = new DefaultCodec();
+    }
+    ((Configurable)codec).setConf(c);
+    return codec;
+  }
+
+  /**
+   * @param family
+   * @return A new, empty bloom filter to fill as a store file of
+   * <code>family</code> is written, or null if the family does not have bloom
+   * filters.
+   */
+  public static Filter createBloomFilter(final HColumnDescriptor family) {
+    BloomFilterDescriptor descriptor = family.getBloomFilter();
+    if (descriptor == null) {
+      return null;
+    }
+    switch(descriptor.filterType) {
+    
+    case BLOOMFILTER:
+      return new BloomFilter(descriptor.vectorSize, descriptor.nbHash);
+      
+    case COUNTING_BLOOMFILTER:
+      return new CountingBloomFilter(descriptor.vectorSize, descriptor.nbHash);
+      
+    case RETOUCHED_BLOOMFILTER:
+      return new RetouchedBloomFilter(descriptor.vectorSize,
+        descriptor.nbHash);
+    
+    default:
+      throw new IllegalArgumentException("unknown bloom filter type: " +
+        descriptor.filterType);
+    }
+  }
+
+  /*
+   * @param fs
+   * @return This store file's bloom filter or null if it has none.
+   * @throws IOException
+   */
+  private Filter loadBloomFilter(final FileSystem fs) throws IOException {
+    Path p = getFilterFilePath();
+    if (!fs.exists(p)) {
+      return null;
+    }
+    DataInputStream in = new DataInputStream(fs.open(p));
+    try {
+      Filter filter = null;
+      String className = Text.readString(in);
+      try {
+        filter = (Filter)Class.forName(className).newInstance();
+      } catch (Exception e) {
+        throw new IOException("Failed create of bloom filter " + className +
+          " for " + p + ": " + e.toString());
+      }
+      filter.readFields(in);
+      return filter;
+    } finally {
+      in.close();
+    }
   }
 
   /**
@@ -415,6 +590,16 @@ public class HStoreFile implements HConstants {
     return (isReference())? l / 2: l;
   }
 
+  /**
+   * @return When the file data was last written, in milliseconds since the
+   * epoch.  For a reference, when the referred-to file was written.
+   * @throws IOException
+   */
+  public long getModificationTime() throws IOException {
+    Path p = new Path(getMapFilePath(reference), MapFile.DATA_FILE_NAME);
+    return p.getFileSystem(conf).getFileStatus(p).getModificationTime();
+  }
+
   /** {@inheritDoc} */
   @Override
   public String toString() {
@@ -431,14 +616,24 @@ public class HStoreFile implements HConstants {
   static Key getBloomFilterKey(WritableComparable key)
   throws IOException {
     HStoreKey hsk = (HStoreKey)key;
-    byte [] bytes = null;
+    return getBloomFilterKey(hsk.getRow(), hsk.getColumn());
+  }
+
+  /**
+   * @param row
+   * @param column If null or empty, key is made of the row only.
+   * @return Bloom filter key for the passed row and column.
+   * @throws IOException
+   */
+  static Key getBloomFilterKey(final Text row, final Text column)
+  throws IOException {
+    String k = (column == null)? row.toString():
+      row.toString() + column.toString();
     try {
-      bytes = (hsk.getRow().toString() + hsk.getColumn().toString()).
-        getBytes(UTF8_ENCODING);
+      return new Key(k.getBytes(UTF8_ENCODING));
     } catch (UnsupportedEncodingException e) {
       throw new IOException(e.toString());
     }
-    return new Key(bytes);
   }
 
   static boolean isTopFileRegion(final Range r) {
@@ -451,7 +646,9 @@ public class HStoreFile implements HConstants {
       ((encodedRegionName != null) ? "." + encodedRegionName : "");
   }
   
-  static Path getMapDir(Path dir, String encodedRegionName, Text colFamily) {
+  /** @return the map file directory path */
+  public static Path getMapDir(Path dir, String encodedRegionName,
+      Text colFamily) {
     return new Path(dir, new Path(encodedRegionName, 
         new Path(colFamily.toString(), HSTORE_DATFILE_DIR)));
   }
@@ -543,6 +740,17 @@ public class HStoreFile implements HConstants {
       ImmutableBytesWritable.class;
 
     static class HbaseReader extends MapFile.Reader {
+      protected final FileSystem fs;
+      protected final String dirName;
+      protected final Configuration conf;
+      private final int maxReaders;
+      // Readers of this file no get is using, this one included.
+      private final LinkedList<MapFile.Reader> idle =
+        new LinkedList<MapFile.Reader>();
+      // Readers opened beside this one for concurrent gets.
+      private final List<MapFile.Reader> siblings =
+        new ArrayList<MapFile.Reader>();
+      private int opened = 1;
       
       /**
        * @param fs
@@ -552,7 +760,13 @@ public class HStoreFile implements HConstants {
        */
       public HbaseReader(FileSystem fs, String dirName, Configuration conf)
       throws IOException {
-        super(fs, dirName, conf);
+        super(getReaderFileSystem(fs, conf), dirName, conf);
+        this.fs = fs;
+        this.dirName = dirName;
+        this.conf = conf;
+        this.maxReaders =
+          Math.max(1, conf.getInt("hbase.io.storefile.readers", 4));
+        this.idle.add(this);
         // Force reading of the mapfile index by calling midKey.
         // Reading the index will bring the index into memory over
         // here on the client and then close the index file freeing
@@ -563,20 +777,137 @@ public class HStoreFile implements HConstants {
         // using up datanode resources.  See HADOOP-2341.
         midKey();
       }
+
+      /**
+       * Take a reader of this file for the sole use of one random read.
+       * MapFile.Readers keep a position, so reads through one reader run one
+       * at a time.  Concurrent reads each get a reader of their own instead,
+       * opened on demand up to <code>hbase.io.storefile.readers</code>;
+       * past that they wait for one to be released.  All of them read file
+       * data through the shared block cache.
+       * @return This reader or another one on the same file.  Hand it back
+       * with {@link #release(MapFile.Reader)} when done.
+       * @throws IOException
+       */
+      MapFile.Reader acquire() throws IOException {
+        synchronized (this.idle) {
+          while (this.idle.isEmpty() && this.opened >= this.maxReaders) {
+            try {
+              this.idle.wait();
+            } catch (InterruptedException e) {
+              throw new InterruptedIOException("Interrupted waiting on a " +
+                "reader of " + this.dirName);
+            }
+          }
+          if (!this.idle.isEmpty()) {
+            return this.idle.removeFirst();
+          }
+          this.opened++;
+        }
+        MapFile.Reader r = null;
+        try {
+          r = openSibling();
+          return r;
+        } finally {
+          synchronized (this.idle) {
+            if (r == null) {
+              this.opened--;
+              this.idle.notify();
+            } else {
+              this.siblings.add(r);
+            }
+          }
+        }
+      }
+
+      /**
+       * @param r Reader got from {@link #acquire()}
+       */
+      void release(final MapFile.Reader r) {
+        synchronized (this.idle) {
+          // Most recently used first so a few readers stay warm.
+          this.idle.addFirst(r);
+          this.idle.notify();
+        }
+      }
+
+      /**
+       * @return A new reader on the same file as this one
+       * @throws IOException
+       */
+      protected MapFile.Reader openSibling() throws IOException {
+        return new HbaseReader(this.fs, this.dirName, this.conf);
+      }
+
+      /** {@inheritDoc} */
+      @Override
+      public synchronized void close() throws IOException {
+        synchronized (this.idle) {
+          for (MapFile.Reader r: this.siblings) {
+            r.close();
+          }
+          this.siblings.clear();
+          this.idle.clear();
+        }
+        super.close();
+      }
     }
     
+    /*
+     * @param fs
+     * @param conf
+     * @return <code>fs</code> wrapped so mapfile data is read through the
+     * shared block cache, or <code>fs</code> itself if the cache is disabled.
+     */
+    static FileSystem getReaderFileSystem(final FileSystem fs,
+        final Configuration conf) {
+      BlockCache cache = getBlockCache(conf);
+      return cache == null? fs: new BlockCacheFileSystem(fs, cache,
+        conf.getInt("hbase.io.blockcache.blocksize", 64 * 1024));
+    }
+
+    /*
+     * Opens mapfile data files as {@link BlockFSInputStream}s over a shared
+     * {@link BlockCache}.  Everything else passes straight through.
+     */
+    static class BlockCacheFileSystem extends FilterFileSystem {
+      private final BlockCache cache;
+      private final int blockSize;
+
+      BlockCacheFileSystem(final FileSystem fs, final BlockCache cache,
+          final int blockSize) {
+        super(fs);
+        this.cache = cache;
+        this.blockSize = blockSize;
+      }
+
+      /** {@inheritDoc} */
+      @Override
+      public FSDataInputStream open(Path f, int bufferSize) throws IOException {
+        if (!f.getName().equals(MapFile.DATA_FILE_NAME)) {
+          return super.open(f, bufferSize);
+        }
+        long length = getFileStatus(f).getLen();
+        return new FSDataInputStream(new BlockFSInputStream(
+          super.open(f, bufferSize), makeQualified(f).toString(), length,
+          this.blockSize, this.cache));
+      }
+    }
+
     static class HbaseWriter extends MapFile.Writer {
       /**
        * @param conf
        * @param fs
        * @param dirName
        * @param compression
+       * @param codec
        * @throws IOException
        */
       public HbaseWriter(Configuration conf, FileSystem fs, String dirName,
-        SequenceFile.CompressionType compression)
+        SequenceFile.CompressionType compression, CompressionCodec codec)
       throws IOException {
-        super(conf, fs, dirName, KEY_CLASS, VALUE_CLASS, compression);
+        super(conf, fs, dirName, KEY_CLASS, VALUE_CLASS, compression, codec,
+          null);
         // Default for mapfiles is 128.  Makes random reads faster if we
         // have more keys indexed and we're not 'next'-ing around in the
         // mapfile.
@@ -586,9 +917,10 @@ public class HStoreFile implements HConstants {
   }
   
   /**
-   * On write, all keys are added to a bloom filter.  On read, all keys are
-   * tested first against bloom filter. Keys are HStoreKey.  If passed bloom
-   * filter is null, just passes invocation to parent.
+   * On write, the row and the row and column of all keys are added to a bloom
+   * filter that is saved beside the store file on close.  On read, gets are
+   * tested first against the bloom filter.  Keys are HStoreKey.  If passed
+   * bloom filter is null, just passes invocation to parent.
    */
   static class BloomFilterMapFile extends HbaseMapFile {
     static class Reader extends HbaseReader {
@@ -608,6 +940,19 @@ public class HStoreFile implements HConstants {
         bloomFilter = filter;
       }
 
+      /** {@inheritDoc} */
+      @Override
+      protected MapFile.Reader openSibling() throws IOException {
+        return new Reader(this.fs, this.dirName, this.conf, this.bloomFilter);
+      }
+
+      /**
+       * @return The bloom filter gets are tested against, or null if none
+       */
+      Filter getBloomFilter() {
+        return this.bloomFilter;
+      }
+
       /** {@inheritDoc} */
       @Override
       public Writable get(WritableComparable key, Writable val)
@@ -627,46 +972,50 @@ public class HStoreFile implements HConstants {
         return null;
       }
 
-      /** {@inheritDoc} */
-      @Override
-      public WritableComparable getClosest(WritableComparable key,
-          Writable val) throws IOException {
-        if (bloomFilter == null) {
-          return super.getClosest(key, val);
-        }
-        // Note - the key being passed to us is always a HStoreKey
-        if(bloomFilter.membershipTest(getBloomFilterKey(key))) {
-          if (LOG.isDebugEnabled()) {
-            LOG.debug("bloom filter reported that key exists");
-          }
-          return super.getClosest(key, val);
-        }
-        if (LOG.isDebugEnabled()) {
-          LOG.debug("bloom filter reported that key does not exist");
-        }
-        return null;
+      /**
+       * Test the bloom filter.  Unlike {@link #get(WritableComparable,
+       * Writable)}, getClosest is not filtered since it is used to seek to
+       * keys that need not be in the file.
+       * @param row
+       * @param column If null or empty, test for the row only.
+       * @return False if this file has no cells for <code>row</code> and
+       * <code>column</code>.  True if it may have, or if there is no bloom
+       * filter.
+       * @throws IOException
+       */
+      public boolean mightContain(final Text row, final Text column)
+      throws IOException {
+        return bloomFilter == null ||
+          bloomFilter.membershipTest(getBloomFilterKey(row,
+            (column == null || column.getLength() == 0)? null: column));
       }
     }
     
     static class Writer extends HbaseWriter {
       private final Filter bloomFilter;
+      private final FileSystem fs;
+      private final Path filterPath;
+      private final Text lastRow = new Text();
       
       /**
        * @param conf
        * @param fs
        * @param dirName
-       * @param keyClass
-       * @param valClass
        * @param compression
+       * @param codec
        * @param filter
+       * @param filterPath Where to save <code>filter</code> on close.
        * @throws IOException
        */
       @SuppressWarnings("unchecked")
       public Writer(Configuration conf, FileSystem fs, String dirName,
-        SequenceFile.CompressionType compression, final Filter filter)
+        SequenceFile.CompressionType compression, CompressionCodec codec,
+        final Filter filter, final Path filterPath)
       throws IOException {
-        super(conf, fs, dirName, compression);
-        bloomFilter = filter;
+        super(conf, fs, dirName, compression, codec);
+        this.bloomFilter = filter;
+        this.fs = fs;
+        this.filterPath = filterPath;
       }
       
       /** {@inheritDoc} */
@@ -674,10 +1023,32 @@ public class HStoreFile implements HConstants {
       public void append(WritableComparable key, Writable val)
       throws IOException {
         if (bloomFilter != null) {
+          HStoreKey hsk = (HStoreKey)key;
+          // Keys arrive sorted so only add each row once.
+          if (!lastRow.equals(hsk.getRow())) {
+            bloomFilter.add(getBloomFilterKey(hsk.getRow(), null));
+            lastRow.set(hsk.getRow());
+          }
           bloomFilter.add(getBloomFilterKey(key));
         }
         super.append(key, val);
       }
+
+      /** {@inheritDoc} */
+      @Override
+      public synchronized void close() throws IOException {
+        super.close();
+        if (bloomFilter == null) {
+          return;
+        }
+        DataOutputStream out = fs.create(filterPath);
+        try {
+          Text.writeString(out, bloomFilter.getClass().getName());
+          bloomFilter.write(out);
+        } finally {
+          out.close();
+        }
+      }
     }
   }
   
@@ -691,6 +1062,7 @@ public class HStoreFile implements HConstants {
    * <p>This file is not splitable.  Calls to {@link #midKey()} return null.
    */
   static class HalfMapFileReader extends BloomFilterMapFile.Reader {
+    private final Range region;
     private final boolean top;
     private final WritableComparable midkey;
     private boolean firstNextCall = true;
@@ -707,9 +1079,17 @@ public class HStoreFile implements HConstants {
         final WritableComparable midKey, final Filter filter)
     throws IOException {
       super(fs, dirName, conf, filter);
+      region = r;
       top = isTopFileRegion(r);
       midkey = midKey;
     }
+
+    /** {@inheritDoc} */
+    @Override
+    protected MapFile.Reader openSibling() throws IOException {
+      return new HalfMapFileReader(this.fs, this.dirName, this.conf,
+        this.region, this.midkey, getBloomFilter());
+    }
     
     @SuppressWarnings("unchecked")
     private void checkKey(final WritableComparable key)
@@ -763,9 +1143,12 @@ public class HStoreFile implements HConstants {
       if (top) {
         // If top, the lowest possible key is midkey.  Do not have to check
         // what comes back from super getClosest.  Will return exact match or
-        // greater.
-        closest = (key.compareTo(this.midkey) < 0)?
-          this.midkey: super.getClosest(key, val);
+        // greater.  Seek rather than hand back midkey so the reader is
+        // positioned and <code>val</code> filled for callers that go on to
+        // call next.
+        closest = super.getClosest((key.compareTo(this.midkey) < 0)?
+          this.midkey: key, val);
+        firstNextCall = false;
       } else {
         // We're serving bottom of the file.
         if (key.compareTo(this.midkey) < 0) {
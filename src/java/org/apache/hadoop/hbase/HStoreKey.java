@@ -33,6 +33,12 @@ public class HStoreKey implements WritableComparable {
    * Colon character in UTF-8
    */
   public static final char COLUMN_FAMILY_DELIMITER = ':';
+
+  static {
+    // Register the raw comparator so sorts and merges of serialized keys,
+    // as in the MapReduce shuffle, do not deserialize them.
+    WritableComparator.define(HStoreKey.class, new Comparator());
+  }
   
   private Text row;
   private Text column;
@@ -247,6 +253,55 @@ public class HStoreKey implements WritableComparable {
     return result;
   }
 
+  /**
+   * Compares serialized HStoreKeys without deserializing them.  Orders keys
+   * as {@link HStoreKey#compareTo(Object)} does: by row and column bytes,
+   * each written as a vint length and UTF-8 bytes, then by timestamp,
+   * newest first.
+   */
+  public static class Comparator extends WritableComparator {
+    /** Default constructor */
+    public Comparator() {
+      super(HStoreKey.class);
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public int compare(byte[] b1, int s1, @SuppressWarnings("unused") int l1,
+        byte[] b2, int s2, @SuppressWarnings("unused") int l2) {
+      try {
+        // Row
+        int length1 = readVInt(b1, s1);
+        int length2 = readVInt(b2, s2);
+        int n1 = WritableUtils.getVIntSize(length1);
+        int n2 = WritableUtils.getVIntSize(length2);
+        int result = compareBytes(b1, s1 + n1, length1, b2, s2 + n2, length2);
+        if (result != 0) {
+          return result;
+        }
+        s1 += n1 + length1;
+        s2 += n2 + length2;
+        // Column
+        length1 = readVInt(b1, s1);
+        length2 = readVInt(b2, s2);
+        n1 = WritableUtils.getVIntSize(length1);
+        n2 = WritableUtils.getVIntSize(length2);
+        result = compareBytes(b1, s1 + n1, length1, b2, s2 + n2, length2);
+        if (result != 0) {
+          return result;
+        }
+        s1 += n1 + length1;
+        s2 += n2 + length2;
+        // Timestamp; newer sorts first as in compareTo.
+        long timestamp1 = readLong(b1, s1);
+        long timestamp2 = readLong(b2, s2);
+        return timestamp1 < timestamp2? 1: timestamp1 > timestamp2? -1: 0;
+      } catch (IOException e) {
+        throw new IllegalArgumentException(e);
+      }
+    }
+  }
+
   // Writable
 
   /** {@inheritDoc} */
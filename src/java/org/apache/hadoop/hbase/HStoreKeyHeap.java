@@ -0,0 +1,115 @@
+/**
+ * Copyright 2008 The Apache Software Foundation
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.hadoop.hbase;
+
+import java.util.Comparator;
+import java.util.PriorityQueue;
+
+import org.apache.hadoop.io.Text;
+
+/**
+ * Heap of sub-scanners for a k-way merge.  Sub-scanners are named by their
+ * index into an array of their current keys.  The top of the heap is the
+ * sub-scanner on the lowest row, newest timestamp first, lowest index first.
+ *
+ * <p>A sub-scanner's key must not change while it is in the heap: take it
+ * out, move the sub-scanner on, then add it back unless it is exhausted.
+ */
+class HStoreKeyHeap {
+  private final HStoreKey [] keys;
+  private final PriorityQueue<Integer> heap;
+
+  /**
+   * @param keys Current key of each sub-scanner
+   */
+  HStoreKeyHeap(final HStoreKey [] keys) {
+    this.keys = keys;
+    this.heap = new PriorityQueue<Integer>(Math.max(1, keys.length),
+      new Comparator<Integer>() {
+        public int compare(Integer left, Integer right) {
+          HStoreKey l = HStoreKeyHeap.this.keys[left.intValue()];
+          HStoreKey r = HStoreKeyHeap.this.keys[right.intValue()];
+          int result = l.getRow().compareTo(r.getRow());
+          if (result == 0) {
+            // Newest first.
+            result = l.getTimestamp() < r.getTimestamp()? 1:
+              l.getTimestamp() > r.getTimestamp()? -1: 0;
+          }
+          return result == 0? left.intValue() - right.intValue(): result;
+        }
+      });
+  }
+
+  /**
+   * @param i Sub-scanner to add.  Its key must be set.
+   */
+  void add(final int i) {
+    this.heap.add(Integer.valueOf(i));
+  }
+
+  /**
+   * @return True if no sub-scanners are left
+   */
+  boolean isEmpty() {
+    return this.heap.isEmpty();
+  }
+
+  /**
+   * @return Sub-scanner on the lowest key, or -1 if none are left
+   */
+  int peek() {
+    Integer i = this.heap.peek();
+    return i == null? -1: i.intValue();
+  }
+
+  /**
+   * @return Row of the sub-scanner on the lowest key, or null if none are
+   * left.  Not a copy: changes as the sub-scanner moves on.
+   */
+  Text peekRow() {
+    Integer i = this.heap.peek();
+    return i == null? null: this.keys[i.intValue()].getRow();
+  }
+
+  /**
+   * Take out the sub-scanner on the lowest key.
+   * @return The sub-scanner, or -1 if none are left
+   */
+  int poll() {
+    Integer i = this.heap.poll();
+    return i == null? -1: i.intValue();
+  }
+
+  /**
+   * Take out a sub-scanner wherever it is in the heap.
+   * @param i Sub-scanner to take out
+   * @return True if it was in the heap
+   */
+  boolean remove(final int i) {
+    return this.heap.remove(Integer.valueOf(i));
+  }
+
+  /**
+   * Empty the heap.
+   */
+  void clear() {
+    this.heap.clear();
+  }
+}
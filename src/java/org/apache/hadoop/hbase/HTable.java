@@ -21,15 +21,25 @@ package org.apache.hadoop.hbase;
 
 import java.io.IOException;
 import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.Iterator;
+import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
 import java.util.Random;
+import java.util.Set;
 import java.util.SortedMap;
 import java.util.TreeMap;
 import java.util.Map.Entry;
+import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicReference;
 import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
 
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
@@ -37,6 +47,7 @@ import org.apache.hadoop.hbase.filter.RowFilterInterface;
 import org.apache.hadoop.hbase.filter.StopRowFilter;
 import org.apache.hadoop.hbase.filter.WhileMatchRowFilter;
 import org.apache.hadoop.hbase.io.BatchUpdate;
+import org.apache.hadoop.hbase.io.BatchUpdateResult;
 import org.apache.hadoop.hbase.io.HbaseMapWritable;
 import org.apache.hadoop.hbase.io.ImmutableBytesWritable;
 import org.apache.hadoop.hbase.util.Writables;
@@ -55,8 +66,25 @@ public class HTable implements HConstants {
   protected final long pause;
   protected final int numRetries;
   protected Random rand;
+  protected volatile int scannerCaching;
+  // Runs calls to many region servers at once; made when first needed.
+  private ExecutorService pool = null;
   protected AtomicReference<BatchUpdate> batch;
 
+  // Client side write buffer, used while autoFlush is off.  Guarded by this.
+  private boolean autoFlush = true;
+  private long writeBufferSize;
+  private final int writeBufferPeriod;
+  private final List<BatchUpdate> writeBuffer = new ArrayList<BatchUpdate>();
+  private final List<Long> writeBufferTimestamps = new ArrayList<Long>();
+  private long currentWriteBufferSize = 0;
+  // When the oldest commit in the write buffer was made.
+  private long writeBufferStart = 0;
+  // Failure of a flush no caller has been told of yet.
+  private IOException writeBufferFailure = null;
+  private WriteBufferFlusher flusher = null;
+  private final AtomicBoolean flusherStop = new AtomicBoolean(false);
+
   protected volatile boolean tableDoesNotExist;
   
   // For row mutation operations
@@ -86,6 +114,11 @@ public class HTable implements HConstants {
     this.tableName = tableName;
     this.pause = conf.getLong("hbase.client.pause", 10 * 1000);
     this.numRetries = conf.getInt("hbase.client.retries.number", 5);
+    this.scannerCaching = conf.getInt("hbase.client.scanner.caching", 30);
+    this.writeBufferSize =
+      conf.getLong("hbase.client.write.buffer", 2 * 1024 * 1024);
+    this.writeBufferPeriod =
+      conf.getInt("hbase.client.write.buffer.period", 1000);
     this.rand = new Random();
     this.batch = new AtomicReference<BatchUpdate>();
     this.connection.locateRegion(tableName, EMPTY_START_ROW);
@@ -93,12 +126,31 @@ public class HTable implements HConstants {
     closed = false;
   }
 
+  /**
+   * @return How many rows scanners fetch from a region server per call.
+   */
+  public int getScannerCaching() {
+    return this.scannerCaching;
+  }
+
+  /**
+   * Set how many rows scanners obtained hereafter fetch per call to a region
+   * server.  Higher values make full scans faster at the expense of memory
+   * on client and server.  Defaults to <code>hbase.client.scanner.caching
+   * </code>.
+   * @param scannerCaching
+   */
+  public void setScannerCaching(int scannerCaching) {
+    this.scannerCaching = Math.max(1, scannerCaching);
+  }
+
   /**
    * Find region location hosting passed row using cached info
    * @param row Row to find.
    * @return Location of row.
+   * @throws IOException
    */
-  HRegionLocation getRegionLocation(Text row) throws IOException {
+  public HRegionLocation getRegionLocation(Text row) throws IOException {
     checkClosed();
     return this.connection.locateRegion(this.tableName, row);
   }
@@ -125,15 +177,200 @@ public class HTable implements HConstants {
 
   /**
    * Releases resources associated with this table. After calling close(), all
-   * other methods will throw an IllegalStateException
+   * other methods will throw an IllegalStateException.  Sends any buffered
+   * commits first.
+   * @throws IOException If buffered commits could not all be applied.
    */
-  public synchronized void close() {
+  public synchronized void close() throws IOException {
     if (!closed) {
-      closed = true;
-      batch.set(null);
-      connection.close(tableName);
+      try {
+        flushCommits();
+      } finally {
+        closed = true;
+        batch.set(null);
+        if (flusher != null) {
+          flusherStop.set(true);
+          flusher.interrupt();
+          flusher = null;
+        }
+        connection.close(tableName);
+        if (pool != null) {
+          pool.shutdown();
+          pool = null;
+        }
+      }
+    }
+  }
+
+  /**
+   * @return True if each commit is sent to its region server before it
+   * returns, false if commits are buffered.
+   */
+  public synchronized boolean isAutoFlush() {
+    return this.autoFlush;
+  }
+
+  /**
+   * Turn the client side write buffer off or on.  With auto flush on, the
+   * default, each commit is sent to its region server before it returns.
+   * With it off, commits are buffered and sent in groups, one call per
+   * region, with region servers called in parallel.  The buffer is sent once
+   * it holds {@link #getWriteBufferSize()} bytes, once its oldest commit has
+   * waited <code>hbase.client.write.buffer.period</code> milliseconds, and
+   * on calls to {@link #flushCommits()} and {@link #close()}.
+   * 
+   * <p>A buffered commit can fail after the call to commit has returned.
+   * Failures are reported, row by row, by the next commit, flushCommits or
+   * close that sends the buffer.
+   * 
+   * @param autoFlush False to buffer commits.  If true, any buffered commits
+   * are sent now.
+   * @throws IOException If buffered commits could not all be applied.
+   */
+  public synchronized void setAutoFlush(boolean autoFlush)
+  throws IOException {
+    checkClosed();
+    if (autoFlush) {
+      flushCommits();
+    } else if (this.flusher == null && this.writeBufferPeriod > 0) {
+      this.flusher = new WriteBufferFlusher();
+      this.flusher.start();
+    }
+    this.autoFlush = autoFlush;
+  }
+
+  /**
+   * @return Size in bytes the write buffer may reach before it is sent.
+   */
+  public synchronized long getWriteBufferSize() {
+    return this.writeBufferSize;
+  }
+
+  /**
+   * Set the size in bytes the write buffer may reach before it is sent.
+   * Defaults to <code>hbase.client.write.buffer</code>.
+   * @param writeBufferSize
+   * @throws IOException If the buffer is sent now and buffered commits could
+   * not all be applied.
+   */
+  public synchronized void setWriteBufferSize(long writeBufferSize)
+  throws IOException {
+    this.writeBufferSize = writeBufferSize;
+    if (this.currentWriteBufferSize >= this.writeBufferSize) {
+      flushCommits();
     }
   }
+
+  /**
+   * Send all buffered commits to their region servers.
+   * @throws IOException If buffered commits, including any sent earlier by
+   * the background flush, could not all be applied.  All others have been.
+   */
+  public synchronized void flushCommits() throws IOException {
+    IOException failure = this.writeBufferFailure;
+    this.writeBufferFailure = null;
+    try {
+      flushWriteBuffer();
+    } catch (IOException e) {
+      failure = (failure == null)? e:
+        new IOException(failure.getMessage() + "\n" + e.getMessage());
+    }
+    if (failure != null) {
+      throw failure;
+    }
+  }
+
+  /*
+   * Send the write buffer.  Consecutive commits made with the same timestamp
+   * go out together.  They keep their order, and regions apply commits to
+   * the same row in that order, so e.g. a put after a delete of the same
+   * cell is kept.  The buffer is emptied even if some commits fail.
+   * @throws IOException If buffered commits could not all be applied.
+   */
+  private synchronized void flushWriteBuffer() throws IOException {
+    if (this.writeBuffer.isEmpty()) {
+      return;
+    }
+    List<BatchUpdate> updates = new ArrayList<BatchUpdate>(this.writeBuffer);
+    List<Long> timestamps = new ArrayList<Long>(this.writeBufferTimestamps);
+    this.writeBuffer.clear();
+    this.writeBufferTimestamps.clear();
+    this.currentWriteBufferSize = 0;
+    List<BatchUpdate> failed = new ArrayList<BatchUpdate>();
+    List<IOException> causes = new ArrayList<IOException>();
+    int start = 0;
+    while (start < updates.size()) {
+      long timestamp = timestamps.get(start).longValue();
+      int end = start + 1;
+      while (end < updates.size() &&
+          timestamps.get(end).longValue() == timestamp) {
+        end++;
+      }
+      try {
+        commit(updates.subList(start, end), timestamp);
+      } catch (BatchUpdateException e) {
+        failed.addAll(e.getFailedUpdates());
+        causes.addAll(e.getFailureCauses());
+      } catch (IOException e) {
+        for (BatchUpdate b: updates.subList(start, end)) {
+          failed.add(b);
+          causes.add(e);
+        }
+      }
+      start = end;
+    }
+    if (failed.size() > 0) {
+      throw new BatchUpdateException(failed, causes, updates.size());
+    }
+  }
+
+  /*
+   * Sends the write buffer once its oldest commit has waited long enough.
+   * Failures are kept for the next caller that flushes.
+   */
+  private class WriteBufferFlusher extends Chore {
+    WriteBufferFlusher() {
+      super(writeBufferPeriod, flusherStop);
+      setDaemon(true);
+      setName("HTable " + tableName + " write buffer flusher");
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    protected void chore() {
+      synchronized (HTable.this) {
+        if (closed || writeBuffer.isEmpty() ||
+            System.currentTimeMillis() - writeBufferStart < writeBufferPeriod) {
+          return;
+        }
+        try {
+          flushWriteBuffer();
+        } catch (IOException e) {
+          LOG.warn("Background flush of write buffer failed", e);
+          writeBufferFailure = (writeBufferFailure == null)? e:
+            new IOException(writeBufferFailure.getMessage() + "\n" +
+              e.getMessage());
+        }
+      }
+    }
+  }
+
+  /*
+   * @return Pool for running calls to several region servers in parallel.
+   */
+  synchronized ExecutorService getPool() {
+    checkClosed();
+    if (this.pool == null) {
+      this.pool = Executors.newCachedThreadPool(new ThreadFactory() {
+        public Thread newThread(Runnable r) {
+          Thread t = new Thread(r, "HTable " + tableName);
+          t.setDaemon(true);
+          return t;
+        }
+      });
+    }
+    return this.pool;
+  }
   
   /**
    * Verifies that no update is in progress
@@ -393,6 +630,146 @@ public class HTable implements HConstants {
   }
 
 
+  /**
+   * Get all the data for many rows at once.
+   * @see #getRows(List, Text[], long)
+   * @param rows row keys
+   * @return For each row, in the order asked for, a map of columns to
+   * values.  Map is empty if row does not exist.
+   * @throws IOException
+   */
+  public List<SortedMap<Text, byte[]>> getRows(final List<Text> rows)
+  throws IOException {
+    return getRows(rows, null, HConstants.LATEST_TIMESTAMP);
+  }
+
+  /**
+   * Get the data for many rows at once.  Rows are grouped by the region
+   * server that holds them, using cached region locations, and each server
+   * is sent one request.  Requests to different servers run in parallel.
+   * Should a request fail, e.g. because a region moved, its rows are fetched
+   * one at a time with the usual retries.
+   * @param rows row keys
+   * @param columns columns to fetch; a family name fetches the whole family.
+   * If null, fetch all columns.
+   * @param ts timestamp
+   * @return For each row, in the order asked for, a map of columns to
+   * values.  Map is empty if row does not exist.
+   * @throws IOException
+   */
+  public List<SortedMap<Text, byte[]>> getRows(final List<Text> rows,
+    final Text [] columns, final long ts)
+  throws IOException {
+    checkClosed();
+    final HbaseMapWritable [] values = new HbaseMapWritable[rows.size()];
+    final Text [] regionNames = new Text[rows.size()];
+    Map<HServerAddress, List<Integer>> servers =
+      new HashMap<HServerAddress, List<Integer>>();
+    for (int i = 0; i < rows.size(); i++) {
+      HRegionLocation location = getRegionLocation(rows.get(i));
+      regionNames[i] = location.getRegionInfo().getRegionName();
+      List<Integer> indices = servers.get(location.getServerAddress());
+      if (indices == null) {
+        indices = new ArrayList<Integer>();
+        servers.put(location.getServerAddress(), indices);
+      }
+      indices.add(Integer.valueOf(i));
+    }
+    if (servers.size() == 1) {
+      Map.Entry<HServerAddress, List<Integer>> e =
+        servers.entrySet().iterator().next();
+      getRows(e.getKey(), e.getValue(), rows, regionNames, columns, ts, values);
+    } else if (servers.size() > 1) {
+      List<Callable<Boolean>> calls = new ArrayList<Callable<Boolean>>();
+      for (final Map.Entry<HServerAddress, List<Integer>> e:
+          servers.entrySet()) {
+        calls.add(new Callable<Boolean>() {
+          public Boolean call() throws IOException {
+            getRows(e.getKey(), e.getValue(), rows, regionNames, columns, ts,
+              values);
+            return Boolean.TRUE;
+          }
+        });
+      }
+      List<Future<Boolean>> futures;
+      try {
+        futures = getPool().invokeAll(calls);
+      } catch (InterruptedException e) {
+        throw new IOException("Interrupted fetching rows");
+      }
+      for (Future<Boolean> f: futures) {
+        try {
+          f.get();
+        } catch (InterruptedException e) {
+          throw new IOException("Interrupted fetching rows");
+        } catch (ExecutionException e) {
+          if (e.getCause() instanceof IOException) {
+            throw (IOException)e.getCause();
+          }
+          throw new RuntimeException(e.getCause());
+        }
+      }
+    }
+    List<SortedMap<Text, byte[]>> results =
+      new ArrayList<SortedMap<Text, byte[]>>(values.length);
+    for (int i = 0; i < values.length; i++) {
+      SortedMap<Text, byte[]> result = new TreeMap<Text, byte[]>();
+      if (values[i] != null) {
+        for (Map.Entry<Writable, Writable> e: values[i].entrySet()) {
+          HStoreKey key = (HStoreKey) e.getKey();
+          result.put(key.getColumn(),
+            ((ImmutableBytesWritable) e.getValue()).get());
+        }
+      }
+      results.add(result);
+    }
+    return results;
+  }
+
+  /*
+   * Fetch the rows at <code>indices</code> from one region server into
+   * <code>values</code>.
+   */
+  private void getRows(final HServerAddress address,
+    final List<Integer> indices, final List<Text> rows,
+    final Text [] regionNames, final Text [] columns, final long ts,
+    final HbaseMapWritable [] values)
+  throws IOException {
+    Text [] serverRegionNames = new Text[indices.size()];
+    Text [] serverRows = new Text[indices.size()];
+    for (int i = 0; i < indices.size(); i++) {
+      serverRegionNames[i] = regionNames[indices.get(i).intValue()];
+      serverRows[i] = rows.get(indices.get(i).intValue());
+    }
+    try {
+      HbaseMapWritable [] serverValues = connection.getHRegionConnection(address).
+        getRows(serverRegionNames, serverRows, columns, ts);
+      for (int i = 0; i < indices.size(); i++) {
+        values[indices.get(i).intValue()] = serverValues[i];
+      }
+      return;
+    } catch (IOException e) {
+      if (e instanceof RemoteException) {
+        e = RemoteExceptionHandler.decodeRemoteException((RemoteException) e);
+      }
+      if (LOG.isDebugEnabled()) {
+        LOG.debug("Fetching " + indices.size() + " rows one at a time " +
+          "because: " + e.getMessage());
+      }
+    }
+    for (int i = 0; i < indices.size(); i++) {
+      final Text row = serverRows[i];
+      values[indices.get(i).intValue()] = getRegionServerWithRetries(
+        new ServerCallable<HbaseMapWritable>(row) {
+          public HbaseMapWritable call() throws IOException {
+            return server.getRows(
+              new Text [] {location.getRegionInfo().getRegionName()},
+              new Text [] {row}, columns, ts)[0];
+          }
+        });
+    }
+  }
+
   /** 
    * Get a scanner on the current table starting at the specified row.
    * Return the specified columns.
@@ -760,19 +1137,239 @@ public class HTable implements HConstants {
     }
     
     try {
-      getRegionServerWithRetries(
-        new ServerCallable<Boolean>(batch.get().getRow()){
-          public Boolean call() throws IOException {
-            server.batchUpdate(location.getRegionInfo().getRegionName(), 
-              timestamp, batch.get());
-            return null;
-          }
-        }
-      );
+      if (this.autoFlush) {
+        commit(batch.get(), timestamp);
+      } else {
+        bufferCommit(batch.get(), timestamp);
+      }
     } finally {
       batch.set(null);
     }
   }
+
+  /*
+   * Add a commit to the write buffer, sending the buffer if it is full.
+   */
+  private void bufferCommit(final BatchUpdate b, final long timestamp)
+  throws IOException {
+    if (this.writeBuffer.isEmpty()) {
+      this.writeBufferStart = System.currentTimeMillis();
+    }
+    this.writeBuffer.add(b);
+    this.writeBufferTimestamps.add(Long.valueOf(timestamp));
+    this.currentWriteBufferSize += b.getSize();
+    if (this.currentWriteBufferSize >= this.writeBufferSize) {
+      flushCommits();
+    }
+  }
+
+  /**
+   * Commit updates to many rows, using the 'latest' timestamp.
+   * @see #commit(List, long)
+   * @param updates BatchUpdates, one per row
+   * @throws IOException
+   */
+  public void commit(final List<BatchUpdate> updates) throws IOException {
+    commit(updates, LATEST_TIMESTAMP);
+  }
+
+  /**
+   * Commit updates to many rows.  Updates are grouped by the region that
+   * holds their row and each group is sent in one call.  Groups for
+   * different region servers are sent in parallel.  Updates refused because
+   * their row is no longer in the region they were sent to, e.g. because it
+   * split, are relocated and retried.
+   * @param updates BatchUpdates, one per row
+   * @param timestamp time to associate with the changes
+   * @throws BatchUpdateException If any update could not be applied.  All
+   * others have been.  It has each update that failed and why.
+   * @throws IOException
+   */
+  public void commit(final List<BatchUpdate> updates, final long timestamp)
+  throws IOException {
+    checkClosed();
+    List<BatchUpdate> failed = new ArrayList<BatchUpdate>();
+    List<IOException> causes = new ArrayList<IOException>();
+    // Regions that refused rows as not theirs; their cached locations are
+    // stale.
+    Set<Text> staleRegions = new HashSet<Text>();
+    List<BatchUpdate> pending = updates;
+    for (int tries = 0; pending.size() > 0; tries++) {
+      if (tries > 0) {
+        try {
+          Thread.sleep(pause);
+        } catch (InterruptedException e) {
+          // continue
+        }
+        if (LOG.isDebugEnabled()) {
+          LOG.debug("Retrying " + pending.size() + " updates refused by " +
+            staleRegions);
+        }
+      }
+      Map<HServerAddress, Map<Text, List<BatchUpdate>>> servers =
+        groupByRegion(pending, staleRegions);
+      staleRegions.clear();
+      List<BatchUpdate> retries = new ArrayList<BatchUpdate>();
+      for (Failure f: commitToServers(servers, timestamp)) {
+        if (tries < numRetries - 1 &&
+            (f.cause instanceof WrongRegionException ||
+              f.cause instanceof NotServingRegionException)) {
+          retries.add(f.update);
+          staleRegions.add(f.regionName);
+        } else {
+          failed.add(f.update);
+          causes.add(f.cause);
+        }
+      }
+      pending = retries;
+    }
+    if (failed.size() > 0) {
+      throw new BatchUpdateException(failed, causes, updates.size());
+    }
+  }
+
+  /*
+   * Group updates by server, then region, keeping their order within each
+   * region.
+   * @param updates
+   * @param staleRegions Regions whose cached locations must be reloaded
+   */
+  private Map<HServerAddress, Map<Text, List<BatchUpdate>>> groupByRegion(
+    final List<BatchUpdate> updates, final Set<Text> staleRegions)
+  throws IOException {
+    Map<HServerAddress, Map<Text, List<BatchUpdate>>> servers =
+      new HashMap<HServerAddress, Map<Text, List<BatchUpdate>>>();
+    for (BatchUpdate b: updates) {
+      HRegionLocation location = getRegionLocation(b.getRow());
+      if (staleRegions.contains(location.getRegionInfo().getRegionName())) {
+        // Later rows of the reloaded region find it in the cache.
+        location = getRegionLocation(b.getRow(), true);
+      }
+      Map<Text, List<BatchUpdate>> regions =
+        servers.get(location.getServerAddress());
+      if (regions == null) {
+        regions = new TreeMap<Text, List<BatchUpdate>>();
+        servers.put(location.getServerAddress(), regions);
+      }
+      Text regionName = location.getRegionInfo().getRegionName();
+      List<BatchUpdate> l = regions.get(regionName);
+      if (l == null) {
+        l = new ArrayList<BatchUpdate>();
+        regions.put(regionName, l);
+      }
+      l.add(b);
+    }
+    return servers;
+  }
+
+  /*
+   * An update that was not applied.
+   */
+  private static class Failure {
+    final BatchUpdate update;
+    final Text regionName;
+    final IOException cause;
+
+    Failure(final BatchUpdate update, final Text regionName,
+        final IOException cause) {
+      this.update = update;
+      this.regionName = regionName;
+      this.cause = cause;
+    }
+  }
+
+  /*
+   * Commit grouped updates, one region server at a time or in parallel.
+   * @return The updates that failed
+   */
+  private List<Failure> commitToServers(
+    final Map<HServerAddress, Map<Text, List<BatchUpdate>>> servers,
+    final long timestamp)
+  throws IOException {
+    List<Failure> failures = new ArrayList<Failure>();
+    if (servers.size() == 1) {
+      failures.addAll(commitToServer(servers.values().iterator().next(),
+        timestamp));
+    } else if (servers.size() > 1) {
+      List<Callable<List<Failure>>> calls =
+        new ArrayList<Callable<List<Failure>>>();
+      for (final Map<Text, List<BatchUpdate>> regions: servers.values()) {
+        calls.add(new Callable<List<Failure>>() {
+          public List<Failure> call() {
+            return commitToServer(regions, timestamp);
+          }
+        });
+      }
+      List<Future<List<Failure>>> futures;
+      try {
+        futures = getPool().invokeAll(calls);
+      } catch (InterruptedException e) {
+        throw new IOException("Interrupted committing updates");
+      }
+      for (Future<List<Failure>> f: futures) {
+        try {
+          failures.addAll(f.get());
+        } catch (InterruptedException e) {
+          throw new IOException("Interrupted committing updates");
+        } catch (ExecutionException e) {
+          throw new RuntimeException(e.getCause());
+        }
+      }
+    }
+    return failures;
+  }
+
+  /*
+   * Commit the updates for the regions of one region server.  Should a call
+   * fail as a whole, every update it carried fails with its exception.
+   * @return The updates that failed
+   */
+  private List<Failure> commitToServer(
+    final Map<Text, List<BatchUpdate>> regions, final long timestamp) {
+    List<Failure> failures = new ArrayList<Failure>();
+    for (Map.Entry<Text, List<BatchUpdate>> e: regions.entrySet()) {
+      final Text regionName = e.getKey();
+      final BatchUpdate [] bs =
+        e.getValue().toArray(new BatchUpdate[e.getValue().size()]);
+      try {
+        BatchUpdateResult result = getRegionServerWithRetries(
+          new ServerCallable<BatchUpdateResult>(bs[0].getRow()) {
+            public BatchUpdateResult call() throws IOException {
+              // Rows the region no longer holds come back as
+              // WrongRegionExceptions and are retried.
+              return server.batchUpdate(
+                location.getRegionInfo().getRegionName(), timestamp, bs);
+            }
+          }
+        );
+        for (int i = 0; i < bs.length; i++) {
+          IOException cause = result.getFailure(i);
+          if (cause != null) {
+            failures.add(new Failure(bs[i], regionName, cause));
+          }
+        }
+      } catch (IOException ex) {
+        IOException cause = RemoteExceptionHandler.checkIOException(ex);
+        for (int i = 0; i < bs.length; i++) {
+          failures.add(new Failure(bs[i], regionName, cause));
+        }
+      }
+    }
+    return failures;
+  }
+
+  private void commit(final BatchUpdate b, final long timestamp)
+  throws IOException {
+    getRegionServerWithRetries(
+      new ServerCallable<Boolean>(b.getRow()){
+        public Boolean call() throws IOException {
+          server.batchUpdate(location.getRegionInfo().getRegionName(), 
+            timestamp, b);
+          return null;
+        }
+      }
+    );
+  }
   
   /**
    * Implements the scanner interface for the HBase client.
@@ -790,6 +1387,10 @@ public class HTable implements HConstants {
     private HRegionInterface server;
     private long scannerId;
     private RowFilterInterface filter;
+    private final int caching;
+    // Rows fetched from the current region but not yet returned.
+    private final LinkedList<HbaseMapWritable> cache =
+      new LinkedList<HbaseMapWritable>();
     
     protected ClientScanner(Text[] columns, Text startRow, long timestamp,
       RowFilterInterface filter) 
@@ -806,6 +1407,7 @@ public class HTable implements HConstants {
       this.columns = columns;
       this.startRow = startRow;
       this.scanTime = timestamp;
+      this.caching = getScannerCaching();
       
       // save the filter, and make sure that the filter applies to the data
       // we're expecting to pull back
@@ -918,13 +1520,20 @@ public class HTable implements HConstants {
       if (this.closed) {
         return false;
       }
-      HbaseMapWritable values = null;
       // Clear the results so we don't inherit any values from any previous
       // calls to next.
       results.clear();
-      do {
-        values = server.next(scannerId);
-      } while ((values == null || values.size() == 0) && nextScanner());
+      while (this.cache.size() == 0) {
+        HbaseMapWritable [] rows = server.next(scannerId, this.caching);
+        if (rows != null && rows.length > 0) {
+          for (int i = 0; i < rows.length; i++) {
+            this.cache.add(rows[i]);
+          }
+        } else if (!nextScanner()) {
+          break;
+        }
+      }
+      HbaseMapWritable values = this.cache.poll();
 
       if (values != null && values.size() != 0) {
         for (Map.Entry<Writable, Writable> e: values.entrySet()) {
@@ -959,6 +1568,7 @@ public class HTable implements HConstants {
         scannerId = -1L;
       }
       server = null;
+      cache.clear();
       closed = true;
     }
 
@@ -22,8 +22,12 @@ package org.apache.hadoop.hbase;
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
 import java.io.*;
-import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.DelayQueue;
+import java.util.concurrent.Delayed;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
 
 /**
  * Leases
@@ -38,6 +42,12 @@ import java.util.concurrent.atomic.AtomicBoolean;
  * <p>The Leases class is a general reusable class for this kind of pattern.
  * An instance of the Leases class will create a thread to do its dirty work.  
  * You should close() the instance if you want to clean up the thread properly.
+ *
+ * <p>Renewing a lease only stamps it with the time, so renewals do not
+ * contend with each other or with the lease checker.  Leases wait in a
+ * queue ordered by when they would expire had they not been renewed since
+ * they were queued.  The lease checker looks only at leases that have come
+ * due: it expires those not renewed in time and queues the others again.
  */
 public class Leases {
   protected static final Log LOG = LogFactory.getLog(Leases.class.getName());
@@ -45,10 +55,14 @@ public class Leases {
   protected final int leasePeriod;
   protected final int leaseCheckFrequency;
   private final Thread leaseMonitorThread;
-  protected final Map<LeaseName, Lease> leases =
-    new HashMap<LeaseName, Lease>();
-  protected final TreeSet<Lease> sortedLeases = new TreeSet<Lease>();
+  protected final ConcurrentHashMap<LeaseName, Lease> leases =
+    new ConcurrentHashMap<LeaseName, Lease>();
+  // Cancelled leases stay queued until they come due and are dropped.
+  private final DelayQueue<Lease> expiryQueue = new DelayQueue<Lease>();
   protected AtomicBoolean stop = new AtomicBoolean(false);
+  private final AtomicLong renewals = new AtomicLong(0);
+  private final AtomicLong renewalTime = new AtomicLong(0);
+  private final AtomicLong expirations = new AtomicLong(0);
 
   /**
    * Creates a lease
@@ -116,12 +130,8 @@ public class Leases {
         // Ignore
       }
     }
-    synchronized(leases) {
-      synchronized(sortedLeases) {
-        leases.clear();
-        sortedLeases.clear();
-      }
-    }
+    leases.clear();
+    expiryQueue.clear();
     LOG.info(Thread.currentThread().getName() + " closed leases");
   }
 
@@ -138,18 +148,12 @@ public class Leases {
   public void createLease(final long holderId, final long resourceId,
       final LeaseListener listener)
   throws LeaseStillHeldException {
-    LeaseName name = null;
-    synchronized(leases) {
-      synchronized(sortedLeases) {
-        Lease lease = new Lease(holderId, resourceId, listener);
-        name = lease.getLeaseName();
-        if(leases.get(name) != null) {
-          throw new LeaseStillHeldException(name.toString());
-        }
-        leases.put(name, lease);
-        sortedLeases.add(lease);
-      }
+    Lease lease = new Lease(holderId, resourceId, listener);
+    LeaseName name = lease.getLeaseName();
+    if (leases.putIfAbsent(name, lease) != null) {
+      throw new LeaseStillHeldException(name.toString());
     }
+    expiryQueue.add(lease);
 //    if (LOG.isDebugEnabled()) {
 //      LOG.debug("Created lease " + name);
 //    }
@@ -165,22 +169,18 @@ public class Leases {
    */
   public void renewLease(final long holderId, final long resourceId)
   throws IOException {
-    LeaseName name = null;
-    synchronized(leases) {
-      synchronized(sortedLeases) {
-        name = createLeaseName(holderId, resourceId);
-        Lease lease = leases.get(name);
-        if (lease == null) {
-          // It's possible that someone tries to renew the lease, but 
-          // it just expired a moment ago.  So fail.
-          throw new IOException("Cannot renew lease that is not held: " +
-            name);
-        }
-        sortedLeases.remove(lease);
-        lease.renew();
-        sortedLeases.add(lease);
-      }
+    long start = System.nanoTime();
+    LeaseName name = createLeaseName(holderId, resourceId);
+    Lease lease = leases.get(name);
+    if (lease == null) {
+      // It's possible that someone tries to renew the lease, but 
+      // it just expired a moment ago.  So fail.
+      throw new IOException("Cannot renew lease that is not held: " +
+        name);
     }
+    lease.renew();
+    renewals.incrementAndGet();
+    renewalTime.addAndGet(System.nanoTime() - start);
 //    if (LOG.isDebugEnabled()) {
 //      LOG.debug("Renewed lease " + name);
 //    }
@@ -193,20 +193,38 @@ public class Leases {
    * @param resourceId id of resource being leased
    */
   public void cancelLease(final long holderId, final long resourceId) {
-    LeaseName name = null;
-    synchronized(leases) {
-      synchronized(sortedLeases) {
-        name = createLeaseName(holderId, resourceId);
-        Lease lease = leases.get(name);
-        if (lease == null) {
-          // It's possible that someone tries to renew the lease, but 
-          // it just expired a moment ago.  So just skip it.
-          return;
-        }
-        sortedLeases.remove(lease);
-        leases.remove(name);
-      }
-    }
+    // It's possible that someone tries to cancel the lease, but it just
+    // expired a moment ago.  So just skip it.
+    leases.remove(createLeaseName(holderId, resourceId));
+  }
+
+  /**
+   * @return Count of leases held
+   */
+  public int getLeaseCount() {
+    return leases.size();
+  }
+
+  /**
+   * @return Count of lease renewals since this instance was made
+   */
+  public long getRenewalCount() {
+    return renewals.get();
+  }
+
+  /**
+   * @return Total nanoseconds spent renewing leases since this instance was
+   * made.  Divide by {@link #getRenewalCount()} for the mean renewal time.
+   */
+  public long getRenewalTime() {
+    return renewalTime.get();
+  }
+
+  /**
+   * @return Count of leases expired since this instance was made
+   */
+  public long getExpiredCount() {
+    return expirations.get();
   }
 
   /**
@@ -225,19 +243,21 @@ public class Leases {
     /** {@inheritDoc} */
     @Override
     protected void chore() {
-      synchronized(leases) {
-        synchronized(sortedLeases) {
-          Lease top;
-          while((sortedLeases.size() > 0)
-              && ((top = sortedLeases.first()) != null)) {
-            if(top.shouldExpire()) {
-              leases.remove(top.getLeaseName());
-              sortedLeases.remove(top);
-              top.expired();
-            } else {
-              break;
-            }
+      Lease top;
+      while ((top = expiryQueue.poll()) != null) {
+        if (leases.get(top.getLeaseName()) != top) {
+          // Cancelled, or expired and taken again since.
+          continue;
+        }
+        if (top.shouldExpire()) {
+          if (leases.remove(top.getLeaseName(), top)) {
+            expirations.incrementAndGet();
+            top.expired();
           }
+        } else {
+          // Renewed since queued.  Queue it again for its new expiry.
+          top.requeue();
+          expiryQueue.add(top);
         }
       }
     }
@@ -324,71 +344,60 @@ public class Leases {
   }
 
   /** This class tracks a single Lease. */
-  @SuppressWarnings("unchecked")
-  private class Lease implements Comparable {
+  private class Lease implements Delayed {
     final long holderId;
     final long resourceId;
     final LeaseListener listener;
-    long lastUpdate;
-    private LeaseName leaseId;
+    private final LeaseName leaseId;
+    private volatile long lastUpdate;
+    // When this lease comes due in the expiry queue.  Only changed while the
+    // lease is out of the queue.
+    private long expiryTime;
 
     Lease(final long holderId, final long resourceId,
         final LeaseListener listener) {
       this.holderId = holderId;
       this.resourceId = resourceId;
       this.listener = listener;
+      this.leaseId = createLeaseName(holderId, resourceId);
       renew();
+      requeue();
     }
     
-    synchronized LeaseName getLeaseName() {
-      if (this.leaseId == null) {
-        this.leaseId = createLeaseName(holderId, resourceId);
-      }
+    LeaseName getLeaseName() {
       return this.leaseId;
     }
     
     boolean shouldExpire() {
-      return (System.currentTimeMillis() - lastUpdate > leasePeriod);
+      // Not strictly greater: a lease polled as due must not be queued again
+      // for the same moment.
+      return (System.currentTimeMillis() - lastUpdate >= leasePeriod);
     }
     
     void renew() {
       this.lastUpdate = System.currentTimeMillis();
     }
+
+    void requeue() {
+      this.expiryTime = this.lastUpdate + leasePeriod;
+    }
     
     void expired() {
       LOG.info(Thread.currentThread().getName() + " lease expired " +
         getLeaseName());
       listener.leaseExpired();
     }
-    
-    /** {@inheritDoc} */
-    @Override
-    public boolean equals(Object obj) {
-      return compareTo(obj) == 0;
-    }
-    
+
     /** {@inheritDoc} */
-    @Override
-    public int hashCode() {
-      int result = this.getLeaseName().hashCode();
-      result ^= this.lastUpdate;
-      return result;
+    public long getDelay(TimeUnit unit) {
+      return unit.convert(this.expiryTime - System.currentTimeMillis(),
+        TimeUnit.MILLISECONDS);
     }
-    
-    //////////////////////////////////////////////////////////////////////////////
-    // Comparable
-    //////////////////////////////////////////////////////////////////////////////
 
     /** {@inheritDoc} */
-    public int compareTo(Object o) {
-      Lease other = (Lease) o;
-      if(this.lastUpdate < other.lastUpdate) {
-        return -1;
-      } else if(this.lastUpdate > other.lastUpdate) {
-        return 1;
-      } else {
-        return this.getLeaseName().compareTo(other.getLeaseName());
-      }
+    public int compareTo(Delayed o) {
+      long other = ((Lease)o).expiryTime;
+      return this.expiryTime < other? -1: this.expiryTime > other? 1: 0;
     }
   }
-}
\ No newline at end of file
+}
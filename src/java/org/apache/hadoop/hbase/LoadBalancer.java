@@ -0,0 +1,206 @@
+/**
+ * Copyright 2008 The Apache Software Foundation
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.hadoop.hbase;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.hadoop.io.Text;
+
+/**
+ * Plans region moves that even out load across region servers.
+ *
+ * <p>Each region is given a weight: the average of its share of the cluster's
+ * requests, memcache bytes, store file bytes and regions.  Metrics that are
+ * zero over the whole cluster are left out.  A server's weight is the sum of
+ * its regions' weights.  While the heaviest server is more than
+ * <code>slop</code> over the average, its heaviest region that can move to the
+ * lightest server without leaving either past the average is planned for a
+ * move.  At most <code>maxMoves</code> moves are planned per call so load
+ * shifts in small steps.  Catalog regions are never moved.
+ */
+class LoadBalancer {
+  private final float slop;
+  private final int maxMoves;
+
+  /**
+   * A planned move of a region from one server to another.
+   */
+  static class RegionMove {
+    private final Text regionName;
+    private final String source;
+    private final String destination;
+
+    RegionMove(final Text regionName, final String source,
+        final String destination) {
+      this.regionName = regionName;
+      this.source = source;
+      this.destination = destination;
+    }
+
+    /** @return name of the region to move */
+    Text getRegionName() {
+      return this.regionName;
+    }
+
+    /** @return name of the server now carrying the region */
+    String getSource() {
+      return this.source;
+    }
+
+    /** @return name of the server to carry the region */
+    String getDestination() {
+      return this.destination;
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public String toString() {
+      return this.regionName + " from " + this.source + " to " +
+        this.destination;
+    }
+  }
+
+  /**
+   * @param slop Fraction over the average weight a server may carry before
+   * regions are moved off it.
+   * @param maxMoves Most moves to plan per call.
+   */
+  LoadBalancer(final float slop, final int maxMoves) {
+    this.slop = slop;
+    this.maxMoves = maxMoves;
+  }
+
+  /**
+   * @param serversToLoad Map of server names to their last reported load.
+   * @return Moves to make, in order.  Empty if the cluster is balanced or if
+   * no move would help.
+   */
+  List<RegionMove> balance(final Map<String, HServerLoad> serversToLoad) {
+    List<RegionMove> moves = new ArrayList<RegionMove>();
+    if (serversToLoad.size() < 2) {
+      return moves;
+    }
+    Map<String, Map<Text, Double>> serverRegions =
+      getRegionWeights(serversToLoad);
+    Map<String, Double> serverWeights = new HashMap<String, Double>();
+    double total = 0;
+    for (Map.Entry<String, Map<Text, Double>> e: serverRegions.entrySet()) {
+      double weight = 0;
+      for (Double d: e.getValue().values()) {
+        weight += d.doubleValue();
+      }
+      serverWeights.put(e.getKey(), Double.valueOf(weight));
+      total += weight;
+    }
+    double average = total / serverWeights.size();
+    while (moves.size() < this.maxMoves) {
+      String heaviest = null;
+      String lightest = null;
+      for (Map.Entry<String, Double> e: serverWeights.entrySet()) {
+        if (heaviest == null ||
+            e.getValue().doubleValue() > serverWeights.get(heaviest)) {
+          heaviest = e.getKey();
+        }
+        if (lightest == null ||
+            e.getValue().doubleValue() < serverWeights.get(lightest)) {
+          lightest = e.getKey();
+        }
+      }
+      double heavy = serverWeights.get(heaviest).doubleValue();
+      double light = serverWeights.get(lightest).doubleValue();
+      if (heavy <= average * (1 + this.slop)) {
+        break;
+      }
+      // Don't move more than would take either server past the average.
+      double room = Math.min(heavy - average, average - light);
+      Text region = null;
+      double regionWeight = 0;
+      for (Map.Entry<Text, Double> e: serverRegions.get(heaviest).entrySet()) {
+        double w = e.getValue().doubleValue();
+        if (w <= room && w > regionWeight && !isCatalog(e.getKey())) {
+          region = e.getKey();
+          regionWeight = w;
+        }
+      }
+      if (region == null) {
+        break;
+      }
+      moves.add(new RegionMove(region, heaviest, lightest));
+      serverRegions.get(heaviest).remove(region);
+      serverWeights.put(heaviest, Double.valueOf(heavy - regionWeight));
+      serverWeights.put(lightest, Double.valueOf(light + regionWeight));
+    }
+    return moves;
+  }
+
+  /*
+   * @return Map of server name to the weights of the regions it carries.
+   */
+  private Map<String, Map<Text, Double>> getRegionWeights(
+      final Map<String, HServerLoad> serversToLoad) {
+    long requests = 0;
+    long memcache = 0;
+    long storefiles = 0;
+    int regions = 0;
+    for (HServerLoad load: serversToLoad.values()) {
+      for (HServerLoad.RegionLoad r: load.getRegionLoad()) {
+        requests += r.getRequests();
+        memcache += r.getMemcacheSize();
+        storefiles += r.getStorefileSize();
+        regions++;
+      }
+    }
+    int metrics = 1 + (requests > 0? 1: 0) + (memcache > 0? 1: 0) +
+      (storefiles > 0? 1: 0);
+    Map<String, Map<Text, Double>> result =
+      new HashMap<String, Map<Text, Double>>();
+    for (Map.Entry<String, HServerLoad> e: serversToLoad.entrySet()) {
+      Map<Text, Double> weights = new HashMap<Text, Double>();
+      for (HServerLoad.RegionLoad r: e.getValue().getRegionLoad()) {
+        double w = 1.0 / regions;
+        if (requests > 0) {
+          w += (double)r.getRequests() / requests;
+        }
+        if (memcache > 0) {
+          w += (double)r.getMemcacheSize() / memcache;
+        }
+        if (storefiles > 0) {
+          w += (double)r.getStorefileSize() / storefiles;
+        }
+        weights.put(r.getName(), Double.valueOf(w / metrics));
+      }
+      result.put(e.getKey(), weights);
+    }
+    return result;
+  }
+
+  /*
+   * @return True if <code>regionName</code> is a region of the root or meta
+   * table.
+   */
+  private static boolean isCatalog(final Text regionName) {
+    String name = regionName.toString();
+    return name.startsWith(HConstants.ROOT_TABLE_NAME.toString() + ",") ||
+      name.startsWith(HConstants.META_TABLE_NAME.toString() + ",");
+  }
+}
@@ -0,0 +1,525 @@
+/**
+ * Copyright 2008 The Apache Software Foundation
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.hadoop.hbase;
+
+import java.nio.ByteBuffer;
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+import java.util.SortedMap;
+import java.util.concurrent.ConcurrentNavigableMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.apache.hadoop.io.Text;
+import org.apache.hadoop.io.WritableComparator;
+
+/**
+ * A sorted map of {@link HStoreKey} to cell value whose keys and values live
+ * in large fixed-size slabs rather than as individual heap objects.
+ *
+ * <p>Each put copies the row, column, timestamp and value of the cell into
+ * the current slab chunk and indexes the cell by its chunk and offset.  The
+ * only long-lived objects per cell are a small reference object and the
+ * skip list node that indexes it; the bulk of the bytes sit in a few large
+ * chunks that are let go together when the map is.  This keeps the count of
+ * old generation objects low on servers carrying big memcaches.  Chunks can
+ * be on-heap byte arrays or direct ByteBuffers.
+ *
+ * <p>{@link #add(HStoreKey, byte[])} reports the slab bytes each cell takes
+ * so the region can count the memcache by its slabs: overwritten cells keep
+ * their space until the whole map is let go.
+ *
+ * <p>Keys and values are materialized on read: <code>get</code>,
+ * <code>firstKey</code> and the entry iterators hand out copies.  Readers
+ * run concurrently with writers.  Removal is not supported; the memcache
+ * lets a whole map go at once when its snapshot has been flushed.
+ *
+ * @see HStore.Memcache
+ */
+class MemcacheSlabMap extends AbstractMap<HStoreKey, byte []>
+implements SortedMap<HStoreKey, byte []> {
+  /** Default size of a slab chunk: 2MB */
+  static final int DEFAULT_CHUNK_SIZE = 2 * 1024 * 1024;
+
+  private static final int SIZEOF_INT = 4;
+  private static final int SIZEOF_LONG = 8;
+
+  // Index of cells.  Keys and values are the same Cell instance except after
+  // a cell has been overwritten when the value is the newer Cell.
+  private final ConcurrentNavigableMap<Cell, SlabCell> index;
+  private final Slab slab;
+
+  /**
+   * @param chunkSize Size of each slab chunk in bytes.
+   * @param direct True if chunks should be allocated outside of the heap as
+   * direct ByteBuffers.
+   */
+  MemcacheSlabMap(final int chunkSize, final boolean direct) {
+    this(new ConcurrentSkipListMap<Cell, SlabCell>(),
+      new Slab(chunkSize, direct));
+  }
+
+  private MemcacheSlabMap(final ConcurrentNavigableMap<Cell, SlabCell> i,
+      final Slab s) {
+    this.index = i;
+    this.slab = s;
+  }
+
+  /**
+   * Copy a cell into the slab and index it.
+   * @param key
+   * @param value
+   * @return Count of slab bytes the cell takes.  A cell that overwrites
+   * another is counted in full; the space of the old one is not reused.  The
+   * unused tail left in a chunk that is full is not counted; it is less than
+   * a quarter of a chunk.
+   */
+  long add(final HStoreKey key, final byte [] value) {
+    SlabCell c = this.slab.copy(key, value);
+    this.index.put(c, c);
+    return Slab.getSize(key, value);
+  }
+
+  /** {@inheritDoc} */
+  @Override
+  public byte [] put(final HStoreKey key, final byte [] value) {
+    add(key, value);
+    // Do not materialize the replaced value; memcache never looks at it.
+    return null;
+  }
+
+  /** {@inheritDoc} */
+  @Override
+  public byte [] get(final Object key) {
+    SlabCell c = this.index.get(new Probe((HStoreKey)key));
+    return c == null? null: c.getValue();
+  }
+
+  /** {@inheritDoc} */
+  @Override
+  public boolean containsKey(final Object key) {
+    return this.index.containsKey(new Probe((HStoreKey)key));
+  }
+
+  /**
+   * Unlike a TreeMap, this is a linear operation.
+   * @see ConcurrentSkipListMap#size()
+   */
+  @Override
+  public int size() {
+    return this.index.size();
+  }
+
+  /** {@inheritDoc} */
+  @Override
+  public boolean isEmpty() {
+    return this.index.isEmpty();
+  }
+
+  /** {@inheritDoc} */
+  @Override
+  public Set<Map.Entry<HStoreKey, byte []>> entrySet() {
+    return new AbstractSet<Map.Entry<HStoreKey, byte []>>() {
+      @Override
+      public Iterator<Map.Entry<HStoreKey, byte []>> iterator() {
+        final Iterator<SlabCell> i = index.values().iterator();
+        return new Iterator<Map.Entry<HStoreKey, byte []>>() {
+          public boolean hasNext() {
+            return i.hasNext();
+          }
+
+          public Map.Entry<HStoreKey, byte []> next() {
+            return new Entry(i.next());
+          }
+
+          public void remove() {
+            throw new UnsupportedOperationException();
+          }
+        };
+      }
+
+      @Override
+      public int size() {
+        return index.size();
+      }
+    };
+  }
+
+  /** {@inheritDoc} */
+  public Comparator<? super HStoreKey> comparator() {
+    // Natural ordering of HStoreKey.
+    return null;
+  }
+
+  /** {@inheritDoc} */
+  public HStoreKey firstKey() {
+    return getKey(this.index.firstEntry());
+  }
+
+  /** {@inheritDoc} */
+  public HStoreKey lastKey() {
+    return getKey(this.index.lastEntry());
+  }
+
+  private static HStoreKey getKey(final Map.Entry<Cell, SlabCell> e) {
+    if (e == null) {
+      throw new NoSuchElementException();
+    }
+    return e.getValue().getKey();
+  }
+
+  /** {@inheritDoc} */
+  public SortedMap<HStoreKey, byte []> headMap(final HStoreKey toKey) {
+    return new MemcacheSlabMap(this.index.headMap(new Probe(toKey)),
+      this.slab);
+  }
+
+  /** {@inheritDoc} */
+  public SortedMap<HStoreKey, byte []> tailMap(final HStoreKey fromKey) {
+    return new MemcacheSlabMap(this.index.tailMap(new Probe(fromKey)),
+      this.slab);
+  }
+
+  /** {@inheritDoc} */
+  public SortedMap<HStoreKey, byte []> subMap(final HStoreKey fromKey,
+      final HStoreKey toKey) {
+    return new MemcacheSlabMap(this.index.subMap(new Probe(fromKey),
+      new Probe(toKey)), this.slab);
+  }
+
+  /*
+   * Map entry that copies key and value out of the slab on first access.
+   */
+  private static class Entry implements Map.Entry<HStoreKey, byte []> {
+    private final SlabCell cell;
+    private HStoreKey key = null;
+    private byte [] value = null;
+
+    Entry(final SlabCell c) {
+      this.cell = c;
+    }
+
+    public HStoreKey getKey() {
+      if (this.key == null) {
+        this.key = this.cell.getKey();
+      }
+      return this.key;
+    }
+
+    public byte [] getValue() {
+      if (this.value == null) {
+        this.value = this.cell.getValue();
+      }
+      return this.value;
+    }
+
+    public byte [] setValue(final byte [] v) {
+      throw new UnsupportedOperationException();
+    }
+  }
+
+  /*
+   * Base of the index keys.  Compares row, then column, then timestamp with
+   * newer timestamps sorting first, the same ordering as HStoreKey.
+   */
+  private abstract static class Cell implements Comparable<Cell> {
+    abstract ByteBuffer rowBuffer();
+    abstract int rowOffset();
+    abstract int rowLength();
+    abstract ByteBuffer columnBuffer();
+    abstract int columnOffset();
+    abstract int columnLength();
+    abstract long getTimestamp();
+
+    public int compareTo(final Cell other) {
+      int result = compareBytes(rowBuffer(), rowOffset(), rowLength(),
+        other.rowBuffer(), other.rowOffset(), other.rowLength());
+      if (result != 0) {
+        return result;
+      }
+      result = compareBytes(columnBuffer(), columnOffset(), columnLength(),
+        other.columnBuffer(), other.columnOffset(), other.columnLength());
+      if (result != 0) {
+        return result;
+      }
+      // Older timestamps sort after newer as in HStoreKey#compareTo.
+      long ts = getTimestamp();
+      long otherTs = other.getTimestamp();
+      return ts < otherTs? 1: ts > otherTs? -1: 0;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+      return o instanceof Cell && compareTo((Cell)o) == 0;
+    }
+
+    @Override
+    public int hashCode() {
+      return (int)getTimestamp() ^ rowLength() ^ columnLength();
+    }
+  }
+
+  /*
+   * Lexicographic unsigned comparison of two byte ranges.
+   */
+  static int compareBytes(final ByteBuffer b1, final int s1, final int l1,
+      final ByteBuffer b2, final int s2, final int l2) {
+    if (b1.hasArray() && b2.hasArray()) {
+      return WritableComparator.compareBytes(b1.array(),
+        b1.arrayOffset() + s1, l1, b2.array(), b2.arrayOffset() + s2, l2);
+    }
+    int end = Math.min(l1, l2);
+    for (int i = 0; i < end; i++) {
+      int a = b1.get(s1 + i) & 0xff;
+      int b = b2.get(s2 + i) & 0xff;
+      if (a != b) {
+        return a - b;
+      }
+    }
+    return l1 - l2;
+  }
+
+  /*
+   * Wraps an HStoreKey so it can be used to search the index.
+   */
+  private static class Probe extends Cell {
+    private final HStoreKey key;
+    private final ByteBuffer row;
+    private final ByteBuffer column;
+
+    Probe(final HStoreKey k) {
+      this.key = k;
+      this.row = ByteBuffer.wrap(k.getRow().getBytes());
+      this.column = ByteBuffer.wrap(k.getColumn().getBytes());
+    }
+
+    @Override
+    ByteBuffer rowBuffer() {
+      return this.row;
+    }
+
+    @Override
+    int rowOffset() {
+      return 0;
+    }
+
+    @Override
+    int rowLength() {
+      return this.key.getRow().getLength();
+    }
+
+    @Override
+    ByteBuffer columnBuffer() {
+      return this.column;
+    }
+
+    @Override
+    int columnOffset() {
+      return 0;
+    }
+
+    @Override
+    int columnLength() {
+      return this.key.getColumn().getLength();
+    }
+
+    @Override
+    long getTimestamp() {
+      return this.key.getTimestamp();
+    }
+  }
+
+  /*
+   * A cell copied into a slab chunk.  Layout at <code>offset</code> is:
+   * row length (int), row bytes, column length (int), column bytes,
+   * timestamp (long), value length (int), value bytes.
+   */
+  private static class SlabCell extends Cell {
+    private final ByteBuffer chunk;
+    private final int offset;
+
+    SlabCell(final ByteBuffer c, final int o) {
+      this.chunk = c;
+      this.offset = o;
+    }
+
+    @Override
+    ByteBuffer rowBuffer() {
+      return this.chunk;
+    }
+
+    @Override
+    int rowOffset() {
+      return this.offset + SIZEOF_INT;
+    }
+
+    @Override
+    int rowLength() {
+      return this.chunk.getInt(this.offset);
+    }
+
+    @Override
+    ByteBuffer columnBuffer() {
+      return this.chunk;
+    }
+
+    private int columnLengthOffset() {
+      return rowOffset() + rowLength();
+    }
+
+    @Override
+    int columnOffset() {
+      return columnLengthOffset() + SIZEOF_INT;
+    }
+
+    @Override
+    int columnLength() {
+      return this.chunk.getInt(columnLengthOffset());
+    }
+
+    private int timestampOffset() {
+      return columnOffset() + columnLength();
+    }
+
+    @Override
+    long getTimestamp() {
+      return this.chunk.getLong(timestampOffset());
+    }
+
+    HStoreKey getKey() {
+      return new HStoreKey(new Text(copy(rowOffset(), rowLength())),
+        new Text(copy(columnOffset(), columnLength())), getTimestamp());
+    }
+
+    byte [] getValue() {
+      int valueLengthOffset = timestampOffset() + SIZEOF_LONG;
+      return copy(valueLengthOffset + SIZEOF_INT,
+        this.chunk.getInt(valueLengthOffset));
+    }
+
+    private byte [] copy(final int o, final int length) {
+      byte [] result = new byte[length];
+      ByteBuffer bb = this.chunk.duplicate();
+      bb.position(o);
+      bb.get(result, 0, length);
+      return result;
+    }
+  }
+
+  /*
+   * Hands out space in fixed-size chunks.  Allocation is a compare-and-set
+   * on the current chunk's free pointer so concurrent writers do not lock.
+   * Cells too big to fit in a quarter of a chunk get a buffer of their own.
+   */
+  private static class Slab {
+    private final int chunkSize;
+    private final boolean direct;
+    private final AtomicReference<Chunk> current =
+      new AtomicReference<Chunk>();
+
+    Slab(final int size, final boolean d) {
+      this.chunkSize = size;
+      this.direct = d;
+    }
+
+    /*
+     * @return Count of slab bytes a cell takes.
+     */
+    static int getSize(final HStoreKey key, final byte [] value) {
+      return SIZEOF_INT + key.getRow().getLength() + SIZEOF_INT +
+        key.getColumn().getLength() + SIZEOF_LONG + SIZEOF_INT +
+        value.length;
+    }
+
+    SlabCell copy(final HStoreKey key, final byte [] value) {
+      Text row = key.getRow();
+      Text column = key.getColumn();
+      int size = getSize(key, value);
+      ByteBuffer buffer = null;
+      int offset = 0;
+      if (size > this.chunkSize / 4) {
+        buffer = allocateBuffer(size);
+      } else {
+        while (true) {
+          Chunk c = this.current.get();
+          if (c != null) {
+            offset = c.alloc(size);
+            if (offset >= 0) {
+              buffer = c.data;
+              break;
+            }
+          }
+          // Chunk is full or there is none yet.  Only one thread gets to
+          // install the replacement; the others retry against it.
+          synchronized (this) {
+            if (this.current.get() == c) {
+              this.current.set(new Chunk(allocateBuffer(this.chunkSize)));
+            }
+          }
+        }
+      }
+      ByteBuffer bb = buffer.duplicate();
+      bb.position(offset);
+      bb.putInt(row.getLength());
+      bb.put(row.getBytes(), 0, row.getLength());
+      bb.putInt(column.getLength());
+      bb.put(column.getBytes(), 0, column.getLength());
+      bb.putLong(key.getTimestamp());
+      bb.putInt(value.length);
+      bb.put(value, 0, value.length);
+      return new SlabCell(buffer, offset);
+    }
+
+    private ByteBuffer allocateBuffer(final int size) {
+      return this.direct? ByteBuffer.allocateDirect(size):
+        ByteBuffer.allocate(size);
+    }
+  }
+
+  private static class Chunk {
+    final ByteBuffer data;
+    private final AtomicInteger nextFree = new AtomicInteger(0);
+
+    Chunk(final ByteBuffer d) {
+      this.data = d;
+    }
+
+    /*
+     * @return Offset of the allocated space or -1 if the chunk is full.
+     */
+    int alloc(final int size) {
+      while (true) {
+        int old = this.nextFree.get();
+        if (old + size > this.data.capacity()) {
+          return -1;
+        }
+        if (this.nextFree.compareAndSet(old, old + size)) {
+          return old;
+        }
+      }
+    }
+  }
+}
@@ -0,0 +1,56 @@
+/**
+ * Copyright 2008 The Apache Software Foundation
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.hadoop.hbase.filter;
+
+import org.apache.hadoop.io.Text;
+
+/**
+ * Base for row filters that can tell scanners which rows to skip.  Scanners
+ * only ask filters that extend this class for a hint so filters that
+ * implement {@link RowFilterInterface} directly keep working unchanged.
+ */
+public abstract class AbstractRowFilter implements RowFilterInterface {
+
+  /**
+   * Called after {@link #filter(Text)} filtered a row key so scanners can
+   * seek past rows that would be filtered too instead of reading them.  Must
+   * not change the state of the filter.  This implementation gives no hint.
+   *
+   * @param rowKey row key just filtered
+   * @return a row key such that every row after <code>rowKey</code> and
+   * before the returned one would be filtered by {@link #filter(Text)}, or
+   * null if the filter has no hint.
+   */
+  public Text getNextRowHint(@SuppressWarnings("unused") final Text rowKey) {
+    return null;
+  }
+
+  /**
+   * @param filter Any row filter
+   * @param rowKey row key just filtered
+   * @return Hint of <code>filter</code> if it extends this class, else null.
+   * @see #getNextRowHint(Text)
+   */
+  public static Text getNextRowHint(final RowFilterInterface filter,
+      final Text rowKey) {
+    return filter instanceof AbstractRowFilter?
+      ((AbstractRowFilter)filter).getNextRowHint(rowKey): null;
+  }
+}
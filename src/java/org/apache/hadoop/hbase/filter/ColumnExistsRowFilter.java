@@ -0,0 +1,137 @@
+/**
+ * Copyright 2008 The Apache Software Foundation
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.hadoop.hbase.filter;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.SortedMap;
+
+import org.apache.hadoop.hbase.HLogEdit;
+import org.apache.hadoop.io.Text;
+
+/**
+ * Implementation of RowFilterInterface that passes only rows that have a
+ * value, not a delete, for each of a set of columns.  The columns must be
+ * among the scanner's columns.
+ */
+public class ColumnExistsRowFilter implements RowFilterInterface {
+  private Text [] columns;
+
+  /**
+   * Default constructor, filters nothing. Required though for RPC
+   * deserialization.
+   */
+  public ColumnExistsRowFilter() {
+    this(new Text[0]);
+  }
+
+  /**
+   * @param columns Columns a row must have values for.
+   */
+  public ColumnExistsRowFilter(final Text... columns) {
+    this.columns = columns;
+  }
+
+  /** {@inheritDoc} */
+  public void validate(final Text[] scanColumns) {
+    for (Text column: this.columns) {
+      boolean found = false;
+      for (Text col: scanColumns) {
+        if (col.equals(column)) {
+          found = true;
+          break;
+        }
+      }
+      if (!found) {
+        throw new InvalidRowFilterException(String.format(
+          "RowFilter contains criteria on column %s not in %s", column,
+          Arrays.toString(scanColumns)));
+      }
+    }
+  }
+
+  /** {@inheritDoc} */
+  public void reset() {
+    // Nothing to reset
+  }
+
+  /** {@inheritDoc} */
+  @SuppressWarnings("unused")
+  public void rowProcessed(boolean filtered, Text rowKey) {
+    // Doesn't care
+  }
+
+  /** {@inheritDoc} */
+  public boolean processAlways() {
+    return false;
+  }
+
+  /** {@inheritDoc} */
+  public boolean filterAllRemaining() {
+    return false;
+  }
+
+  /** {@inheritDoc} */
+  public boolean filter(@SuppressWarnings("unused") final Text rowKey) {
+    return false;
+  }
+
+  /**
+   * {@inheritDoc}
+   *
+   * A missing column is only known once the whole row has been seen so
+   * this method does not filter; {@link #filterNotNull(SortedMap)} does.
+   */
+  public boolean filter(@SuppressWarnings("unused") final Text rowKey,
+      @SuppressWarnings("unused") final Text colKey,
+      @SuppressWarnings("unused") final byte[] data) {
+    return false;
+  }
+
+  /** {@inheritDoc} */
+  public boolean filterNotNull(final SortedMap<Text, byte[]> row) {
+    for (Text column: this.columns) {
+      byte [] value = row.get(column);
+      if (value == null || HLogEdit.isDeleted(value)) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  /** {@inheritDoc} */
+  public void readFields(final DataInput in) throws IOException {
+    this.columns = new Text[in.readInt()];
+    for (int i = 0; i < this.columns.length; i++) {
+      this.columns[i] = new Text();
+      this.columns[i].readFields(in);
+    }
+  }
+
+  /** {@inheritDoc} */
+  public void write(final DataOutput out) throws IOException {
+    out.writeInt(this.columns.length);
+    for (Text column: this.columns) {
+      column.write(out);
+    }
+  }
+}
@@ -0,0 +1,199 @@
+/**
+ * Copyright 2008 The Apache Software Foundation
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.hadoop.hbase.filter;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.SortedMap;
+
+import org.apache.hadoop.hbase.HLogEdit;
+import org.apache.hadoop.io.Text;
+
+/**
+ * Base for RowFilterInterface implementations that pass or filter a row on
+ * the value of one of its columns.  Values are tested as stored, without
+ * copying.  Scanners offer filters only the newest version of a column so it
+ * is the newest value that is tested.
+ *
+ * <p>The column must be one of the scanner's columns.  Rows without a value
+ * for the column are filtered unless <code>filterIfMissing</code> is false.
+ * Filtering happens while the column's store is scanned, so rows that fail
+ * are never sent to the client.
+ */
+public abstract class ColumnValueRowFilter implements RowFilterInterface {
+  private Text column;
+  private boolean filterIfMissing = true;
+
+  /**
+   * Default constructor, filters nothing. Required though for RPC
+   * deserialization.
+   */
+  protected ColumnValueRowFilter() {
+    super();
+  }
+
+  /**
+   * @param column Column whose value is tested.
+   * @param filterIfMissing If true, rows without a value for
+   * <code>column</code> are filtered.  Else they pass.
+   */
+  protected ColumnValueRowFilter(final Text column,
+      final boolean filterIfMissing) {
+    this.column = column;
+    this.filterIfMissing = filterIfMissing;
+  }
+
+  /**
+   * @param value Stored value of the column.  Not a delete marker.
+   * @return True if the row holding <code>value</code> should pass.
+   */
+  protected abstract boolean matches(final byte [] value);
+
+  /** @return the column whose value is tested */
+  public Text getColumn() {
+    return this.column;
+  }
+
+  /** @return true if rows without a value for the column are filtered */
+  public boolean getFilterIfMissing() {
+    return this.filterIfMissing;
+  }
+
+  /** {@inheritDoc} */
+  public void validate(final Text[] columns) {
+    for (Text col: columns) {
+      if (col.equals(this.column)) {
+        return;
+      }
+    }
+    throw new InvalidRowFilterException(String.format(
+      "RowFilter contains criteria on column %s not in %s", this.column,
+      Arrays.toString(columns)));
+  }
+
+  /** {@inheritDoc} */
+  public void reset() {
+    // Nothing to reset
+  }
+
+  /** {@inheritDoc} */
+  @SuppressWarnings("unused")
+  public void rowProcessed(boolean filtered, Text rowKey) {
+    // Doesn't care
+  }
+
+  /** {@inheritDoc} */
+  public boolean processAlways() {
+    return false;
+  }
+
+  /** {@inheritDoc} */
+  public boolean filterAllRemaining() {
+    return false;
+  }
+
+  /** {@inheritDoc} */
+  public boolean filter(@SuppressWarnings("unused") final Text rowKey) {
+    return false;
+  }
+
+  /**
+   * {@inheritDoc}
+   *
+   * Filters on a value that does not match.  If missing rows pass, does not
+   * filter: the scanner of one store cannot tell a row that fails here from
+   * a row missing the column once filtered results of all stores are merged.
+   * {@link #filterNotNull(SortedMap)} decides instead.
+   */
+  public boolean filter(@SuppressWarnings("unused") final Text rowKey,
+      final Text colKey, final byte[] data) {
+    if (!this.filterIfMissing || !this.column.equals(colKey) ||
+        HLogEdit.isDeleted(data)) {
+      return false;
+    }
+    return !matches(data);
+  }
+
+  /** {@inheritDoc} */
+  public boolean filterNotNull(final SortedMap<Text, byte[]> columns) {
+    byte [] value = columns.get(this.column);
+    if (value == null || HLogEdit.isDeleted(value)) {
+      return this.filterIfMissing;
+    }
+    return !matches(value);
+  }
+
+  /** {@inheritDoc} */
+  public void readFields(final DataInput in) throws IOException {
+    this.column = new Text();
+    this.column.readFields(in);
+    this.filterIfMissing = in.readBoolean();
+  }
+
+  /** {@inheritDoc} */
+  public void write(final DataOutput out) throws IOException {
+    this.column.write(out);
+    out.writeBoolean(this.filterIfMissing);
+  }
+
+  /*
+   * Compare as unsigned bytes.
+   * @return Negative, zero or positive as <code>left</code> is less than,
+   * equal to or greater than <code>right</code>.
+   */
+  static int compare(final byte [] left, final byte [] right) {
+    int length = Math.min(left.length, right.length);
+    for (int i = 0; i < length; i++) {
+      int diff = (left[i] & 0xff) - (right[i] & 0xff);
+      if (diff != 0) {
+        return diff;
+      }
+    }
+    return left.length - right.length;
+  }
+
+  /*
+   * Read a byte array written by {@link #writeBytes(DataOutput, byte[])}.
+   */
+  static byte [] readBytes(final DataInput in) throws IOException {
+    int length = in.readInt();
+    if (length < 0) {
+      return null;
+    }
+    byte [] b = new byte[length];
+    in.readFully(b);
+    return b;
+  }
+
+  /*
+   * Write a possibly null byte array.
+   */
+  static void writeBytes(final DataOutput out, final byte [] b)
+  throws IOException {
+    if (b == null) {
+      out.writeInt(-1);
+    } else {
+      out.writeInt(b.length);
+      out.write(b);
+    }
+  }
+}
@@ -0,0 +1,163 @@
+/**
+ * Copyright 2008 The Apache Software Foundation
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.hadoop.hbase.filter;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.SortedMap;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.apache.hadoop.io.Text;
+
+/**
+ * Implementation of RowFilterInterface that passes only rows whose key starts
+ * with a given prefix.  Scanners seek from a row before the prefix straight
+ * to the prefix, and stop once past the rows with the prefix.
+ */
+public class PrefixRowFilter extends AbstractRowFilter {
+  static final Log LOG = LogFactory.getLog(PrefixRowFilter.class);
+
+  private Text prefix;
+  // Set once a row past all rows with the prefix has been filtered.
+  private boolean pastPrefix = false;
+
+  /**
+   * Default constructor, filters nothing. Required though for RPC
+   * deserialization.
+   */
+  public PrefixRowFilter() {
+    super();
+  }
+
+  /**
+   * @param prefix Row keys must start with this.
+   */
+  public PrefixRowFilter(final Text prefix) {
+    this.prefix = prefix;
+  }
+
+  /** @return the filter's prefix */
+  public Text getPrefix() {
+    return this.prefix;
+  }
+
+  /** {@inheritDoc} */
+  public void validate(@SuppressWarnings("unused") final Text[] columns) {
+    // Doesn't filter columns
+  }
+
+  /** {@inheritDoc} */
+  public void reset() {
+    this.pastPrefix = false;
+  }
+
+  /** {@inheritDoc} */
+  @SuppressWarnings("unused")
+  public void rowProcessed(boolean filtered, Text rowKey) {
+    // Doesn't care
+  }
+
+  /** {@inheritDoc} */
+  public boolean processAlways() {
+    return false;
+  }
+
+  /** {@inheritDoc} */
+  public boolean filterAllRemaining() {
+    return this.pastPrefix;
+  }
+
+  /** {@inheritDoc} */
+  public boolean filter(final Text rowKey) {
+    if (rowKey == null) {
+      return false;
+    }
+    boolean result = !startsWithPrefix(rowKey);
+    if (result && rowKey.compareTo(this.prefix) > 0) {
+      this.pastPrefix = true;
+    }
+    if (LOG.isDebugEnabled()) {
+      LOG.debug("Filter result for rowKey: " + rowKey + ".  Result: " +
+        result);
+    }
+    return result;
+  }
+
+  /**
+   * {@inheritDoc}
+   *
+   * Rows before the prefix seek to the prefix.  Rows past it give no hint;
+   * all remaining rows are filtered.
+   */
+  @Override
+  public Text getNextRowHint(final Text rowKey) {
+    return rowKey.compareTo(this.prefix) < 0? new Text(this.prefix): null;
+  }
+
+  /**
+   * {@inheritDoc}
+   *
+   * Because PrefixRowFilter does not examine column information, this method
+   * defaults to calling the rowKey-only version of filter.
+   */
+  public boolean filter(final Text rowKey,
+    @SuppressWarnings("unused") final Text colKey,
+    @SuppressWarnings("unused") final byte[] data) {
+    return filter(rowKey);
+  }
+
+  /**
+   * {@inheritDoc}
+   *
+   * Because PrefixRowFilter does not examine column information, this method
+   * defaults to calling filterAllRemaining().
+   */
+  public boolean filterNotNull(@SuppressWarnings("unused")
+      final SortedMap<Text, byte[]> columns) {
+    return filterAllRemaining();
+  }
+
+  private boolean startsWithPrefix(final Text rowKey) {
+    if (rowKey.getLength() < this.prefix.getLength()) {
+      return false;
+    }
+    byte [] row = rowKey.getBytes();
+    byte [] p = this.prefix.getBytes();
+    for (int i = 0; i < this.prefix.getLength(); i++) {
+      if (row[i] != p[i]) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  /** {@inheritDoc} */
+  public void readFields(final DataInput in) throws IOException {
+    this.prefix = new Text();
+    this.prefix.readFields(in);
+  }
+
+  /** {@inheritDoc} */
+  public void write(final DataOutput out) throws IOException {
+    this.prefix.write(out);
+  }
+}
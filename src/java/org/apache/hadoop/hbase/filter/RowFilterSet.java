@@ -36,7 +36,7 @@ import org.apache.hadoop.io.Text;
  * (!AND) or MUST_PASS_ONE (!OR).  Since you can use RowFilterSets as children 
  * of RowFilterSet, you can create a hierarchy of filters to be evaluated.
  */
-public class RowFilterSet implements RowFilterInterface {
+public class RowFilterSet extends AbstractRowFilter {
 
   /** set operator */
   public static enum Operator {
@@ -191,6 +191,38 @@ public class RowFilterSet implements RowFilterInterface {
     return result;
   }
 
+  /**
+   * {@inheritDoc}
+   *
+   * With MUST_PASS_ALL a row is filtered if any subfilter filters it so the
+   * furthest hint of any subfilter holds.  With MUST_PASS_ONE every subfilter
+   * must filter a row so the nearest hint holds, and only if all subfilters
+   * give one.
+   */
+  @Override
+  public Text getNextRowHint(final Text rowKey) {
+    Text result = null;
+    for (RowFilterInterface filter : filters) {
+      Text hint = getNextRowHint(filter, rowKey);
+      if (operator == Operator.MUST_PASS_ALL) {
+        if (hint != null && (result == null || hint.compareTo(result) > 0)) {
+          result = hint;
+        }
+      } else if (operator == Operator.MUST_PASS_ONE) {
+        if (hint == null) {
+          return null;
+        }
+        if (result == null || hint.compareTo(result) < 0) {
+          result = hint;
+        }
+      }
+    }
+    if (LOG.isDebugEnabled()) {
+      LOG.debug("getNextRowHint returning " + result);
+    }
+    return result;
+  }
+
   /** {@inheritDoc} */
   public boolean filter(final Text rowKey, final Text colKey, 
     final byte[] data) {
@@ -0,0 +1,84 @@
+/**
+ * Copyright 2008 The Apache Software Foundation
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.hadoop.hbase.filter;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.Arrays;
+
+import org.apache.hadoop.io.Text;
+
+/**
+ * Implementation of RowFilterInterface that passes only rows whose newest
+ * value for a column equals a given value.
+ */
+public class ValueEqualsRowFilter extends ColumnValueRowFilter {
+  private byte [] value;
+
+  /**
+   * Default constructor, filters nothing. Required though for RPC
+   * deserialization.
+   */
+  public ValueEqualsRowFilter() {
+    super();
+  }
+
+  /**
+   * Constructor that filters rows missing the column.
+   * @param column
+   * @param value Value the column must have.
+   */
+  public ValueEqualsRowFilter(final Text column, final byte [] value) {
+    this(column, value, true);
+  }
+
+  /**
+   * @param column
+   * @param value Value the column must have.
+   * @param filterIfMissing If true, rows without a value for
+   * <code>column</code> are filtered.  Else they pass.
+   */
+  public ValueEqualsRowFilter(final Text column, final byte [] value,
+      final boolean filterIfMissing) {
+    super(column, filterIfMissing);
+    this.value = value;
+  }
+
+  /** {@inheritDoc} */
+  @Override
+  protected boolean matches(final byte [] data) {
+    return Arrays.equals(this.value, data);
+  }
+
+  /** {@inheritDoc} */
+  @Override
+  public void readFields(final DataInput in) throws IOException {
+    super.readFields(in);
+    this.value = readBytes(in);
+  }
+
+  /** {@inheritDoc} */
+  @Override
+  public void write(final DataOutput out) throws IOException {
+    super.write(out);
+    writeBytes(out, this.value);
+  }
+}
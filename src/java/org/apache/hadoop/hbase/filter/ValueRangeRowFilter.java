@@ -0,0 +1,115 @@
+/**
+ * Copyright 2008 The Apache Software Foundation
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.hadoop.hbase.filter;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+
+import org.apache.hadoop.io.Text;
+
+/**
+ * Implementation of RowFilterInterface that passes only rows whose newest
+ * value for a column falls in a range.  Values are compared byte by byte as
+ * unsigned bytes, the way row keys are ordered.
+ */
+public class ValueRangeRowFilter extends ColumnValueRowFilter {
+  private byte [] lower;
+  private boolean lowerInclusive;
+  private byte [] upper;
+  private boolean upperInclusive;
+
+  /**
+   * Default constructor, filters nothing. Required though for RPC
+   * deserialization.
+   */
+  public ValueRangeRowFilter() {
+    super();
+  }
+
+  /**
+   * Constructor for the range [<code>lower</code>, <code>upper</code>) that
+   * filters rows missing the column.
+   * @param column
+   * @param lower Least value that passes.  If null, no lower bound.
+   * @param upper Values from here on are filtered.  If null, no upper bound.
+   */
+  public ValueRangeRowFilter(final Text column, final byte [] lower,
+      final byte [] upper) {
+    this(column, lower, true, upper, false, true);
+  }
+
+  /**
+   * @param column
+   * @param lower Lower bound.  If null, no lower bound.
+   * @param lowerInclusive True if a value equal to <code>lower</code> passes.
+   * @param upper Upper bound.  If null, no upper bound.
+   * @param upperInclusive True if a value equal to <code>upper</code> passes.
+   * @param filterIfMissing If true, rows without a value for
+   * <code>column</code> are filtered.  Else they pass.
+   */
+  public ValueRangeRowFilter(final Text column, final byte [] lower,
+      final boolean lowerInclusive, final byte [] upper,
+      final boolean upperInclusive, final boolean filterIfMissing) {
+    super(column, filterIfMissing);
+    this.lower = lower;
+    this.lowerInclusive = lowerInclusive;
+    this.upper = upper;
+    this.upperInclusive = upperInclusive;
+  }
+
+  /** {@inheritDoc} */
+  @Override
+  protected boolean matches(final byte [] data) {
+    if (this.lower != null) {
+      int c = compare(data, this.lower);
+      if (c < 0 || (c == 0 && !this.lowerInclusive)) {
+        return false;
+      }
+    }
+    if (this.upper != null) {
+      int c = compare(data, this.upper);
+      if (c > 0 || (c == 0 && !this.upperInclusive)) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  /** {@inheritDoc} */
+  @Override
+  public void readFields(final DataInput in) throws IOException {
+    super.readFields(in);
+    this.lower = readBytes(in);
+    this.lowerInclusive = in.readBoolean();
+    this.upper = readBytes(in);
+    this.upperInclusive = in.readBoolean();
+  }
+
+  /** {@inheritDoc} */
+  @Override
+  public void write(final DataOutput out) throws IOException {
+    super.write(out);
+    writeBytes(out, this.lower);
+    out.writeBoolean(this.lowerInclusive);
+    writeBytes(out, this.upper);
+    out.writeBoolean(this.upperInclusive);
+  }
+}
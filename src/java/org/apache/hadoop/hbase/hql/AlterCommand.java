@@ -229,7 +229,8 @@ public class AlterCommand extends SchemaModificationCommand {
     column = appendDelimiter(column);
 
     HColumnDescriptor columnDesc = new HColumnDescriptor(new Text(column),
-        maxVersions, compression, inMemory, maxLength, bloomFilterDesc);
+        maxVersions, compression, codec, compressionLevel,
+        compressionBlockSize, inMemory, maxLength, bloomFilterDesc);
 
     return columnDesc;
   }
@@ -242,6 +243,9 @@ public class AlterCommand extends SchemaModificationCommand {
     maxVersions = original.getMaxVersions();
     maxLength = original.getMaxValueLength();
     compression = original.getCompression();
+    codec = original.getCodec();
+    compressionLevel = original.getCompressionLevel();
+    compressionBlockSize = original.getCompressionBlockSize();
     inMemory = original.isInMemory();
     bloomFilterDesc = original.getBloomFilter();
   }
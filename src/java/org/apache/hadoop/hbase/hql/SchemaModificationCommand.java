@@ -36,6 +36,9 @@ public abstract class SchemaModificationCommand extends BasicCommand {
   protected int maxVersions;
   protected int maxLength;
   protected HColumnDescriptor.CompressionType compression;
+  protected HColumnDescriptor.Codec codec;
+  protected int compressionLevel;
+  protected int compressionBlockSize;
   protected boolean inMemory;
   protected BloomFilterDescriptor bloomFilterDesc;
   protected BloomFilterType bloomFilterType;
@@ -51,6 +54,9 @@ public abstract class SchemaModificationCommand extends BasicCommand {
     maxVersions = HColumnDescriptor.DEFAULT_N_VERSIONS;
     maxLength = HColumnDescriptor.DEFAULT_MAX_VALUE_LENGTH;
     compression = HColumnDescriptor.DEFAULT_COMPRESSION_TYPE;
+    codec = HColumnDescriptor.DEFAULT_CODEC;
+    compressionLevel = HColumnDescriptor.DEFAULT_COMPRESSION_LEVEL;
+    compressionBlockSize = HColumnDescriptor.DEFAULT_COMPRESSION_BLOCK_SIZE;
     inMemory = HColumnDescriptor.DEFAULT_IN_MEMORY;
     bloomFilterDesc = HColumnDescriptor.DEFAULT_BLOOM_FILTER_DESCRIPTOR;
   }
@@ -103,7 +109,8 @@ public abstract class SchemaModificationCommand extends BasicCommand {
     column = appendDelimiter(column);
 
     HColumnDescriptor columnDesc = new HColumnDescriptor(new Text(column),
-        maxVersions, compression, inMemory, maxLength, bloomFilterDesc);
+        maxVersions, compression, codec, compressionLevel,
+        compressionBlockSize, inMemory, maxLength, bloomFilterDesc);
 
     return columnDesc;
   }
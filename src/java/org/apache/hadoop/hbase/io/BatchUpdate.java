@@ -74,7 +74,19 @@ public class BatchUpdate implements Writable, Iterable<BatchOperation> {
   public Text getRow() {
     return row;
   }
-  
+
+  /** @return Approximate size in bytes of the row, columns and values. */
+  public synchronized long getSize() {
+    long size = this.row.getLength();
+    for (BatchOperation op: this.operations) {
+      size += op.getColumn().getLength();
+      if (op.isPut()) {
+        size += op.getValue().length;
+      }
+    }
+    return size;
+  }
+
   /** 
    * Start a batch row insertion/update.
    * 
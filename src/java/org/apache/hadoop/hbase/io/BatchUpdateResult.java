@@ -0,0 +1,110 @@
+/**
+ * Copyright 2008 The Apache Software Foundation
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.hadoop.hbase.io;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+
+import org.apache.hadoop.hbase.RemoteExceptionHandler;
+import org.apache.hadoop.io.Text;
+import org.apache.hadoop.io.Writable;
+import org.apache.hadoop.ipc.RemoteException;
+
+/**
+ * Outcome of each update of a multi-row batch update.  Failures travel as
+ * the class name and message of the exception so the client can rebuild it,
+ * the way RPC sends the exception of a failed call.
+ * @see BatchUpdate
+ */
+public class BatchUpdateResult implements Writable {
+  // Null class name means the update was applied.
+  private String [] classNames;
+  private String [] messages;
+
+  /** Default constructor used by Writable */
+  public BatchUpdateResult() {
+    this(new IOException[0]);
+  }
+
+  /**
+   * @param failures For each update, null if it was applied, else why not
+   */
+  public BatchUpdateResult(final IOException [] failures) {
+    this.classNames = new String[failures.length];
+    this.messages = new String[failures.length];
+    for (int i = 0; i < failures.length; i++) {
+      if (failures[i] != null) {
+        this.classNames[i] = failures[i].getClass().getName();
+        this.messages[i] = failures[i].getMessage();
+      }
+    }
+  }
+
+  /** @return Count of updates */
+  public int size() {
+    return this.classNames.length;
+  }
+
+  /**
+   * @param i Index of an update
+   * @return Null if the update was applied, else the exception it failed
+   * with, as its own class where that class can be made from a message.
+   */
+  public IOException getFailure(final int i) {
+    if (this.classNames[i] == null) {
+      return null;
+    }
+    return RemoteExceptionHandler.checkIOException(
+      new RemoteException(this.classNames[i], this.messages[i]));
+  }
+
+  //
+  // Writable
+  //
+
+  /** {@inheritDoc} */
+  public void readFields(final DataInput in) throws IOException {
+    int length = in.readInt();
+    this.classNames = new String[length];
+    this.messages = new String[length];
+    for (int i = 0; i < length; i++) {
+      if (in.readBoolean()) {
+        this.classNames[i] = Text.readString(in);
+        this.messages[i] = in.readBoolean()? Text.readString(in): null;
+      }
+    }
+  }
+
+  /** {@inheritDoc} */
+  public void write(final DataOutput out) throws IOException {
+    out.writeInt(this.classNames.length);
+    for (int i = 0; i < this.classNames.length; i++) {
+      out.writeBoolean(this.classNames[i] != null);
+      if (this.classNames[i] != null) {
+        Text.writeString(out, this.classNames[i]);
+        out.writeBoolean(this.messages[i] != null);
+        if (this.messages[i] != null) {
+          Text.writeString(out, this.messages[i]);
+        }
+      }
+    }
+  }
+}
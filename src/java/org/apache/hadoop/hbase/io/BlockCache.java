@@ -0,0 +1,154 @@
+/**
+ * Copyright 2008 The Apache Software Foundation
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.hadoop.hbase.io;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * A cache of file blocks, keyed by file name and block offset, that holds no
+ * more than a fixed number of bytes.  When full, the least recently used
+ * blocks are evicted.  Can be shared by any number of
+ * {@link BlockFSInputStream}s.
+ */
+public class BlockCache {
+  private final long maxSize;
+  // Access-ordered so iteration starts at the least recently used block.
+  private final LinkedHashMap<BlockKey, byte []> blocks =
+    new LinkedHashMap<BlockKey, byte []>(16, 0.75f, true);
+  private long size = 0;
+  private long hitCount = 0;
+  private long missCount = 0;
+  private long evictionCount = 0;
+
+  /**
+   * @param maxSize Most bytes of block data to hold.
+   */
+  public BlockCache(final long maxSize) {
+    this.maxSize = maxSize;
+  }
+
+  /**
+   * @param name Name of the file the block belongs to.
+   * @param offset Offset of the block in the file.
+   * @return The cached block or null if not cached.
+   */
+  public synchronized byte [] getBlock(final String name, final long offset) {
+    byte [] block = this.blocks.get(new BlockKey(name, offset));
+    if (block == null) {
+      this.missCount++;
+    } else {
+      this.hitCount++;
+    }
+    return block;
+  }
+
+  /**
+   * Add a block to the cache, evicting least recently used blocks if needed
+   * to stay under the maximum size.
+   * @param name Name of the file the block belongs to.
+   * @param offset Offset of the block in the file.
+   * @param block
+   */
+  public synchronized void cacheBlock(final String name, final long offset,
+      final byte [] block) {
+    if (block.length > this.maxSize) {
+      return;
+    }
+    byte [] old = this.blocks.put(new BlockKey(name, offset), block);
+    if (old != null) {
+      this.size -= old.length;
+    }
+    this.size += block.length;
+    for (Iterator<Map.Entry<BlockKey, byte []>> i =
+        this.blocks.entrySet().iterator(); this.size > this.maxSize;) {
+      this.size -= i.next().getValue().length;
+      i.remove();
+      this.evictionCount++;
+    }
+  }
+
+  /** @return Most bytes the cache will hold */
+  public long getMaxSize() {
+    return this.maxSize;
+  }
+
+  /** @return Bytes of block data currently cached */
+  public synchronized long getSize() {
+    return this.size;
+  }
+
+  /** @return Count of blocks currently cached */
+  public synchronized int getBlockCount() {
+    return this.blocks.size();
+  }
+
+  /** @return Count of lookups that found their block */
+  public synchronized long getHitCount() {
+    return this.hitCount;
+  }
+
+  /** @return Count of lookups that did not find their block */
+  public synchronized long getMissCount() {
+    return this.missCount;
+  }
+
+  /** @return Count of blocks evicted to make room for others */
+  public synchronized long getEvictionCount() {
+    return this.evictionCount;
+  }
+
+  /** {@inheritDoc} */
+  @Override
+  public synchronized String toString() {
+    long lookups = this.hitCount + this.missCount;
+    return "size=" + this.size + ", maxSize=" + this.maxSize +
+      ", blocks=" + this.blocks.size() + ", hits=" + this.hitCount +
+      ", misses=" + this.missCount + ", evictions=" + this.evictionCount +
+      ", hitRate=" + (lookups == 0? 0: (100 * this.hitCount) / lookups) + "%";
+  }
+
+  private static class BlockKey {
+    private final String name;
+    private final long offset;
+
+    BlockKey(final String name, final long offset) {
+      this.name = name;
+      this.offset = offset;
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public boolean equals(Object obj) {
+      if (!(obj instanceof BlockKey)) {
+        return false;
+      }
+      BlockKey other = (BlockKey)obj;
+      return this.offset == other.offset && this.name.equals(other.name);
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public int hashCode() {
+      return this.name.hashCode() ^ (int)(this.offset ^ (this.offset >>> 32));
+    }
+  }
+}
@@ -21,9 +21,7 @@ package org.apache.hadoop.hbase.io;
 
 import java.io.IOException;
 import java.io.InputStream;
-import java.util.Map;
 
-import org.apache.commons.collections.map.ReferenceMap;
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
 import org.apache.hadoop.fs.FSInputStream;
@@ -33,7 +31,8 @@ import org.apache.hadoop.io.DataInputBuffer;
 
 /**
  * An implementation of {@link FSInputStream} that reads the stream in blocks
- * of a fixed, configurable size. The blocks are stored in a memory-sensitive cache.
+ * of a fixed, configurable size. The blocks are stored in a {@link BlockCache}
+ * that may be shared with other streams.
  */
 public class BlockFSInputStream extends FSInputStream {
   
@@ -41,10 +40,12 @@ public class BlockFSInputStream extends FSInputStream {
   
   private final InputStream in;
 
+  private final String name;
+
   private final long fileLength;
 
   private final int blockSize;
-  private final Map<Long, byte[]> blocks;
+  private final BlockCache blocks;
 
   private boolean closed;
 
@@ -56,36 +57,22 @@ public class BlockFSInputStream extends FSInputStream {
 
   /**
    * @param in
+   * @param name Name of the file, used to key its blocks in the cache.
    * @param fileLength
    * @param blockSize the size of each block in bytes.
+   * @param cache Where to keep blocks once read.
    */
-  @SuppressWarnings("unchecked")
-  public BlockFSInputStream(InputStream in, long fileLength, int blockSize) {
+  public BlockFSInputStream(InputStream in, String name, long fileLength,
+      int blockSize, BlockCache cache) {
     this.in = in;
     if (!(in instanceof Seekable) || !(in instanceof PositionedReadable)) {
       throw new IllegalArgumentException(
           "In is not an instance of Seekable or PositionedReadable");
     }
+    this.name = name;
     this.fileLength = fileLength;
     this.blockSize = blockSize;
-    // a memory-sensitive map that has soft references to values
-    this.blocks = new ReferenceMap() {
-      private long hits, misses;
-      @Override
-      public Object get(Object key) {
-        Object value = super.get(key);
-        if (value == null) {
-          misses++;
-        } else {
-          hits++;
-        }
-        if (LOG.isDebugEnabled() && ((hits + misses) % 10000) == 0) {
-          long hitRate = (100 * hits) / (hits + misses);
-          LOG.info("Hit rate for cache " + hashCode() + ": " + hitRate + "%");
-        }
-        return value;
-      }
-    };
+    this.blocks = cache;
   }
 
   @Override
@@ -152,17 +139,17 @@ public class BlockFSInputStream extends FSInputStream {
 
   private synchronized void blockSeekTo(long target) throws IOException {
     int targetBlock = (int) (target / blockSize);
-    long targetBlockStart = targetBlock * blockSize;
+    long targetBlockStart = (long) targetBlock * blockSize;
     long targetBlockEnd = Math.min(targetBlockStart + blockSize, fileLength) - 1;
     long blockLength = targetBlockEnd - targetBlockStart + 1;
     long offsetIntoBlock = target - targetBlockStart;
 
-    byte[] block = blocks.get(targetBlockStart);
+    byte[] block = blocks.getBlock(name, targetBlockStart);
     if (block == null) {
-      block = new byte[blockSize];
+      block = new byte[(int) blockLength];
       ((PositionedReadable) in).readFully(targetBlockStart, block, 0,
           (int) blockLength);
-      blocks.put(targetBlockStart, block);
+      blocks.cacheBlock(name, targetBlockStart, block);
     }
     
     this.pos = target;
@@ -181,6 +168,7 @@ public class BlockFSInputStream extends FSInputStream {
       blockStream.close();
       blockStream = null;
     }
+    in.close();
     super.close();
     closed = true;
   }
@@ -114,6 +114,10 @@ public class HbaseObjectWritable implements Writable, Configurable {
     } catch (ClassNotFoundException e) {
       e.printStackTrace();
     }
+    addToMap(BatchUpdate [].class, code++);
+    addToMap(String [].class, code++);
+    addToMap(HbaseMapWritable [].class, code++);
+    addToMap(BatchUpdateResult.class, code++);
   }
   
   private Class<?> declaredClass;
@@ -0,0 +1,99 @@
+/**
+ * Copyright 2008 The Apache Software Foundation
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.hadoop.hbase.io;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.zip.Deflater;
+
+import org.apache.hadoop.io.compress.CompressionOutputStream;
+import org.apache.hadoop.io.compress.Compressor;
+import org.apache.hadoop.io.compress.DefaultCodec;
+import org.apache.hadoop.io.compress.zlib.BuiltInZlibDeflater;
+
+/**
+ * A zlib codec that compresses at a chosen level.  Output is plain zlib, so
+ * anything that reads {@link DefaultCodec} output reads it.  The level only
+ * matters when compressing; instances made by readers to decompress use the
+ * default.
+ *
+ * <p>SequenceFile pools compressors by type and hands a writer any compressor
+ * of the type its codec asks for, so a pooled compressor may have been made
+ * for another level.  The codec sets its level on the compressor each time it
+ * makes a stream.  Its compressors are a type of their own so a compressor
+ * set to some level never goes to a {@link DefaultCodec} writer.
+ */
+public class ZlibLevelCodec extends DefaultCodec {
+  private final int level;
+
+  /** Default constructor.  Compresses at zlib's default level. */
+  public ZlibLevelCodec() {
+    this(Deflater.DEFAULT_COMPRESSION);
+  }
+
+  /**
+   * @param level zlib level, 0 to 9, or -1 for zlib's default
+   */
+  public ZlibLevelCodec(final int level) {
+    this.level = level;
+  }
+
+  /** @return zlib level compressed at */
+  public int getLevel() {
+    return this.level;
+  }
+
+  /** {@inheritDoc} */
+  @SuppressWarnings("unchecked")
+  @Override
+  public Class getCompressorType() {
+    return LevelDeflater.class;
+  }
+
+  /** {@inheritDoc} */
+  @Override
+  public Compressor createCompressor() {
+    return new LevelDeflater(this.level);
+  }
+
+  /** {@inheritDoc} */
+  @Override
+  public CompressionOutputStream createOutputStream(final OutputStream out,
+      final Compressor compressor)
+  throws IOException {
+    if (compressor instanceof Deflater) {
+      // Takes effect from the first input after the stream's reset.
+      ((Deflater)compressor).setLevel(this.level);
+    }
+    return super.createOutputStream(out, compressor);
+  }
+
+  /**
+   * Compressor of a {@link ZlibLevelCodec}.
+   */
+  public static class LevelDeflater extends BuiltInZlibDeflater {
+    /**
+     * @param level zlib level, 0 to 9, or -1 for zlib's default
+     */
+    public LevelDeflater(final int level) {
+      super(level);
+    }
+  }
+}
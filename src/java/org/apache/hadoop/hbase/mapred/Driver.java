@@ -34,6 +34,8 @@ public class Driver {
     ProgramDriver pgd = new ProgramDriver();
     pgd.addClass(RowCounter.NAME, RowCounter.class,
       "Count rows in HBase table");
+    pgd.addClass(LoadHStoreFiles.NAME, LoadHStoreFiles.class,
+      "Load store files written by HStoreFileOutputFormat into a table");
     pgd.driver(args);
   }
 }
@@ -0,0 +1,183 @@
+/**
+ * Copyright 2008 The Apache Software Foundation
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.hadoop.hbase.mapred;
+
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.SortedMap;
+
+import org.apache.hadoop.fs.FileSystem;
+import org.apache.hadoop.fs.Path;
+import org.apache.hadoop.hbase.HBaseConfiguration;
+import org.apache.hadoop.hbase.HColumnDescriptor;
+import org.apache.hadoop.hbase.HRegion;
+import org.apache.hadoop.hbase.HRegionInfo;
+import org.apache.hadoop.hbase.HStoreFile;
+import org.apache.hadoop.hbase.HStoreKey;
+import org.apache.hadoop.hbase.HTable;
+import org.apache.hadoop.hbase.io.ImmutableBytesWritable;
+import org.apache.hadoop.io.MapFile;
+import org.apache.hadoop.io.Text;
+import org.apache.hadoop.mapred.FileAlreadyExistsException;
+import org.apache.hadoop.mapred.InvalidJobConfException;
+import org.apache.hadoop.mapred.JobConf;
+import org.apache.hadoop.mapred.OutputFormatBase;
+import org.apache.hadoop.mapred.RecordWriter;
+import org.apache.hadoop.mapred.Reporter;
+import org.apache.hadoop.util.Progressable;
+import org.apache.log4j.Logger;
+
+/**
+ * Write Map/Reduce output as HStoreFiles, one set per region of the table
+ * named by {@link TableOutputFormat#OUTPUT_TABLE}, for {@link LoadHStoreFiles}
+ * to then move into the live regions.  Cells skip the region servers' log and
+ * memcache.
+ *
+ * <p>Under the job output directory, files are laid out as they are under a
+ * table directory: <code>&lt;encoded region name>/&lt;family>/mapfiles</code>
+ * and so on.  Each reduce, or map if no reduce, must emit its keys in
+ * {@link HStoreKey} order.  Any partitioner will do: regions written by more
+ * than one task get a store file from each.  The output directory must be on
+ * the same filesystem as <code>hbase.rootdir</code>.
+ */
+public class HStoreFileOutputFormat
+extends OutputFormatBase<HStoreKey, ImmutableBytesWritable> {
+  static final Logger LOG =
+    Logger.getLogger(HStoreFileOutputFormat.class.getName());
+
+  /**
+   * Writes store files for the region holding the current row, moving on to
+   * a new set when a row falls past the region's end.
+   */
+  protected static class HStoreFileRecordWriter
+  implements RecordWriter<HStoreKey, ImmutableBytesWritable> {
+    private final HBaseConfiguration m_conf;
+    private final FileSystem m_fs;
+    private final Path m_outputDir;
+    private final HTable m_table;
+    private final SortedMap<Text, HColumnDescriptor> m_families;
+    private final Map<Text, MapFile.Writer> m_writers =
+      new HashMap<Text, MapFile.Writer>();
+    private final Map<Text, HStoreFile> m_files =
+      new HashMap<Text, HStoreFile>();
+    private HRegionInfo m_region = null;
+    private final Progressable m_progress;
+
+    /**
+     * @param conf
+     * @param fs Filesystem of <code>outputDir</code>
+     * @param outputDir
+     * @param table
+     * @param progress
+     * @throws IOException
+     */
+    public HStoreFileRecordWriter(HBaseConfiguration conf, FileSystem fs,
+        Path outputDir, HTable table, Progressable progress)
+    throws IOException {
+      m_conf = conf;
+      m_fs = fs;
+      m_outputDir = outputDir;
+      m_table = table;
+      m_families = table.getMetadata().getFamilies();
+      m_progress = progress;
+    }
+
+    /** {@inheritDoc} */
+    public void write(HStoreKey key, ImmutableBytesWritable value)
+    throws IOException {
+      if (m_region == null || !HRegion.rowIsInRange(m_region, key.getRow())) {
+        closeWriters();
+        m_region = m_table.getRegionLocation(key.getRow()).getRegionInfo();
+      }
+      Text family =
+        HStoreKey.extractFamily(key.getColumn(), true).toText();
+      MapFile.Writer w = m_writers.get(family);
+      if (w == null) {
+        HColumnDescriptor descriptor = m_families.get(family);
+        if (descriptor == null) {
+          throw new IOException("No family " + family + " in table " +
+            m_table.getTableName());
+        }
+        HStoreFile hsf = new HStoreFile(m_conf, m_fs, m_outputDir,
+          m_region.getEncodedName(), descriptor.getFamilyName(), -1, null);
+        w = hsf.getWriter(m_fs, descriptor,
+          HStoreFile.createBloomFilter(descriptor));
+        m_writers.put(family, w);
+        m_files.put(family, hsf);
+      }
+      w.append(key, value);
+    }
+
+    /** {@inheritDoc} */
+    public void close(@SuppressWarnings("unused") Reporter reporter)
+    throws IOException {
+      closeWriters();
+    }
+
+    /*
+     * Close the current region's writers and write their info files.  The
+     * sequence id written is replaced when the files are loaded.
+     */
+    private void closeWriters() throws IOException {
+      for (Map.Entry<Text, MapFile.Writer> e: m_writers.entrySet()) {
+        e.getValue().close();
+        m_files.get(e.getKey()).writeInfo(m_fs, 0);
+        if (m_progress != null) {
+          m_progress.progress();
+        }
+      }
+      m_writers.clear();
+      m_files.clear();
+    }
+  }
+
+  /** {@inheritDoc} */
+  @Override
+  @SuppressWarnings("unchecked")
+  public RecordWriter getRecordWriter(
+      @SuppressWarnings("unused") FileSystem ignored,
+      JobConf job,
+      @SuppressWarnings("unused") String name,
+      Progressable progress) throws IOException {
+    Text tableName = new Text(job.get(TableOutputFormat.OUTPUT_TABLE));
+    HBaseConfiguration conf = new HBaseConfiguration(job);
+    HTable table = null;
+    try {
+      table = new HTable(conf, tableName);
+    } catch(IOException e) {
+      LOG.error(e);
+      throw e;
+    }
+    Path outputDir = job.getOutputPath();
+    return new HStoreFileRecordWriter(conf, outputDir.getFileSystem(job),
+      outputDir, table, progress);
+  }
+
+  /** {@inheritDoc} */
+  @Override
+  public void checkOutputSpecs(FileSystem ignored, JobConf job)
+  throws FileAlreadyExistsException, InvalidJobConfException, IOException {
+    if (job.get(TableOutputFormat.OUTPUT_TABLE) == null) {
+      throw new IOException("Must specify table name");
+    }
+    super.checkOutputSpecs(ignored, job);
+  }
+}
@@ -0,0 +1,146 @@
+/**
+ * Copyright 2008 The Apache Software Foundation
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.hadoop.hbase.mapred;
+
+import java.io.IOException;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.fs.FileStatus;
+import org.apache.hadoop.fs.FileSystem;
+import org.apache.hadoop.fs.Path;
+import org.apache.hadoop.hbase.HBaseConfiguration;
+import org.apache.hadoop.hbase.HRegionLocation;
+import org.apache.hadoop.hbase.HStoreKey;
+import org.apache.hadoop.hbase.HTable;
+import org.apache.hadoop.hbase.io.ImmutableBytesWritable;
+import org.apache.hadoop.io.MapFile;
+import org.apache.hadoop.io.Text;
+import org.apache.hadoop.util.Tool;
+import org.apache.hadoop.util.ToolRunner;
+
+/**
+ * Move the store files written by a job using {@link HStoreFileOutputFormat}
+ * into the live regions of a table.  Each region directory of the job output
+ * is handed to the server carrying the region that holds its first row.  If
+ * the region has split since the job ran, its files may no longer fit and the
+ * load of that directory fails; rerun the job.
+ */
+public class LoadHStoreFiles implements Tool {
+  /* Name of this 'program'
+   */
+  static final String NAME = "loadhstorefiles";
+
+  private static final Log LOG = LogFactory.getLog(LoadHStoreFiles.class);
+
+  private Configuration conf;
+
+  /**
+   * Load every region directory found under <code>outputDir</code>.
+   * @param outputDir Output directory of a job that used
+   * {@link HStoreFileOutputFormat}.
+   * @param table
+   * @return Count of region directories loaded.
+   * @throws IOException
+   */
+  public int load(final Path outputDir, final HTable table)
+  throws IOException {
+    FileSystem fs = outputDir.getFileSystem(getConf());
+    int count = 0;
+    for (FileStatus region: fs.listStatus(outputDir)) {
+      Path dir = region.getPath();
+      // Skip job side files such as _logs.
+      if (!region.isDir() || dir.getName().startsWith("_")) {
+        continue;
+      }
+      Text row = getFirstRow(fs, dir);
+      if (row == null) {
+        continue;
+      }
+      HRegionLocation location = table.getRegionLocation(row);
+      LOG.info("Loading " + dir + " into " +
+        location.getRegionInfo().getRegionName());
+      table.getConnection().getHRegionConnection(location.getServerAddress()).
+        loadStoreFiles(location.getRegionInfo().getRegionName(),
+          fs.makeQualified(dir).toString());
+      count++;
+    }
+    return count;
+  }
+
+  /*
+   * @return First row of the first store file found under the region
+   * directory <code>dir</code> or null if there are none.
+   */
+  private Text getFirstRow(final FileSystem fs, final Path dir)
+  throws IOException {
+    for (FileStatus family: fs.listStatus(dir)) {
+      Path mapdir = new Path(family.getPath(), "mapfiles");
+      if (!fs.exists(mapdir)) {
+        continue;
+      }
+      for (FileStatus file: fs.listStatus(mapdir)) {
+        MapFile.Reader reader =
+          new MapFile.Reader(fs, file.getPath().toString(), getConf());
+        try {
+          HStoreKey key = new HStoreKey();
+          if (reader.next(key, new ImmutableBytesWritable())) {
+            return key.getRow();
+          }
+        } finally {
+          reader.close();
+        }
+      }
+    }
+    return null;
+  }
+
+  static int printUsage() {
+    System.out.println(NAME + " <outputdir> <tablename>");
+    return -1;
+  }
+
+  public int run(final String[] args) throws Exception {
+    if (args.length != 2) {
+      System.err.println("ERROR: Wrong number of parameters: " + args.length);
+      return printUsage();
+    }
+    HTable table = new HTable(new HBaseConfiguration(getConf()),
+      new Text(args[1]));
+    int count = load(new Path(args[0]), table);
+    LOG.info("Loaded " + count + " region director(ies) from " + args[0]);
+    return 0;
+  }
+
+  public Configuration getConf() {
+    return this.conf;
+  }
+
+  public void setConf(final Configuration c) {
+    this.conf = c;
+  }
+
+  public static void main(String[] args) throws Exception {
+    int errCode = ToolRunner.run(new HBaseConfiguration(),
+      new LoadHStoreFiles(), args);
+    System.exit(errCode);
+  }
+}
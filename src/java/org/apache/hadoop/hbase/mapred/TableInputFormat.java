@@ -20,6 +20,8 @@
 package org.apache.hadoop.hbase.mapred;
 
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Map;
 import java.util.SortedMap;
 import java.util.TreeMap;
@@ -37,6 +39,9 @@ import org.apache.hadoop.mapred.RecordReader;
 import org.apache.hadoop.mapred.Reporter;
 
 import org.apache.hadoop.hbase.HBaseConfiguration;
+import org.apache.hadoop.hbase.HConstants;
+import org.apache.hadoop.hbase.HRegionInterface;
+import org.apache.hadoop.hbase.HRegionLocation;
 import org.apache.hadoop.hbase.HTable;
 import org.apache.hadoop.hbase.HScannerInterface;
 import org.apache.hadoop.hbase.HStoreKey;
@@ -56,6 +61,12 @@ implements InputFormat<HStoreKey, MapWritable>, JobConfigurable {
    * @see org.apache.hadoop.hbase.HAbstractScanner for column name wildcards
    */
   public static final String COLUMN_LIST = "hbase.mapred.tablecolumns";
+
+  /**
+   * Regions bigger than this many bytes are read by more than one map.
+   * Defaults to <code>hbase.hregion.max.filesize</code>.
+   */
+  public static final String SPLIT_MAXSIZE = "hbase.mapred.tablesplit.maxsize";
   
   private Text m_tableName;
   Text[] m_cols;
@@ -157,7 +168,11 @@ implements InputFormat<HStoreKey, MapWritable>, JobConfigurable {
   }
 
   /**
-   * A split will be created for each HRegion of the input table
+   * A split will be created for each HRegion of the input table.  Regions
+   * bigger than {@link #SPLIT_MAXSIZE} bytes are divided into pieces of about
+   * that size at rows taken from their largest store file.  Each split's
+   * location is the host of the region server serving the region so map
+   * tasks can run next to their data.
    *
    * @see org.apache.hadoop.mapred.InputFormat#getSplits(org.apache.hadoop.mapred.JobConf, int)
    */
@@ -167,15 +182,42 @@ implements InputFormat<HStoreKey, MapWritable>, JobConfigurable {
     if(startKeys == null || startKeys.length == 0) {
       throw new IOException("Expecting at least one region");
     }
-    InputSplit[] splits = new InputSplit[startKeys.length];
+    long maxSize = job.getLong(SPLIT_MAXSIZE,
+      job.getLong("hbase.hregion.max.filesize",
+        HConstants.DEFAULT_MAX_FILE_SIZE));
+    List<InputSplit> splits = new ArrayList<InputSplit>(startKeys.length);
     for(int i = 0; i < startKeys.length; i++) {
-      splits[i] = new TableSplit(m_tableName, startKeys[i],
-          ((i + 1) < startKeys.length) ? startKeys[i + 1] : new Text());
-      if (LOG.isDebugEnabled()) {
-        LOG.debug("split: " + i + "->" + splits[i]);
+      Text endKey =
+        ((i + 1) < startKeys.length) ? startKeys[i + 1] : new Text();
+      HRegionLocation location = m_table.getRegionLocation(startKeys[i]);
+      String host = location.getServerAddress().getInetSocketAddress().
+        getHostName();
+      Text [] splitRows = null;
+      try {
+        HRegionInterface server = m_table.getConnection().
+          getHRegionConnection(location.getServerAddress());
+        splitRows = server.getSplitRows(
+          location.getRegionInfo().getRegionName(), maxSize);
+      } catch (IOException e) {
+        // Not fatal; read the region in one piece.
+        LOG.warn("Failed getting split rows for " +
+          location.getRegionInfo().getRegionName(), e);
+      }
+      Text startRow = startKeys[i];
+      if (splitRows != null) {
+        for (int j = 0; j < splitRows.length; j++) {
+          splits.add(new TableSplit(m_tableName, startRow, splitRows[j], host));
+          startRow = splitRows[j];
+        }
+      }
+      splits.add(new TableSplit(m_tableName, startRow, endKey, host));
+    }
+    if (LOG.isDebugEnabled()) {
+      for (int i = 0; i < splits.size(); i++) {
+        LOG.debug("split: " + i + "->" + splits.get(i));
       }
     }
-    return splits;
+    return splits.toArray(new InputSplit[splits.size()]);
   }
 
   public void configure(JobConf job) {
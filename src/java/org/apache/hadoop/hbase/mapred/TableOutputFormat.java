@@ -20,7 +20,10 @@
 package org.apache.hadoop.hbase.mapred;
 
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Map;
+import java.util.Random;
 
 import org.apache.hadoop.fs.FileSystem;
 import org.apache.hadoop.io.MapWritable;
@@ -36,6 +39,7 @@ import org.apache.hadoop.util.Progressable;
 
 import org.apache.hadoop.hbase.HBaseConfiguration;
 import org.apache.hadoop.hbase.HTable;
+import org.apache.hadoop.hbase.io.BatchUpdate;
 import org.apache.hadoop.hbase.io.ImmutableBytesWritable;
 
 import org.apache.log4j.Logger;
@@ -49,6 +53,12 @@ public class TableOutputFormat
   /** JobConf parameter that specifies the output table */
   public static final String OUTPUT_TABLE = "hbase.mapred.outputtable";
 
+  /**
+   * JobConf parameter that specifies how many rows to collect before sending
+   * them to the table.  Rows are sent in one call per region.
+   */
+  public static final String BATCH_SIZE = "hbase.mapred.outputtable.batchsize";
+
   static final Logger LOG = Logger.getLogger(TableOutputFormat.class.getName());
 
   /** constructor */
@@ -63,6 +73,9 @@ public class TableOutputFormat
   protected class TableRecordWriter
     implements RecordWriter<Text, MapWritable> {
     private HTable m_table;
+    private final int m_batchSize;
+    private final List<BatchUpdate> m_updates;
+    private final Random m_rand = new Random();
 
     /**
      * Instantiate a TableRecordWriter with the HBase HClient for writing.
@@ -70,23 +83,50 @@ public class TableOutputFormat
      * @param table
      */
     public TableRecordWriter(HTable table) {
+      this(table, 1);
+    }
+
+    /**
+     * Instantiate a TableRecordWriter with the HBase HClient for writing.
+     * 
+     * @param table
+     * @param batchSize How many rows to collect before committing them.
+     */
+    public TableRecordWriter(HTable table, int batchSize) {
       m_table = table;
+      m_batchSize = Math.max(1, batchSize);
+      m_updates = new ArrayList<BatchUpdate>(m_batchSize);
     }
 
     /** {@inheritDoc} */
-    public void close(@SuppressWarnings("unused") Reporter reporter) {
-      // Nothing to do.
+    public void close(@SuppressWarnings("unused") Reporter reporter)
+    throws IOException {
+      flush();
     }
 
     /** {@inheritDoc} */
     public void write(Text key, MapWritable value) throws IOException {
-      long xid = m_table.startUpdate(key);              // start transaction
-
+      BatchUpdate b = new BatchUpdate(m_rand.nextLong());
+      long lid = b.startUpdate(new Text(key));
       for (Map.Entry<Writable, Writable> e: value.entrySet()) {
-        m_table.put(xid, (Text)e.getKey(),
+        // Copy the column; callers may reuse it before we flush.
+        b.put(lid, new Text((Text)e.getKey()),
             ((ImmutableBytesWritable)e.getValue()).get());
       }
-      m_table.commit(xid);                              // end transaction
+      m_updates.add(b);
+      if (m_updates.size() >= m_batchSize) {
+        flush();
+      }
+    }
+
+    private void flush() throws IOException {
+      if (m_updates.size() > 0) {
+        try {
+          m_table.commit(m_updates);
+        } finally {
+          m_updates.clear();
+        }
+      }
     }
   }
   
@@ -109,7 +149,7 @@ public class TableOutputFormat
       LOG.error(e);
       throw e;
     }
-    return new TableRecordWriter(table);
+    return new TableRecordWriter(table, job.getInt(BATCH_SIZE, 100));
   }
 
   /** {@inheritDoc} */
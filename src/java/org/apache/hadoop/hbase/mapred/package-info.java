@@ -75,6 +75,14 @@ regions and makes a map-per-region.  Writing, its better to have lots of
 reducers so load is spread across the hbase cluster.
 </p>
 
+<p>For bulk loads, {@link org.apache.hadoop.hbase.mapred.HStoreFileOutputFormat HStoreFileOutputFormat}
+skips the regionservers and writes store files, split by region, into the job output directory.
+Reducers must emit their keys in {@link org.apache.hadoop.hbase.HStoreKey HStoreKey} order.
+After the job, run {@link org.apache.hadoop.hbase.mapred.LoadHStoreFiles LoadHStoreFiles}
+(<code>loadhstorefiles</code> in the mapred Driver) to move the files into the live regions.
+The job output directory must be on the same filesystem as <code>hbase.rootdir</code>.
+</p>
+
 <h2>Example Code</h2>
 <h3>Sample Row Counter</h3>
 <p>See {@link org.apache.hadoop.hbase.mapred.RowCounter}.  You should be able to run
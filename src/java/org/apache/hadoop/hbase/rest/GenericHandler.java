@@ -70,6 +70,7 @@ public abstract class GenericHandler {
     XML("text/xml"),
     PLAIN("text/plain"),
     MIME("multipart/related"),
+    BINARY("application/octet-stream"),
     NOT_ACCEPTABLE("");
     
     private final String type;
@@ -19,6 +19,8 @@
  */
 package org.apache.hadoop.hbase.rest;
 
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
 import java.io.IOException;
 import java.net.URLDecoder;
 import java.util.HashMap;
@@ -43,15 +45,35 @@ import org.znerd.xmlenc.XMLOutputter;
 
 /**
  * ScannderHandler fields all scanner related requests. 
+ * 
+ * <p>A POST to a scanner returns its next row.  To move many rows per
+ * request, pass <code>max_rows</code>, <code>max_bytes</code> or both: rows
+ * are then written to the response as they are scanned, in one document,
+ * until either budget is spent or the scanner is done.  At least one row is
+ * always returned.  No content length is set, so HTTP/1.1 clients get the
+ * rows with chunked transfer encoding.  Batches of XML are a
+ * <code>rows</code> element of <code>row</code> elements; batches of MIME
+ * repeat the row, timestamp and column parts for each row.
+ *
+ * <p>Bulk clients may instead accept <code>application/octet-stream</code>,
+ * which always returns a batch: for each row, the row length as an int and
+ * the row, the timestamp as a long, the column count as an int, then for
+ * each column the name length as an int, the name, the value length as an
+ * int and the value.  The rows end with the response.
+ *
+ * <p>Once a batch has started, an error can no longer change the response
+ * status; the client sees the response cut short.
  */
 public class ScannerHandler extends GenericHandler {
+  private static final String MAX_ROWS = "max_rows";
+  private static final String MAX_BYTES = "max_bytes";
 
   public ScannerHandler(HBaseConfiguration conf, HBaseAdmin admin) 
   throws ServletException{
     super(conf, admin);
   }
     
-  private class ScannerRecord {
+  static class ScannerRecord {
     private final HScannerInterface scanner;
     private HStoreKey key = null;
     private SortedMap<Text, byte []> value = null;
@@ -90,6 +112,17 @@ public class ScannerHandler extends GenericHandler {
       this.isEmpty = !this.scanner.next(this.key, this.value);
       return !this.isEmpty;
     }
+    
+    /**
+     * @return Size of the current row, columns and values, in bytes.
+     */
+    public long getSize() {
+      long size = this.key.getRow().getLength();
+      for (Map.Entry<Text, byte []> e: this.value.entrySet()) {
+        size += e.getKey().getLength() + e.getValue().length;
+      }
+      return size;
+    }
   }
   
   /*
@@ -133,7 +166,8 @@ public class ScannerHandler extends GenericHandler {
   }
   
   /*
-   * Advance scanner and return current position.
+   * Advance scanner and return current position, or the rows up to the
+   * batch budget if one was asked for.
    * @param request
    * @param response
    * @param scannerid
@@ -148,35 +182,142 @@ public class ScannerHandler extends GenericHandler {
       return;
     }
 
-    if (sr.next()) {
-      switch (ContentType.getContentType(request.getHeader(ACCEPT))) {
-        case XML:
-          outputScannerEntryXML(response, sr);
-          break;
-        case MIME:
-          outputScannerEntryMime(response, sr);
-          break;
-        default:
-          doNotAcceptable(response);
-      }
+    ContentType type = ContentType.getContentType(request.getHeader(ACCEPT));
+    if (type != ContentType.XML && type != ContentType.MIME &&
+        type != ContentType.BINARY) {
+      doNotAcceptable(response);
+      return;
     }
-    else{
+    
+    int maxRows;
+    long maxBytes;
+    try {
+      maxRows = request.getParameter(MAX_ROWS) == null? 0:
+        Integer.parseInt(request.getParameter(MAX_ROWS));
+      maxBytes = request.getParameter(MAX_BYTES) == null? 0:
+        Long.parseLong(request.getParameter(MAX_BYTES));
+    } catch (NumberFormatException e) {
+      response.sendError(HttpServletResponse.SC_BAD_REQUEST,
+        MAX_ROWS + " and " + MAX_BYTES + " must be numbers");
+      return;
+    }
+    boolean batch = maxRows > 0 || maxBytes > 0 || type == ContentType.BINARY;
+
+    // A batch may have ended on the scanner's last row.
+    if (sr.isEmpty() || !sr.next()) {
       this.scanners.remove(scannerid);
       doNotFound(response, "Scanner is expended");
+      return;
+    }
+    
+    switch (type) {
+      case XML:
+        if (batch) {
+          outputScannerEntriesXML(response, sr, maxRows, maxBytes);
+        } else {
+          outputScannerEntryXML(response, sr);
+        }
+        break;
+      case MIME:
+        if (batch) {
+          outputScannerEntriesMime(response, sr, maxRows, maxBytes);
+        } else {
+          outputScannerEntryMime(response, sr);
+        }
+        break;
+      default:
+        outputScannerEntriesBinary(response, sr, maxRows, maxBytes);
     }
   }
+  
+  /*
+   * Writes a row of a batch in the format the client asked for.
+   */
+  interface RowWriter {
+    void write(ScannerRecord sr) throws IOException;
+  }
+
+  /*
+   * Write the current row of the scanner, then its next rows until either
+   * budget is spent or the scanner is done.  At least one row is written.
+   * @param sr
+   * @param writer
+   * @param maxRows Row budget, or 0 if none
+   * @param maxBytes Byte budget, or 0 if none
+   * @return Count of rows written.
+   * @throws IOException
+   */
+  static int writeBatch(final ScannerRecord sr, final RowWriter writer,
+      final int maxRows, final long maxBytes)
+  throws IOException {
+    int rows = 0;
+    long bytes = 0;
+    do {
+      writer.write(sr);
+      rows++;
+      bytes += sr.getSize();
+    } while (nextInBatch(sr, rows, bytes, maxRows, maxBytes));
+    return rows;
+  }
+
+  /*
+   * Call after writing a row of a batch.
+   * @param sr
+   * @param rows Rows written so far
+   * @param bytes Bytes of rows written so far
+   * @param maxRows Row budget, or 0 if none
+   * @param maxBytes Byte budget, or 0 if none
+   * @return True if the budgets allow another row and the scanner has one.
+   * @throws IOException
+   */
+  private static boolean nextInBatch(final ScannerRecord sr, final int rows,
+      final long bytes, final int maxRows, final long maxBytes)
+  throws IOException {
+    if (maxRows > 0 && rows >= maxRows) {
+      return false;
+    }
+    if (maxBytes > 0 && bytes >= maxBytes) {
+      return false;
+    }
+    if (maxRows <= 0 && maxBytes <= 0) {
+      // Binary with no budget: one row, like the other types.
+      return false;
+    }
+    return sr.next();
+  }
 
   private void outputScannerEntryXML(final HttpServletResponse response,
     final ScannerRecord sr)
   throws IOException {
-    HStoreKey key = sr.getKey();
-    
     // respond with a 200 and Content-type: text/xml
     setResponseHeader(response, 200, ContentType.XML.toString());
     
     // setup an xml outputter
     XMLOutputter outputter = getXMLOutputter(response.getWriter());
-    
+    outputRowXml(outputter, sr);
+    outputter.endDocument();
+    outputter.getWriter().close();
+  }
+  
+  private void outputScannerEntriesXML(final HttpServletResponse response,
+    final ScannerRecord sr, final int maxRows, final long maxBytes)
+  throws IOException {
+    setResponseHeader(response, 200, ContentType.XML.toString());
+    final XMLOutputter outputter = getXMLOutputter(response.getWriter());
+    outputter.startTag("rows");
+    writeBatch(sr, new RowWriter() {
+      public void write(final ScannerRecord r) throws IOException {
+        outputRowXml(outputter, r);
+      }
+    }, maxRows, maxBytes);
+    outputter.endDocument();
+    outputter.getWriter().close();
+  }
+  
+  private void outputRowXml(final XMLOutputter outputter,
+    final ScannerRecord sr)
+  throws IOException {
+    HStoreKey key = sr.getKey();
     outputter.startTag(ROW);
     
     // write the row key
@@ -195,12 +336,29 @@ public class ScannerHandler extends GenericHandler {
     
     outputColumnsXml(outputter, sr.getValue());
     outputter.endTag();
-    outputter.endDocument();
-    outputter.getWriter().close();
   }
 
   private void outputScannerEntryMime(final HttpServletResponse response,
     final ScannerRecord sr)
+  throws IOException {
+    MultiPartResponse mpr = startMime(response);
+    outputRowMime(mpr, sr);
+    mpr.close();
+  }
+  
+  private void outputScannerEntriesMime(final HttpServletResponse response,
+    final ScannerRecord sr, final int maxRows, final long maxBytes)
+  throws IOException {
+    final MultiPartResponse mpr = startMime(response);
+    writeBatch(sr, new RowWriter() {
+      public void write(final ScannerRecord r) throws IOException {
+        outputRowMime(mpr, r);
+      }
+    }, maxRows, maxBytes);
+    mpr.close();
+  }
+  
+  private MultiPartResponse startMime(final HttpServletResponse response)
   throws IOException {
     response.setStatus(200);
     // This code ties me to the jetty server.
@@ -213,6 +371,12 @@ public class ScannerHandler extends GenericHandler {
     // content-type; They get stripped.  Can't set boundary, etc.
     // response.addHeader("Content-Type", ct);
     response.setContentType(ct);
+    return mpr;
+  }
+  
+  private void outputRowMime(final MultiPartResponse mpr,
+    final ScannerRecord sr)
+  throws IOException {
     // Write row, key-column and timestamp each in its own part.
     mpr.startPart("application/octet-stream",
         new String [] {"Content-Description: row",
@@ -239,7 +403,43 @@ public class ScannerHandler extends GenericHandler {
     mpr.getOut().write(timestampBytes);
     // Write out columns
     outputColumnsMime(mpr, sr.getValue());
-    mpr.close();
+  }
+  
+  private void outputScannerEntriesBinary(final HttpServletResponse response,
+    final ScannerRecord sr, final int maxRows, final long maxBytes)
+  throws IOException {
+    response.setStatus(200);
+    response.setContentType(ContentType.BINARY.toString());
+    final DataOutputStream out = new DataOutputStream(
+      new BufferedOutputStream(response.getOutputStream()));
+    writeBatch(sr, new RowWriter() {
+      public void write(final ScannerRecord r) throws IOException {
+        outputRowBinary(out, r);
+      }
+    }, maxRows, maxBytes);
+    out.close();
+  }
+
+  /*
+   * Write a row in the application/octet-stream format.
+   * @param out
+   * @param sr
+   * @throws IOException
+   */
+  static void outputRowBinary(final DataOutputStream out,
+    final ScannerRecord sr)
+  throws IOException {
+    Text row = sr.getKey().getRow();
+    out.writeInt(row.getLength());
+    out.write(row.getBytes(), 0, row.getLength());
+    out.writeLong(sr.getKey().getTimestamp());
+    out.writeInt(sr.getValue().size());
+    for (Map.Entry<Text, byte []> e: sr.getValue().entrySet()) {
+      out.writeInt(e.getKey().getLength());
+      out.write(e.getKey().getBytes(), 0, e.getKey().getLength());
+      out.writeInt(e.getValue().length);
+      out.write(e.getValue());
+    }
   }
   
   /*
@@ -244,6 +244,18 @@ service Hbase {
   map<Text, Bytes> getRowTs(1:Text tableName, 2:Text row, 3:i64 timestamp)
     throws (1:IOError io)
 
+  /** 
+   * Get all the data for the specified table and rows at the latest
+   * timestamp.  All rows are fetched in one round trip.
+   * 
+   * @param tableName of table
+   * @param rows row keys
+   * @return a ScanEntry for each row, in the order asked for.  Its columns
+   * are empty if the row does not exist.
+   */
+  list<ScanEntry> getRows(1:Text tableName, 2:list<Text> rows)
+    throws (1:IOError io)
+
   /** 
    * Put a single value at the specified table, row, and column.
    * To put muliple values in a single transaction, or to specify 
@@ -426,6 +438,19 @@ service Hbase {
   ScanEntry scannerGet(1:ScannerID id)
     throws (1:IOError io, 2:IllegalArgument ia, 3:NotFound nf)
 
+  /**
+   * Returns up to nbRows rows from the scanner's current position and
+   * advances past them.  Use it to fetch many rows per round trip.
+   *
+   * @param id id of a scanner returned by scannerOpen
+   * @param nbRows most rows to return
+   * @return a ScanEntry object for each row.  Fewer than nbRows are
+   * returned when the scanner reaches the end; none once it is there.
+   * @throws IllegalArgument if ScannerID is invalid
+   */
+  list<ScanEntry> scannerGetList(1:ScannerID id, 2:i32 nbRows)
+    throws (1:IOError io, 2:IllegalArgument ia)
+
   /**
    * Closes the server-state associated with an open scanner.
    *
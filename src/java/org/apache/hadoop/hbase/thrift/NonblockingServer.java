@@ -0,0 +1,299 @@
+/**
+ * Copyright 2008 The Apache Software Foundation
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.hadoop.hbase.thrift;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.util.Iterator;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
+import com.facebook.thrift.TException;
+import com.facebook.thrift.TProcessor;
+import com.facebook.thrift.TProcessorFactory;
+import com.facebook.thrift.protocol.TProtocolFactory;
+import com.facebook.thrift.server.TServer;
+import com.facebook.thrift.transport.TIOStreamTransport;
+
+/**
+ * A half-sync/half-async Thrift server.  One thread multiplexes all client
+ * connections with a selector, reading and writing whole frames without
+ * blocking; a fixed pool of workers runs the calls.  Connections cost a
+ * buffer, not a thread, so one server can hold many thousands of mostly idle
+ * clients.
+ *
+ * <p>Clients must use {@link com.facebook.thrift.transport.TFramedTransport}:
+ * each call is a four byte big-endian length followed by that many bytes.
+ * A connection has at most one call running at a time.
+ */
+public class NonblockingServer extends TServer {
+  static final Log LOG = LogFactory.getLog(NonblockingServer.class);
+
+  private final int port;
+  private final TProtocolFactory protocolFactory;
+  private final int maxFrameSize;
+  private final ExecutorService workers;
+  // Connections whose calls have finished, to be switched to writing by the
+  // selector thread.
+  private final ConcurrentLinkedQueue<Connection> replies =
+    new ConcurrentLinkedQueue<Connection>();
+  private volatile boolean stopped = false;
+  private Selector selector;
+
+  /**
+   * @param processor Processor that runs the calls
+   * @param port Port to listen on
+   * @param protocolFactory Protocol calls and replies are encoded with
+   * @param workerThreads Threads that run calls
+   * @param maxFrameSize Connections that send a larger call are closed
+   */
+  public NonblockingServer(final TProcessor processor, final int port,
+      final TProtocolFactory protocolFactory, final int workerThreads,
+      final int maxFrameSize) {
+    super(new TProcessorFactory(processor), null);
+    this.port = port;
+    this.protocolFactory = protocolFactory;
+    this.maxFrameSize = maxFrameSize;
+    this.workers = Executors.newFixedThreadPool(workerThreads);
+  }
+
+  /** {@inheritDoc} */
+  @Override
+  public void serve() {
+    ServerSocketChannel server = null;
+    try {
+      this.selector = Selector.open();
+      server = ServerSocketChannel.open();
+      server.configureBlocking(false);
+      server.socket().setReuseAddress(true);
+      server.socket().bind(new InetSocketAddress(this.port));
+      server.register(this.selector, SelectionKey.OP_ACCEPT);
+      while (!this.stopped) {
+        this.selector.select();
+        Connection c;
+        while ((c = this.replies.poll()) != null) {
+          c.startWrite();
+        }
+        Iterator<SelectionKey> i = this.selector.selectedKeys().iterator();
+        while (i.hasNext()) {
+          SelectionKey key = i.next();
+          i.remove();
+          if (!key.isValid()) {
+            continue;
+          }
+          if (key.isAcceptable()) {
+            accept(server);
+          } else if (key.isReadable()) {
+            ((Connection)key.attachment()).read();
+          } else if (key.isWritable()) {
+            ((Connection)key.attachment()).write();
+          }
+        }
+      }
+    } catch (IOException e) {
+      LOG.error("Thrift server failed", e);
+    } finally {
+      this.workers.shutdown();
+      try {
+        this.workers.awaitTermination(60, TimeUnit.SECONDS);
+      } catch (InterruptedException e) {
+        // Go on closing.
+      }
+      if (this.selector != null) {
+        for (SelectionKey key: this.selector.keys()) {
+          close(key);
+        }
+        try {
+          this.selector.close();
+        } catch (IOException e) {
+          LOG.warn("Closing selector", e);
+        }
+      }
+      if (server != null) {
+        try {
+          server.close();
+        } catch (IOException e) {
+          LOG.warn("Closing server socket", e);
+        }
+      }
+    }
+  }
+
+  /** {@inheritDoc} */
+  @Override
+  public void stop() {
+    this.stopped = true;
+    if (this.selector != null) {
+      this.selector.wakeup();
+    }
+  }
+
+  private void accept(final ServerSocketChannel server) throws IOException {
+    SocketChannel channel = server.accept();
+    if (channel == null) {
+      return;
+    }
+    channel.configureBlocking(false);
+    channel.socket().setTcpNoDelay(true);
+    SelectionKey key = channel.register(this.selector, SelectionKey.OP_READ);
+    key.attach(new Connection(key));
+  }
+
+  private static void close(final SelectionKey key) {
+    key.cancel();
+    try {
+      key.channel().close();
+    } catch (IOException e) {
+      LOG.debug("Closing connection", e);
+    }
+  }
+
+  /*
+   * State of one client connection.  Only the selector thread reads and
+   * writes the socket; a worker only fills in the reply.
+   */
+  private class Connection implements Runnable {
+    private final SelectionKey key;
+    private final ByteBuffer sizeBuffer = ByteBuffer.allocate(4);
+    private ByteBuffer buffer = null;
+
+    Connection(final SelectionKey key) {
+      this.key = key;
+    }
+
+    /*
+     * Read what has arrived of the frame size, then of the frame.  Once the
+     * frame is complete, stop reading and hand the call to a worker.
+     */
+    void read() {
+      try {
+        if (this.buffer == null) {
+          if (channel().read(this.sizeBuffer) < 0) {
+            close(this.key);
+            return;
+          }
+          if (this.sizeBuffer.hasRemaining()) {
+            return;
+          }
+          this.sizeBuffer.flip();
+          int size = this.sizeBuffer.getInt();
+          this.sizeBuffer.clear();
+          if (size < 0 || size > maxFrameSize) {
+            LOG.warn("Closing connection from " +
+              channel().socket().getRemoteSocketAddress() + ": frame size " +
+              size + " is not between 0 and " + maxFrameSize +
+              "; is the client using a framed transport?");
+            close(this.key);
+            return;
+          }
+          this.buffer = ByteBuffer.allocate(size);
+        }
+        if (channel().read(this.buffer) < 0) {
+          close(this.key);
+          return;
+        }
+        if (this.buffer.hasRemaining()) {
+          return;
+        }
+        this.key.interestOps(0);
+        workers.execute(this);
+      } catch (IOException e) {
+        LOG.debug("Reading from connection", e);
+        close(this.key);
+      }
+    }
+
+    /*
+     * Run the call in the read frame.  The reply replaces the frame in the
+     * buffer, size first.
+     */
+    public void run() {
+      ByteArrayOutputStream out = new ByteArrayOutputStream();
+      // Leave room for the size.
+      out.write(0);
+      out.write(0);
+      out.write(0);
+      out.write(0);
+      try {
+        TIOStreamTransport transport = new TIOStreamTransport(
+          new ByteArrayInputStream(this.buffer.array()), out);
+        TProcessor processor = processorFactory_.getProcessor(transport);
+        processor.process(protocolFactory.getProtocol(transport),
+          protocolFactory.getProtocol(transport));
+      } catch (TException e) {
+        LOG.warn("Thrift error running call", e);
+        this.key.cancel();
+      } catch (Throwable t) {
+        LOG.error("Error running call", t);
+        this.key.cancel();
+      }
+      this.buffer = ByteBuffer.wrap(out.toByteArray());
+      this.buffer.putInt(0, this.buffer.capacity() - 4);
+      replies.add(this);
+      selector.wakeup();
+    }
+
+    void startWrite() {
+      if (!this.key.isValid()) {
+        close(this.key);
+        return;
+      }
+      try {
+        this.key.interestOps(SelectionKey.OP_WRITE);
+      } catch (IllegalStateException e) {
+        close(this.key);
+      }
+    }
+
+    /*
+     * Write what the socket takes of the reply.  Once it is all written,
+     * go back to reading the next call.
+     */
+    void write() {
+      try {
+        channel().write(this.buffer);
+        if (this.buffer.hasRemaining()) {
+          return;
+        }
+        this.buffer = null;
+        this.key.interestOps(SelectionKey.OP_READ);
+      } catch (IOException e) {
+        LOG.debug("Writing to connection", e);
+        close(this.key);
+      }
+    }
+
+    private SocketChannel channel() {
+      return (SocketChannel)this.key.channel();
+    }
+  }
+}
@@ -24,9 +24,12 @@ import java.util.AbstractMap;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.HashMap;
+import java.util.List;
 import java.util.SortedMap;
 import java.util.TreeMap;
 import java.util.Map.Entry;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
@@ -57,6 +60,7 @@ import com.facebook.thrift.server.TServer;
 import com.facebook.thrift.server.TThreadPoolServer;
 import com.facebook.thrift.transport.TServerSocket;
 import com.facebook.thrift.transport.TServerTransport;
+import com.facebook.thrift.transport.TTransportFactory;
 
 /**
  * ThriftServer - this class starts up a Thrift server which implements the
@@ -73,9 +77,10 @@ public class ThriftServer {
     protected HBaseAdmin admin = null;
     protected final Log LOG = LogFactory.getLog(this.getClass().getName());
 
-    // nextScannerId and scannerMap are used to manage scanner state
-    protected int nextScannerId = 0;
-    protected HashMap<Integer, HScannerInterface> scannerMap = null;
+    // nextScannerId and scannerMap are used to manage scanner state.  Calls
+    // on different scanners do not wait on each other.
+    protected final AtomicInteger nextScannerId = new AtomicInteger(0);
+    protected ConcurrentHashMap<Integer, HScannerInterface> scannerMap = null;
     
     /**
      * Creates and returns an HTable instance from a given table name.
@@ -98,8 +103,8 @@ public class ThriftServer {
      * @param scanner
      * @return integer scanner id
      */
-    protected synchronized int addScanner(HScannerInterface scanner) {
-      int id = nextScannerId++;
+    protected int addScanner(HScannerInterface scanner) {
+      int id = nextScannerId.getAndIncrement();
       scannerMap.put(id, scanner);
       return id;
     }
@@ -110,7 +115,7 @@ public class ThriftServer {
      * @param id
      * @return a HScannerInterface, or null if ID was invalid.
      */
-    protected synchronized HScannerInterface getScanner(int id) {
+    protected HScannerInterface getScanner(int id) {
       return scannerMap.get(id);
     }
     
@@ -121,7 +126,7 @@ public class ThriftServer {
      * @param id
      * @return a HScannerInterface, or null if ID was invalid.
      */
-    protected synchronized HScannerInterface removeScanner(int id) {
+    protected HScannerInterface removeScanner(int id) {
       return scannerMap.remove(id);
     }
     
@@ -133,7 +138,7 @@ public class ThriftServer {
     HBaseHandler() throws MasterNotRunningException {
       conf = new HBaseConfiguration();
       admin = new HBaseAdmin(conf);
-      scannerMap = new HashMap<Integer, HScannerInterface>();
+      scannerMap = new ConcurrentHashMap<Integer, HScannerInterface>();
     }
     
     /**
@@ -275,6 +280,29 @@ public class ThriftServer {
       }
     }
     
+    public ArrayList<ScanEntry> getRows(byte[] tableName,
+        ArrayList<byte[]> rows) throws IOError {
+      if (LOG.isDebugEnabled()) {
+        LOG.debug("getRows: table=" + new String(tableName) + ", rows="
+            + rows.size());
+      }
+      try {
+        HTable table = getTable(tableName);
+        List<Text> rowsText = new ArrayList<Text>(rows.size());
+        for (byte[] row : rows) {
+          rowsText.add(getText(row));
+        }
+        List<SortedMap<Text, byte[]>> values = table.getRows(rowsText);
+        ArrayList<ScanEntry> retval = new ArrayList<ScanEntry>(rows.size());
+        for (int i = 0; i < rows.size(); i++) {
+          retval.add(toScanEntry(rows.get(i), values.get(i)));
+        }
+        return retval;
+      } catch (IOException e) {
+        throw new IOError(e.getMessage());
+      }
+    }
+    
     public void put(byte[] tableName, byte[] row, byte[] column, byte[] value)
         throws IOError {
       if (LOG.isDebugEnabled()) {
@@ -447,12 +475,46 @@ public class ThriftServer {
       } catch (IOException e) {
         throw new IOError(e.getMessage());
       }
+      return toScanEntry(key.getRow().getBytes(), results);
+    }
+    
+    public ArrayList<ScanEntry> scannerGetList(int id, int nbRows)
+        throws IllegalArgument, IOError {
+      LOG.debug("scannerGetList: id=" + id + ", nbRows=" + nbRows);
+      if (nbRows < 1) {
+        throw new IllegalArgument("nbRows must be positive");
+      }
+      HScannerInterface scanner = getScanner(id);
+      if (scanner == null) {
+        throw new IllegalArgument("scanner ID is invalid");
+      }
       
+      ArrayList<ScanEntry> retval = new ArrayList<ScanEntry>();
+      try {
+        while (retval.size() < nbRows) {
+          // A new key each row: next() would reuse the row's bytes.
+          HStoreKey key = new HStoreKey();
+          TreeMap<Text, byte[]> results = new TreeMap<Text, byte[]>();
+          if (!scanner.next(key, results)) {
+            break;
+          }
+          retval.add(toScanEntry(key.getRow().getBytes(), results));
+        }
+      } catch (IOException e) {
+        throw new IOError(e.getMessage());
+      }
+      return retval;
+    }
+    
+    /*
+     * Copy a row from type <Text, byte[]> to a ScanEntry.
+     */
+    private ScanEntry toScanEntry(final byte[] row,
+        final SortedMap<Text, byte[]> values) {
       ScanEntry retval = new ScanEntry();
-      retval.row = key.getRow().getBytes();
-      retval.columns = new HashMap<byte[], byte[]>(results.size());
-      
-      for (SortedMap.Entry<Text, byte[]> e : results.entrySet()) {
+      retval.row = row;
+      retval.columns = new HashMap<byte[], byte[]>(values.size());
+      for (SortedMap.Entry<Text, byte[]> e : values.entrySet()) {
         retval.columns.put(e.getKey().getBytes(), e.getValue());
       }
       return retval;
@@ -568,6 +630,11 @@ public class ThriftServer {
   // Main program and support routines
   //
   
+  // Worker threads of the nonblocking server if not given.
+  private static final int DEFAULT_NONBLOCKING_WORKERS = 10;
+  // Largest call the nonblocking server reads.
+  private static final int MAX_FRAME_SIZE = 16 * 1024 * 1024;
+  
   private static void printUsageAndExit() {
     printUsageAndExit(null);
   }
@@ -577,13 +644,19 @@ public class ThriftServer {
       System.err.println(message);
     }
     System.out.println("Usage: java org.apache.hadoop.hbase.thrift.ThriftServer " +
-      "--help | [--port=PORT] start");
+      "--help | [--port=PORT] [--nonblocking] [--workers=N] start");
     System.out.println("Arguments:");
     System.out.println(" start Start thrift server");
     System.out.println(" stop  Stop thrift server");
     System.out.println("Options:");
     System.out.println(" port  Port to listen on. Default: 9090");
     // System.out.println(" bind  Address to bind on. Default: 0.0.0.0.");
+    System.out.println(" nonblocking Serve all connections from one " +
+      "selector thread.");
+    System.out.println("       Clients must use a framed transport.");
+    System.out.println(" workers Threads that run calls. Default: " +
+      DEFAULT_NONBLOCKING_WORKERS + " if nonblocking,");
+    System.out.println("       else a thread per connection, unbounded");
     System.out.println(" help  Print this message and exit");
     System.exit(0);
   }
@@ -598,12 +671,15 @@ public class ThriftServer {
     }
 
     int port = 9090;
+    boolean nonblocking = false;
+    int workers = -1;
     // String bindAddress = "0.0.0.0";
 
     // Process command-line args. TODO: Better cmd-line processing
     // (but hopefully something not as painful as cli options).
 //    final String addressArgKey = "--bind=";
     final String portArgKey = "--port=";
+    final String workersArgKey = "--workers=";
     for (String cmd: args) {
 //      if (cmd.startsWith(addressArgKey)) {
 //        bindAddress = cmd.substring(addressArgKey.length());
@@ -612,6 +688,15 @@ public class ThriftServer {
       if (cmd.startsWith(portArgKey)) {
         port = Integer.parseInt(cmd.substring(portArgKey.length()));
         continue;
+      } else if (cmd.equals("--nonblocking")) {
+        nonblocking = true;
+        continue;
+      } else if (cmd.startsWith(workersArgKey)) {
+        workers = Integer.parseInt(cmd.substring(workersArgKey.length()));
+        if (workers < 1) {
+          printUsageAndExit("workers must be positive");
+        }
+        continue;
       } else if (cmd.equals("--help") || cmd.equals("-h")) {
         printUsageAndExit();
       } else if (cmd.equals("start")) {
@@ -627,13 +712,25 @@ public class ThriftServer {
     }
     Log LOG = LogFactory.getLog("ThriftServer");
     LOG.info("starting HBase Thrift server on port " +
-      Integer.toString(port));
+      Integer.toString(port) + (nonblocking? " (nonblocking)": ""));
     HBaseHandler handler = new HBaseHandler();
     Hbase.Processor processor = new Hbase.Processor(handler);
-    TServerTransport serverTransport = new TServerSocket(port);
     TProtocolFactory protFactory = new TBinaryProtocol.Factory(true, true);
-    TServer server = new TThreadPoolServer(processor, serverTransport,
-      protFactory);
+    TServer server;
+    if (nonblocking) {
+      server = new NonblockingServer(processor, port, protFactory,
+        workers > 0? workers: DEFAULT_NONBLOCKING_WORKERS, MAX_FRAME_SIZE);
+    } else {
+      TServerTransport serverTransport = new TServerSocket(port);
+      TThreadPoolServer.Options options = new TThreadPoolServer.Options();
+      if (workers > 0) {
+        options.minWorkerThreads = Math.min(options.minWorkerThreads, workers);
+        options.maxWorkerThreads = workers;
+      }
+      TTransportFactory transportFactory = new TTransportFactory();
+      server = new TThreadPoolServer(processor, serverTransport,
+        transportFactory, transportFactory, protFactory, protFactory, options);
+    }
     server.serve();
   }
   
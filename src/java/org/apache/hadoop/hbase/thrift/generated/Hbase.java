@@ -135,6 +135,17 @@ public class Hbase {
      */
     public AbstractMap<byte[],byte[]> getRowTs(byte[] tableName, byte[] row, long timestamp) throws IOError, TException;
 
+    /**
+     * Get all the data for the specified table and rows at the latest
+     * timestamp.  All rows are fetched in one round trip.
+     * 
+     * @param tableName of table
+     * @param rows row keys
+     * @return a ScanEntry for each row, in the order asked for.  Its columns
+     * are empty if the row does not exist.
+     */
+    public ArrayList<ScanEntry> getRows(byte[] tableName, ArrayList<byte[]> rows) throws IOError, TException;
+
     /**
      * Put a single value at the specified table, row, and column.
      * To put muliple values in a single transaction, or to specify
@@ -293,6 +304,18 @@ public class Hbase {
      */
     public ScanEntry scannerGet(int id) throws IOError, IllegalArgument, NotFound, TException;
 
+    /**
+     * Returns up to nbRows rows from the scanner's current position and
+     * advances past them.  Use it to fetch many rows per round trip.
+     * 
+     * @param id id of a scanner returned by scannerOpen
+     * @param nbRows most rows to return
+     * @return a ScanEntry object for each row.  Fewer than nbRows are
+     * returned when the scanner reaches the end; none once it is there.
+     * @throws IllegalArgument if ScannerID is invalid
+     */
+    public ArrayList<ScanEntry> scannerGetList(int id, int nbRows) throws IOError, IllegalArgument, TException;
+
     /**
      * Closes the server-state associated with an open scanner.
      * 
@@ -704,6 +727,43 @@ public class Hbase {
       throw new TApplicationException(TApplicationException.MISSING_RESULT, "getRowTs failed: unknown result");
     }
 
+    public ArrayList<ScanEntry> getRows(byte[] tableName, ArrayList<byte[]> rows) throws IOError, TException
+    {
+      send_getRows(tableName, rows);
+      return recv_getRows();
+    }
+
+    public void send_getRows(byte[] tableName, ArrayList<byte[]> rows) throws TException
+    {
+      oprot_.writeMessageBegin(new TMessage("getRows", TMessageType.CALL, seqid_));
+      getRows_args args = new getRows_args();
+      args.tableName = tableName;
+      args.rows = rows;
+      args.write(oprot_);
+      oprot_.writeMessageEnd();
+      oprot_.getTransport().flush();
+    }
+
+    public ArrayList<ScanEntry> recv_getRows() throws IOError, TException
+    {
+      TMessage msg = iprot_.readMessageBegin();
+      if (msg.type == TMessageType.EXCEPTION) {
+        TApplicationException x = TApplicationException.read(iprot_);
+        iprot_.readMessageEnd();
+        throw x;
+      }
+      getRows_result result = new getRows_result();
+      result.read(iprot_);
+      iprot_.readMessageEnd();
+      if (result.__isset.success) {
+        return result.success;
+      }
+      if (result.__isset.io) {
+        throw result.io;
+      }
+      throw new TApplicationException(TApplicationException.MISSING_RESULT, "getRows failed: unknown result");
+    }
+
     public void put(byte[] tableName, byte[] row, byte[] column, byte[] value) throws IOError, TException
     {
       send_put(tableName, row, column, value);
@@ -1149,6 +1209,46 @@ public class Hbase {
       throw new TApplicationException(TApplicationException.MISSING_RESULT, "scannerGet failed: unknown result");
     }
 
+    public ArrayList<ScanEntry> scannerGetList(int id, int nbRows) throws IOError, IllegalArgument, TException
+    {
+      send_scannerGetList(id, nbRows);
+      return recv_scannerGetList();
+    }
+
+    public void send_scannerGetList(int id, int nbRows) throws TException
+    {
+      oprot_.writeMessageBegin(new TMessage("scannerGetList", TMessageType.CALL, seqid_));
+      scannerGetList_args args = new scannerGetList_args();
+      args.id = id;
+      args.nbRows = nbRows;
+      args.write(oprot_);
+      oprot_.writeMessageEnd();
+      oprot_.getTransport().flush();
+    }
+
+    public ArrayList<ScanEntry> recv_scannerGetList() throws IOError, IllegalArgument, TException
+    {
+      TMessage msg = iprot_.readMessageBegin();
+      if (msg.type == TMessageType.EXCEPTION) {
+        TApplicationException x = TApplicationException.read(iprot_);
+        iprot_.readMessageEnd();
+        throw x;
+      }
+      scannerGetList_result result = new scannerGetList_result();
+      result.read(iprot_);
+      iprot_.readMessageEnd();
+      if (result.__isset.success) {
+        return result.success;
+      }
+      if (result.__isset.io) {
+        throw result.io;
+      }
+      if (result.__isset.ia) {
+        throw result.ia;
+      }
+      throw new TApplicationException(TApplicationException.MISSING_RESULT, "scannerGetList failed: unknown result");
+    }
+
     public void scannerClose(int id) throws IOError, IllegalArgument, TException
     {
       send_scannerClose(id);
@@ -1200,6 +1300,7 @@ public class Hbase {
       processMap_.put("getVerTs", new getVerTs());
       processMap_.put("getRow", new getRow());
       processMap_.put("getRowTs", new getRowTs());
+      processMap_.put("getRows", new getRows());
       processMap_.put("put", new put());
       processMap_.put("mutateRow", new mutateRow());
       processMap_.put("mutateRowTs", new mutateRowTs());
@@ -1212,6 +1313,7 @@ public class Hbase {
       processMap_.put("scannerOpenTs", new scannerOpenTs());
       processMap_.put("scannerOpenWithStopTs", new scannerOpenWithStopTs());
       processMap_.put("scannerGet", new scannerGet());
+      processMap_.put("scannerGetList", new scannerGetList());
       processMap_.put("scannerClose", new scannerClose());
     }
 
@@ -1476,6 +1578,28 @@ public class Hbase {
 
     }
 
+    private class getRows implements ProcessFunction {
+      public void process(int seqid, TProtocol iprot, TProtocol oprot) throws TException
+      {
+        getRows_args args = new getRows_args();
+        args.read(iprot);
+        iprot.readMessageEnd();
+        getRows_result result = new getRows_result();
+        try {
+          result.success = iface_.getRows(args.tableName, args.rows);
+          result.__isset.success = true;
+        } catch (IOError io) {
+          result.io = io;
+          result.__isset.io = true;
+        }
+        oprot.writeMessageBegin(new TMessage("getRows", TMessageType.REPLY, seqid));
+        result.write(oprot);
+        oprot.writeMessageEnd();
+        oprot.getTransport().flush();
+      }
+
+    }
+
     private class put implements ProcessFunction {
       public void process(int seqid, TProtocol iprot, TProtocol oprot) throws TException
       {
@@ -1739,6 +1863,31 @@ public class Hbase {
 
     }
 
+    private class scannerGetList implements ProcessFunction {
+      public void process(int seqid, TProtocol iprot, TProtocol oprot) throws TException
+      {
+        scannerGetList_args args = new scannerGetList_args();
+        args.read(iprot);
+        iprot.readMessageEnd();
+        scannerGetList_result result = new scannerGetList_result();
+        try {
+          result.success = iface_.scannerGetList(args.id, args.nbRows);
+          result.__isset.success = true;
+        } catch (IOError io) {
+          result.io = io;
+          result.__isset.io = true;
+        } catch (IllegalArgument ia) {
+          result.ia = ia;
+          result.__isset.ia = true;
+        }
+        oprot.writeMessageBegin(new TMessage("scannerGetList", TMessageType.REPLY, seqid));
+        result.write(oprot);
+        oprot.writeMessageEnd();
+        oprot.getTransport().flush();
+      }
+
+    }
+
     private class scannerClose implements ProcessFunction {
       public void process(int seqid, TProtocol iprot, TProtocol oprot) throws TException
       {
@@ -4004,38 +4153,28 @@ public class Hbase {
 
   }
 
-  public static class put_args implements TBase, java.io.Serializable   {
+  public static class getRows_args implements TBase, java.io.Serializable   {
     public byte[] tableName;
-    public byte[] row;
-    public byte[] column;
-    public byte[] value;
+    public ArrayList<byte[]> rows;
 
     public final Isset __isset = new Isset();
     public static final class Isset {
       public boolean tableName = false;
-      public boolean row = false;
-      public boolean column = false;
-      public boolean value = false;
+      public boolean rows = false;
     }
 
-    public put_args() {
+    public getRows_args() {
     }
 
-    public put_args(
+    public getRows_args(
       byte[] tableName,
-      byte[] row,
-      byte[] column,
-      byte[] value)
+      ArrayList<byte[]> rows)
     {
       this();
       this.tableName = tableName;
       this.__isset.tableName = true;
-      this.row = row;
-      this.__isset.row = true;
-      this.column = column;
-      this.__isset.column = true;
-      this.value = value;
-      this.__isset.value = true;
+      this.rows = rows;
+      this.__isset.rows = true;
     }
 
     public void read(TProtocol iprot) throws TException {
@@ -4058,25 +4197,19 @@ public class Hbase {
             }
             break;
           case 2:
-            if (field.type == TType.STRING) {
-              this.row = iprot.readBinary();
-              this.__isset.row = true;
-            } else { 
-              TProtocolUtil.skip(iprot, field.type);
-            }
-            break;
-          case 3:
-            if (field.type == TType.STRING) {
-              this.column = iprot.readBinary();
-              this.__isset.column = true;
-            } else { 
-              TProtocolUtil.skip(iprot, field.type);
-            }
-            break;
-          case 4:
-            if (field.type == TType.STRING) {
-              this.value = iprot.readBinary();
-              this.__isset.value = true;
+            if (field.type == TType.LIST) {
+              {
+                TList _list40 = iprot.readListBegin();
+                this.rows = new ArrayList<byte[]>(_list40.size);
+                for (int _i41 = 0; _i41 < _list40.size; ++_i41)
+                {
+                  byte[] _elem42 = null;
+                  _elem42 = iprot.readBinary();
+                  this.rows.add(_elem42);
+                }
+                iprot.readListEnd();
+              }
+              this.__isset.rows = true;
             } else { 
               TProtocolUtil.skip(iprot, field.type);
             }
@@ -4091,7 +4224,7 @@ public class Hbase {
     }
 
     public void write(TProtocol oprot) throws TException {
-      TStruct struct = new TStruct("put_args");
+      TStruct struct = new TStruct("getRows_args");
       oprot.writeStructBegin(struct);
       TField field = new TField();
       if (this.tableName != null) {
@@ -4102,28 +4235,18 @@ public class Hbase {
         oprot.writeBinary(this.tableName);
         oprot.writeFieldEnd();
       }
-      if (this.row != null) {
-        field.name = "row";
-        field.type = TType.STRING;
+      if (this.rows != null) {
+        field.name = "rows";
+        field.type = TType.LIST;
         field.id = 2;
         oprot.writeFieldBegin(field);
-        oprot.writeBinary(this.row);
-        oprot.writeFieldEnd();
-      }
-      if (this.column != null) {
-        field.name = "column";
-        field.type = TType.STRING;
-        field.id = 3;
-        oprot.writeFieldBegin(field);
-        oprot.writeBinary(this.column);
-        oprot.writeFieldEnd();
-      }
-      if (this.value != null) {
-        field.name = "value";
-        field.type = TType.STRING;
-        field.id = 4;
-        oprot.writeFieldBegin(field);
-        oprot.writeBinary(this.value);
+        {
+          oprot.writeListBegin(new TList(TType.STRING, this.rows.size()));
+          for (byte[] _iter43 : this.rows)          {
+            oprot.writeBinary(_iter43);
+          }
+          oprot.writeListEnd();
+        }
         oprot.writeFieldEnd();
       }
       oprot.writeFieldStop();
@@ -4131,36 +4254,37 @@ public class Hbase {
     }
 
     public String toString() {
-      StringBuilder sb = new StringBuilder("put_args(");
+      StringBuilder sb = new StringBuilder("getRows_args(");
       sb.append("tableName:");
       sb.append(this.tableName);
-      sb.append(",row:");
-      sb.append(this.row);
-      sb.append(",column:");
-      sb.append(this.column);
-      sb.append(",value:");
-      sb.append(this.value);
+      sb.append(",rows:");
+      sb.append(this.rows);
       sb.append(")");
       return sb.toString();
     }
 
   }
 
-  public static class put_result implements TBase, java.io.Serializable   {
+  public static class getRows_result implements TBase, java.io.Serializable   {
+    public ArrayList<ScanEntry> success;
     public IOError io;
 
     public final Isset __isset = new Isset();
     public static final class Isset {
+      public boolean success = false;
       public boolean io = false;
     }
 
-    public put_result() {
+    public getRows_result() {
     }
 
-    public put_result(
+    public getRows_result(
+      ArrayList<ScanEntry> success,
       IOError io)
     {
       this();
+      this.success = success;
+      this.__isset.success = true;
       this.io = io;
       this.__isset.io = true;
     }
@@ -4176,6 +4300,25 @@ public class Hbase {
         }
         switch (field.id)
         {
+          case 0:
+            if (field.type == TType.LIST) {
+              {
+                TList _list44 = iprot.readListBegin();
+                this.success = new ArrayList<ScanEntry>(_list44.size);
+                for (int _i45 = 0; _i45 < _list44.size; ++_i45)
+                {
+                  ScanEntry _elem46 = new ScanEntry();
+                  _elem46 = new ScanEntry();
+                  _elem46.read(iprot);
+                  this.success.add(_elem46);
+                }
+                iprot.readListEnd();
+              }
+              this.__isset.success = true;
+            } else { 
+              TProtocolUtil.skip(iprot, field.type);
+            }
+            break;
           case 1:
             if (field.type == TType.STRUCT) {
               this.io = new IOError();
@@ -4195,11 +4338,26 @@ public class Hbase {
     }
 
     public void write(TProtocol oprot) throws TException {
-      TStruct struct = new TStruct("put_result");
+      TStruct struct = new TStruct("getRows_result");
       oprot.writeStructBegin(struct);
       TField field = new TField();
 
-      if (this.__isset.io) {
+      if (this.__isset.success) {
+        if (this.success != null) {
+          field.name = "success";
+          field.type = TType.LIST;
+          field.id = 0;
+          oprot.writeFieldBegin(field);
+          {
+            oprot.writeListBegin(new TList(TType.STRUCT, this.success.size()));
+            for (ScanEntry _iter47 : this.success)            {
+              _iter47.write(oprot);
+            }
+            oprot.writeListEnd();
+          }
+          oprot.writeFieldEnd();
+        }
+      } else if (this.__isset.io) {
         if (this.io != null) {
           field.name = "io";
           field.type = TType.STRUCT;
@@ -4214,8 +4372,10 @@ public class Hbase {
     }
 
     public String toString() {
-      StringBuilder sb = new StringBuilder("put_result(");
-      sb.append("io:");
+      StringBuilder sb = new StringBuilder("getRows_result(");
+      sb.append("success:");
+      sb.append(this.success);
+      sb.append(",io:");
       sb.append(this.io.toString());
       sb.append(")");
       return sb.toString();
@@ -4223,33 +4383,38 @@ public class Hbase {
 
   }
 
-  public static class mutateRow_args implements TBase, java.io.Serializable   {
+  public static class put_args implements TBase, java.io.Serializable   {
     public byte[] tableName;
     public byte[] row;
-    public ArrayList<Mutation> mutations;
+    public byte[] column;
+    public byte[] value;
 
     public final Isset __isset = new Isset();
     public static final class Isset {
       public boolean tableName = false;
       public boolean row = false;
-      public boolean mutations = false;
+      public boolean column = false;
+      public boolean value = false;
     }
 
-    public mutateRow_args() {
+    public put_args() {
     }
 
-    public mutateRow_args(
+    public put_args(
       byte[] tableName,
       byte[] row,
-      ArrayList<Mutation> mutations)
+      byte[] column,
+      byte[] value)
     {
       this();
       this.tableName = tableName;
       this.__isset.tableName = true;
       this.row = row;
       this.__isset.row = true;
-      this.mutations = mutations;
-      this.__isset.mutations = true;
+      this.column = column;
+      this.__isset.column = true;
+      this.value = value;
+      this.__isset.value = true;
     }
 
     public void read(TProtocol iprot) throws TException {
@@ -4280,21 +4445,235 @@ public class Hbase {
             }
             break;
           case 3:
-            if (field.type == TType.LIST) {
-              {
-                TList _list40 = iprot.readListBegin();
-                this.mutations = new ArrayList<Mutation>(_list40.size);
-                for (int _i41 = 0; _i41 < _list40.size; ++_i41)
-                {
-                  Mutation _elem42 = new Mutation();
-                  _elem42 = new Mutation();
-                  _elem42.read(iprot);
-                  this.mutations.add(_elem42);
-                }
-                iprot.readListEnd();
-              }
-              this.__isset.mutations = true;
-            } else { 
+            if (field.type == TType.STRING) {
+              this.column = iprot.readBinary();
+              this.__isset.column = true;
+            } else { 
+              TProtocolUtil.skip(iprot, field.type);
+            }
+            break;
+          case 4:
+            if (field.type == TType.STRING) {
+              this.value = iprot.readBinary();
+              this.__isset.value = true;
+            } else { 
+              TProtocolUtil.skip(iprot, field.type);
+            }
+            break;
+          default:
+            TProtocolUtil.skip(iprot, field.type);
+            break;
+        }
+        iprot.readFieldEnd();
+      }
+      iprot.readStructEnd();
+    }
+
+    public void write(TProtocol oprot) throws TException {
+      TStruct struct = new TStruct("put_args");
+      oprot.writeStructBegin(struct);
+      TField field = new TField();
+      if (this.tableName != null) {
+        field.name = "tableName";
+        field.type = TType.STRING;
+        field.id = 1;
+        oprot.writeFieldBegin(field);
+        oprot.writeBinary(this.tableName);
+        oprot.writeFieldEnd();
+      }
+      if (this.row != null) {
+        field.name = "row";
+        field.type = TType.STRING;
+        field.id = 2;
+        oprot.writeFieldBegin(field);
+        oprot.writeBinary(this.row);
+        oprot.writeFieldEnd();
+      }
+      if (this.column != null) {
+        field.name = "column";
+        field.type = TType.STRING;
+        field.id = 3;
+        oprot.writeFieldBegin(field);
+        oprot.writeBinary(this.column);
+        oprot.writeFieldEnd();
+      }
+      if (this.value != null) {
+        field.name = "value";
+        field.type = TType.STRING;
+        field.id = 4;
+        oprot.writeFieldBegin(field);
+        oprot.writeBinary(this.value);
+        oprot.writeFieldEnd();
+      }
+      oprot.writeFieldStop();
+      oprot.writeStructEnd();
+    }
+
+    public String toString() {
+      StringBuilder sb = new StringBuilder("put_args(");
+      sb.append("tableName:");
+      sb.append(this.tableName);
+      sb.append(",row:");
+      sb.append(this.row);
+      sb.append(",column:");
+      sb.append(this.column);
+      sb.append(",value:");
+      sb.append(this.value);
+      sb.append(")");
+      return sb.toString();
+    }
+
+  }
+
+  public static class put_result implements TBase, java.io.Serializable   {
+    public IOError io;
+
+    public final Isset __isset = new Isset();
+    public static final class Isset {
+      public boolean io = false;
+    }
+
+    public put_result() {
+    }
+
+    public put_result(
+      IOError io)
+    {
+      this();
+      this.io = io;
+      this.__isset.io = true;
+    }
+
+    public void read(TProtocol iprot) throws TException {
+      TField field;
+      iprot.readStructBegin();
+      while (true)
+      {
+        field = iprot.readFieldBegin();
+        if (field.type == TType.STOP) { 
+          break;
+        }
+        switch (field.id)
+        {
+          case 1:
+            if (field.type == TType.STRUCT) {
+              this.io = new IOError();
+              this.io.read(iprot);
+              this.__isset.io = true;
+            } else { 
+              TProtocolUtil.skip(iprot, field.type);
+            }
+            break;
+          default:
+            TProtocolUtil.skip(iprot, field.type);
+            break;
+        }
+        iprot.readFieldEnd();
+      }
+      iprot.readStructEnd();
+    }
+
+    public void write(TProtocol oprot) throws TException {
+      TStruct struct = new TStruct("put_result");
+      oprot.writeStructBegin(struct);
+      TField field = new TField();
+
+      if (this.__isset.io) {
+        if (this.io != null) {
+          field.name = "io";
+          field.type = TType.STRUCT;
+          field.id = 1;
+          oprot.writeFieldBegin(field);
+          this.io.write(oprot);
+          oprot.writeFieldEnd();
+        }
+      }
+      oprot.writeFieldStop();
+      oprot.writeStructEnd();
+    }
+
+    public String toString() {
+      StringBuilder sb = new StringBuilder("put_result(");
+      sb.append("io:");
+      sb.append(this.io.toString());
+      sb.append(")");
+      return sb.toString();
+    }
+
+  }
+
+  public static class mutateRow_args implements TBase, java.io.Serializable   {
+    public byte[] tableName;
+    public byte[] row;
+    public ArrayList<Mutation> mutations;
+
+    public final Isset __isset = new Isset();
+    public static final class Isset {
+      public boolean tableName = false;
+      public boolean row = false;
+      public boolean mutations = false;
+    }
+
+    public mutateRow_args() {
+    }
+
+    public mutateRow_args(
+      byte[] tableName,
+      byte[] row,
+      ArrayList<Mutation> mutations)
+    {
+      this();
+      this.tableName = tableName;
+      this.__isset.tableName = true;
+      this.row = row;
+      this.__isset.row = true;
+      this.mutations = mutations;
+      this.__isset.mutations = true;
+    }
+
+    public void read(TProtocol iprot) throws TException {
+      TField field;
+      iprot.readStructBegin();
+      while (true)
+      {
+        field = iprot.readFieldBegin();
+        if (field.type == TType.STOP) { 
+          break;
+        }
+        switch (field.id)
+        {
+          case 1:
+            if (field.type == TType.STRING) {
+              this.tableName = iprot.readBinary();
+              this.__isset.tableName = true;
+            } else { 
+              TProtocolUtil.skip(iprot, field.type);
+            }
+            break;
+          case 2:
+            if (field.type == TType.STRING) {
+              this.row = iprot.readBinary();
+              this.__isset.row = true;
+            } else { 
+              TProtocolUtil.skip(iprot, field.type);
+            }
+            break;
+          case 3:
+            if (field.type == TType.LIST) {
+              {
+                TList _list48 = iprot.readListBegin();
+                this.mutations = new ArrayList<Mutation>(_list48.size);
+                for (int _i49 = 0; _i49 < _list48.size; ++_i49)
+                {
+                  Mutation _elem50 = new Mutation();
+                  _elem50 = new Mutation();
+                  _elem50.read(iprot);
+                  this.mutations.add(_elem50);
+                }
+                iprot.readListEnd();
+              }
+              this.__isset.mutations = true;
+            } else { 
               TProtocolUtil.skip(iprot, field.type);
             }
             break;
@@ -4334,8 +4713,8 @@ public class Hbase {
         oprot.writeFieldBegin(field);
         {
           oprot.writeListBegin(new TList(TType.STRUCT, this.mutations.size()));
-          for (Mutation _iter43 : this.mutations)          {
-            _iter43.write(oprot);
+          for (Mutation _iter51 : this.mutations)          {
+            _iter51.write(oprot);
           }
           oprot.writeListEnd();
         }
@@ -4500,14 +4879,14 @@ public class Hbase {
           case 3:
             if (field.type == TType.LIST) {
               {
-                TList _list44 = iprot.readListBegin();
-                this.mutations = new ArrayList<Mutation>(_list44.size);
-                for (int _i45 = 0; _i45 < _list44.size; ++_i45)
+                TList _list52 = iprot.readListBegin();
+                this.mutations = new ArrayList<Mutation>(_list52.size);
+                for (int _i53 = 0; _i53 < _list52.size; ++_i53)
                 {
-                  Mutation _elem46 = new Mutation();
-                  _elem46 = new Mutation();
-                  _elem46.read(iprot);
-                  this.mutations.add(_elem46);
+                  Mutation _elem54 = new Mutation();
+                  _elem54 = new Mutation();
+                  _elem54.read(iprot);
+                  this.mutations.add(_elem54);
                 }
                 iprot.readListEnd();
               }
@@ -4560,8 +4939,8 @@ public class Hbase {
         oprot.writeFieldBegin(field);
         {
           oprot.writeListBegin(new TList(TType.STRUCT, this.mutations.size()));
-          for (Mutation _iter47 : this.mutations)          {
-            _iter47.write(oprot);
+          for (Mutation _iter55 : this.mutations)          {
+            _iter55.write(oprot);
           }
           oprot.writeListEnd();
         }
@@ -5509,13 +5888,13 @@ public class Hbase {
           case 3:
             if (field.type == TType.LIST) {
               {
-                TList _list48 = iprot.readListBegin();
-                this.columns = new ArrayList<byte[]>(_list48.size);
-                for (int _i49 = 0; _i49 < _list48.size; ++_i49)
+                TList _list56 = iprot.readListBegin();
+                this.columns = new ArrayList<byte[]>(_list56.size);
+                for (int _i57 = 0; _i57 < _list56.size; ++_i57)
                 {
-                  byte[] _elem50 = null;
-                  _elem50 = iprot.readBinary();
-                  this.columns.add(_elem50);
+                  byte[] _elem58 = null;
+                  _elem58 = iprot.readBinary();
+                  this.columns.add(_elem58);
                 }
                 iprot.readListEnd();
               }
@@ -5560,8 +5939,8 @@ public class Hbase {
         oprot.writeFieldBegin(field);
         {
           oprot.writeListBegin(new TList(TType.STRING, this.columns.size()));
-          for (byte[] _iter51 : this.columns)          {
-            oprot.writeBinary(_iter51);
+          for (byte[] _iter59 : this.columns)          {
+            oprot.writeBinary(_iter59);
           }
           oprot.writeListEnd();
         }
@@ -5756,13 +6135,13 @@ public class Hbase {
           case 4:
             if (field.type == TType.LIST) {
               {
-                TList _list52 = iprot.readListBegin();
-                this.columns = new ArrayList<byte[]>(_list52.size);
-                for (int _i53 = 0; _i53 < _list52.size; ++_i53)
+                TList _list60 = iprot.readListBegin();
+                this.columns = new ArrayList<byte[]>(_list60.size);
+                for (int _i61 = 0; _i61 < _list60.size; ++_i61)
                 {
-                  byte[] _elem54 = null;
-                  _elem54 = iprot.readBinary();
-                  this.columns.add(_elem54);
+                  byte[] _elem62 = null;
+                  _elem62 = iprot.readBinary();
+                  this.columns.add(_elem62);
                 }
                 iprot.readListEnd();
               }
@@ -5815,8 +6194,8 @@ public class Hbase {
         oprot.writeFieldBegin(field);
         {
           oprot.writeListBegin(new TList(TType.STRING, this.columns.size()));
-          for (byte[] _iter55 : this.columns)          {
-            oprot.writeBinary(_iter55);
+          for (byte[] _iter63 : this.columns)          {
+            oprot.writeBinary(_iter63);
           }
           oprot.writeListEnd();
         }
@@ -6005,13 +6384,13 @@ public class Hbase {
           case 3:
             if (field.type == TType.LIST) {
               {
-                TList _list56 = iprot.readListBegin();
-                this.columns = new ArrayList<byte[]>(_list56.size);
-                for (int _i57 = 0; _i57 < _list56.size; ++_i57)
+                TList _list64 = iprot.readListBegin();
+                this.columns = new ArrayList<byte[]>(_list64.size);
+                for (int _i65 = 0; _i65 < _list64.size; ++_i65)
                 {
-                  byte[] _elem58 = null;
-                  _elem58 = iprot.readBinary();
-                  this.columns.add(_elem58);
+                  byte[] _elem66 = null;
+                  _elem66 = iprot.readBinary();
+                  this.columns.add(_elem66);
                 }
                 iprot.readListEnd();
               }
@@ -6064,8 +6443,8 @@ public class Hbase {
         oprot.writeFieldBegin(field);
         {
           oprot.writeListBegin(new TList(TType.STRING, this.columns.size()));
-          for (byte[] _iter59 : this.columns)          {
-            oprot.writeBinary(_iter59);
+          for (byte[] _iter67 : this.columns)          {
+            oprot.writeBinary(_iter67);
           }
           oprot.writeListEnd();
         }
@@ -6273,13 +6652,13 @@ public class Hbase {
           case 4:
             if (field.type == TType.LIST) {
               {
-                TList _list60 = iprot.readListBegin();
-                this.columns = new ArrayList<byte[]>(_list60.size);
-                for (int _i61 = 0; _i61 < _list60.size; ++_i61)
+                TList _list68 = iprot.readListBegin();
+                this.columns = new ArrayList<byte[]>(_list68.size);
+                for (int _i69 = 0; _i69 < _list68.size; ++_i69)
                 {
-                  byte[] _elem62 = null;
-                  _elem62 = iprot.readBinary();
-                  this.columns.add(_elem62);
+                  byte[] _elem70 = null;
+                  _elem70 = iprot.readBinary();
+                  this.columns.add(_elem70);
                 }
                 iprot.readListEnd();
               }
@@ -6340,8 +6719,8 @@ public class Hbase {
         oprot.writeFieldBegin(field);
         {
           oprot.writeListBegin(new TList(TType.STRING, this.columns.size()));
-          for (byte[] _iter63 : this.columns)          {
-            oprot.writeBinary(_iter63);
+          for (byte[] _iter71 : this.columns)          {
+            oprot.writeBinary(_iter71);
           }
           oprot.writeListEnd();
         }
@@ -6697,6 +7076,241 @@ public class Hbase {
 
   }
 
+  public static class scannerGetList_args implements TBase, java.io.Serializable   {
+    public int id;
+    public int nbRows;
+
+    public final Isset __isset = new Isset();
+    public static final class Isset {
+      public boolean id = false;
+      public boolean nbRows = false;
+    }
+
+    public scannerGetList_args() {
+    }
+
+    public scannerGetList_args(
+      int id,
+      int nbRows)
+    {
+      this();
+      this.id = id;
+      this.__isset.id = true;
+      this.nbRows = nbRows;
+      this.__isset.nbRows = true;
+    }
+
+    public void read(TProtocol iprot) throws TException {
+      TField field;
+      iprot.readStructBegin();
+      while (true)
+      {
+        field = iprot.readFieldBegin();
+        if (field.type == TType.STOP) { 
+          break;
+        }
+        switch (field.id)
+        {
+          case 1:
+            if (field.type == TType.I32) {
+              this.id = iprot.readI32();
+              this.__isset.id = true;
+            } else { 
+              TProtocolUtil.skip(iprot, field.type);
+            }
+            break;
+          case 2:
+            if (field.type == TType.I32) {
+              this.nbRows = iprot.readI32();
+              this.__isset.nbRows = true;
+            } else { 
+              TProtocolUtil.skip(iprot, field.type);
+            }
+            break;
+          default:
+            TProtocolUtil.skip(iprot, field.type);
+            break;
+        }
+        iprot.readFieldEnd();
+      }
+      iprot.readStructEnd();
+    }
+
+    public void write(TProtocol oprot) throws TException {
+      TStruct struct = new TStruct("scannerGetList_args");
+      oprot.writeStructBegin(struct);
+      TField field = new TField();
+      field.name = "id";
+      field.type = TType.I32;
+      field.id = 1;
+      oprot.writeFieldBegin(field);
+      oprot.writeI32(this.id);
+      oprot.writeFieldEnd();
+      field.name = "nbRows";
+      field.type = TType.I32;
+      field.id = 2;
+      oprot.writeFieldBegin(field);
+      oprot.writeI32(this.nbRows);
+      oprot.writeFieldEnd();
+      oprot.writeFieldStop();
+      oprot.writeStructEnd();
+    }
+
+    public String toString() {
+      StringBuilder sb = new StringBuilder("scannerGetList_args(");
+      sb.append("id:");
+      sb.append(this.id);
+      sb.append(",nbRows:");
+      sb.append(this.nbRows);
+      sb.append(")");
+      return sb.toString();
+    }
+
+  }
+
+  public static class scannerGetList_result implements TBase, java.io.Serializable   {
+    public ArrayList<ScanEntry> success;
+    public IOError io;
+    public IllegalArgument ia;
+
+    public final Isset __isset = new Isset();
+    public static final class Isset {
+      public boolean success = false;
+      public boolean io = false;
+      public boolean ia = false;
+    }
+
+    public scannerGetList_result() {
+    }
+
+    public scannerGetList_result(
+      ArrayList<ScanEntry> success,
+      IOError io,
+      IllegalArgument ia)
+    {
+      this();
+      this.success = success;
+      this.__isset.success = true;
+      this.io = io;
+      this.__isset.io = true;
+      this.ia = ia;
+      this.__isset.ia = true;
+    }
+
+    public void read(TProtocol iprot) throws TException {
+      TField field;
+      iprot.readStructBegin();
+      while (true)
+      {
+        field = iprot.readFieldBegin();
+        if (field.type == TType.STOP) { 
+          break;
+        }
+        switch (field.id)
+        {
+          case 0:
+            if (field.type == TType.LIST) {
+              {
+                TList _list72 = iprot.readListBegin();
+                this.success = new ArrayList<ScanEntry>(_list72.size);
+                for (int _i73 = 0; _i73 < _list72.size; ++_i73)
+                {
+                  ScanEntry _elem74 = new ScanEntry();
+                  _elem74 = new ScanEntry();
+                  _elem74.read(iprot);
+                  this.success.add(_elem74);
+                }
+                iprot.readListEnd();
+              }
+              this.__isset.success = true;
+            } else { 
+              TProtocolUtil.skip(iprot, field.type);
+            }
+            break;
+          case 1:
+            if (field.type == TType.STRUCT) {
+              this.io = new IOError();
+              this.io.read(iprot);
+              this.__isset.io = true;
+            } else { 
+              TProtocolUtil.skip(iprot, field.type);
+            }
+            break;
+          case 2:
+            if (field.type == TType.STRUCT) {
+              this.ia = new IllegalArgument();
+              this.ia.read(iprot);
+              this.__isset.ia = true;
+            } else { 
+              TProtocolUtil.skip(iprot, field.type);
+            }
+            break;
+          default:
+            TProtocolUtil.skip(iprot, field.type);
+            break;
+        }
+        iprot.readFieldEnd();
+      }
+      iprot.readStructEnd();
+    }
+
+    public void write(TProtocol oprot) throws TException {
+      TStruct struct = new TStruct("scannerGetList_result");
+      oprot.writeStructBegin(struct);
+      TField field = new TField();
+
+      if (this.__isset.success) {
+        if (this.success != null) {
+          field.name = "success";
+          field.type = TType.LIST;
+          field.id = 0;
+          oprot.writeFieldBegin(field);
+          {
+            oprot.writeListBegin(new TList(TType.STRUCT, this.success.size()));
+            for (ScanEntry _iter75 : this.success)            {
+              _iter75.write(oprot);
+            }
+            oprot.writeListEnd();
+          }
+          oprot.writeFieldEnd();
+        }
+      } else if (this.__isset.io) {
+        if (this.io != null) {
+          field.name = "io";
+          field.type = TType.STRUCT;
+          field.id = 1;
+          oprot.writeFieldBegin(field);
+          this.io.write(oprot);
+          oprot.writeFieldEnd();
+        }
+      } else if (this.__isset.ia) {
+        if (this.ia != null) {
+          field.name = "ia";
+          field.type = TType.STRUCT;
+          field.id = 2;
+          oprot.writeFieldBegin(field);
+          this.ia.write(oprot);
+          oprot.writeFieldEnd();
+        }
+      }
+      oprot.writeFieldStop();
+      oprot.writeStructEnd();
+    }
+
+    public String toString() {
+      StringBuilder sb = new StringBuilder("scannerGetList_result(");
+      sb.append("success:");
+      sb.append(this.success);
+      sb.append(",io:");
+      sb.append(this.io.toString());
+      sb.append(",ia:");
+      sb.append(this.ia.toString());
+      sb.append(")");
+      return sb.toString();
+    }
+
+  }
+
   public static class scannerClose_args implements TBase, java.io.Serializable   {
     public int id;
 
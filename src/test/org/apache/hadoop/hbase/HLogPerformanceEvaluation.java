@@ -0,0 +1,142 @@
+/**
+ * Copyright 2008 The Apache Software Foundation
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.hadoop.hbase;
+
+import java.util.Random;
+import java.util.TreeMap;
+
+import org.apache.hadoop.fs.FileSystem;
+import org.apache.hadoop.fs.Path;
+import org.apache.hadoop.io.Text;
+import org.apache.log4j.Logger;
+
+/**
+ * <p>
+ * This class runs performance benchmarks for {@link HLog#splitLog}.  It
+ * writes a set of synthetic logs spread over many regions then times how long
+ * they take to split.
+ * </p>
+ * <p>
+ * Usage: <code>HLogPerformanceEvaluation [megabytes [regions]]</code>.
+ * Defaults to 4096MB of edits over 100 regions.  Set
+ * <code>hbase.regionserver.hlog.splitlog.reader.threads</code> and
+ * <code>hbase.regionserver.hlog.splitlog.writer.threads</code> to compare
+ * pool sizes.
+ * </p>
+ */
+public class HLogPerformanceEvaluation {
+
+  private static final int VALUE_LENGTH = 1000;
+  private static final int EDITS_PER_APPEND = 10;
+
+  static final Logger LOG =
+    Logger.getLogger(HLogPerformanceEvaluation.class.getName());
+
+  private final HBaseConfiguration conf = new HBaseConfiguration();
+  private final long megabytes;
+  private final int regions;
+
+  HLogPerformanceEvaluation(final long megabytes, final int regions) {
+    this.megabytes = megabytes;
+    this.regions = regions;
+  }
+
+  private void runBenchmarks() throws Exception {
+    FileSystem fs = FileSystem.get(conf);
+    Path rootDir =
+      fs.makeQualified(new Path("performanceevaluation.hlog"));
+    if (fs.exists(rootDir)) {
+      fs.delete(rootDir);
+    }
+    Path logDir = new Path(rootDir, "log_localhost_60020");
+    try {
+      long edits = writeLogs(fs, logDir);
+      LOG.info("Splitting " + edits + " edits over " + regions +
+        " regions with " +
+        conf.getInt("hbase.regionserver.hlog.splitlog.reader.threads", 3) +
+        " reader(s) and " +
+        conf.getInt("hbase.regionserver.hlog.splitlog.writer.threads", 3) +
+        " writer(s).");
+      long startTime = System.currentTimeMillis();
+      HLog.splitLog(rootDir, logDir, fs, conf);
+      long elapsedTime = System.currentTimeMillis() - startTime;
+      LOG.info("Splitting " + megabytes + "MB of logs took " + elapsedTime +
+        "ms.");
+    } finally {
+      fs.delete(rootDir);
+    }
+  }
+
+  /*
+   * Write synthetic edits, round-robin over the regions, until the requested
+   * number of bytes has been logged.  The log rolls as it would on a
+   * regionserver.
+   * @return Count of edits written.
+   */
+  private long writeLogs(final FileSystem fs, final Path logDir)
+  throws Exception {
+    Text tableName = new Text("performanceevaluation");
+    Text column = new Text("info:data");
+    Text [] regionNames = new Text[regions];
+    for (int i = 0; i < regions; i++) {
+      regionNames[i] = new Text(tableName.toString() + "," +
+        String.format("%1$010d", Integer.valueOf(i)) + "," + i);
+    }
+    int maxlogentries =
+      conf.getInt("hbase.regionserver.maxlogentries", 30 * 1000);
+    Random rand = new Random();
+    byte [] value = new byte[VALUE_LENGTH];
+    long limit = megabytes * 1024 * 1024;
+    long edits = 0;
+    long startTime = System.currentTimeMillis();
+    HLog log = new HLog(fs, logDir, conf, null);
+    try {
+      for (long written = 0; written < limit;
+          written += EDITS_PER_APPEND * VALUE_LENGTH) {
+        TreeMap<HStoreKey, byte []> cells = new TreeMap<HStoreKey, byte []>();
+        Text row = new Text(Long.toString(edits));
+        for (int i = 0; i < EDITS_PER_APPEND; i++) {
+          rand.nextBytes(value);
+          cells.put(new HStoreKey(row, column, edits + i), value.clone());
+        }
+        log.append(regionNames[(int)(edits % regions)], tableName, cells);
+        edits += EDITS_PER_APPEND;
+        if (log.getNumEntries() > maxlogentries) {
+          log.rollWriter();
+        }
+      }
+    } finally {
+      log.close();
+    }
+    LOG.info("Writing " + edits + " edits took " +
+      (System.currentTimeMillis() - startTime) + "ms.");
+    return edits;
+  }
+
+  /**
+   * @param args
+   * @throws Exception
+   */
+  public static void main(String[] args) throws Exception {
+    long megabytes = args.length > 0? Long.parseLong(args[0]): 4096;
+    int regions = args.length > 1? Integer.parseInt(args[1]): 100;
+    new HLogPerformanceEvaluation(megabytes, regions).runBenchmarks();
+  }
+}
@@ -0,0 +1,105 @@
+/**
+ * Copyright 2008 The Apache Software Foundation
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.hadoop.hbase;
+
+import java.util.Random;
+
+import org.apache.hadoop.io.DataOutputBuffer;
+import org.apache.hadoop.io.Text;
+import org.apache.hadoop.io.WritableComparator;
+import org.apache.log4j.Logger;
+
+/**
+ * <p>
+ * This class runs performance benchmarks for comparing serialized
+ * {@link HStoreKey}s.  It times comparing pairs of keys with the
+ * {@link HStoreKey.Comparator} raw comparator against the default
+ * {@link WritableComparator}, which deserializes both keys before calling
+ * {@link HStoreKey#compareTo(Object)}.
+ * </p>
+ * <p>
+ * Usage: <code>HStoreKeyPerformanceEvaluation [comparisons]</code>.
+ * Defaults to 10000000 comparisons.
+ * </p>
+ */
+public class HStoreKeyPerformanceEvaluation {
+  private static final int KEY_COUNT = 10000;
+  private static final int ROW_LENGTH = 20;
+
+  static final Logger LOG =
+    Logger.getLogger(HStoreKeyPerformanceEvaluation.class.getName());
+
+  private final int comparisons;
+  private final byte [][] keys = new byte[KEY_COUNT][];
+
+  HStoreKeyPerformanceEvaluation(final int comparisons) {
+    this.comparisons = comparisons;
+  }
+
+  private void runBenchmarks() throws Exception {
+    // Keys share rows and columns so comparisons go past the first field.
+    Random random = new Random();
+    DataOutputBuffer out = new DataOutputBuffer();
+    for (int i = 0; i < KEY_COUNT; i++) {
+      String row = Integer.toString(random.nextInt(KEY_COUNT / 10));
+      row = "00000000000000000000".substring(row.length(), ROW_LENGTH) + row;
+      HStoreKey key = new HStoreKey(new Text(row),
+        new Text("info:" + random.nextInt(10)), random.nextInt(3));
+      out.reset();
+      key.write(out);
+      this.keys[i] = new byte[out.getLength()];
+      System.arraycopy(out.getData(), 0, this.keys[i], 0, out.getLength());
+    }
+
+    // Run each twice so the second runs are on a warm JVM.
+    for (int i = 0; i < 2; i++) {
+      runBenchmark(new WritableComparator(HStoreKey.class) {
+        // Default comparator: deserializes then calls compareTo.
+      }, "deserializing");
+      runBenchmark(new HStoreKey.Comparator(), "raw");
+    }
+  }
+
+  private void runBenchmark(final WritableComparator comparator,
+      final String name) {
+    LOG.info("Running " + this.comparisons + " " + name + " comparisons.");
+    long startTime = System.currentTimeMillis();
+    int result = 0;
+    for (int i = 0; i < this.comparisons; i++) {
+      byte [] left = this.keys[i % KEY_COUNT];
+      byte [] right = this.keys[(int)((i * 31L + 7) % KEY_COUNT)];
+      result += comparator.compare(left, 0, left.length, right, 0,
+        right.length);
+    }
+    long elapsedTime = System.currentTimeMillis() - startTime;
+    // Log the result so the comparisons cannot be optimized away.
+    LOG.info("Running " + this.comparisons + " " + name +
+      " comparisons took " + elapsedTime + "ms (sum " + result + ").");
+  }
+
+  /**
+   * @param args
+   * @throws Exception
+   */
+  public static void main(String[] args) throws Exception {
+    int comparisons = args.length > 0? Integer.parseInt(args[0]): 10000000;
+    new HStoreKeyPerformanceEvaluation(comparisons).runBenchmarks();
+  }
+}
@@ -0,0 +1,148 @@
+/**
+ * Copyright 2008 The Apache Software Foundation
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.hadoop.hbase;
+
+import java.util.TreeMap;
+
+import org.apache.hadoop.fs.FileSystem;
+import org.apache.hadoop.fs.Path;
+import org.apache.hadoop.hbase.io.BatchUpdate;
+import org.apache.hadoop.io.Text;
+import org.apache.log4j.Logger;
+
+/**
+ * <p>
+ * This class runs performance benchmarks for region scanners.  It writes a
+ * region with many families, each spread over many store files, then times
+ * full scans of it.  Scans merge the store files of each family and the
+ * families of the region.
+ * </p>
+ * <p>
+ * Usage: <code>ScannerPerformanceEvaluation [rows [families [files]]]</code>.
+ * Defaults to 100000 rows in 8 families of 8 store files each.
+ * </p>
+ */
+public class ScannerPerformanceEvaluation {
+  private static final int COLUMNS_PER_FAMILY = 2;
+  private static final int VALUE_LENGTH = 10;
+  private static final int SCANS = 3;
+
+  static final Logger LOG =
+    Logger.getLogger(ScannerPerformanceEvaluation.class.getName());
+
+  private final HBaseConfiguration conf = new HBaseConfiguration();
+  private final int rows;
+  private final int families;
+  private final int files;
+
+  ScannerPerformanceEvaluation(final int rows, final int families,
+      final int files) {
+    this.rows = rows;
+    this.families = families;
+    this.files = files;
+  }
+
+  private void runBenchmarks() throws Exception {
+    FileSystem fs = FileSystem.get(conf);
+    Path rootDir =
+      fs.makeQualified(new Path("performanceevaluation.scanner"));
+    if (fs.exists(rootDir)) {
+      fs.delete(rootDir);
+    }
+    HTableDescriptor desc = new HTableDescriptor("performanceevaluation");
+    Text [] columns = new Text[families];
+    for (int i = 0; i < families; i++) {
+      columns[i] = new Text("family" + i + ":");
+      desc.addFamily(new HColumnDescriptor(columns[i].toString()));
+    }
+    HRegion region = HRegion.createHRegion(new HRegionInfo(desc, null, null),
+      rootDir, conf);
+    try {
+      writeRegion(region, columns);
+      for (int i = 0; i < SCANS; i++) {
+        LOG.info("Scanning " + rows + " rows of " + families + " families " +
+          "of " + files + " store files.");
+        long startTime = System.currentTimeMillis();
+        int count = scan(region, columns);
+        long elapsedTime = System.currentTimeMillis() - startTime;
+        LOG.info("Scanning " + count + " rows took " + elapsedTime + "ms.");
+      }
+    } finally {
+      region.close();
+      region.getLog().closeAndDelete();
+      fs.delete(rootDir);
+    }
+  }
+
+  /*
+   * Write the rows round-robin over the store files so every store file
+   * holds part of every stretch of rows.
+   */
+  private void writeRegion(final HRegion region, final Text [] columns)
+  throws Exception {
+    long startTime = System.currentTimeMillis();
+    byte [] value = new byte[VALUE_LENGTH];
+    for (int f = 0; f < files; f++) {
+      for (int r = f; r < rows; r += files) {
+        BatchUpdate b = new BatchUpdate(r);
+        long lockid = b.startUpdate(
+          new Text(String.format("%1$010d", Integer.valueOf(r))));
+        for (int i = 0; i < columns.length; i++) {
+          for (int j = 0; j < COLUMNS_PER_FAMILY; j++) {
+            b.put(lockid, new Text(columns[i].toString() + j), value);
+          }
+        }
+        region.batchUpdate(HConstants.LATEST_TIMESTAMP, b);
+      }
+      region.flushcache();
+    }
+    LOG.info("Writing " + rows + " rows took " +
+      (System.currentTimeMillis() - startTime) + "ms.");
+  }
+
+  private int scan(final HRegion region, final Text [] columns)
+  throws Exception {
+    int count = 0;
+    HScannerInterface scanner = region.getScanner(columns,
+      HConstants.EMPTY_START_ROW, HConstants.LATEST_TIMESTAMP, null);
+    try {
+      HStoreKey key = new HStoreKey();
+      TreeMap<Text, byte []> results = new TreeMap<Text, byte []>();
+      while (scanner.next(key, results)) {
+        count++;
+        results.clear();
+      }
+    } finally {
+      scanner.close();
+    }
+    return count;
+  }
+
+  /**
+   * @param args
+   * @throws Exception
+   */
+  public static void main(String[] args) throws Exception {
+    int rows = args.length > 0? Integer.parseInt(args[0]): 100000;
+    int families = args.length > 1? Integer.parseInt(args[1]): 8;
+    int files = args.length > 2? Integer.parseInt(args[2]): 8;
+    new ScannerPerformanceEvaluation(rows, families, files).runBenchmarks();
+  }
+}
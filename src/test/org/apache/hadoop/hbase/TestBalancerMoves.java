@@ -0,0 +1,79 @@
+/**
+ * Copyright 2008 The Apache Software Foundation
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.hadoop.hbase;
+
+import org.apache.hadoop.io.Text;
+
+/**
+ * Test the master forgets balancer moves that can no longer finish.
+ */
+public class TestBalancerMoves extends HBaseClusterTestCase {
+  private static final Text REGION_A = new Text("regionA");
+  private static final Text REGION_B = new Text("regionB");
+
+  /** constructor */
+  public TestBalancerMoves() {
+    super(2);
+  }
+
+  /**
+   * Moves onto a region server that exits are dropped.  Others are kept.
+   * @throws Exception
+   */
+  public void testServerExit() throws Exception {
+    // When the META table can be opened, the region servers are running
+    new HTable(conf, HConstants.META_TABLE_NAME);
+    HMaster master = this.cluster.getMaster();
+    String stopped = getServerName(1);
+    String running = getServerName(0);
+    master.regionTargets.put(REGION_A, stopped);
+    master.regionTargets.put(REGION_B, running);
+    this.cluster.stopRegionServer(1);
+    this.cluster.waitOnRegionServer(1);
+    assertFalse(master.regionTargets.containsKey(REGION_A));
+    assertEquals(running, master.regionTargets.get(REGION_B));
+  }
+
+  /**
+   * Moves outstanding longer than the timeout are given up on.
+   * @throws Exception
+   */
+  public void testMoveTimeout() throws Exception {
+    new HTable(conf, HConstants.META_TABLE_NAME);
+    HMaster master = this.cluster.getMaster();
+    // The balancer does nothing until all regions are assigned.
+    while (!master.initialMetaScanComplete ||
+        !master.unassignedRegions.isEmpty() ||
+        !master.pendingRegions.isEmpty()) {
+      Thread.sleep(100);
+    }
+    master.regionTargets.put(REGION_A, getServerName(0));
+    LoadBalancer loadBalancer = new LoadBalancer(0.2F, 2);
+    master.new Balancer(1000, loadBalancer, 60 * 1000).chore();
+    assertTrue(master.regionTargets.containsKey(REGION_A));
+    master.new Balancer(1000, loadBalancer, 0).chore();
+    assertTrue(master.regionTargets.isEmpty());
+  }
+
+  private String getServerName(final int serverNumber) {
+    return this.cluster.getRegionServer(serverNumber).getServerInfo().
+      getServerAddress().toString();
+  }
+}
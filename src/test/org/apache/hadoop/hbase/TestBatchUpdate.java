@@ -21,8 +21,13 @@ package org.apache.hadoop.hbase;
 
 import java.io.IOException;
 import java.io.UnsupportedEncodingException;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Map;
+import java.util.Random;
 import java.util.TreeMap;
+
+import org.apache.hadoop.hbase.io.BatchUpdate;
 import org.apache.hadoop.io.Text;
 
 /**
@@ -35,6 +40,7 @@ public class TestBatchUpdate extends HBaseClusterTestCase {
 
   private HTableDescriptor desc = null;
   private HTable table = null;
+  private final Random rand = new Random();
 
   /**
    * @throws UnsupportedEncodingException
@@ -42,6 +48,11 @@ public class TestBatchUpdate extends HBaseClusterTestCase {
   public TestBatchUpdate() throws UnsupportedEncodingException {
     super();
     value = "abcd".getBytes(HConstants.UTF8_ENCODING);
+    // Small regions and flushes so testMultiRowCommitAcrossSplit can split
+    // a region quickly.
+    conf.setLong("hbase.hregion.max.filesize", 64L * 1024L);
+    conf.setInt("hbase.hregion.memcache.flush.size", 16 * 1024);
+    conf.setLong("hbase.client.pause", 1000);
   }
   
   /**
@@ -101,4 +112,140 @@ public class TestBatchUpdate extends HBaseClusterTestCase {
       }
     }
   }
+
+  /**
+   * Test committing many rows in one call, one of which names a column
+   * family the table does not have.
+   * @throws IOException
+   */
+  public void testMultiRowCommit() throws IOException {
+    final int ROW_COUNT = 10;
+    List<BatchUpdate> updates = new ArrayList<BatchUpdate>();
+    for (int i = 0; i < ROW_COUNT; i++) {
+      BatchUpdate b = new BatchUpdate(i);
+      long lid = b.startUpdate(new Text("row" + i));
+      b.put(lid, CONTENTS, value);
+      updates.add(b);
+    }
+    BatchUpdate bad = new BatchUpdate(ROW_COUNT);
+    long lid = bad.startUpdate(new Text("badrow"));
+    bad.put(lid, new Text("nosuchfamily:"), value);
+    updates.add(bad);
+    try {
+      table.commit(updates);
+      fail("Expected update to missing family to fail");
+    } catch (BatchUpdateException e) {
+      assertTrue(e.getMessage(), e.getMessage().startsWith("1 of " +
+        (ROW_COUNT + 1) + " updates failed"));
+      assertEquals(1, e.getFailedUpdates().size());
+      assertEquals(new Text("badrow"), e.getFailedUpdates().get(0).getRow());
+      assertTrue(e.getFailureCauses().get(0).getMessage(),
+        e.getFailureCauses().get(0).getMessage().indexOf("nosuchfamily") >= 0);
+    }
+    for (int i = 0; i < ROW_COUNT; i++) {
+      byte [] v = table.get(new Text("row" + i), CONTENTS);
+      assertNotNull(v);
+      assertEquals(new String(value, HConstants.UTF8_ENCODING),
+        new String(v, HConstants.UTF8_ENCODING));
+    }
+    assertNull(table.get(new Text("badrow"), CONTENTS));
+  }
+
+  /**
+   * Commit a delete and a put of the same cell in one multi-row call, in
+   * both orders.  The result must be the same as committing them one at a
+   * time.
+   * @throws IOException
+   */
+  public void testMultiRowCommitSameRow() throws IOException {
+    byte [] oldValue = "old".getBytes(HConstants.UTF8_ENCODING);
+    byte [] newValue = "new".getBytes(HConstants.UTF8_ENCODING);
+    Text deleteThenPut = new Text("deleteThenPut");
+    Text putThenDelete = new Text("putThenDelete");
+    for (Text row: new Text [] {deleteThenPut, putThenDelete}) {
+      long lid = table.startUpdate(row);
+      table.put(lid, CONTENTS, oldValue);
+      table.commit(lid);
+    }
+
+    List<BatchUpdate> updates = new ArrayList<BatchUpdate>();
+    updates.add(delete(deleteThenPut));
+    updates.add(put(deleteThenPut, newValue));
+    updates.add(put(putThenDelete, newValue));
+    updates.add(delete(putThenDelete));
+    table.commit(updates);
+
+    assertEquals("new", new String(table.get(deleteThenPut, CONTENTS),
+      HConstants.UTF8_ENCODING));
+    // The delete removes the put, the latest cell, uncovering the old one.
+    assertEquals("old", new String(table.get(putThenDelete, CONTENTS),
+      HConstants.UTF8_ENCODING));
+  }
+
+  private BatchUpdate put(final Text row, final byte [] v) {
+    BatchUpdate b = new BatchUpdate(rand.nextLong());
+    long lid = b.startUpdate(row);
+    b.put(lid, CONTENTS, v);
+    return b;
+  }
+
+  private BatchUpdate delete(final Text row) {
+    BatchUpdate b = new BatchUpdate(rand.nextLong());
+    long lid = b.startUpdate(row);
+    b.delete(lid, CONTENTS);
+    return b;
+  }
+
+  /**
+   * Split the table's region behind the client's back, then commit rows on
+   * both sides of the split.  The client still has the parent region
+   * cached; rows the first daughter refuses must be relocated and retried.
+   * @throws Exception
+   */
+  public void testMultiRowCommitAcrossSplit() throws Exception {
+    final int ROW_COUNT = 200;
+    // Cache the location of the one region.
+    Text regionName = table.getRegionLocation(new Text("row000")).
+      getRegionInfo().getRegionName();
+    HRegionServer server = cluster.getRegionThreads().get(0).getRegionServer();
+    HRegion region = server.getOnlineRegions().get(regionName);
+    assertNotNull(region);
+
+    // Write through the region itself until it splits.
+    byte [] big = new byte[1024];
+    long timeout = System.currentTimeMillis() + 60 * 1000;
+    for (int i = 0; server.getOnlineRegions().containsKey(regionName); i++) {
+      assertTrue("region did not split",
+        System.currentTimeMillis() < timeout);
+      if (!region.isClosed()) {
+        BatchUpdate b = new BatchUpdate(i);
+        long lid = b.startUpdate(getRow(i % ROW_COUNT));
+        b.put(lid, CONTENTS, big);
+        try {
+          region.batchUpdate(HConstants.LATEST_TIMESTAMP, b);
+        } catch (IOException e) {
+          // Closing for the split
+        }
+      } else {
+        Thread.sleep(100);
+      }
+    }
+
+    List<BatchUpdate> updates = new ArrayList<BatchUpdate>();
+    for (int i = 0; i < ROW_COUNT; i++) {
+      BatchUpdate b = new BatchUpdate(i);
+      long lid = b.startUpdate(getRow(i));
+      b.put(lid, CONTENTS, value);
+      updates.add(b);
+    }
+    table.commit(updates);
+    for (int i = 0; i < ROW_COUNT; i++) {
+      assertEquals(new String(value, HConstants.UTF8_ENCODING),
+        new String(table.get(getRow(i), CONTENTS), HConstants.UTF8_ENCODING));
+    }
+  }
+
+  private static Text getRow(final int i) {
+    return new Text(String.format("row%1$03d", Integer.valueOf(i)));
+  }
 }
@@ -41,6 +41,7 @@ public class TestCompaction extends HBaseTestCase {
   private static final Text COLUMN_FAMILY_TEXT_MINUS_COLON =
     new Text(COLUMN_FAMILY.substring(0, COLUMN_FAMILY.length() - 1));
   private static final int COMPACTION_THRESHOLD = MAXVERSIONS;
+  private static final Text TINY_COLUMN = new Text(COLUMN_FAMILY + "tiny");
 
   private MiniDFSCluster cluster;
   
@@ -52,6 +53,9 @@ public class TestCompaction extends HBaseTestCase {
     // Set cache flush size to 1MB
     conf.setInt("hbase.hregion.memcache.flush.size", 1024*1024);
     conf.setInt("hbase.hregion.memcache.block.multiplier", 2);
+    // Have a major compaction come due as soon as a store has more than one
+    // file so compactions purge deletes.
+    conf.setLong("hbase.hregion.majorcompaction", 1);
     this.cluster = null;
   }
   
@@ -179,6 +183,64 @@ public class TestCompaction extends HBaseTestCase {
     }
   }
 
+  /**
+   * Assert a minor compaction merges the small, new store files and leaves
+   * the large, old one alone.
+   * @throws Exception
+   */
+  public void testMinorCompaction() throws Exception {
+    // Keep major compactions from coming due until the end of the test.
+    this.conf.setLong("hbase.hregion.majorcompaction", 24 * 60 * 60 * 1000);
+    reopenRegion();
+    for (int i = 0; i < COMPACTION_THRESHOLD; i++) {
+      createStoreFile(r);
+    }
+    assertTrue(this.r.compactIfNeeded());
+    HStore store = this.r.stores.get(COLUMN_FAMILY_TEXT_MINUS_COLON);
+    assertEquals(1, store.getStorefiles().size());
+    HStoreFile large = store.getStorefiles().get(store.getStorefiles().firstKey());
+    for (int i = 0; i < COMPACTION_THRESHOLD; i++) {
+      createTinyStoreFile(this.r, i);
+    }
+    assertEquals(COMPACTION_THRESHOLD + 1, store.getStorefiles().size());
+    assertTrue(this.r.compactIfNeeded());
+    assertEquals(2, store.getStorefiles().size());
+    assertEquals(large.toString(),
+      store.getStorefiles().get(store.getStorefiles().firstKey()).toString());
+    for (int i = 0; i < COMPACTION_THRESHOLD; i++) {
+      byte [] value = this.r.get(new Text("tiny" + i), TINY_COLUMN);
+      assertEquals("tiny" + i, new String(value, HConstants.UTF8_ENCODING));
+    }
+    // Too few small files left to bother with a minor compaction.
+    assertFalse(this.r.compactIfNeeded());
+    // Once the major compaction interval has passed, everything is rewritten.
+    this.conf.setLong("hbase.hregion.majorcompaction", 1);
+    reopenRegion();
+    store = this.r.stores.get(COLUMN_FAMILY_TEXT_MINUS_COLON);
+    assertTrue(this.r.isMajorCompactionDue());
+    assertTrue(this.r.compactIfNeeded());
+    assertEquals(1, store.getStorefiles().size());
+    assertFalse(this.r.isMajorCompactionDue());
+  }
+
+  /*
+   * Close and reopen the region so its stores read the configuration again.
+   */
+  private void reopenRegion() throws IOException {
+    this.r.close();
+    this.r = openClosedRegion(this.r);
+  }
+
+  private void createTinyStoreFile(final HRegion region, final int i)
+  throws IOException {
+    HRegionIncommon loader = new HRegionIncommon(region);
+    long lockid = loader.startUpdate(new Text("tiny" + i));
+    loader.put(lockid, TINY_COLUMN,
+      ("tiny" + i).getBytes(HConstants.UTF8_ENCODING));
+    loader.commit(lockid);
+    loader.flushcache();
+  }
+
   private void createStoreFile(final HRegion region) throws IOException {
     HRegionIncommon loader = new HRegionIncommon(region);
     addContent(loader, COLUMN_FAMILY);
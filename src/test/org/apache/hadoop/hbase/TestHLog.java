@@ -83,6 +83,29 @@ public class TestHLog extends HBaseTestCase implements HConstants {
       }
       HLog.splitLog(this.testDir, this.dir, this.fs, this.conf);
       log = null;
+      // Each region should have all its edits, in the order they were logged.
+      for (int i = 0; i < 3; i++) {
+        Text regionName = new Text(Integer.toString(i));
+        Path logfile = new Path(HRegion.getRegionDir(
+          HTableDescriptor.getTableDir(this.testDir, tableName),
+          HRegionInfo.encodeRegionName(regionName)), HREGION_OLDLOGFILE_NAME);
+        Reader reader = new SequenceFile.Reader(this.fs, logfile, this.conf);
+        try {
+          HLogKey key = new HLogKey();
+          HLogEdit val = new HLogEdit();
+          int count = 0;
+          long lastSeqNum = -1;
+          while (reader.next(key, val)) {
+            assertEquals(regionName, key.getRegionName());
+            assertTrue(key.getLogSeqNum() > lastSeqNum);
+            lastSeqNum = key.getLogSeqNum();
+            count++;
+          }
+          assertEquals(9, count);
+        } finally {
+          reader.close();
+        }
+      }
     } finally {
       if (log != null) {
         log.closeAndDelete();
@@ -146,4 +169,107 @@ public class TestHLog extends HBaseTestCase implements HConstants {
     }
   }
 
+
+  /**
+   * Have several threads append at once and check every edit makes it into
+   * the log, in sequence id order.
+   * @throws Exception
+   */
+  public void testConcurrentAppend() throws Exception {
+    final int THREAD_COUNT = 5;
+    final int EDIT_COUNT = 50;
+    final Text tableName = new Text("tablename");
+    final HLog log = new HLog(fs, dir, this.conf, null);
+    Reader reader = null;
+    try {
+      final IOException [] errors = new IOException[THREAD_COUNT];
+      Thread [] threads = new Thread[THREAD_COUNT];
+      for (int i = 0; i < THREAD_COUNT; i++) {
+        final int index = i;
+        threads[i] = new Thread() {
+          @Override
+          public void run() {
+            Text regionName = new Text("region" + index);
+            try {
+              for (int j = 0; j < EDIT_COUNT; j++) {
+                TreeMap<HStoreKey, byte []> cols =
+                  new TreeMap<HStoreKey, byte []>();
+                cols.put(new HStoreKey(new Text("row" + j), new Text("a:"),
+                    System.currentTimeMillis()), new byte[] { (byte)index });
+                log.append(regionName, tableName, cols);
+              }
+            } catch (IOException e) {
+              errors[index] = e;
+            }
+          }
+        };
+        threads[i].start();
+      }
+      for (int i = 0; i < THREAD_COUNT; i++) {
+        threads[i].join();
+        assertNull(errors[i]);
+      }
+      log.close();
+      Path filename = log.computeFilename(log.getFilenum() - 1);
+      reader = new SequenceFile.Reader(fs, filename, conf);
+      HLogKey key = new HLogKey();
+      HLogEdit val = new HLogEdit();
+      int count = 0;
+      long lastSeqNum = -1;
+      while (reader.next(key, val)) {
+        assertTrue(key.getLogSeqNum() > lastSeqNum);
+        lastSeqNum = key.getLogSeqNum();
+        count++;
+      }
+      assertEquals(THREAD_COUNT * EDIT_COUNT, count);
+    } finally {
+      fs.delete(dir);
+      if (reader != null) {
+        reader.close();
+      }
+    }
+  }
+
+  /**
+   * Close the log while threads append.  Every append must either return or
+   * fail; none may be left waiting on a batch the writer never takes.
+   * @throws Exception
+   */
+  public void testAppendDuringClose() throws Exception {
+    final int THREAD_COUNT = 5;
+    final Text tableName = new Text("tablename");
+    final HLog log = new HLog(fs, dir, this.conf, null);
+    try {
+      Thread [] threads = new Thread[THREAD_COUNT];
+      for (int i = 0; i < THREAD_COUNT; i++) {
+        final int index = i;
+        threads[i] = new Thread() {
+          @Override
+          public void run() {
+            Text regionName = new Text("region" + index);
+            try {
+              for (int j = 0; true; j++) {
+                TreeMap<HStoreKey, byte []> cols =
+                  new TreeMap<HStoreKey, byte []>();
+                cols.put(new HStoreKey(new Text("row" + j), new Text("a:"),
+                    System.currentTimeMillis()), new byte[] { (byte)index });
+                log.append(regionName, tableName, cols);
+              }
+            } catch (IOException e) {
+              // Expected once the log closes.
+            }
+          }
+        };
+        threads[i].start();
+      }
+      Thread.sleep(500);
+      log.close();
+      for (int i = 0; i < THREAD_COUNT; i++) {
+        threads[i].join(10 * 1000);
+        assertFalse("append hung across close", threads[i].isAlive());
+      }
+    } finally {
+      fs.delete(dir);
+    }
+  }
 }
\ No newline at end of file
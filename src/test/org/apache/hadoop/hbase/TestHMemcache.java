@@ -22,6 +22,9 @@ package org.apache.hadoop.hbase;
 import java.io.IOException;
 import java.io.UnsupportedEncodingException;
 import java.rmi.UnexpectedException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
 import java.util.Map;
 import java.util.TreeMap;
 import java.util.SortedMap;
@@ -44,7 +47,14 @@ public class TestHMemcache extends TestCase {
   @Override
   public void setUp() throws Exception {
     super.setUp();
-    this.hmemcache = new HStore.Memcache();
+    this.hmemcache = createMemcache();
+  }
+
+  /**
+   * @return The memcache instance to test against.
+   */
+  protected HStore.Memcache createMemcache() {
+    return new HStore.Memcache();
   }
 
   private Text getRowName(final int index) {
@@ -195,6 +205,64 @@ public class TestHMemcache extends TestCase {
     }
   }
   
+  /**
+   * Run writers and readers against the memcache at the same time.  Readers
+   * must never block behind writers nor see a partially updated map.
+   * @throws Exception
+   */
+  public void testConcurrentAddAndGet() throws Exception {
+    final int threadCount = 4;
+    final int rowsPerThread = 250;
+    final Text column = new Text(COLUMN_FAMILY + ":concurrent");
+    final List<Throwable> failures =
+      Collections.synchronizedList(new ArrayList<Throwable>());
+    Thread [] threads = new Thread[threadCount * 2];
+    for (int i = 0; i < threadCount; i++) {
+      final int writer = i;
+      threads[i] = new Thread("writer-" + i) {
+        @Override
+        public void run() {
+          for (int j = 0; j < rowsPerThread; j++) {
+            Text row = new Text("w" + writer + "r" + j);
+            hmemcache.add(new HStoreKey(row, column, j), row.getBytes());
+          }
+        }
+      };
+      threads[threadCount + i] = new Thread("reader-" + i) {
+        @Override
+        public void run() {
+          try {
+            for (int j = 0; j < rowsPerThread; j++) {
+              Text row = new Text("w" + writer + "r" + j);
+              List<byte []> values =
+                hmemcache.get(new HStoreKey(row, column, j), 1);
+              assertTrue(values.size() <= 1);
+              hmemcache.getNextRow(row);
+            }
+          } catch (Throwable t) {
+            failures.add(t);
+          }
+        }
+      };
+    }
+    for (int i = 0; i < threads.length; i++) {
+      threads[i].start();
+    }
+    for (int i = 0; i < threads.length; i++) {
+      threads[i].join();
+    }
+    assertEquals(failures.toString(), 0, failures.size());
+    for (int i = 0; i < threadCount; i++) {
+      for (int j = 0; j < rowsPerThread; j++) {
+        Text row = new Text("w" + i + "r" + j);
+        assertEquals(1, hmemcache.get(new HStoreKey(row, column, j), 1).size());
+      }
+    }
+    // Snapshot must take everything added so far.
+    hmemcache.snapshot();
+    assertEquals(threadCount * rowsPerThread, hmemcache.getSnapshot().size());
+  }
+
   /** For HBASE-514 **/
   public void testGetRowKeyAtOrBefore() {
     // set up some test data
@@ -0,0 +1,88 @@
+/**
+ * Copyright 2008 The Apache Software Foundation
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.hadoop.hbase;
+
+import java.util.Map;
+import java.util.SortedMap;
+
+import org.apache.hadoop.io.Text;
+
+/**
+ * Runs the memcache tests against a slab-backed memcache.  Chunks are made
+ * small so tests roll over many chunks and allocate oversized cells outside
+ * of them.
+ */
+public class TestHMemcacheSlab extends TestHMemcache {
+  private static final int CHUNK_SIZE = 256;
+
+  /** {@inheritDoc} */
+  @Override
+  protected HStore.Memcache createMemcache() {
+    return new HStore.Memcache(CHUNK_SIZE, true);
+  }
+
+  /**
+   * Check the slab map orders, overwrites and materializes cells as a
+   * TreeMap would.
+   */
+  public void testSlabMapOrdering() {
+    MemcacheSlabMap map = new MemcacheSlabMap(CHUNK_SIZE, false);
+    Text row = new Text("row");
+    Text column = new Text("family:qualifier");
+    // Lengths of row, column and value, a timestamp and the cell bytes.
+    int overhead = 3 * 4 + 8 + row.getLength() + column.getLength();
+    for (int i = 0; i < 10; i++) {
+      assertEquals(overhead + 1, map.add(new HStoreKey(row, column, i),
+        Integer.toString(i).getBytes()));
+    }
+    // Overwrite and oversized value.  The overwrite is counted in full.
+    byte [] big = new byte[CHUNK_SIZE];
+    assertEquals(overhead + big.length,
+      map.add(new HStoreKey(row, column, 5), big));
+    assertEquals(10, map.size());
+    assertEquals(big.length, map.get(new HStoreKey(row, column, 5)).length);
+    assertNull(map.get(new HStoreKey(row, column, 10)));
+    // Newest timestamp sorts first.
+    assertEquals(9, map.firstKey().getTimestamp());
+    assertEquals(0, map.lastKey().getTimestamp());
+    SortedMap<HStoreKey, byte []> tail =
+      map.tailMap(new HStoreKey(row, column, 3));
+    long expected = 3;
+    for (Map.Entry<HStoreKey, byte []> e: tail.entrySet()) {
+      assertEquals(expected--, e.getKey().getTimestamp());
+      assertTrue(e.getKey().matchesRowCol(new HStoreKey(row, column)));
+    }
+    assertEquals(-1, expected);
+    assertTrue(map.headMap(new HStoreKey(row)).isEmpty());
+  }
+
+  /**
+   * Check the memcache reports the slab bytes edits take, which the region
+   * adds to its memcache size.  Overwriting a cell is counted again.
+   */
+  public void testSlabMemcacheSize() {
+    HStore.Memcache memcache = createMemcache();
+    HStoreKey key = new HStoreKey(new Text("row"), new Text("family:a"), 1);
+    byte [] value = "value".getBytes();
+    long size = memcache.add(key, value);
+    assertTrue(size > HRegion.getEntrySize(key, value));
+    assertEquals(size, memcache.add(key, value));
+  }
+}
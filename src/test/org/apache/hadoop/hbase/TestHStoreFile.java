@@ -26,10 +26,15 @@ import org.apache.commons.logging.LogFactory;
 import org.apache.hadoop.dfs.MiniDFSCluster;
 import org.apache.hadoop.fs.Path;
 import org.apache.hadoop.hbase.io.ImmutableBytesWritable;
+import org.apache.hadoop.hbase.io.ZlibLevelCodec;
+import org.apache.hadoop.hbase.util.Writables;
 import org.apache.hadoop.io.MapFile;
 import org.apache.hadoop.io.SequenceFile;
 import org.apache.hadoop.io.Text;
 import org.apache.hadoop.io.WritableComparable;
+import org.apache.hadoop.io.compress.DefaultCodec;
+import org.apache.hadoop.io.compress.LzoCodec;
+import org.onelab.filter.BloomFilter;
 
 /**
  * Test HStoreFile
@@ -113,6 +118,247 @@ public class TestHStoreFile extends HBaseTestCase {
     }
   }
   
+  /**
+   * Test a store file's bloom filter is saved beside it and loaded with its
+   * reader, and that a reference uses the filter of the file it references.
+   * @throws IOException
+   */
+  public void testBloomFilter() throws IOException {
+    HStoreFile hsf = new HStoreFile(this.conf, this.fs, this.dir, getName(),
+        new Text("colfamily"), 1234567890L, null);
+    MapFile.Writer writer = hsf.getWriter(this.fs,
+      new HColumnDescriptor("colfamily:"), new BloomFilter(100000, 4));
+    writeStoreFile(writer);
+    assertTrue(this.fs.exists(hsf.getFilterFilePath()));
+    HStoreFile.BloomFilterMapFile.Reader reader =
+      (HStoreFile.BloomFilterMapFile.Reader)hsf.getReader(this.fs, true);
+    try {
+      // Rows and columns written by writeStoreFile are the same.
+      Text present = new Text("bc");
+      assertTrue(reader.mightContain(present, null));
+      assertTrue(reader.mightContain(present, new Text()));
+      assertTrue(reader.mightContain(present, present));
+      assertFalse(reader.mightContain(new Text("nosuchrow"), null));
+      assertFalse(reader.mightContain(present, new Text("nosuchcolumn")));
+    } finally {
+      reader.close();
+    }
+    // Without the filter, all tests pass.
+    reader =
+      (HStoreFile.BloomFilterMapFile.Reader)hsf.getReader(this.fs, false);
+    try {
+      assertTrue(reader.mightContain(new Text("nosuchrow"), null));
+    } finally {
+      reader.close();
+    }
+    // A reference uses the filter of the referenced file.
+    HStoreFile.Reference reference =
+      new HStoreFile.Reference(hsf.getEncodedRegionName(), hsf.getFileId(),
+        new HStoreKey(new Text("bc")), HStoreFile.Range.top);
+    HStoreFile refHsf = new HStoreFile(this.conf, this.fs,
+      new Path(DIR, getName()), getName() + "_reference",
+      hsf.getColFamily(), 456, reference);
+    assertEquals(hsf.getFilterFilePath(), refHsf.getFilterFilePath());
+    // Deleting the store file deletes its filter.
+    hsf.delete();
+    assertFalse(this.fs.exists(hsf.getFilterFilePath()));
+  }
+
+  /**
+   * Test concurrent reads of a store file each get a reader of their own, up
+   * to the configured limit, and read correctly.
+   * @throws Exception
+   */
+  public void testConcurrentReaders() throws Exception {
+    this.conf.setInt("hbase.io.storefile.readers", 3);
+    HStoreFile hsf = new HStoreFile(this.conf, this.fs, this.dir, getName(),
+        new Text("colfamily"), 1234567890L, null);
+    writeStoreFile(hsf.getWriter(this.fs,
+      new HColumnDescriptor("colfamily:"), null));
+    final HStoreFile.HbaseMapFile.HbaseReader reader =
+      (HStoreFile.HbaseMapFile.HbaseReader)hsf.getReader(this.fs, false);
+    try {
+      // The first reader handed out is the store file's own.
+      MapFile.Reader first = reader.acquire();
+      assertSame(reader, first);
+      MapFile.Reader second = reader.acquire();
+      MapFile.Reader third = reader.acquire();
+      assertNotSame(first, second);
+      assertNotSame(second, third);
+      // At the limit, the next acquire waits for a release.
+      final MapFile.Reader [] fourth = new MapFile.Reader[1];
+      Thread t = new Thread() {
+        @Override
+        public void run() {
+          try {
+            fourth[0] = reader.acquire();
+          } catch (IOException e) {
+            LOG.error(e);
+          }
+        }
+      };
+      t.start();
+      t.join(1000);
+      assertTrue(t.isAlive());
+      reader.release(second);
+      t.join();
+      assertSame(second, fourth[0]);
+      reader.release(first);
+      reader.release(third);
+      reader.release(fourth[0]);
+
+      // Many threads reading at once all find what they look for.
+      final int [] failures = new int[1];
+      Thread [] readers = new Thread[10];
+      for (int i = 0; i < readers.length; i++) {
+        readers[i] = new Thread() {
+          @Override
+          public void run() {
+            try {
+              for (char d = FIRST_CHAR; d <= LAST_CHAR; d++) {
+                byte [] b = new byte[] {(byte)d, (byte)d};
+                Text t = new Text(new String(b, HConstants.UTF8_ENCODING));
+                ImmutableBytesWritable value = new ImmutableBytesWritable();
+                MapFile.Reader r = reader.acquire();
+                try {
+                  HStoreKey key =
+                    (HStoreKey)r.getClosest(new HStoreKey(t), value);
+                  if (key == null || !key.getRow().equals(t) ||
+                      !t.toString().equals(new String(value.get(),
+                        HConstants.UTF8_ENCODING))) {
+                    synchronized (failures) {
+                      failures[0]++;
+                    }
+                  }
+                } finally {
+                  reader.release(r);
+                }
+              }
+            } catch (IOException e) {
+              LOG.error(e);
+              synchronized (failures) {
+                failures[0]++;
+              }
+            }
+          }
+        };
+        readers[i].start();
+      }
+      for (int i = 0; i < readers.length; i++) {
+        readers[i].join();
+      }
+      assertEquals(0, failures[0]);
+    } finally {
+      reader.close();
+    }
+    hsf.delete();
+  }
+
+  /**
+   * Test store files are written with their family's compression type,
+   * codec, level and block size, and read back.
+   * @throws IOException
+   */
+  public void testCompression() throws IOException {
+    assertCompression(HColumnDescriptor.CompressionType.NONE,
+      HColumnDescriptor.Codec.ZLIB, -1, 0, null);
+    assertCompression(HColumnDescriptor.CompressionType.RECORD,
+      HColumnDescriptor.Codec.ZLIB, -1, 0, DefaultCodec.class);
+    assertCompression(HColumnDescriptor.CompressionType.BLOCK,
+      HColumnDescriptor.Codec.ZLIB, 1, 4096, ZlibLevelCodec.class);
+    // Falls back to zlib if native LZO is not loaded.
+    assertCompression(HColumnDescriptor.CompressionType.BLOCK,
+      HColumnDescriptor.Codec.LZO, -1, 0,
+      LzoCodec.isNativeLzoLoaded(this.conf)? LzoCodec.class:
+        DefaultCodec.class);
+  }
+
+  /**
+   * Test families at different zlib levels written one after the other each
+   * get their own level, though writers share compressors.
+   * @throws IOException
+   */
+  public void testCompressionLevels() throws IOException {
+    long fastest = getCompressedLength(1);
+    long smallest = getCompressedLength(9);
+    assertEquals(fastest, getCompressedLength(1));
+    assertTrue("level 1: " + fastest + ", level 9: " + smallest,
+      smallest < fastest);
+  }
+
+  /*
+   * @return Length of a store file written at <code>level</code>
+   */
+  private long getCompressedLength(final int level) throws IOException {
+    HColumnDescriptor family = new HColumnDescriptor(new Text("colfamily:"),
+      1, HColumnDescriptor.CompressionType.BLOCK, HColumnDescriptor.Codec.ZLIB,
+      level, 0, false, Integer.MAX_VALUE, null);
+    HStoreFile hsf = new HStoreFile(this.conf, this.fs, this.dir, getName(),
+      new Text("colfamily"), System.currentTimeMillis(), null);
+    MapFile.Writer writer = hsf.getWriter(this.fs, family, null);
+    try {
+      for (int i = 0; i < 10000; i++) {
+        Text t = new Text(String.format("row%1$05d", Integer.valueOf(i)));
+        writer.append(new HStoreKey(t, t, i), new ImmutableBytesWritable(
+          Integer.toString(i * i).getBytes(HConstants.UTF8_ENCODING)));
+      }
+    } finally {
+      writer.close();
+    }
+    long length = this.fs.getFileStatus(
+      new Path(hsf.getMapFilePath(), MapFile.DATA_FILE_NAME)).getLen();
+    hsf.delete();
+    return length;
+  }
+
+  private void assertCompression(
+      final HColumnDescriptor.CompressionType compression,
+      final HColumnDescriptor.Codec codec, final int level,
+      final int blockSize, final Class<?> codecClass)
+  throws IOException {
+    HColumnDescriptor family = new HColumnDescriptor(new Text("colfamily:"),
+      1, compression, codec, level, blockSize, false, Integer.MAX_VALUE,
+      null);
+    // The descriptor survives serialization.
+    HColumnDescriptor copy = new HColumnDescriptor();
+    Writables.getWritable(Writables.getBytes(family), copy);
+    assertEquals(family, copy);
+    assertEquals(level, copy.getCompressionLevel());
+
+    HStoreFile hsf = new HStoreFile(this.conf, this.fs, this.dir, getName(),
+        new Text("colfamily"), System.currentTimeMillis(), null);
+    writeStoreFile(hsf.getWriter(this.fs, family, null));
+    SequenceFile.Reader data = new SequenceFile.Reader(this.fs,
+      new Path(hsf.getMapFilePath(), MapFile.DATA_FILE_NAME), this.conf);
+    try {
+      assertEquals(compression != HColumnDescriptor.CompressionType.NONE,
+        data.isCompressed());
+      assertEquals(compression == HColumnDescriptor.CompressionType.BLOCK,
+        data.isBlockCompressed());
+      if (codecClass != null) {
+        assertEquals(codecClass, data.getCompressionCodec().getClass());
+      }
+    } finally {
+      data.close();
+    }
+    MapFile.Reader reader = hsf.getReader(this.fs, false);
+    try {
+      HStoreKey key = new HStoreKey();
+      ImmutableBytesWritable value = new ImmutableBytesWritable();
+      int count = 0;
+      while (reader.next(key, value)) {
+        assertEquals(key.getRow().toString(),
+          new String(value.get(), HConstants.UTF8_ENCODING));
+        count++;
+      }
+      assertEquals((LAST_CHAR - FIRST_CHAR + 1) * (LAST_CHAR - FIRST_CHAR + 1),
+        count);
+    } finally {
+      reader.close();
+    }
+    hsf.delete();
+  }
+
   /**
    * Test that our mechanism of writing store files in one region to reference
    * store files in other regions works.
@@ -124,9 +370,9 @@ public class TestHStoreFile extends HBaseTestCase {
     HStoreFile hsf = new HStoreFile(this.conf, this.fs, this.dir, getName(),
         new Text("colfamily"), 1234567890L, null);
     MapFile.Writer writer =
-      hsf.getWriter(this.fs, SequenceFile.CompressionType.NONE, null);
+      hsf.getWriter(this.fs, new HColumnDescriptor("colfamily:"), null);
     writeStoreFile(writer);
-    MapFile.Reader reader = hsf.getReader(this.fs, null);
+    MapFile.Reader reader = hsf.getReader(this.fs, false);
     // Split on a row, not in middle of row.  Midkey returned by reader
     // may be in middle of row.  Create new one with empty column and
     // timestamp.
@@ -156,7 +402,7 @@ public class TestHStoreFile extends HBaseTestCase {
         otherReference.getMidkey().toString());
     // Now confirm that I can read from the reference and that it only gets
     // keys from top half of the file.
-    MapFile.Reader halfReader = refHsf.getReader(this.fs, null);
+    MapFile.Reader halfReader = refHsf.getReader(this.fs, false);
     HStoreKey key = new HStoreKey();
     ImmutableBytesWritable value = new ImmutableBytesWritable();
     boolean first = true;
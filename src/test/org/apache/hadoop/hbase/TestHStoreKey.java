@@ -0,0 +1,126 @@
+/**
+ * Copyright 2008 The Apache Software Foundation
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.hadoop.hbase;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import junit.framework.TestCase;
+
+import org.apache.hadoop.io.DataOutputBuffer;
+import org.apache.hadoop.io.Text;
+import org.apache.hadoop.io.WritableComparator;
+
+/**
+ * Test the raw {@link HStoreKey.Comparator} orders serialized keys as
+ * {@link HStoreKey#compareTo(Object)} orders keys.
+ */
+public class TestHStoreKey extends TestCase {
+  private WritableComparator comparator;
+
+  /** {@inheritDoc} */
+  @Override
+  protected void setUp() throws Exception {
+    super.setUp();
+    // Load the class by name as SequenceFile and JobConf do.  This runs the
+    // static initializer that registers the comparator.
+    this.comparator = WritableComparator.get(
+      Class.forName(HStoreKey.class.getName()));
+  }
+
+  /**
+   * Test the raw comparator is the one registered.
+   */
+  public void testRegistered() {
+    assertTrue(this.comparator instanceof HStoreKey.Comparator);
+  }
+
+  /**
+   * Test keys that differ in one field only.
+   * @throws IOException
+   */
+  public void testFields() throws IOException {
+    Text row = new Text("row");
+    Text column = new Text("family:qualifier");
+    assertSameOrder(new HStoreKey(row, column, 1L),
+      new HStoreKey(row, column, 1L));
+    assertSameOrder(new HStoreKey(row, column, 1L),
+      new HStoreKey(row, column, 2L));
+    assertSameOrder(new HStoreKey(row, column, HConstants.LATEST_TIMESTAMP),
+      new HStoreKey(row, column, 0L));
+    assertSameOrder(new HStoreKey(row, column, 1L),
+      new HStoreKey(row, new Text("family:"), 1L));
+    assertSameOrder(new HStoreKey(row, column, 1L),
+      new HStoreKey(new Text("row1"), column, 1L));
+    assertSameOrder(new HStoreKey(row, column, 1L),
+      new HStoreKey(new Text(), column, 1L));
+    // Lengths that need more than one byte to write.
+    StringBuilder sb = new StringBuilder();
+    for (int i = 0; i < 300; i++) {
+      sb.append('r');
+    }
+    assertSameOrder(new HStoreKey(new Text(sb.toString()), column, 1L),
+      new HStoreKey(new Text(sb.toString() + "r"), column, 1L));
+    assertSameOrder(new HStoreKey(row, new Text(sb.toString()), 1L),
+      new HStoreKey(row, new Text(sb.toString()), 2L));
+    // Bytes past 0x7f compare unsigned.
+    assertSameOrder(new HStoreKey(new Text("\u00e9"), column, 1L),
+      new HStoreKey(new Text("z"), column, 1L));
+  }
+
+  /**
+   * Test random keys.
+   * @throws IOException
+   */
+  public void testRandom() throws IOException {
+    Random random = new Random(System.currentTimeMillis());
+    List<HStoreKey> keys = new ArrayList<HStoreKey>();
+    for (int i = 0; i < 200; i++) {
+      keys.add(new HStoreKey(new Text("row" + random.nextInt(10)),
+        new Text("family:" + random.nextInt(10)), random.nextInt(3)));
+    }
+    for (int i = 0; i < keys.size(); i++) {
+      assertSameOrder(keys.get(i), keys.get((i * 7) % keys.size()));
+    }
+  }
+
+  private void assertSameOrder(final HStoreKey left, final HStoreKey right)
+  throws IOException {
+    assertEquals(left + " vs " + right, Integer.signum(left.compareTo(right)),
+      Integer.signum(compare(left, right)));
+    assertEquals(right + " vs " + left, Integer.signum(right.compareTo(left)),
+      Integer.signum(compare(right, left)));
+  }
+
+  private int compare(final HStoreKey left, final HStoreKey right)
+  throws IOException {
+    // Offset the keys in their buffers to check offsets are honored.
+    DataOutputBuffer l = new DataOutputBuffer();
+    l.writeInt(-1);
+    left.write(l);
+    DataOutputBuffer r = new DataOutputBuffer();
+    r.writeLong(-1);
+    right.write(r);
+    return this.comparator.compare(l.getData(), 4, l.getLength() - 4,
+      r.getData(), 8, r.getLength() - 8);
+  }
+}
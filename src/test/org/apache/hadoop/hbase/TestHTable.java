@@ -20,7 +20,10 @@
 package org.apache.hadoop.hbase;
 
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Map;
+import java.util.SortedMap;
 import java.util.TreeMap;
 
 import org.apache.hadoop.io.Text;
@@ -182,4 +185,126 @@ public class TestHTable extends HBaseClusterTestCase implements HConstants {
     }
   }
   
+
+  /**
+   * Test fetching many rows at once returns them in the order asked for.
+   * @throws IOException
+   */
+  public void testGetRows() throws IOException {
+    final Text a = new Text("a:");
+    final Text b = new Text("b:");
+    HTableDescriptor desc = new HTableDescriptor(getName());
+    desc.addFamily(new HColumnDescriptor(a.toString()));
+    desc.addFamily(new HColumnDescriptor(b.toString()));
+    new HBaseAdmin(conf).createTable(desc);
+    HTable table = new HTable(conf, new Text(getName()));
+    for (int i = 0; i < 10; i++) {
+      long lockid = table.startUpdate(new Text("row" + i));
+      table.put(lockid, new Text("a:x"), Integer.toString(i).getBytes(UTF8_ENCODING));
+      table.put(lockid, new Text("a:y"), Integer.toString(i).getBytes(UTF8_ENCODING));
+      table.put(lockid, b, Integer.toString(i).getBytes(UTF8_ENCODING));
+      table.commit(lockid);
+    }
+    List<Text> rows = new ArrayList<Text>();
+    rows.add(new Text("row7"));
+    rows.add(new Text("nosuchrow"));
+    rows.add(new Text("row2"));
+    List<SortedMap<Text, byte[]>> results = table.getRows(rows);
+    assertEquals(3, results.size());
+    assertEquals(3, results.get(0).size());
+    assertEquals("7", new String(results.get(0).get(b), UTF8_ENCODING));
+    assertEquals(0, results.get(1).size());
+    assertEquals("2", new String(results.get(2).get(new Text("a:x")),
+      UTF8_ENCODING));
+
+    // Ask for one whole family and one column of another.
+    results = table.getRows(rows, new Text [] {b, new Text("a:y")},
+      LATEST_TIMESTAMP);
+    assertEquals(2, results.get(0).size());
+    assertTrue(results.get(0).containsKey(b));
+    assertTrue(results.get(0).containsKey(new Text("a:y")));
+    assertEquals(0, results.get(1).size());
+    assertEquals(2, results.get(2).size());
+  }
+
+  /**
+   * Test commits are buffered while auto flush is off and are applied on
+   * flushCommits, when the buffer fills, and by the background flusher.
+   * @throws Exception
+   */
+  public void testWriteBuffer() throws Exception {
+    HTableDescriptor desc = new HTableDescriptor(getName());
+    desc.addFamily(new HColumnDescriptor(COLUMN_FAMILY.toString()));
+    new HBaseAdmin(conf).createTable(desc);
+    HTable table = new HTable(conf, new Text(getName()));
+    HTable reader = new HTable(conf, new Text(getName()));
+    byte [] value = "value".getBytes(UTF8_ENCODING);
+    assertTrue(table.isAutoFlush());
+    table.setAutoFlush(false);
+
+    // Buffered until flushed.
+    for (int i = 0; i < 10; i++) {
+      long lockid = table.startUpdate(new Text("row" + i));
+      table.put(lockid, COLUMN_FAMILY, value);
+      table.commit(lockid);
+    }
+    assertNull(reader.get(new Text("row0"), COLUMN_FAMILY));
+    table.flushCommits();
+    for (int i = 0; i < 10; i++) {
+      assertNotNull(reader.get(new Text("row" + i), COLUMN_FAMILY));
+    }
+
+    // Sent once the buffer is full.
+    table.setWriteBufferSize(100);
+    for (int i = 10; i < 20; i++) {
+      long lockid = table.startUpdate(new Text("row" + i));
+      table.put(lockid, COLUMN_FAMILY, value);
+      table.commit(lockid);
+    }
+    assertNotNull(reader.get(new Text("row10"), COLUMN_FAMILY));
+
+    // Sent by the background flusher.
+    table.setWriteBufferSize(1024 * 1024);
+    long lockid = table.startUpdate(new Text("row20"));
+    table.put(lockid, COLUMN_FAMILY, value);
+    table.commit(lockid);
+    long period = conf.getInt("hbase.client.write.buffer.period", 1000);
+    for (int i = 0; i < 10 &&
+        reader.get(new Text("row20"), COLUMN_FAMILY) == null; i++) {
+      Thread.sleep(period);
+    }
+    assertNotNull(reader.get(new Text("row20"), COLUMN_FAMILY));
+
+    // Sent on close.
+    lockid = table.startUpdate(new Text("row21"));
+    table.put(lockid, COLUMN_FAMILY, value);
+    table.commit(lockid);
+    table.close();
+    assertNotNull(reader.get(new Text("row21"), COLUMN_FAMILY));
+  }
+
+  /**
+   * Test a buffered delete then put of the same cell leaves the put.
+   * @throws Exception
+   */
+  public void testWriteBufferDeleteThenPut() throws Exception {
+    HTableDescriptor desc = new HTableDescriptor(getName());
+    desc.addFamily(new HColumnDescriptor(COLUMN_FAMILY.toString()));
+    new HBaseAdmin(conf).createTable(desc);
+    HTable table = new HTable(conf, new Text(getName()));
+    long lockid = table.startUpdate(row);
+    table.put(lockid, COLUMN_FAMILY, "old".getBytes(UTF8_ENCODING));
+    table.commit(lockid);
+
+    table.setAutoFlush(false);
+    lockid = table.startUpdate(row);
+    table.delete(lockid, COLUMN_FAMILY);
+    table.commit(lockid);
+    lockid = table.startUpdate(row);
+    table.put(lockid, COLUMN_FAMILY, "new".getBytes(UTF8_ENCODING));
+    table.commit(lockid);
+    table.flushCommits();
+    assertEquals("new",
+      new String(table.get(row, COLUMN_FAMILY), UTF8_ENCODING));
+  }
 }
@@ -0,0 +1,91 @@
+/**
+ * Copyright 2008 The Apache Software Foundation
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.hadoop.hbase;
+
+import java.io.IOException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import junit.framework.TestCase;
+
+/**
+ * Test {@link Leases}
+ */
+public class TestLeases extends TestCase {
+  private static final int PERIOD = 1000;
+  private static final int FREQUENCY = 100;
+
+  /**
+   * Test leases expire unless renewed, and cancelled leases never expire.
+   * @throws Exception
+   */
+  public void testLeases() throws Exception {
+    Leases leases = new Leases(PERIOD, FREQUENCY);
+    leases.setName(getName());
+    leases.start();
+    try {
+      final AtomicInteger expired = new AtomicInteger(0);
+      LeaseListener listener = new LeaseListener() {
+        public void leaseExpired() {
+          expired.incrementAndGet();
+        }
+      };
+      leases.createLease(1, 1, listener);
+      leases.createLease(2, 2, listener);
+      leases.createLease(3, 3, listener);
+      assertEquals(3, leases.getLeaseCount());
+      try {
+        leases.createLease(1, 1, listener);
+        fail();
+      } catch (Leases.LeaseStillHeldException e) {
+        // expected
+      }
+      leases.cancelLease(3, 3);
+
+      // Keep renewing lease 1 past the period; lease 2 lapses.
+      long end = System.currentTimeMillis() + 3 * PERIOD;
+      while (System.currentTimeMillis() < end) {
+        leases.renewLease(1, 1);
+        Thread.sleep(FREQUENCY);
+      }
+      assertEquals(1, expired.get());
+      assertEquals(1, leases.getExpiredCount());
+      assertEquals(1, leases.getLeaseCount());
+      assertTrue(leases.getRenewalCount() > 0);
+      try {
+        leases.renewLease(2, 2);
+        fail();
+      } catch (IOException e) {
+        // expected
+      }
+
+      // A lease can be taken again once expired or cancelled.
+      leases.createLease(2, 2, listener);
+      leases.createLease(3, 3, listener);
+      leases.cancelLease(1, 1);
+      leases.cancelLease(2, 2);
+      leases.cancelLease(3, 3);
+      Thread.sleep(2 * PERIOD);
+      assertEquals(1, expired.get());
+      assertEquals(0, leases.getLeaseCount());
+    } finally {
+      leases.close();
+    }
+  }
+}
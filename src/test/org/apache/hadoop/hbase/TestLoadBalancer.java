@@ -0,0 +1,116 @@
+/**
+ * Copyright 2008 The Apache Software Foundation
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.hadoop.hbase;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import junit.framework.TestCase;
+
+import org.apache.hadoop.hbase.util.Writables;
+import org.apache.hadoop.io.Text;
+
+/**
+ * Test {@link LoadBalancer} plans moves off hot servers in small steps.
+ */
+public class TestLoadBalancer extends TestCase {
+  private static final String SERVER_A = "a:60020";
+  private static final String SERVER_B = "b:60020";
+
+  /**
+   * Test nothing moves when servers carry about the same load.
+   */
+  public void testBalanced() {
+    Map<String, HServerLoad> loads = new HashMap<String, HServerLoad>();
+    loads.put(SERVER_A, getLoad("a", 4, 100, 1000));
+    loads.put(SERVER_B, getLoad("b", 4, 110, 1000));
+    assertEquals(0, new LoadBalancer(0.2F, 2).balance(loads).size());
+  }
+
+  /**
+   * Test one busy region moves off the server carrying all the requests and
+   * no more than that, though more moves are allowed.
+   */
+  public void testHotServer() {
+    Map<String, HServerLoad> loads = new HashMap<String, HServerLoad>();
+    loads.put(SERVER_A, getLoad("a", 4, 100, 0));
+    loads.put(SERVER_B, getLoad("b", 4, 0, 0));
+    List<LoadBalancer.RegionMove> moves =
+      new LoadBalancer(0.2F, 10).balance(loads);
+    assertEquals(1, moves.size());
+    assertEquals(SERVER_A, moves.get(0).getSource());
+    assertEquals(SERVER_B, moves.get(0).getDestination());
+    assertTrue(moves.get(0).getRegionName().toString().startsWith("a"));
+  }
+
+  /**
+   * Test moves per call are capped.
+   */
+  public void testMaxMoves() {
+    Map<String, HServerLoad> loads = new HashMap<String, HServerLoad>();
+    loads.put(SERVER_A, getLoad("a", 20, 100, 1000));
+    loads.put(SERVER_B, getLoad("b", 0, 0, 0));
+    assertEquals(3, new LoadBalancer(0.2F, 3).balance(loads).size());
+  }
+
+  /**
+   * Test a region too heavy to move without making its new server the hot one
+   * stays put, as do catalog regions.
+   */
+  public void testUnmovable() {
+    Map<String, HServerLoad> loads = new HashMap<String, HServerLoad>();
+    List<HServerLoad.RegionLoad> regions =
+      new ArrayList<HServerLoad.RegionLoad>();
+    regions.add(new HServerLoad.RegionLoad(new Text("hot"), 1000, 0, 0));
+    regions.add(new HServerLoad.RegionLoad(
+      new Text(HConstants.META_TABLE_NAME + ",,1"), 10, 0, 0));
+    loads.put(SERVER_A, new HServerLoad(1010, regions.size(), regions));
+    loads.put(SERVER_B, getLoad("b", 2, 0, 0));
+    assertEquals(0, new LoadBalancer(0.2F, 2).balance(loads).size());
+  }
+
+  /**
+   * Test per-region load survives serialization.
+   * @throws Exception
+   */
+  public void testSerialization() throws Exception {
+    HServerLoad load = getLoad("a", 3, 10, 100);
+    HServerLoad copy = (HServerLoad)Writables.getWritable(
+      Writables.getBytes(load), new HServerLoad());
+    assertEquals(load, copy);
+    assertEquals(3, copy.getRegionLoad().size());
+    assertEquals(load.getStorefileSize(), copy.getStorefileSize());
+    assertEquals(load.getMemcacheSize(), copy.getMemcacheSize());
+    assertEquals(new Text("a1"), copy.getRegionLoad().get(1).getName());
+  }
+
+  private HServerLoad getLoad(final String prefix, final int count,
+      final int requests, final long size) {
+    List<HServerLoad.RegionLoad> regions =
+      new ArrayList<HServerLoad.RegionLoad>();
+    for (int i = 0; i < count; i++) {
+      regions.add(new HServerLoad.RegionLoad(new Text(prefix + i), requests,
+        size, size));
+    }
+    return new HServerLoad(requests * count, count, regions);
+  }
+}
@@ -0,0 +1,126 @@
+/**
+ * Copyright 2008 The Apache Software Foundation
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.hadoop.hbase;
+
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.apache.hadoop.dfs.MiniDFSCluster;
+import org.apache.hadoop.io.Text;
+
+/**
+ * Test HRegion row locks under contention.
+ */
+public class TestRowLocks extends HBaseTestCase {
+  private static final Text ROW = new Text("row");
+  private static final Text OTHER_ROW = new Text("otherRow");
+
+  private MiniDFSCluster cluster = null;
+  private HRegion r = null;
+
+  /** {@inheritDoc} */
+  @Override
+  public void setUp() throws Exception {
+    this.cluster = new MiniDFSCluster(conf, 1, true, (String[])null);
+    // Make the hbase rootdir match the minidfs we just span up
+    this.conf.set(HConstants.HBASE_DIR,
+      this.cluster.getFileSystem().getHomeDirectory().toString());
+    super.setUp();
+    this.r = createNewHRegion(createTableDescriptor(getName()), null, null);
+  }
+
+  /** {@inheritDoc} */
+  @Override
+  public void tearDown() throws Exception {
+    HLog hlog = this.r.getLog();
+    this.r.close();
+    hlog.closeAndDelete();
+    if (this.cluster != null) {
+      StaticTestEnvironment.shutdownDfs(this.cluster);
+    }
+    super.tearDown();
+  }
+
+  /**
+   * A second locker of a row waits until the first releases it, then gets
+   * the lock.
+   * @throws Exception
+   */
+  public void testSameRow() throws Exception {
+    this.r.obtainRowLock(ROW);
+    Locker locker = new Locker(ROW);
+    try {
+      locker.start();
+      // Give the locker time to get the lock if it is going to.
+      locker.join(1000);
+      assertTrue(locker.isAlive());
+      assertFalse(locker.locked.get());
+    } finally {
+      this.r.releaseRowLock(ROW);
+    }
+    locker.join(10 * 1000);
+    assertFalse(locker.isAlive());
+    assertTrue(locker.locked.get());
+    assertNull(locker.failure);
+  }
+
+  /**
+   * Holding the lock of one row does not block locking another.
+   * @throws Exception
+   */
+  public void testOtherRow() throws Exception {
+    this.r.obtainRowLock(ROW);
+    try {
+      Locker locker = new Locker(OTHER_ROW);
+      locker.start();
+      locker.join(10 * 1000);
+      assertFalse(locker.isAlive());
+      assertTrue(locker.locked.get());
+      assertNull(locker.failure);
+    } finally {
+      this.r.releaseRowLock(ROW);
+    }
+  }
+
+  /*
+   * Takes and releases the lock of a row.
+   */
+  private class Locker extends Thread {
+    private final Text row;
+    final AtomicBoolean locked = new AtomicBoolean(false);
+    volatile Exception failure = null;
+
+    Locker(final Text row) {
+      super("Locker " + row);
+      this.row = row;
+      setDaemon(true);
+    }
+
+    @Override
+    public void run() {
+      try {
+        r.obtainRowLock(this.row);
+        this.locked.set(true);
+        r.releaseRowLock(this.row);
+      } catch (Exception e) {
+        this.failure = e;
+      }
+    }
+  }
+}
@@ -138,9 +138,21 @@ public class TestScannerAPI extends HBaseClusterTestCase {
     } finally {
       scanner.close();
     }
+
+    // Whether rows are fetched one or many per call, all are seen.
+    for (int caching: new int [] {1, 10}) {
+      table.setScannerCaching(caching);
+      scanner = table.obtainScanner(columns, startRow);
+      try {
+        assertEquals(values.size(), verify(scanner));
+      } finally {
+        scanner.close();
+      }
+    }
   }
   
-  private void verify(HScannerInterface scanner) throws IOException {
+  private int verify(HScannerInterface scanner) throws IOException {
+    int count = 0;
     HStoreKey key = new HStoreKey();
     SortedMap<Text, byte[]> results = new TreeMap<Text, byte[]>();
     while (scanner.next(key, results)) {
@@ -156,6 +168,8 @@ public class TestScannerAPI extends HBaseClusterTestCase {
             results.get(column)));
       }
       results.clear();
+      count++;
     }
+    return count;
   }
 }
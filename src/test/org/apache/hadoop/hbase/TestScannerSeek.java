@@ -0,0 +1,309 @@
+/**
+ * Copyright 2008 The Apache Software Foundation
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.hadoop.hbase;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SortedMap;
+import java.util.TreeMap;
+
+import org.apache.hadoop.dfs.MiniDFSCluster;
+import org.apache.hadoop.hbase.filter.AbstractRowFilter;
+import org.apache.hadoop.hbase.filter.PrefixRowFilter;
+import org.apache.hadoop.hbase.filter.RowFilterInterface;
+import org.apache.hadoop.io.Text;
+
+/**
+ * Test scanners that seek through store files: scans of a few named columns
+ * of wide rows, scans that start mid-table, and scans whose filter hints at
+ * rows to skip.
+ */
+public class TestScannerSeek extends HBaseTestCase {
+  private static final int ROW_COUNT = 20;
+  private static final int COLUMN_COUNT = 50;
+  /** Rows whose number is a multiple of this pass {@link SkippingFilter} */
+  static final int STRIDE = 5;
+  /** Rows {@link SkippingFilter} or {@link CountingPrefixFilter} filtered */
+  static int filteredRowCount = 0;
+
+  private MiniDFSCluster miniHdfs;
+
+  /** {@inheritDoc} */
+  @Override
+  protected void setUp() throws Exception {
+    super.setUp();
+    this.miniHdfs = new MiniDFSCluster(this.conf, 1, true, null);
+    // Set the hbase.rootdir to be the home directory in mini dfs.
+    this.conf.set(HConstants.HBASE_DIR,
+      this.miniHdfs.getFileSystem().getHomeDirectory().toString());
+  }
+
+  /** {@inheritDoc} */
+  @Override
+  protected void tearDown() throws Exception {
+    if (this.miniHdfs != null) {
+      this.miniHdfs.shutdown();
+    }
+    super.tearDown();
+  }
+
+  /**
+   * Test scans over store files alone and over store files and memcache.
+   * @throws Exception
+   */
+  public void testSeek() throws Exception {
+    HRegion region = null;
+    try {
+      HTableDescriptor htd = createTableDescriptor(getName());
+      region = createNewHRegion(htd, null, null);
+      HRegionIncommon incommon = new HRegionIncommon(region);
+      for (int i = 0; i < ROW_COUNT; i++) {
+        long lockid = incommon.startUpdate(getRow(i));
+        for (int j = 0; j < COLUMN_COUNT; j++) {
+          incommon.put(lockid, getColumn(j), getValue(i, j));
+        }
+        incommon.commit(lockid, 1L);
+      }
+      incommon.flushcache();
+      assertScans(region);
+
+      // Newer values for some cells, some in the memcache and some in a
+      // second store file.
+      for (int i = 0; i < ROW_COUNT; i += 3) {
+        long lockid = incommon.startUpdate(getRow(i));
+        incommon.put(lockid, getColumn(40), getValue(i, 40));
+        incommon.commit(lockid, 2L);
+        if (i == ROW_COUNT / 2) {
+          incommon.flushcache();
+        }
+      }
+      assertScans(region);
+    } finally {
+      if (region != null) {
+        try {
+          region.close();
+        } catch (Exception e) {
+          e.printStackTrace();
+        }
+        region.getLog().closeAndDelete();
+      }
+    }
+  }
+
+  private void assertScans(final HRegion region) throws IOException {
+    // A few named columns of each wide row.
+    Text [] columns = {getColumn(10), getColumn(40), getColumn(45)};
+    List<Text> rows = scan(region, columns, HConstants.EMPTY_START_ROW, null);
+    assertEquals(ROW_COUNT, rows.size());
+
+    // Start mid-table.
+    rows = scan(region, columns, getRow(7), null);
+    assertEquals(ROW_COUNT - 7, rows.size());
+    assertEquals(getRow(7), rows.get(0));
+
+    // The whole family.
+    rows = scan(region, new Text [] {new Text(COLFAMILY_NAME1)},
+      HConstants.EMPTY_START_ROW, null);
+    assertEquals(ROW_COUNT, rows.size());
+
+    // Skip rows the filter says it would filter.
+    filteredRowCount = 0;
+    rows = scan(region, columns, HConstants.EMPTY_START_ROW,
+      new SkippingFilter());
+    List<Text> expected = new ArrayList<Text>();
+    for (int i = 0; i < ROW_COUNT; i += STRIDE) {
+      expected.add(getRow(i));
+    }
+    assertEquals(expected, rows);
+    // One row filtered in each stride before seeking to the next.
+    assertEquals(ROW_COUNT / STRIDE, filteredRowCount);
+
+    // Seek from the first row to the rows with the prefix.
+    filteredRowCount = 0;
+    rows = scan(region, columns, HConstants.EMPTY_START_ROW,
+      new CountingPrefixFilter(new Text("row1")));
+    expected.clear();
+    for (int i = 10; i < ROW_COUNT; i++) {
+      expected.add(getRow(i));
+    }
+    assertEquals(expected, rows);
+    assertEquals(1, filteredRowCount);
+  }
+
+  /*
+   * Scan and check every row has all the asked for columns with the values
+   * they were given.
+   * @return Rows found
+   */
+  private List<Text> scan(final HRegion region, final Text [] columns,
+      final Text firstRow, final RowFilterInterface filter)
+  throws IOException {
+    List<Text> rows = new ArrayList<Text>();
+    HScannerInterface scanner = region.getScanner(columns, firstRow,
+      HConstants.LATEST_TIMESTAMP, filter);
+    try {
+      HStoreKey key = new HStoreKey();
+      TreeMap<Text, byte []> results = new TreeMap<Text, byte []>();
+      while (scanner.next(key, results)) {
+        Text row = new Text(key.getRow());
+        rows.add(row);
+        int i = Integer.parseInt(row.toString().substring(3));
+        if (columns.length == 1) {
+          assertEquals(COLUMN_COUNT, results.size());
+        } else {
+          assertEquals(columns.length, results.size());
+        }
+        for (int j = 0; j < COLUMN_COUNT; j++) {
+          byte [] value = results.get(getColumn(j));
+          if (value != null) {
+            assertEquals(new String(getValue(i, j)), new String(value));
+          }
+        }
+        results.clear();
+      }
+    } finally {
+      scanner.close();
+    }
+    return rows;
+  }
+
+  private static Text getRow(final int i) {
+    return new Text(String.format("row%1$02d", Integer.valueOf(i)));
+  }
+
+  private static Text getColumn(final int j) {
+    return new Text(COLFAMILY_NAME1 + String.format("c%1$03d",
+      Integer.valueOf(j)));
+  }
+
+  private static byte [] getValue(final int i, final int j) {
+    return (getRow(i).toString() + getColumn(j).toString()).getBytes();
+  }
+
+  /**
+   * Passes rows whose number is a multiple of {@link #STRIDE} and hints the
+   * scanner on to the next such row.
+   */
+  public static class SkippingFilter extends AbstractRowFilter {
+    /** {@inheritDoc} */
+    public boolean filter(final Text rowKey) {
+      if (rowKey == null) {
+        return false;
+      }
+      boolean filtered = getNumber(rowKey) % STRIDE != 0;
+      if (filtered) {
+        filteredRowCount++;
+      }
+      return filtered;
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public Text getNextRowHint(final Text rowKey) {
+      return getRow((getNumber(rowKey) / STRIDE + 1) * STRIDE);
+    }
+
+    private int getNumber(final Text rowKey) {
+      return Integer.parseInt(rowKey.toString().substring(3));
+    }
+
+    /** {@inheritDoc} */
+    @SuppressWarnings("unused")
+    public boolean filter(final Text rowKey, final Text colKey,
+        final byte[] data) {
+      return false;
+    }
+
+    /** {@inheritDoc} */
+    @SuppressWarnings("unused")
+    public boolean filterNotNull(final SortedMap<Text, byte[]> columns) {
+      return false;
+    }
+
+    /** {@inheritDoc} */
+    public boolean filterAllRemaining() {
+      return false;
+    }
+
+    /** {@inheritDoc} */
+    public boolean processAlways() {
+      return false;
+    }
+
+    /** {@inheritDoc} */
+    public void reset() {
+      // Nothing to reset
+    }
+
+    /** {@inheritDoc} */
+    @SuppressWarnings("unused")
+    public void rowProcessed(boolean filtered, Text key) {
+      // Doesn't care
+    }
+
+    /** {@inheritDoc} */
+    @SuppressWarnings("unused")
+    public void validate(final Text[] columns) {
+      // Any columns will do
+    }
+
+    /** {@inheritDoc} */
+    @SuppressWarnings("unused")
+    public void readFields(final DataInput in) {
+      // No state
+    }
+
+    /** {@inheritDoc} */
+    @SuppressWarnings("unused")
+    public void write(final DataOutput out) {
+      // No state
+    }
+  }
+
+  /**
+   * Counts the rows a {@link PrefixRowFilter} filters.
+   */
+  public static class CountingPrefixFilter extends PrefixRowFilter {
+    /** Default constructor used by Writable */
+    public CountingPrefixFilter() {
+      super();
+    }
+
+    /**
+     * @param prefix
+     */
+    public CountingPrefixFilter(final Text prefix) {
+      super(prefix);
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public boolean filter(final Text rowKey) {
+      boolean filtered = super.filter(rowKey);
+      if (filtered) {
+        filteredRowCount++;
+      }
+      return filtered;
+    }
+  }
+}
@@ -20,6 +20,7 @@
 package org.apache.hadoop.hbase;
 
 import java.io.IOException;
+import java.util.List;
 import java.util.TreeMap;
 
 import org.apache.commons.logging.Log;
@@ -86,6 +87,42 @@ public class TestSplit extends HBaseTestCase {
     }
   }
   
+  /**
+   * Test rows that divide a region into pieces, as used by map tasks
+   * reading big regions, are sorted and inside the region.
+   * @throws Exception
+   */
+  public void testSplitRows() throws Exception {
+    MiniDFSCluster cluster = null;
+    HRegion region = null;
+    try {
+      cluster = new MiniDFSCluster(conf, 2, true, (String[])null);
+      this.conf.set(HConstants.HBASE_DIR,
+        cluster.getFileSystem().getHomeDirectory().toString());
+      HTableDescriptor htd = createTableDescriptor(getName());
+      region = createNewHRegion(htd, null, null);
+      addContent(region, COLFAMILY_NAME3);
+      region.flushcache();
+      assertEquals(0, region.getSplitRows(Long.MAX_VALUE).size());
+      long size = region.largestHStore(new Text()).getAggregate();
+      List<Text> rows = region.getSplitRows((size + 3) / 4);
+      assertEquals(3, rows.size());
+      Text previous = region.getStartKey();
+      for (Text row: rows) {
+        assertTrue(row.compareTo(previous) > 0);
+        previous = row;
+      }
+    } finally {
+      if (region != null) {
+        region.close();
+        region.getLog().closeAndDelete();
+      }
+      if (cluster != null) {
+        StaticTestEnvironment.shutdownDfs(cluster);
+      }
+    }
+  }
+  
   private void basicSplit(final HRegion region) throws Exception {
     addContent(region, COLFAMILY_NAME3);
     region.flushcache();
@@ -0,0 +1,227 @@
+/**
+ * Copyright 2008 The Apache Software Foundation
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.hadoop.hbase.filter;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.TreeMap;
+
+import org.apache.hadoop.dfs.MiniDFSCluster;
+import org.apache.hadoop.hbase.HBaseTestCase;
+import org.apache.hadoop.hbase.HConstants;
+import org.apache.hadoop.hbase.HRegion;
+import org.apache.hadoop.hbase.HScannerInterface;
+import org.apache.hadoop.hbase.HStoreKey;
+import org.apache.hadoop.hbase.HTableDescriptor;
+import org.apache.hadoop.hbase.util.Writables;
+import org.apache.hadoop.io.Text;
+
+/**
+ * Test the filters that pass rows on column values, scanning a region with
+ * the tested column in one family and the rest of the row in another.
+ */
+public class TestColumnValueRowFilters extends HBaseTestCase {
+  private static final Text VALUE_COLUMN = new Text(COLFAMILY_NAME1 + "a");
+  private static final Text OTHER_COLUMN = new Text(COLFAMILY_NAME2 + "b");
+  private static final Text [] SCAN_COLUMNS = {VALUE_COLUMN, OTHER_COLUMN};
+  private static final int ROW_COUNT = 10;
+  /** Row whose value is overwritten by a newer version */
+  private static final int UPDATED_ROW = 5;
+
+  private MiniDFSCluster miniHdfs;
+
+  /** {@inheritDoc} */
+  @Override
+  protected void setUp() throws Exception {
+    super.setUp();
+    this.miniHdfs = new MiniDFSCluster(this.conf, 1, true, null);
+    // Set the hbase.rootdir to be the home directory in mini dfs.
+    this.conf.set(HConstants.HBASE_DIR,
+      this.miniHdfs.getFileSystem().getHomeDirectory().toString());
+  }
+
+  /** {@inheritDoc} */
+  @Override
+  protected void tearDown() throws Exception {
+    if (this.miniHdfs != null) {
+      this.miniHdfs.shutdown();
+    }
+    super.tearDown();
+  }
+
+  /**
+   * Test filters on values both in the memcache and in store files.
+   * @throws Exception
+   */
+  public void testScan() throws Exception {
+    HRegion region = null;
+    try {
+      HTableDescriptor htd = createTableDescriptor(getName());
+      region = createNewHRegion(htd, null, null);
+      HRegionIncommon incommon = new HRegionIncommon(region);
+      for (int i = 0; i < ROW_COUNT; i++) {
+        long lockid = incommon.startUpdate(getRow(i));
+        incommon.put(lockid, VALUE_COLUMN, getBytes("v" + i));
+        if (i % 2 == 0) {
+          incommon.put(lockid, OTHER_COLUMN, getBytes("x"));
+        }
+        incommon.commit(lockid, 1L);
+      }
+      // Only the newest version of a value is tested.
+      long lockid = incommon.startUpdate(getRow(UPDATED_ROW));
+      incommon.put(lockid, VALUE_COLUMN, getBytes("w" + UPDATED_ROW));
+      incommon.commit(lockid, 2L);
+
+      assertScans(region);
+      incommon.flushcache();
+      assertScans(region);
+    } finally {
+      if (region != null) {
+        try {
+          region.close();
+        } catch (Exception e) {
+          e.printStackTrace();
+        }
+        region.getLog().closeAndDelete();
+      }
+    }
+  }
+
+  private void assertScans(final HRegion region) throws IOException {
+    assertRows(region, new ValueEqualsRowFilter(VALUE_COLUMN, getBytes("v4")),
+      4);
+    assertRows(region, new ValueEqualsRowFilter(VALUE_COLUMN,
+      getBytes("v" + UPDATED_ROW)));
+    assertRows(region, new ValuePrefixRowFilter(VALUE_COLUMN, getBytes("v")),
+      0, 1, 2, 3, 4, 6, 7, 8, 9);
+    assertRows(region, new ValueRangeRowFilter(VALUE_COLUMN, getBytes("v2"),
+      getBytes("v5")), 2, 3, 4);
+    assertRows(region, new ValueRangeRowFilter(VALUE_COLUMN, getBytes("v2"),
+      false, null, false, true), 3, 4, 6, 7, 8, 9, UPDATED_ROW);
+    // Rows missing the column are filtered unless asked otherwise.
+    assertRows(region, new ValueEqualsRowFilter(OTHER_COLUMN, getBytes("x")),
+      0, 2, 4, 6, 8);
+    assertRows(region, new ValueEqualsRowFilter(OTHER_COLUMN, getBytes("y"),
+      false), 1, 3, 5, 7, 9);
+    assertRows(region, new ColumnExistsRowFilter(OTHER_COLUMN), 0, 2, 4, 6, 8);
+    assertRows(region, new ColumnExistsRowFilter(VALUE_COLUMN, OTHER_COLUMN),
+      0, 2, 4, 6, 8);
+  }
+
+  /*
+   * Scan the whole region and check exactly the expected rows come back with
+   * all their columns.
+   */
+  private void assertRows(final HRegion region,
+      final RowFilterInterface filter, final int... expected)
+  throws IOException {
+    List<Text> wanted = new ArrayList<Text>();
+    for (int i: expected) {
+      wanted.add(getRow(i));
+    }
+    Collections.sort(wanted);
+    List<Text> found = new ArrayList<Text>();
+    HScannerInterface scanner = region.getScanner(SCAN_COLUMNS,
+      HConstants.EMPTY_START_ROW, HConstants.LATEST_TIMESTAMP, filter);
+    try {
+      HStoreKey key = new HStoreKey();
+      TreeMap<Text, byte []> results = new TreeMap<Text, byte []>();
+      while (scanner.next(key, results)) {
+        Text row = new Text(key.getRow());
+        found.add(row);
+        int i = Integer.parseInt(row.toString().substring(3));
+        assertEquals(row.toString(), i % 2 == 0? 2: 1, results.size());
+        results.clear();
+      }
+    } finally {
+      scanner.close();
+    }
+    assertEquals(filter.getClass().getSimpleName(), wanted, found);
+  }
+
+  /**
+   * Test a filter on a column the scanner does not ask for is rejected.
+   */
+  public void testValidate() {
+    RowFilterInterface filter =
+      new ValueEqualsRowFilter(OTHER_COLUMN, getBytes("x"));
+    filter.validate(SCAN_COLUMNS);
+    try {
+      filter.validate(new Text [] {VALUE_COLUMN});
+      fail();
+    } catch (InvalidRowFilterException e) {
+      // Expected
+    }
+    filter = new ColumnExistsRowFilter(VALUE_COLUMN, OTHER_COLUMN);
+    filter.validate(SCAN_COLUMNS);
+    try {
+      filter.validate(new Text [] {VALUE_COLUMN});
+      fail();
+    } catch (InvalidRowFilterException e) {
+      // Expected
+    }
+  }
+
+  /**
+   * Test filters survive serialization.
+   * @throws Exception
+   */
+  public void testSerialization() throws Exception {
+    ValueRangeRowFilter range = (ValueRangeRowFilter)Writables.getWritable(
+      Writables.getBytes(new ValueRangeRowFilter(VALUE_COLUMN, null, false,
+        getBytes("v5"), true, false)), new ValueRangeRowFilter());
+    assertEquals(VALUE_COLUMN, range.getColumn());
+    assertFalse(range.getFilterIfMissing());
+    TreeMap<Text, byte []> columns = new TreeMap<Text, byte []>();
+    assertFalse(range.filterNotNull(columns));
+    columns.put(VALUE_COLUMN, getBytes("v5"));
+    assertFalse(range.filterNotNull(columns));
+    columns.put(VALUE_COLUMN, getBytes("v6"));
+    assertTrue(range.filterNotNull(columns));
+
+    ValueEqualsRowFilter equals = (ValueEqualsRowFilter)Writables.getWritable(
+      Writables.getBytes(new ValueEqualsRowFilter(VALUE_COLUMN,
+        getBytes("v6"))), new ValueEqualsRowFilter());
+    assertFalse(equals.filterNotNull(columns));
+    assertTrue(equals.filter(getRow(0), VALUE_COLUMN, getBytes("v7")));
+
+    ValuePrefixRowFilter prefix = (ValuePrefixRowFilter)Writables.getWritable(
+      Writables.getBytes(new ValuePrefixRowFilter(VALUE_COLUMN,
+        getBytes("w"))), new ValuePrefixRowFilter());
+    assertTrue(prefix.filterNotNull(columns));
+
+    ColumnExistsRowFilter exists = (ColumnExistsRowFilter)Writables.getWritable(
+      Writables.getBytes(new ColumnExistsRowFilter(VALUE_COLUMN,
+        OTHER_COLUMN)), new ColumnExistsRowFilter());
+    assertTrue(exists.filterNotNull(columns));
+    columns.put(OTHER_COLUMN, getBytes("x"));
+    assertFalse(exists.filterNotNull(columns));
+  }
+
+  private static Text getRow(final int i) {
+    return new Text(String.format("row%1$02d", Integer.valueOf(i)));
+  }
+
+  private static byte [] getBytes(final String s) {
+    return s.getBytes();
+  }
+}
@@ -0,0 +1,91 @@
+/**
+ * Copyright 2008 The Apache Software Foundation
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.hadoop.hbase.filter;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+
+import org.apache.hadoop.io.Text;
+
+import junit.framework.TestCase;
+
+/**
+ * Tests the prefix row filter
+ */
+public class TestPrefixRowFilter extends TestCase {
+  private final Text PREFIX = new Text("prefix");
+  private final Text BEFORE_ROW = new Text("abc");
+  private final Text GOOD_ROW = new Text("prefix_row");
+  private final Text PAST_ROW = new Text("zzzzzz");
+
+  RowFilterInterface mainFilter;
+
+  /** {@inheritDoc} */
+  @Override
+  protected void setUp() throws Exception {
+    super.setUp();
+    mainFilter = new PrefixRowFilter(PREFIX);
+  }
+
+  /**
+   * Tests filtering and hints
+   * @throws Exception
+   */
+  public void testPrefixIdentification() throws Exception {
+    prefixTests(mainFilter);
+  }
+
+  /**
+   * Tests serialization
+   * @throws Exception
+   */
+  public void testSerialization() throws Exception {
+    // Decompose mainFilter to bytes.
+    ByteArrayOutputStream stream = new ByteArrayOutputStream();
+    DataOutputStream out = new DataOutputStream(stream);
+    mainFilter.write(out);
+    out.close();
+    byte[] buffer = stream.toByteArray();
+
+    // Recompose mainFilter.
+    DataInputStream in = new DataInputStream(new ByteArrayInputStream(buffer));
+    RowFilterInterface newFilter = new PrefixRowFilter();
+    newFilter.readFields(in);
+
+    // Ensure the serialization preserved the filter by running a full test.
+    prefixTests(newFilter);
+  }
+
+  private void prefixTests(RowFilterInterface filter) throws Exception {
+    assertTrue("Filtering on " + BEFORE_ROW, filter.filter(BEFORE_ROW));
+    assertEquals(PREFIX, AbstractRowFilter.getNextRowHint(filter, BEFORE_ROW));
+    assertFalse(filter.filterAllRemaining());
+    assertFalse("Filtering on " + PREFIX, filter.filter(PREFIX));
+    assertFalse("Filtering on " + GOOD_ROW, filter.filter(GOOD_ROW));
+    assertFalse(filter.filterAllRemaining());
+    assertTrue("Filtering on " + PAST_ROW, filter.filter(PAST_ROW));
+    assertNull(AbstractRowFilter.getNextRowHint(filter, PAST_ROW));
+    assertTrue(filter.filterAllRemaining());
+    filter.reset();
+    assertFalse(filter.filterAllRemaining());
+  }
+}
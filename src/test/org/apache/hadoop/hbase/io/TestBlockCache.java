@@ -0,0 +1,110 @@
+/**
+ * Copyright 2008 The Apache Software Foundation
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.hadoop.hbase.io;
+
+import org.apache.hadoop.fs.FSDataOutputStream;
+import org.apache.hadoop.fs.Path;
+import org.apache.hadoop.hbase.HBaseTestCase;
+
+/**
+ * Tests for {@link BlockCache} and reading through it with
+ * {@link BlockFSInputStream}.
+ */
+public class TestBlockCache extends HBaseTestCase {
+
+  /**
+   * Test least recently used blocks are evicted to stay under the maximum
+   * size and that hits, misses and evictions are counted.
+   */
+  public void testEviction() {
+    BlockCache cache = new BlockCache(30);
+    cache.cacheBlock("a", 0, new byte[10]);
+    cache.cacheBlock("a", 10, new byte[10]);
+    cache.cacheBlock("b", 0, new byte[10]);
+    assertEquals(30, cache.getSize());
+    // Touch the first block so the second is least recently used.
+    assertNotNull(cache.getBlock("a", 0));
+    cache.cacheBlock("b", 10, new byte[10]);
+    assertEquals(30, cache.getSize());
+    assertEquals(3, cache.getBlockCount());
+    assertNull(cache.getBlock("a", 10));
+    assertNotNull(cache.getBlock("a", 0));
+    assertNotNull(cache.getBlock("b", 0));
+    assertNotNull(cache.getBlock("b", 10));
+    assertEquals(4, cache.getHitCount());
+    assertEquals(1, cache.getMissCount());
+    assertEquals(1, cache.getEvictionCount());
+    // Blocks bigger than the whole cache are not kept.
+    cache.cacheBlock("c", 0, new byte[31]);
+    assertNull(cache.getBlock("c", 0));
+    assertEquals(30, cache.getSize());
+  }
+
+  /**
+   * Test two streams over the same file share cached blocks.
+   * @throws Exception
+   */
+  public void testSharedStreams() throws Exception {
+    final int blockSize = 16;
+    byte [] data = new byte[100];
+    for (int i = 0; i < data.length; i++) {
+      data[i] = (byte)i;
+    }
+    Path p = new Path(testDir, getName());
+    FSDataOutputStream out = fs.create(p);
+    try {
+      out.write(data);
+    } finally {
+      out.close();
+    }
+    BlockCache cache = new BlockCache(1024);
+    BlockFSInputStream in = new BlockFSInputStream(fs.open(p), p.toString(),
+      data.length, blockSize, cache);
+    try {
+      byte [] buf = new byte[data.length];
+      int read = 0;
+      while (read < buf.length) {
+        read += in.read(buf, read, buf.length - read);
+      }
+      for (int i = 0; i < data.length; i++) {
+        assertEquals(data[i], buf[i]);
+      }
+    } finally {
+      in.close();
+    }
+    assertEquals(0, cache.getHitCount());
+    assertEquals(7, cache.getBlockCount());
+    assertEquals(data.length, cache.getSize());
+
+    in = new BlockFSInputStream(fs.open(p), p.toString(), data.length,
+      blockSize, cache);
+    try {
+      in.seek(50);
+      assertEquals(50, in.read());
+      in.seek(99);
+      assertEquals(99, in.read());
+      assertEquals(-1, in.read());
+    } finally {
+      in.close();
+    }
+    assertEquals(2, cache.getHitCount());
+    assertEquals(7, cache.getMissCount());
+  }
+}
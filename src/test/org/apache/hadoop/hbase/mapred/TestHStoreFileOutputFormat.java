@@ -0,0 +1,95 @@
+/**
+ * Copyright 2008 The Apache Software Foundation
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.hadoop.hbase.mapred;
+
+import java.io.IOException;
+
+import org.apache.hadoop.fs.Path;
+import org.apache.hadoop.hbase.HBaseAdmin;
+import org.apache.hadoop.hbase.HBaseClusterTestCase;
+import org.apache.hadoop.hbase.HColumnDescriptor;
+import org.apache.hadoop.hbase.HConstants;
+import org.apache.hadoop.hbase.HStoreKey;
+import org.apache.hadoop.hbase.HTable;
+import org.apache.hadoop.hbase.HTableDescriptor;
+import org.apache.hadoop.hbase.io.ImmutableBytesWritable;
+import org.apache.hadoop.io.Text;
+
+/**
+ * Test writing store files with {@link HStoreFileOutputFormat} and loading
+ * them into a live table with {@link LoadHStoreFiles}.
+ */
+public class TestHStoreFileOutputFormat extends HBaseClusterTestCase {
+  private static final String CONTENTS_STR = "contents:";
+  private static final Text CONTENTS = new Text(CONTENTS_STR);
+  private static final int ROW_COUNT = 100;
+
+  private HTable table = null;
+
+  /** {@inheritDoc} */
+  @Override
+  public void setUp() throws Exception {
+    super.setUp();
+    HTableDescriptor desc = new HTableDescriptor(getName());
+    desc.addFamily(new HColumnDescriptor(CONTENTS_STR));
+    HBaseAdmin admin = new HBaseAdmin(conf);
+    admin.createTable(desc);
+    table = new HTable(conf, desc.getName());
+  }
+
+  /**
+   * Write rows as store files, load them, then read them back.  A cell
+   * already in the table is newer than the loaded cells so must win.
+   * @throws IOException
+   */
+  public void testLoad() throws IOException {
+    Text newerRow = getRow(ROW_COUNT / 2);
+    long lockid = table.startUpdate(newerRow);
+    table.put(lockid, CONTENTS, "newer".getBytes(HConstants.UTF8_ENCODING));
+    table.commit(lockid);
+
+    Path outputDir = fs.makeQualified(new Path("bulkload"));
+    HStoreFileOutputFormat.HStoreFileRecordWriter writer =
+      new HStoreFileOutputFormat.HStoreFileRecordWriter(conf, fs, outputDir,
+        table, null);
+    for (int i = 0; i < ROW_COUNT; i++) {
+      Text row = getRow(i);
+      writer.write(new HStoreKey(row, CONTENTS, 1L),
+        new ImmutableBytesWritable(row.getBytes()));
+    }
+    writer.close(null);
+
+    LoadHStoreFiles loader = new LoadHStoreFiles();
+    loader.setConf(conf);
+    assertEquals(1, loader.load(outputDir, table));
+
+    for (int i = 0; i < ROW_COUNT; i++) {
+      Text row = getRow(i);
+      byte [] value = table.get(row, CONTENTS);
+      assertNotNull(row.toString(), value);
+      assertEquals(row.equals(newerRow)? "newer": row.toString(),
+        new String(value, HConstants.UTF8_ENCODING));
+    }
+  }
+
+  private Text getRow(final int i) {
+    return new Text(String.format("row%1$05d", Integer.valueOf(i)));
+  }
+}
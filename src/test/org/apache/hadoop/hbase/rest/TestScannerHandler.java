@@ -0,0 +1,204 @@
+/**
+ * Copyright 2008 The Apache Software Foundation
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.hadoop.hbase.rest;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.SortedMap;
+
+import junit.framework.TestCase;
+
+import org.apache.hadoop.hbase.HScannerInterface;
+import org.apache.hadoop.hbase.HStoreKey;
+import org.apache.hadoop.io.Text;
+
+/**
+ * Test how the REST scanner handler batches rows.
+ */
+public class TestScannerHandler extends TestCase {
+  private static final Text COLUMN = new Text("a:b");
+  // Each row is "rowN", one COLUMN and a three byte value: 10 bytes.
+  private static final int ROW_SIZE = 10;
+  private static final int ROW_COUNT = 10;
+
+  /**
+   * The row budget ends a batch; the next batch starts at the next row.
+   * @throws IOException
+   */
+  public void testRowBudget() throws IOException {
+    ScannerHandler.ScannerRecord sr = openScanner(ROW_COUNT);
+    List<String> rows = new ArrayList<String>();
+    assertEquals(3, ScannerHandler.writeBatch(sr, collector(rows), 3, 0));
+    assertEquals(3, ScannerHandler.writeBatch(nextBatch(sr), collector(rows),
+      3, 0));
+    for (int i = 0; i < rows.size(); i++) {
+      assertEquals("row" + i, rows.get(i));
+    }
+  }
+
+  /**
+   * The byte budget ends a batch with the row that spends it.
+   * @throws IOException
+   */
+  public void testByteBudget() throws IOException {
+    assertEquals(2, ScannerHandler.writeBatch(openScanner(ROW_COUNT),
+      collector(null), 0, 2 * ROW_SIZE));
+    assertEquals(3, ScannerHandler.writeBatch(openScanner(ROW_COUNT),
+      collector(null), 0, 2 * ROW_SIZE + 1));
+  }
+
+  /**
+   * With both budgets, whichever is spent first ends the batch.
+   * @throws IOException
+   */
+  public void testFirstBudgetSpent() throws IOException {
+    assertEquals(2, ScannerHandler.writeBatch(openScanner(ROW_COUNT),
+      collector(null), 5, 2 * ROW_SIZE));
+    assertEquals(2, ScannerHandler.writeBatch(openScanner(ROW_COUNT),
+      collector(null), 2, 100 * ROW_SIZE));
+  }
+
+  /**
+   * A row bigger than the byte budget, or no budget at all, still gets one
+   * row out.
+   * @throws IOException
+   */
+  public void testAtLeastOneRow() throws IOException {
+    assertEquals(1, ScannerHandler.writeBatch(openScanner(ROW_COUNT),
+      collector(null), 0, 1));
+    assertEquals(1, ScannerHandler.writeBatch(openScanner(ROW_COUNT),
+      collector(null), 0, 0));
+  }
+
+  /**
+   * A batch ends with the scanner.
+   * @throws IOException
+   */
+  public void testScannerDone() throws IOException {
+    ScannerHandler.ScannerRecord sr = openScanner(2);
+    assertEquals(2, ScannerHandler.writeBatch(sr, collector(null), 10, 0));
+    assertTrue(sr.isEmpty());
+  }
+
+  /**
+   * Rows in application/octet-stream read back as documented.
+   * @throws IOException
+   */
+  public void testBinaryRows() throws IOException {
+    ScannerHandler.ScannerRecord sr = openScanner(ROW_COUNT);
+    ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    final DataOutputStream out = new DataOutputStream(bytes);
+    assertEquals(2, ScannerHandler.writeBatch(sr,
+      new ScannerHandler.RowWriter() {
+        public void write(final ScannerHandler.ScannerRecord r)
+        throws IOException {
+          ScannerHandler.outputRowBinary(out, r);
+        }
+      }, 2, 0));
+    out.close();
+    DataInputStream in =
+      new DataInputStream(new ByteArrayInputStream(bytes.toByteArray()));
+    for (int i = 0; i < 2; i++) {
+      assertEquals("row" + i, new String(readBytes(in)));
+      assertEquals(i, in.readLong());
+      assertEquals(1, in.readInt());
+      assertEquals(COLUMN.toString(), new String(readBytes(in)));
+      assertEquals("v" + i + i, new String(readBytes(in)));
+    }
+    assertEquals(-1, in.read());
+  }
+
+  private static byte [] readBytes(final DataInputStream in)
+  throws IOException {
+    byte [] b = new byte[in.readInt()];
+    in.readFully(b);
+    return b;
+  }
+
+  /*
+   * @return Record of a scanner over <code>count</code> rows, positioned on
+   * the first row as the handler does before writing a batch.
+   */
+  private static ScannerHandler.ScannerRecord openScanner(final int count)
+  throws IOException {
+    return nextBatch(new ScannerHandler.ScannerRecord(new RowScanner(count)));
+  }
+
+  private static ScannerHandler.ScannerRecord nextBatch(
+      final ScannerHandler.ScannerRecord sr)
+  throws IOException {
+    assertTrue(sr.next());
+    return sr;
+  }
+
+  /*
+   * @param rows Where to add the names of written rows, or null.
+   */
+  private static ScannerHandler.RowWriter collector(final List<String> rows) {
+    return new ScannerHandler.RowWriter() {
+      public void write(final ScannerHandler.ScannerRecord sr) {
+        assertEquals(ROW_SIZE, sr.getSize());
+        if (rows != null) {
+          rows.add(sr.getKey().getRow().toString());
+        }
+      }
+    };
+  }
+
+  /*
+   * Scanner over rows "row0", "row1", ... each with one cell.
+   */
+  private static class RowScanner implements HScannerInterface {
+    private final int count;
+    private int next = 0;
+
+    RowScanner(final int count) {
+      this.count = count;
+    }
+
+    public boolean next(final HStoreKey key,
+        final SortedMap<Text, byte []> results) {
+      if (this.next >= this.count) {
+        return false;
+      }
+      key.setRow(new Text("row" + this.next));
+      key.setVersion(this.next);
+      results.put(COLUMN, ("v" + this.next + this.next).getBytes());
+      this.next++;
+      return true;
+    }
+
+    public void close() {
+      // Nothing to close
+    }
+
+    public Iterator<Map.Entry<HStoreKey, SortedMap<Text, byte []>>>
+    iterator() {
+      throw new UnsupportedOperationException();
+    }
+  }
+}
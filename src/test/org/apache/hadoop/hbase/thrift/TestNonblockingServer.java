@@ -0,0 +1,194 @@
+/**
+ * Copyright 2008 The Apache Software Foundation
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.hadoop.hbase.thrift;
+
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.SocketException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Map;
+
+import junit.framework.TestCase;
+
+import org.apache.hadoop.hbase.thrift.generated.Hbase;
+import org.apache.hadoop.hbase.thrift.generated.ScanEntry;
+
+import com.facebook.thrift.protocol.TBinaryProtocol;
+import com.facebook.thrift.transport.TFramedTransport;
+import com.facebook.thrift.transport.TSocket;
+import com.facebook.thrift.transport.TTransport;
+import com.facebook.thrift.transport.TTransportException;
+
+/**
+ * Test calls through the nonblocking server over a framed transport.
+ */
+public class TestNonblockingServer extends TestCase {
+  private static final int MAX_FRAME_SIZE = 1024;
+  private static final byte[] COLUMN = "info:a".getBytes();
+
+  private int port;
+  private NonblockingServer server;
+  private Thread serverThread;
+
+  /** {@inheritDoc} */
+  @Override
+  protected void setUp() throws Exception {
+    super.setUp();
+    ServerSocket s = new ServerSocket(0);
+    this.port = s.getLocalPort();
+    s.close();
+    this.server = new NonblockingServer(new Hbase.Processor(newHandler()),
+      this.port, new TBinaryProtocol.Factory(), 2, MAX_FRAME_SIZE);
+    this.serverThread = new Thread() {
+      @Override
+      public void run() {
+        server.serve();
+      }
+    };
+    this.serverThread.start();
+  }
+
+  /** {@inheritDoc} */
+  @Override
+  protected void tearDown() throws Exception {
+    this.server.stop();
+    this.serverThread.join();
+    super.tearDown();
+  }
+
+  /**
+   * A multi-row get goes through and comes back in row order.
+   * @throws Exception
+   */
+  public void testGetRows() throws Exception {
+    TTransport transport = openTransport();
+    try {
+      Hbase.Client client =
+        new Hbase.Client(new TBinaryProtocol(transport));
+      ArrayList<byte[]> rows = new ArrayList<byte[]>();
+      for (int i = 0; i < 3; i++) {
+        rows.add(("row" + i).getBytes());
+      }
+      // Two calls on one connection: the server must go back to reading.
+      for (int call = 0; call < 2; call++) {
+        ArrayList<ScanEntry> result = client.getRows("t".getBytes(), rows);
+        assertEquals(rows.size(), result.size());
+        for (int i = 0; i < rows.size(); i++) {
+          ScanEntry entry = result.get(i);
+          assertEquals("row" + i, new String(entry.row));
+          assertEquals(1, entry.columns.size());
+          Map.Entry<byte[], byte[]> column =
+            entry.columns.entrySet().iterator().next();
+          assertEquals(new String(COLUMN), new String(column.getKey()));
+          assertEquals("row" + i, new String(column.getValue()));
+        }
+      }
+    } finally {
+      transport.close();
+    }
+  }
+
+  /**
+   * A frame larger than the maximum gets the connection closed before the
+   * call is read.
+   * @throws Exception
+   */
+  public void testOversizedFrame() throws Exception {
+    Socket socket = openSocket();
+    try {
+      DataOutputStream out = new DataOutputStream(socket.getOutputStream());
+      out.writeInt(MAX_FRAME_SIZE + 1);
+      out.flush();
+      socket.setSoTimeout(10 * 1000);
+      InputStream in = socket.getInputStream();
+      try {
+        assertEquals(-1, in.read());
+      } catch (SocketException e) {
+        // Reset by the server is as good as closed.  A timeout is a failure.
+      }
+    } finally {
+      socket.close();
+    }
+  }
+
+  /*
+   * @return Framed transport to the server, retrying until it is listening.
+   */
+  private TTransport openTransport() throws Exception {
+    for (int i = 0; ; i++) {
+      TTransport transport = new TFramedTransport(new TSocket("localhost",
+        this.port));
+      try {
+        transport.open();
+        return transport;
+      } catch (TTransportException e) {
+        if (i >= 50) {
+          throw e;
+        }
+        Thread.sleep(100);
+      }
+    }
+  }
+
+  private Socket openSocket() throws Exception {
+    for (int i = 0; ; i++) {
+      try {
+        return new Socket("localhost", this.port);
+      } catch (IOException e) {
+        if (i >= 50) {
+          throw e;
+        }
+        Thread.sleep(100);
+      }
+    }
+  }
+
+  /*
+   * @return Handler whose getRows returns each row with its name as the
+   * value of COLUMN.  Other calls are not supported.
+   */
+  private static Hbase.Iface newHandler() {
+    return (Hbase.Iface)Proxy.newProxyInstance(
+      Hbase.Iface.class.getClassLoader(), new Class[] {Hbase.Iface.class},
+      new InvocationHandler() {
+        @SuppressWarnings("unchecked")
+        public Object invoke(@SuppressWarnings("unused") Object proxy,
+            Method method, Object[] args) {
+          if (!method.getName().equals("getRows")) {
+            throw new UnsupportedOperationException(method.getName());
+          }
+          ArrayList<ScanEntry> result = new ArrayList<ScanEntry>();
+          for (byte[] row: (ArrayList<byte[]>)args[1]) {
+            HashMap<byte[], byte[]> columns = new HashMap<byte[], byte[]>();
+            columns.put(COLUMN, row);
+            result.add(new ScanEntry(row, columns));
+          }
+          return result;
+        }
+      });
+  }
+}
@@ -30,6 +30,9 @@
 <tr><td>HBase Version</td><td><%= org.apache.hadoop.hbase.util.VersionInfo.getVersion() %>, r<%= org.apache.hadoop.hbase.util.VersionInfo.getRevision() %></td><td>HBase version and svn revision</td></tr>
 <tr><td>HBase Compiled</td><td><%= org.apache.hadoop.hbase.util.VersionInfo.getDate() %>, <%= org.apache.hadoop.hbase.util.VersionInfo.getUser() %></td><td>When HBase version was compiled and by whom</td></tr>
 <tr><td>Load</td><td><%= serverInfo.getLoad().toString() %></td><td>Requests/<em>hbase.regionserver.msginterval</em> + count of loaded regions</td></tr>
+<tr><td>Block Cache</td><td><%= regionServer.getBlockCache() == null? "disabled": regionServer.getBlockCache().toString() %></td><td>Size, hits, misses and evictions of the store file block cache</td></tr>
+<tr><td>Scanners</td><td><%= regionServer.getScannerStats() %></td><td>Open scanners, bytes being gathered for scanner replies, lease expirations, and count and mean microseconds of lease renewals</td></tr>
+<tr><td>Compaction Queue</td><td><%= regionServer.getCompactionQueueSize() %></td><td>Count of regions waiting on a compaction</td></tr>
 </table>
 
 <h2>Online Regions</h2>